@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.controller.dto.film.FilmDto;
+import ru.yandex.practicum.filmorate.controller.dto.user.UserDto;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of stored entities to the DTOs that responses are encoded from.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DtoMappingBenchmark {
+    private final Film film =
+            new Film(1L, "Star Wars", "Science Fiction", LocalDate.of(1999, Month.AUGUST, 19), Duration.ofMinutes(90));
+    private final User user =
+            new User(1L, "email@test.com", "login_test", "John Wick", LocalDate.of(1988, Month.APRIL, 1));
+
+    @Benchmark
+    public FilmDto fromFilm() {
+        return FilmDto.fromFilm(film);
+    }
+
+    @Benchmark
+    public UserDto fromUser() {
+        return UserDto.fromUser(user);
+    }
+}
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.infrastructure.InMemoryFilmRepository;
+import ru.yandex.practicum.filmorate.infrastructure.persistence.Journal;
+import ru.yandex.practicum.filmorate.infrastructure.persistence.Links;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.IdGenerator;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Likes of {@code size} films that start with up to a hundred likes each. A toggle likes a random film for a random
+ * user, or takes the like back if the user had it, so the counts stay about the same during a run. The full scan
+ * counts likes of every film and sorts, which is what a ranking computed on read would do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class FilmLikesBenchmark {
+    private static final int FILL_BATCH = 1000;
+    private static final int USERS = 10_000;
+
+    @Param({"100000"})
+    private int size;
+
+    @Param({"10"})
+    private int count;
+
+    private InMemoryFilmRepository films;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        SplittableRandom random = new SplittableRandom(42);
+        films = new InMemoryFilmRepository(new IdGenerator(), Journal.NONE);
+        for (int created = 0; created < size; created += FILL_BATCH) {
+            List<Film> batch = new ArrayList<>();
+            for (int i = 0; i < Math.min(FILL_BATCH, size - created); i++) {
+                batch.add(new Film(null, "Film", "Description", LocalDate.of(1999, 8, 19), Duration.ofMinutes(90)));
+            }
+            films.createAll(batch);
+        }
+        for (long filmId = 1; filmId <= size; filmId++) {
+            for (int like = random.nextInt(100); like > 0; like--) {
+                films.like(filmId, random.nextInt(USERS));
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean toggleLike() {
+        long filmId = ThreadLocalRandom.current().nextLong(1, size + 1);
+        long userId = ThreadLocalRandom.current().nextInt(USERS);
+        return films.like(filmId, userId) || films.unlike(filmId, userId);
+    }
+
+    @Benchmark
+    public List<Film> popular() {
+        return films.findPopular(count);
+    }
+
+    @Benchmark
+    public long[] popularByFullScan() {
+        return films.likesSnapshot().stream()
+                .sorted((first, second) -> Integer.compare(second.ids().length, first.ids().length))
+                .limit(count)
+                .mapToLong(Links::id)
+                .toArray();
+    }
+}
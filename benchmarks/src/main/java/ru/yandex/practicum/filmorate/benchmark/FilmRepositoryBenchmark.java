@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.yandex.practicum.filmorate.infrastructure.InMemoryFilmRepository;
+import ru.yandex.practicum.filmorate.infrastructure.persistence.Journal;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.IdGenerator;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operations of {@link InMemoryFilmRepository} on a catalog of {@code size} films, without a journal.
+ * The nested classes run the same operations from one and from four threads at once.
+ * The catalog is filled anew before every iteration, so creates do not keep growing it across iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class FilmRepositoryBenchmark {
+    private static final int FILL_BATCH = 1000;
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    private InMemoryFilmRepository films;
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        films = new InMemoryFilmRepository(new IdGenerator(), Journal.NONE);
+        for (int created = 0; created < size; created += FILL_BATCH) {
+            List<Film> batch = new ArrayList<>();
+            for (int i = 0; i < Math.min(FILL_BATCH, size - created); i++) {
+                batch.add(film());
+            }
+            films.createAll(batch);
+        }
+    }
+
+    @Benchmark
+    public Film create() {
+        return films.create(film());
+    }
+
+    @Benchmark
+    public Optional<Film> findBy() {
+        return films.findBy(randomId());
+    }
+
+    @Benchmark
+    public void findAll(Blackhole blackhole) {
+        for (Film film : films.findAll()) {
+            blackhole.consume(film);
+        }
+    }
+
+    @Benchmark
+    public Film update() {
+        Film existing = films.findBy(randomId()).orElseThrow();
+        return films.update(existing.toBuilder().name("Updated").build());
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, size + 1);
+    }
+
+    private static Film film() {
+        return new Film(null, "Film", "Description", LocalDate.of(1999, Month.AUGUST, 19), Duration.ofMinutes(90));
+    }
+
+    @Threads(1)
+    public static class OneThread extends FilmRepositoryBenchmark {
+    }
+
+    @Threads(4)
+    public static class FourThreads extends FilmRepositoryBenchmark {
+    }
+}
@@ -0,0 +1,139 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.infrastructure.InMemoryFilmRepository;
+import ru.yandex.practicum.filmorate.infrastructure.persistence.Journal;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.IdGenerator;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full-text search over {@code size} films whose names and descriptions draw words from a vocabulary
+ * with Zipf-distributed frequencies, like natural text: a few words are in most films and most words in few.
+ * Queries are one rare word, one word of the hundred most frequent ones, and a frequent word with a rare one.
+ * {@link #suggest} completes the first characters of a name word, as typed into a search box.
+ * {@link #create} measures a create, which now indexes the new film as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class FilmSearchBenchmark {
+    private static final int VOCABULARY = 50_000;
+    private static final int FILL_BATCH = 1000;
+    private static final int QUERIES = 1024;
+
+    @Param({"1000000"})
+    private int size;
+
+    private InMemoryFilmRepository films;
+    private double[] cumulative;
+    private String[] rareQueries;
+    private String[] commonQueries;
+    private String[] pairQueries;
+    private String[] prefixes;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        cumulative = new double[VOCABULARY];
+        double sum = 0.0;
+        for (int rank = 0; rank < VOCABULARY; rank++) {
+            sum += 1.0 / (rank + 1);
+            cumulative[rank] = sum;
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        films = new InMemoryFilmRepository(new IdGenerator(), Journal.NONE);
+        for (int created = 0; created < size; created += FILL_BATCH) {
+            List<Film> batch = new ArrayList<>();
+            for (int i = 0; i < Math.min(FILL_BATCH, size - created); i++) {
+                batch.add(film(random));
+            }
+            films.createAll(batch);
+        }
+        rareQueries = new String[QUERIES];
+        commonQueries = new String[QUERIES];
+        pairQueries = new String[QUERIES];
+        prefixes = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            rareQueries[i] = word(1_000 + random.nextInt(10_000));
+            commonQueries[i] = word(random.nextInt(100));
+            pairQueries[i] = commonQueries[i] + " " + word(100 + random.nextInt(1_000));
+            String typed = word(zipfRank(random));
+            prefixes[i] = typed.substring(0, Math.min(typed.length(), 3));
+        }
+    }
+
+    @Benchmark
+    public List<Film> searchRareWord() {
+        return films.search(rareQueries[next()], 0, 20);
+    }
+
+    @Benchmark
+    public List<Film> searchCommonWord() {
+        return films.search(commonQueries[next()], 0, 20);
+    }
+
+    @Benchmark
+    public List<Film> searchTwoWords() {
+        return films.search(pairQueries[next()], 0, 20);
+    }
+
+    @Benchmark
+    public List<Film> suggest() {
+        return films.suggest(prefixes[next()], 10);
+    }
+
+    @Benchmark
+    public Film create() {
+        return films.create(film(new SplittableRandom(ThreadLocalRandom.current().nextLong())));
+    }
+
+    private Film film(SplittableRandom random) {
+        return new Film(null, text(random, 2 + random.nextInt(3)), text(random, 10 + random.nextInt(20)),
+                LocalDate.of(1999, Month.AUGUST, 19), Duration.ofMinutes(90));
+    }
+
+    private String text(SplittableRandom random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(word(zipfRank(random)));
+        }
+        return text.toString();
+    }
+
+    private int zipfRank(SplittableRandom random) {
+        double target = random.nextDouble() * cumulative[VOCABULARY - 1];
+        int low = 0;
+        int high = VOCABULARY - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulative[middle] < target) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static String word(int rank) {
+        return "w" + Integer.toString(rank, 36);
+    }
+
+    private static int next() {
+        return ThreadLocalRandom.current().nextInt(QUERIES);
+    }
+}
@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.infrastructure.InMemoryUserRepository;
+import ru.yandex.practicum.filmorate.infrastructure.persistence.Journal;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.IdGenerator;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Friendships of {@code size} users with about {@code friends} random friends each. Common friends of two random
+ * users are found by merging their packed sets; the boxed variant intersects the same ids as {@code Set<Long>},
+ * which is what the graph would cost without packing. A toggle makes two random users friends, or ends
+ * their friendship if they were friends, so the graph stays about the same size during a run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class FriendGraphBenchmark {
+    private static final int FILL_BATCH = 1000;
+
+    @Param({"100000"})
+    private int size;
+
+    @Param({"200"})
+    private int friends;
+
+    private InMemoryUserRepository users;
+    private List<Set<Long>> boxed;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        SplittableRandom random = new SplittableRandom(42);
+        users = new InMemoryUserRepository(new IdGenerator(), Journal.NONE);
+        for (int created = 0; created < size; created += FILL_BATCH) {
+            List<User> batch = new ArrayList<>();
+            for (int i = created; i < Math.min(created + FILL_BATCH, size); i++) {
+                batch.add(new User(null, "user" + i + "@test.com", "user" + i, "User",
+                        LocalDate.of(1988, Month.APRIL, 1)));
+            }
+            users.createAll(batch);
+        }
+        boxed = new ArrayList<>(size + 1);
+        for (int id = 0; id <= size; id++) {
+            boxed.add(new HashSet<>());
+        }
+        for (long id = 1; id <= size; id++) {
+            for (int i = 0; i < friends / 2; i++) {
+                long friendId = random.nextLong(1, size + 1);
+                if (users.addFriend(id, friendId)) {
+                    boxed.get((int) id).add(friendId);
+                    boxed.get((int) friendId).add(id);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public List<User> commonFriends() {
+        return users.findCommonFriends(randomId(), randomId());
+    }
+
+    @Benchmark
+    public int commonFriendsOfBoxedSets() {
+        Set<Long> common = new HashSet<>(boxed.get((int) randomId()));
+        common.retainAll(boxed.get((int) randomId()));
+        return common.size();
+    }
+
+    @Benchmark
+    public List<User> friends() {
+        return users.findFriends(randomId());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean toggleFriend() {
+        long id = randomId();
+        long friendId = randomId();
+        return users.addFriend(id, friendId) || users.removeFriend(id, friendId);
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, size + 1);
+    }
+}
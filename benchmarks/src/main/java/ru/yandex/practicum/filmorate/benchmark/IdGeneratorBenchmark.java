@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.util.IdGenerator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Id generation from one shared {@link IdGenerator}, alone and with threads competing for the same sequence.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class IdGeneratorBenchmark {
+    private static final int BATCH = 100;
+
+    private final IdGenerator idGenerator = new IdGenerator();
+
+    @Benchmark
+    public long generateFilmId() {
+        return idGenerator.generateFilmId();
+    }
+
+    @Benchmark
+    public long generateFilmIds() {
+        return idGenerator.generateFilmIds(BATCH);
+    }
+
+    @Threads(1)
+    public static class OneThread extends IdGeneratorBenchmark {
+    }
+
+    @Threads(4)
+    public static class FourThreads extends IdGeneratorBenchmark {
+    }
+
+    @Threads(16)
+    public static class SixteenThreads extends IdGeneratorBenchmark {
+    }
+}
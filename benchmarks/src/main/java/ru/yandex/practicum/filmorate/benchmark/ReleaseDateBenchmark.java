@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.infrastructure.InMemoryFilmRepository;
+import ru.yandex.practicum.filmorate.infrastructure.persistence.Journal;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.IdGenerator;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Release date range queries over {@code size} films released on random days of 1900 to 2024.
+ * A page is the first {@code limit} films of a random year, and a full scan walks {@code findAll()} and filters,
+ * which is what clients had to do before the index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class ReleaseDateBenchmark {
+    private static final int FILL_BATCH = 1000;
+    private static final LocalDate FIRST_DAY = LocalDate.of(1900, 1, 1);
+    private static final int DAYS = (int) (LocalDate.of(2025, 1, 1).toEpochDay() - FIRST_DAY.toEpochDay());
+
+    @Param({"1000000"})
+    private int size;
+
+    @Param({"100"})
+    private int limit;
+
+    private InMemoryFilmRepository films;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        SplittableRandom random = new SplittableRandom(42);
+        films = new InMemoryFilmRepository(new IdGenerator(), Journal.NONE);
+        for (int created = 0; created < size; created += FILL_BATCH) {
+            List<Film> batch = new ArrayList<>();
+            for (int i = 0; i < Math.min(FILL_BATCH, size - created); i++) {
+                batch.add(new Film(null, "Film", "Description", FIRST_DAY.plusDays(random.nextInt(DAYS)),
+                        Duration.ofMinutes(90)));
+            }
+            films.createAll(batch);
+        }
+    }
+
+    @Benchmark
+    public List<Film> pageOfYear() {
+        LocalDate from = randomYear();
+        return films.findAllReleasedBetween(from, from.plusYears(1).minusDays(1), 0L, limit);
+    }
+
+    @Benchmark
+    public List<Film> fullScanOfYear() {
+        LocalDate from = randomYear();
+        LocalDate to = from.plusYears(1).minusDays(1);
+        List<Film> found = new ArrayList<>();
+        for (Film film : films.findAll()) {
+            if (!film.getReleaseDate().isBefore(from) && !film.getReleaseDate().isAfter(to)) {
+                found.add(film);
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public Film moveToAnotherDay() {
+        Film existing = films.findBy(ThreadLocalRandom.current().nextLong(1, size + 1)).orElseThrow();
+        return films.update(existing.toBuilder()
+                .releaseDate(FIRST_DAY.plusDays(ThreadLocalRandom.current().nextInt(DAYS)))
+                .build());
+    }
+
+    private static LocalDate randomYear() {
+        return FIRST_DAY.plusYears(ThreadLocalRandom.current().nextInt(125));
+    }
+}
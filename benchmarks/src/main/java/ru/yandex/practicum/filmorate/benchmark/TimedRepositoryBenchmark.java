@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.infrastructure.InMemoryFilmRepository;
+import ru.yandex.practicum.filmorate.infrastructure.persistence.Journal;
+import ru.yandex.practicum.filmorate.metrics.TimedFilmRepository;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+import ru.yandex.practicum.filmorate.util.IdGenerator;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of timing repository calls with the Prometheus registry: the same lookup with and without the timer.
+ * Run with {@code -prof gc} to see that timing allocates nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimedRepositoryBenchmark {
+    private static final int SIZE = 10_000;
+
+    private InMemoryFilmRepository films;
+    private FilmRepository timedFilms;
+
+    @Setup
+    public void setUp() {
+        films = new InMemoryFilmRepository(new IdGenerator(), Journal.NONE);
+        List<Film> batch = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            batch.add(new Film(null, "Film", "Description", LocalDate.of(1999, Month.AUGUST, 19),
+                    Duration.ofMinutes(90)));
+        }
+        films.createAll(batch);
+        timedFilms = new TimedFilmRepository(films, new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+    }
+
+    @Benchmark
+    public Optional<Film> findBy() {
+        return films.findBy(randomId());
+    }
+
+    @Benchmark
+    public Optional<Film> timedFindBy() {
+        return timedFilms.findBy(randomId());
+    }
+
+    private static long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, SIZE + 1);
+    }
+}
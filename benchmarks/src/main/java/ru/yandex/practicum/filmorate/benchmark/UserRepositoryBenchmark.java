@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.yandex.practicum.filmorate.infrastructure.InMemoryUserRepository;
+import ru.yandex.practicum.filmorate.infrastructure.persistence.Journal;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.IdGenerator;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Operations of {@link InMemoryUserRepository} on a repository of {@code size} users, without a journal.
+ * The nested classes run the same operations from one and from four threads at once.
+ * The repository is filled anew before every iteration, so creates do not keep growing it across iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class UserRepositoryBenchmark {
+    private static final int FILL_BATCH = 1000;
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    private final AtomicLong logins = new AtomicLong();
+
+    private InMemoryUserRepository users;
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        users = new InMemoryUserRepository(new IdGenerator(), Journal.NONE);
+        logins.set(0L);
+        for (int created = 0; created < size; created += FILL_BATCH) {
+            List<User> batch = new ArrayList<>();
+            for (int i = 0; i < Math.min(FILL_BATCH, size - created); i++) {
+                batch.add(user());
+            }
+            users.createAll(batch);
+        }
+    }
+
+    @Benchmark
+    public User create() {
+        return users.create(user());
+    }
+
+    @Benchmark
+    public Optional<User> findBy() {
+        return users.findBy(randomId());
+    }
+
+    @Benchmark
+    public Optional<User> findByEmail() {
+        return users.findByEmail("User" + randomId() + "@Test.com");
+    }
+
+    @Benchmark
+    public void findAll(Blackhole blackhole) {
+        for (User user : users.findAll()) {
+            blackhole.consume(user);
+        }
+    }
+
+    @Benchmark
+    public User update() {
+        User existing = users.findBy(randomId()).orElseThrow();
+        return users.update(existing.toBuilder().name("John").build());
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, size + 1);
+    }
+
+    /**
+     * A user with an email and login no other user has, as they have to be unique.
+     */
+    private User user() {
+        long login = logins.incrementAndGet();
+        return new User(null, "user" + login + "@test.com", "user" + login, "John Wick",
+                LocalDate.of(1988, Month.APRIL, 1));
+    }
+
+    @Threads(1)
+    public static class OneThread extends UserRepositoryBenchmark {
+    }
+
+    @Threads(4)
+    public static class FourThreads extends UserRepositoryBenchmark {
+    }
+}
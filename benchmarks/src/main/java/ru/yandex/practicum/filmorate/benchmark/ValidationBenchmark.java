@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.controller.dto.film.CreateFilmDto;
+import ru.yandex.practicum.filmorate.validation.afterdate.AfterDate;
+import ru.yandex.practicum.filmorate.validation.afterdate.AfterDateValidator;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The release date check alone and full bean validation of a film create request, valid and with every field wrong.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidationBenchmark {
+    private final AfterDateValidator afterDateValidator = new AfterDateValidator();
+    private final LocalDate releaseDate = LocalDate.of(1999, Month.AUGUST, 19);
+    private final CreateFilmDto validFilm =
+            new CreateFilmDto("Star Wars", "Science Fiction", LocalDate.of(1999, Month.AUGUST, 19), 90L);
+    private final CreateFilmDto invalidFilm =
+            new CreateFilmDto("", "", LocalDate.of(1895, Month.JANUARY, 1), -1L);
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+
+    @Setup
+    public void setUp() throws NoSuchFieldException {
+        afterDateValidator.initialize(CreateFilmDto.class.getDeclaredField("releaseDate").getAnnotation(AfterDate.class));
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public boolean afterDate() {
+        return afterDateValidator.isValid(releaseDate, null);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<CreateFilmDto>> validateValidFilm() {
+        return validator.validate(validFilm);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<CreateFilmDto>> validateInvalidFilm() {
+        return validator.validate(invalidFilm);
+    }
+}
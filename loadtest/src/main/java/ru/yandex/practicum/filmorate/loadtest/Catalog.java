@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.StringJoiner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Films and users the load test creates before measuring, so reads and updates hit entities that exist.
+ */
+final class Catalog {
+    private static final int BATCH_SIZE = 1000;
+    private static final Pattern CREATED_ID = Pattern.compile("\"status\":201,\"item\":\\{\"id\":(\\d+)");
+
+    private final long[] filmIds;
+    private final long[] userIds;
+
+    private Catalog(long[] filmIds, long[] userIds) {
+        this.filmIds = filmIds;
+        this.userIds = userIds;
+    }
+
+    static Catalog seed(HttpClient client, URI baseUrl, int films, int users) throws IOException, InterruptedException {
+        return new Catalog(
+                create(client, baseUrl.resolve("/films/batch"), films, true),
+                create(client, baseUrl.resolve("/users/batch"), users, false));
+    }
+
+    long randomFilmId(Random random) {
+        return filmIds[random.nextInt(filmIds.length)];
+    }
+
+    long randomUserId(Random random) {
+        return userIds[random.nextInt(userIds.length)];
+    }
+
+    static String film(int number) {
+        return "{\"name\":\"Film " + number + "\",\"description\":\"Description of film " + number + "\","
+                + "\"releaseDate\":\"1999-08-19\",\"duration\":90}";
+    }
+
+    static String user(int number) {
+        int login = number & Integer.MAX_VALUE;
+        return "{\"email\":\"user" + login + "@test.com\",\"login\":\"user" + login + "\",\"name\":\"User " + login
+                + "\",\"birthday\":\"1988-04-01\"}";
+    }
+
+    private static long[] create(HttpClient client, URI uri, int count, boolean films)
+            throws IOException, InterruptedException {
+        long[] ids = new long[count];
+        int created = 0;
+        while (created < count) {
+            StringJoiner items = new StringJoiner(",", "[", "]");
+            for (int i = created; i < Math.min(created + BATCH_SIZE, count); i++) {
+                items.add(films ? film(i) : user(i));
+            }
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(items.toString()))
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IOException("Seeding failed with status " + response.statusCode() + ": " + response.body());
+            }
+            Matcher matcher = CREATED_ID.matcher(response.body());
+            int before = created;
+            while (matcher.find() && created < count) {
+                ids[created++] = Long.parseLong(matcher.group(1));
+            }
+            if (created == before) {
+                throw new IOException("Seeding created nothing: " + response.body());
+            }
+        }
+        return Arrays.copyOf(ids, created);
+    }
+}
@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load generator for a running application. It seeds a catalog, then keeps {@code concurrency} clients sending
+ * a mix of requests for the warmup and the measured duration, and appends latency percentiles and throughput
+ * of the measured part to a CSV file, one row per operation and one for all of them.
+ * <p>
+ * Without a rate every client sends its next request as soon as the previous one is answered. With a rate
+ * the clients share it evenly and latency counts from when a request was due, not from when it was sent,
+ * so a stalled server shows up in the percentiles instead of just slowing the clients down.
+ */
+public final class LoadTest {
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(5);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final LoadTestOptions options;
+    private final HttpClient client;
+    private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+
+    private LoadTest(LoadTestOptions options) {
+        this.options = options;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, SIGNIFICANT_DIGITS));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        new LoadTest(options).run();
+    }
+
+    private void run() throws IOException, InterruptedException {
+        System.out.printf("Seeding %d films and %d users at %s%n", options.films(), options.users(), options.baseUrl());
+        Catalog catalog = Catalog.seed(client, options.baseUrl(), options.films(), options.users());
+        System.out.printf("Running %s with %d clients%s: %d s warmup, %d s measured%n", options.mix(),
+                options.concurrency(), options.rate() > 0 ? " at " + options.rate() + " requests/s" : "",
+                options.warmupSeconds(), options.durationSeconds());
+
+        Instant startedAt = Instant.now();
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.warmupSeconds());
+        long measureTo = measureFrom + TimeUnit.SECONDS.toNanos(options.durationSeconds());
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < options.concurrency(); i++) {
+                long seed = i;
+                clients.submit(() -> runClient(catalog, new Random(seed), measureFrom, measureTo));
+            }
+        }
+
+        Results results = new Results(options, startedAt, latencies, errors);
+        results.print(System.out);
+        results.append(options.results());
+        System.out.println("Results appended to " + options.results().toAbsolutePath());
+    }
+
+    private Void runClient(Catalog catalog, Random random, long measureFrom, long measureTo) throws InterruptedException {
+        long interval = options.rate() > 0 ? TimeUnit.SECONDS.toNanos(options.concurrency()) / options.rate() : 0L;
+        long due = System.nanoTime() + (interval > 0 ? random.nextLong(interval) : 0L);
+        while (true) {
+            if (interval > 0) {
+                LockSupport.parkNanos(due - System.nanoTime());
+            }
+            long start = interval > 0 ? due : System.nanoTime();
+            if (start >= measureTo) {
+                return null;
+            }
+            Operation operation = options.mix().next(random);
+            boolean succeeded;
+            try {
+                HttpResponse<Void> response = client.send(
+                        operation.request(options.baseUrl(), catalog, random), HttpResponse.BodyHandlers.discarding());
+                succeeded = response.statusCode() == operation.getExpectedStatus();
+            } catch (IOException e) {
+                succeeded = false;
+            }
+            long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+            if (start >= measureFrom && succeeded) {
+                latencies.get(operation).recordValue(Math.min(latencyMicros, HIGHEST_LATENCY_MICROS));
+            } else if (start >= measureFrom) {
+                errors.get(operation).increment();
+            }
+            due += interval;
+        }
+    }
+}
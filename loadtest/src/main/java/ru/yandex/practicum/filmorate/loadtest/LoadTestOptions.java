@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Settings of a load test run, given as {@code --name=value} arguments. Every setting has a default,
+ * so a run without arguments loads a local application on port 8080.
+ */
+record LoadTestOptions(
+        URI baseUrl,
+        int films,
+        int users,
+        int concurrency,
+        int rate,
+        int warmupSeconds,
+        int durationSeconds,
+        Mix mix,
+        Path results,
+        String label) {
+    private static final Set<String> NAMES = Set.of("base-url", "films", "users", "concurrency", "rate",
+            "warmup", "duration", "mix", "results", "label");
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0 || !NAMES.contains(arg.substring(2, equals))) {
+                throw new IllegalArgumentException("Unknown argument: " + arg + ", expected --name=value with name "
+                        + "one of " + NAMES);
+            }
+            values.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        LoadTestOptions options = new LoadTestOptions(
+                URI.create(values.getOrDefault("base-url", "http://localhost:8080")),
+                Integer.parseInt(values.getOrDefault("films", "10000")),
+                Integer.parseInt(values.getOrDefault("users", "1000")),
+                Integer.parseInt(values.getOrDefault("concurrency", "64")),
+                Integer.parseInt(values.getOrDefault("rate", "0")),
+                Integer.parseInt(values.getOrDefault("warmup", "10")),
+                Integer.parseInt(values.getOrDefault("duration", "30")),
+                Mix.parse(values.getOrDefault("mix", Mix.DEFAULT)),
+                Path.of(values.getOrDefault("results", "loadtest-results.csv")),
+                values.getOrDefault("label", ""));
+        if (options.films < 1 || options.users < 1) {
+            throw new IllegalArgumentException("The catalog needs at least one film and one user");
+        }
+        if (options.concurrency < 1 || options.rate < 0 || options.warmupSeconds < 0 || options.durationSeconds < 1) {
+            throw new IllegalArgumentException("Concurrency and duration must be positive, rate and warmup not negative");
+        }
+        return options;
+    }
+}
@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Operations to send and how often, given as {@code operation:weight} pairs separated by spaces or commas.
+ * Operations without a weight are not sent.
+ */
+final class Mix {
+    static final String DEFAULT = "get-film:40 get-user:30 list-films:10 create-film:5 update-film:5 "
+            + "create-user:5 update-user:5";
+
+    private final Map<Operation, Integer> weights;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+
+    private Mix(Map<Operation, Integer> weights) {
+        this.weights = weights;
+        this.operations = weights.keySet().toArray(new Operation[0]);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += weights.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    static Mix parse(String value) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String pair : value.trim().split("[\\s,]+")) {
+            String[] parts = pair.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected operation:weight, got " + pair);
+            }
+            int weight = Integer.parseInt(parts[1]);
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weight must not be negative: " + pair);
+            }
+            if (weight > 0) {
+                weights.put(Operation.byName(parts[0]), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Mix has no operation with a positive weight: " + value);
+        }
+        return new Mix(weights);
+    }
+
+    Operation next(Random random) {
+        int point = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < operations.length; i++) {
+            if (point < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        throw new IllegalStateException("Point out of range: " + point);
+    }
+
+    @Override
+    public String toString() {
+        return weights.entrySet().stream()
+                .map(entry -> entry.getKey().getName() + ":" + entry.getValue())
+                .collect(Collectors.joining(" "));
+    }
+}
@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.Random;
+
+/**
+ * Request kinds the load test sends. Reads and updates pick a random entity of the seeded catalog.
+ */
+enum Operation {
+    GET_FILM("get-film", 200) {
+        @Override
+        HttpRequest request(URI baseUrl, Catalog catalog, Random random) {
+            return HttpRequest.newBuilder(baseUrl.resolve("/films/" + catalog.randomFilmId(random))).build();
+        }
+    },
+    GET_USER("get-user", 200) {
+        @Override
+        HttpRequest request(URI baseUrl, Catalog catalog, Random random) {
+            return HttpRequest.newBuilder(baseUrl.resolve("/users/" + catalog.randomUserId(random))).build();
+        }
+    },
+    LIST_FILMS("list-films", 200) {
+        @Override
+        HttpRequest request(URI baseUrl, Catalog catalog, Random random) {
+            long after = Math.max(catalog.randomFilmId(random) - 1, 0);
+            return HttpRequest.newBuilder(baseUrl.resolve("/films?after=" + after + "&limit=" + PAGE_SIZE)).build();
+        }
+    },
+    CREATE_FILM("create-film", 201) {
+        @Override
+        HttpRequest request(URI baseUrl, Catalog catalog, Random random) {
+            return json(baseUrl.resolve("/films"), "POST", Catalog.film(random.nextInt()));
+        }
+    },
+    UPDATE_FILM("update-film", 200) {
+        @Override
+        HttpRequest request(URI baseUrl, Catalog catalog, Random random) {
+            String body = "{\"id\":" + catalog.randomFilmId(random) + ",\"name\":\"Film " + random.nextInt() + "\"}";
+            return json(baseUrl.resolve("/films"), "PUT", body);
+        }
+    },
+    CREATE_USER("create-user", 201) {
+        @Override
+        HttpRequest request(URI baseUrl, Catalog catalog, Random random) {
+            return json(baseUrl.resolve("/users"), "POST", Catalog.user(random.nextInt()));
+        }
+    },
+    UPDATE_USER("update-user", 200) {
+        @Override
+        HttpRequest request(URI baseUrl, Catalog catalog, Random random) {
+            String body = "{\"id\":" + catalog.randomUserId(random) + ",\"name\":\"User " + random.nextInt() + "\"}";
+            return json(baseUrl.resolve("/users"), "PUT", body);
+        }
+    };
+
+    private static final int PAGE_SIZE = 100;
+
+    private final String name;
+    private final int expectedStatus;
+
+    Operation(String name, int expectedStatus) {
+        this.name = name;
+        this.expectedStatus = expectedStatus;
+    }
+
+    abstract HttpRequest request(URI baseUrl, Catalog catalog, Random random);
+
+    String getName() {
+        return name;
+    }
+
+    int getExpectedStatus() {
+        return expectedStatus;
+    }
+
+    static Operation byName(String name) {
+        for (Operation operation : values()) {
+            if (operation.name.equals(name)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation: " + name);
+    }
+
+    private static HttpRequest json(URI uri, String method, String body) {
+        return HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
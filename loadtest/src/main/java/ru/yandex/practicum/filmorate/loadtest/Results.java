@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measured part of a run. Rows of every run go to the same CSV file, so runs of different releases
+ * can be compared side by side. Latencies are of successful requests only, in milliseconds.
+ */
+final class Results {
+    private static final String HEADER = "started_at,label,operation,requests,errors,throughput_per_s,"
+            + "p50_ms,p90_ms,p99_ms,p999_ms,max_ms,concurrency,rate,films,users,mix";
+    private static final String ALL = "all";
+
+    private final LoadTestOptions options;
+    private final Instant startedAt;
+    private final List<Row> rows = new ArrayList<>();
+
+    Results(LoadTestOptions options, Instant startedAt, Map<Operation, Histogram> latencies,
+            Map<Operation, LongAdder> errors) {
+        this.options = options;
+        this.startedAt = startedAt;
+        Histogram allLatencies = null;
+        long allErrors = 0L;
+        for (Map.Entry<Operation, Histogram> entry : latencies.entrySet()) {
+            Histogram histogram = entry.getValue();
+            long operationErrors = errors.get(entry.getKey()).sum();
+            if (histogram.getTotalCount() == 0 && operationErrors == 0) {
+                continue;
+            }
+            rows.add(new Row(entry.getKey().getName(), histogram, operationErrors));
+            if (allLatencies == null) {
+                allLatencies = histogram.copy();
+            } else {
+                allLatencies.add(histogram);
+            }
+            allErrors += operationErrors;
+        }
+        if (allLatencies != null) {
+            rows.add(new Row(ALL, allLatencies, allErrors));
+        }
+    }
+
+    void print(PrintStream out) {
+        out.printf("%-12s %10s %8s %12s %9s %9s %9s %9s %9s%n",
+                "operation", "requests", "errors", "requests/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Row row : rows) {
+            out.printf(Locale.ROOT, "%-12s %10d %8d %12.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    row.operation(), row.latencies().getTotalCount(), row.errors(), throughput(row),
+                    percentile(row, 50.0), percentile(row, 90.0), percentile(row, 99.0), percentile(row, 99.9),
+                    row.latencies().getMaxValue() / 1000.0);
+        }
+    }
+
+    void append(Path file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        if (!Files.exists(file) || Files.size(file) == 0) {
+            lines.add(HEADER);
+        }
+        for (Row row : rows) {
+            lines.add(String.format(Locale.ROOT, "%s,%s,%s,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.3f,%d,%d,%d,%d,%s",
+                    startedAt, csv(options.label()), row.operation(), row.latencies().getTotalCount(), row.errors(),
+                    throughput(row), percentile(row, 50.0), percentile(row, 90.0), percentile(row, 99.0),
+                    percentile(row, 99.9), row.latencies().getMaxValue() / 1000.0, options.concurrency(),
+                    options.rate(), options.films(), options.users(), csv(options.mix().toString())));
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private double throughput(Row row) {
+        return (row.latencies().getTotalCount() + row.errors()) / (double) options.durationSeconds();
+    }
+
+    private static double percentile(Row row, double percentile) {
+        return row.latencies().getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static String csv(String value) {
+        if (value.contains(",") || value.contains("\"")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    private record Row(String operation, Histogram latencies, long errors) {
+    }
+}
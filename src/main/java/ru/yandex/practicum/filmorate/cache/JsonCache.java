@@ -0,0 +1,238 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Encoded JSON of films or users, so reading an unchanged entity neither builds its DTO nor runs Jackson again.
+ * <p>
+ * Entries are keyed by id and remember the version they were encoded from. A saved entity has a greater version,
+ * so its next read misses and replaces the stale bytes, and writers never have to invalidate anything.
+ * Entries are spread over segments with their own lock and an equal share of the size bound,
+ * and a segment drops its least recently read entries once it is over its share.
+ */
+public class JsonCache<T> {
+    private static final int SEGMENTS = 16;
+    /**
+     * Rough heap cost of an entry besides its bytes: map node, boxed key, entry and array header.
+     */
+    private static final int ENTRY_OVERHEAD = 96;
+    private static final byte[] OPEN_ARRAY = {'['};
+    private static final byte[] CLOSE_ARRAY = {']'};
+    private static final byte[] OPEN_PAGE = "{\"items\":[".getBytes(StandardCharsets.US_ASCII);
+    private static final String CLOSE_PAGE_ITEMS = "],\"next\":";
+
+    private final ObjectWriter writer;
+    private final Function<? super T, ?> toDto;
+    private final ToLongFunction<? super T> idOf;
+    private final ToLongFunction<? super T> versionOf;
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public JsonCache(String name, ObjectWriter writer, Function<? super T, ?> toDto, ToLongFunction<? super T> idOf,
+                     ToLongFunction<? super T> versionOf, long maxSize, MeterRegistry meterRegistry) {
+        this.writer = writer;
+        this.toDto = toDto;
+        this.idOf = idOf;
+        this.versionOf = versionOf;
+        this.hits = Counter.builder("filmorate.json.cache.gets")
+                .description("Reads of encoded JSON")
+                .tag("cache", name)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("filmorate.json.cache.gets")
+                .description("Reads of encoded JSON")
+                .tag("cache", name)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("filmorate.json.cache.evictions")
+                .description("Entries dropped to stay within the size bound")
+                .tag("cache", name)
+                .register(meterRegistry);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(maxSize / SEGMENTS, evictions);
+        }
+        Gauge.builder("filmorate.json.cache.size", this, JsonCache::size)
+                .description("Encoded JSON held, with a rough per-entry overhead")
+                .tag("cache", name)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * JSON of the entity, taken from the cache if it holds the current version of the entity.
+     * The returned array is shared, so it must not be changed.
+     */
+    public byte[] get(T entity) {
+        return get(entity, true);
+    }
+
+    /**
+     * JSON of the entity like {@link #get}, but a miss is encoded without being cached, so a scan of the whole table
+     * reuses what point reads keep hot without evicting it.
+     */
+    public byte[] getForScan(T entity) {
+        return get(entity, false);
+    }
+
+    /**
+     * JSON array of the entities like {@link #toArray}, for a scan of the whole table, see {@link #getForScan}.
+     */
+    public byte[] toArrayForScan(Collection<? extends T> entities) {
+        return join(entities, OPEN_ARRAY, CLOSE_ARRAY, false);
+    }
+
+    private byte[] get(T entity, boolean cacheMiss) {
+        long id = idOf.applyAsLong(entity);
+        long version = versionOf.applyAsLong(entity);
+        Segment segment = segments[segment(id)];
+        byte[] json = segment.get(id, version);
+        if (json != null) {
+            hits.increment();
+            return json;
+        }
+        misses.increment();
+        try {
+            json = writer.writeValueAsBytes(toDto.apply(entity));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (cacheMiss) {
+            segment.put(id, version, json);
+        }
+        return json;
+    }
+
+    /**
+     * JSON array of the entities, made by joining their cached JSON into one exactly sized array.
+     */
+    public byte[] toArray(Collection<? extends T> entities) {
+        return join(entities, OPEN_ARRAY, CLOSE_ARRAY, true);
+    }
+
+    /**
+     * JSON of a page of entities, the same as a serialized {@code PageDto} of their DTOs.
+     */
+    public byte[] toPage(List<? extends T> items, Long next) {
+        byte[] end = (CLOSE_PAGE_ITEMS + next + "}").getBytes(StandardCharsets.US_ASCII);
+        return join(items, OPEN_PAGE, end, true);
+    }
+
+    /**
+     * Bytes the cache holds, counting a rough overhead per entry.
+     */
+    public long size() {
+        long size = 0L;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private byte[] join(Collection<? extends T> entities, byte[] start, byte[] end, boolean cacheMisses) {
+        byte[][] fragments = new byte[entities.size()][];
+        int length = start.length + end.length + Math.max(fragments.length - 1, 0);
+        int count = 0;
+        for (T entity : entities) {
+            fragments[count] = get(entity, cacheMisses);
+            length += fragments[count++].length;
+        }
+        byte[] json = new byte[length];
+        System.arraycopy(start, 0, json, 0, start.length);
+        int position = start.length;
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json[position++] = ',';
+            }
+            System.arraycopy(fragments[i], 0, json, position, fragments[i].length);
+            position += fragments[i].length;
+        }
+        System.arraycopy(end, 0, json, position, end.length);
+        return json;
+    }
+
+    private static int segment(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (SEGMENTS - 1);
+    }
+
+    private static long cost(byte[] json) {
+        return json.length + ENTRY_OVERHEAD;
+    }
+
+    private record Entry(long version, byte[] json) {
+    }
+
+    private static final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final long maxSize;
+        private final Counter evictions;
+        private long size;
+
+        private Segment(long maxSize, Counter evictions) {
+            this.maxSize = maxSize;
+            this.evictions = evictions;
+        }
+
+        private byte[] get(long id, long version) {
+            lock.lock();
+            try {
+                Entry entry = entries.get(id);
+                return entry != null && entry.version() == version ? entry.json() : null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void put(long id, long version, byte[] json) {
+            if (cost(json) > maxSize) {
+                return;
+            }
+            lock.lock();
+            try {
+                Entry previous = entries.get(id);
+                if (previous != null) {
+                    if (previous.version() > version) {
+                        return;
+                    }
+                    size -= cost(previous.json());
+                }
+                entries.put(id, new Entry(version, json));
+                size += cost(json);
+                Iterator<Entry> eldest = entries.values().iterator();
+                while (size > maxSize) {
+                    size -= cost(eldest.next().json());
+                    eldest.remove();
+                    evictions.increment();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private long size() {
+            lock.lock();
+            try {
+                return size;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
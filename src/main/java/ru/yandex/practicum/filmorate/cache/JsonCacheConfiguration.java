@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.controller.dto.film.FilmDto;
+import ru.yandex.practicum.filmorate.controller.dto.user.UserDto;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+@Configuration
+@EnableConfigurationProperties(JsonCacheProperties.class)
+public class JsonCacheConfiguration {
+
+    @Bean
+    public JsonCache<Film> filmJsonCache(JsonCacheProperties properties, ObjectMapper objectMapper,
+                                         MeterRegistry meterRegistry) {
+        return new JsonCache<>("films", objectMapper.writerFor(FilmDto.class), FilmDto::fromFilm,
+                Film::getId, Film::getVersion, properties.getMaxSize().toBytes(), meterRegistry);
+    }
+
+    @Bean
+    public JsonCache<User> userJsonCache(JsonCacheProperties properties, ObjectMapper objectMapper,
+                                         MeterRegistry meterRegistry) {
+        return new JsonCache<>("users", objectMapper.writerFor(UserDto.class), UserDto::fromUser,
+                User::getId, User::getVersion, properties.getMaxSize().toBytes(), meterRegistry);
+    }
+}
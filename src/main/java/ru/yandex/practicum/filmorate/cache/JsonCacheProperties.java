@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@Data
+@ConfigurationProperties("filmorate.json-cache")
+public class JsonCacheProperties {
+    /**
+     * Encoded JSON each of the film and user caches keeps. Zero turns caching off.
+     */
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+}
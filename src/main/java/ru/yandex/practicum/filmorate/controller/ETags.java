@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import java.security.SecureRandom;
+
+/**
+ * Entity tags of versioned responses. Versions start over when the application restarts without persistence,
+ * so every tag also carries an id drawn once per start, and a tag handed out before a restart never matches after it.
+ */
+public final class ETags {
+    private static final String INSTANCE = Integer.toHexString(new SecureRandom().nextInt());
+
+    private ETags() {
+    }
+
+    public static String of(long version) {
+        return INSTANCE + "-" + version;
+    }
+}
@@ -1,66 +1,293 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.cache.JsonCache;
+import ru.yandex.practicum.filmorate.controller.dto.BatchResultDto;
+import ru.yandex.practicum.filmorate.controller.dto.PageDto;
 import ru.yandex.practicum.filmorate.controller.dto.film.CreateFilmDto;
 import ru.yandex.practicum.filmorate.controller.dto.film.FilmDto;
 import ru.yandex.practicum.filmorate.controller.dto.film.UpdateFilmDto;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.repository.FilmRepository;
+import ru.yandex.practicum.filmorate.repository.ReleaseOrder;
+import ru.yandex.practicum.filmorate.repository.UserRepository;
 
-import java.util.List;
-import java.util.Optional;
+import java.time.LocalDate;
+import java.util.*;
 
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RestController
 @RequestMapping("/films")
 @Slf4j
 @RequiredArgsConstructor
 public class FilmsController {
     private final FilmRepository filmRepository;
+    private final UserRepository userRepository;
+    private final JsonCache<Film> filmJsonCache;
+    private final Validator validator;
 
     @PostMapping
     public ResponseEntity<FilmDto> createFilm(@Valid @RequestBody CreateFilmDto createFilmDto) {
-        log.info("Create film request: {}", createFilmDto);
+        log.debug("Create film request: {}", createFilmDto);
         Film film = filmRepository.create(createFilmDto.toFilm());
-        log.info("Film created: {}", film);
+        log.debug("Film created: {}", film.getId());
         return ResponseEntity.status(HttpStatus.CREATED).body(FilmDto.fromFilm(film));
     }
 
-    @GetMapping
-    public ResponseEntity<List<FilmDto>> getAllFilms() {
-        log.info("Get all films request");
-        List<FilmDto> films = filmRepository.findAll().stream().map(FilmDto::fromFilm).toList();
-        log.info("Films found: {}", films);
-        return ResponseEntity.ok(films);
+    @PostMapping("/batch")
+    public ResponseEntity<BatchResultDto<FilmDto>> createFilms(
+            @RequestBody @NotNull @Size(max = BatchResultDto.MAX_ITEMS) List<CreateFilmDto> createFilmDtos) {
+        log.debug("Create films batch request: {} items", createFilmDtos.size());
+        List<BatchResultDto.Item<FilmDto>> results = new ArrayList<>(Collections.nCopies(createFilmDtos.size(), null));
+        List<Integer> indexes = new ArrayList<>();
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < createFilmDtos.size(); i++) {
+            List<String> errors = Violations.of(validator, createFilmDtos.get(i));
+            if (errors.isEmpty()) {
+                indexes.add(i);
+                films.add(createFilmDtos.get(i).toFilm());
+            } else {
+                results.set(i, BatchResultDto.Item.failed(i, HttpStatus.BAD_REQUEST, errors));
+            }
+        }
+        List<Film> created = filmRepository.createAll(films);
+        for (int i = 0; i < created.size(); i++) {
+            results.set(indexes.get(i),
+                    BatchResultDto.Item.succeeded(indexes.get(i), HttpStatus.CREATED, FilmDto.fromFilm(created.get(i))));
+        }
+        BatchResultDto<FilmDto> result = BatchResultDto.of(results);
+        log.debug("Films created: {}, rejected: {}", result.getSucceeded(), result.getFailed());
+        return ResponseEntity.ok(result);
+    }
+
+    @GetMapping(params = {"!ids", "!limit", "!releasedFrom", "!releasedTo"})
+    public ResponseEntity<byte[]> getAllFilms(WebRequest request) {
+        log.debug("Get all films request");
+        if (request.checkNotModified(ETags.of(filmRepository.version()))) {
+            log.debug("Films not modified");
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        Collection<Film> films = filmRepository.findAll();
+        log.debug("Films found: {}", films.size());
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(filmJsonCache.toArrayForScan(films));
+    }
+
+    @GetMapping(params = {"limit", "!ids", "!releasedFrom", "!releasedTo"})
+    public ResponseEntity<byte[]> getFilmsPage(
+            @RequestParam(defaultValue = "0") @PositiveOrZero long after,
+            @RequestParam @Positive @Max(PageDto.MAX_LIMIT) int limit,
+            WebRequest request) {
+        log.debug("Get films page request: after {}, limit {}", after, limit);
+        if (request.checkNotModified(ETags.of(filmRepository.version()))) {
+            log.debug("Films not modified");
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        List<Film> films = filmRepository.findAllAfter(after, limit + 1);
+        Long next = null;
+        if (films.size() > limit) {
+            films = films.subList(0, limit);
+            next = films.get(limit - 1).getId();
+        }
+        log.debug("Films found: {}, next: {}", films.size(), next);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(filmJsonCache.toPage(films, next));
+    }
+
+    @GetMapping(params = {"releasedFrom", "releasedTo", "!ids"})
+    public ResponseEntity<byte[]> getFilmsReleasedBetween(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate releasedFrom,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate releasedTo,
+            @RequestParam(defaultValue = "0") @PositiveOrZero long after,
+            @RequestParam(defaultValue = "100") @Positive @Max(PageDto.MAX_LIMIT) int limit,
+            WebRequest request) {
+        log.debug("Get films released between request: {} - {}, after {}, limit {}",
+                releasedFrom, releasedTo, after, limit);
+        if (request.checkNotModified(ETags.of(filmRepository.version()))) {
+            log.debug("Films not modified");
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        List<Film> films = filmRepository.findAllReleasedBetween(releasedFrom, releasedTo, after, limit + 1);
+        Long next = null;
+        if (films.size() > limit) {
+            films = films.subList(0, limit);
+            next = ReleaseOrder.positionOf(films.get(limit - 1));
+        }
+        log.debug("Films found: {}, next: {}", films.size(), next);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(filmJsonCache.toPage(films, next));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<byte[]> searchFilms(
+            @RequestParam @NotBlank @Size(max = PageDto.MAX_QUERY_LENGTH) String q,
+            @RequestParam(defaultValue = "0") @PositiveOrZero @Max(PageDto.MAX_OFFSET) int offset,
+            @RequestParam(defaultValue = "20") @Positive @Max(PageDto.MAX_LIMIT) int limit,
+            WebRequest request) {
+        log.debug("Search films request: q {}, offset {}, limit {}", q, offset, limit);
+        if (request.checkNotModified(ETags.of(filmRepository.version()))) {
+            log.debug("Films not modified");
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        List<Film> films = filmRepository.search(q, offset, limit + 1);
+        Long next = null;
+        if (films.size() > limit) {
+            films = films.subList(0, limit);
+            next = (long) offset + limit;
+        }
+        log.debug("Films found: {}, next: {}", films.size(), next);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(filmJsonCache.toPage(films, next));
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<byte[]> suggestFilms(
+            @RequestParam @NotBlank @Size(max = PageDto.MAX_QUERY_LENGTH) String prefix,
+            @RequestParam(defaultValue = "10") @Positive @Max(PageDto.MAX_LIMIT) int limit,
+            WebRequest request) {
+        log.debug("Suggest films request: prefix {}, limit {}", prefix, limit);
+        if (request.checkNotModified(ETags.of(filmRepository.version()))) {
+            log.debug("Films not modified");
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        List<Film> films = filmRepository.suggest(prefix, limit);
+        log.debug("Films found: {}", films.size());
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(filmJsonCache.toArray(films));
+    }
+
+    @GetMapping("/popular")
+    public ResponseEntity<byte[]> getPopularFilms(
+            @RequestParam(defaultValue = "10") @Positive @Max(PageDto.MAX_LIMIT) int count) {
+        log.debug("Get popular films request: count {}", count);
+        List<Film> films = filmRepository.findPopular(count);
+        log.debug("Films found: {}", films.size());
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(filmJsonCache.toArray(films));
+    }
+
+    @GetMapping(params = {"ids", "!limit", "!releasedFrom", "!releasedTo"})
+    public ResponseEntity<byte[]> getFilmsByIds(
+            @RequestParam @Size(max = PageDto.MAX_LIMIT) List<Long> ids, WebRequest request) {
+        log.debug("Get films by ids request: {} ids", ids.size());
+        if (request.checkNotModified(ETags.of(filmRepository.version()))) {
+            log.debug("Films not modified");
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        List<Film> films = filmRepository.findAllBy(ids);
+        log.debug("Films found: {}", films.size());
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(filmJsonCache.toArray(films));
+    }
+
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamFilms(WebRequest request) {
+        log.debug("Stream all films request");
+        if (request.checkNotModified(ETags.of(filmRepository.version()))) {
+            log.debug("Films not modified");
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        Iterable<byte[]> films = () -> filmRepository.findAll().stream().map(filmJsonCache::getForScan).iterator();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(JsonArrayStreamingBody.ofEncoded(films));
+    }
+
+    @PutMapping("/{id}/like/{userId}")
+    public ResponseEntity<Void> likeFilm(@PathVariable long id, @PathVariable long userId) {
+        log.debug("Like film request: film {}, user {}", id, userId);
+        if (filmRepository.findBy(id).isEmpty() || userRepository.findBy(userId).isEmpty()) {
+            log.debug("Film or user not found: film {}, user {}", id, userId);
+            return ResponseEntity.notFound().build();
+        }
+        boolean liked = filmRepository.like(id, userId);
+        log.debug("Film liked: film {}, user {}, new {}", id, userId, liked);
+        return ResponseEntity.ok().build();
+    }
+
+    @DeleteMapping("/{id}/like/{userId}")
+    public ResponseEntity<Void> unlikeFilm(@PathVariable long id, @PathVariable long userId) {
+        log.debug("Unlike film request: film {}, user {}", id, userId);
+        if (filmRepository.findBy(id).isEmpty() || userRepository.findBy(userId).isEmpty()) {
+            log.debug("Film or user not found: film {}, user {}", id, userId);
+            return ResponseEntity.notFound().build();
+        }
+        boolean unliked = filmRepository.unlike(id, userId);
+        log.debug("Film unliked: film {}, user {}, was liked {}", id, userId, unliked);
+        return ResponseEntity.ok().build();
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<FilmDto> getFilmById(@PathVariable Long id) {
-        log.info("Get film by id request: {}", id);
+    public ResponseEntity<byte[]> getFilmById(@PathVariable Long id, WebRequest request) {
+        log.debug("Get film by id request: {}", id);
         Optional<Film> maybeFilm = filmRepository.findBy(id);
+        if (maybeFilm.isPresent() && request.checkNotModified(ETags.of(maybeFilm.get().getVersion()))) {
+            log.debug("Film not modified: {}", id);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
         if (maybeFilm.isPresent()) {
-            log.info("Film found: {}", maybeFilm.get());
-            return ResponseEntity.ok(FilmDto.fromFilm(maybeFilm.get()));
+            log.debug("Film found: {}", id);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(filmJsonCache.get(maybeFilm.get()));
         }
-        log.info("Film not found: {}", id);
+        log.debug("Film not found: {}", id);
         return ResponseEntity.notFound().build();
     }
 
     @PutMapping
     public ResponseEntity<?> updateFilm(@Valid @RequestBody UpdateFilmDto updateFilmDto) {
-        log.info("Update film request: {}", updateFilmDto);
-        Optional<Film> maybeFilm = filmRepository.findBy(updateFilmDto.getId());
-        if (maybeFilm.isEmpty()) {
-            log.info("Film not found: {}", updateFilmDto.getId());
+        log.debug("Update film request: {}", updateFilmDto);
+        Optional<Film> updatedFilm = filmRepository.update(updateFilmDto.getId(), updateFilmDto::toFilm);
+        if (updatedFilm.isEmpty()) {
+            log.debug("Film not found: {}", updateFilmDto.getId());
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(updateFilmDto);
         }
-        Film film = updateFilmDto.toFilm(maybeFilm.get());
-        Film updatedFilm = filmRepository.update(film);
-        log.info("Film updated: {}", film);
-        return ResponseEntity.ok(FilmDto.fromFilm(updatedFilm));
+        log.debug("Film updated: {}", updatedFilm.get().getId());
+        return ResponseEntity.ok(FilmDto.fromFilm(updatedFilm.get()));
+    }
+
+    @PutMapping("/batch")
+    public ResponseEntity<BatchResultDto<FilmDto>> updateFilms(
+            @RequestBody @NotNull @Size(max = BatchResultDto.MAX_ITEMS) List<UpdateFilmDto> updateFilmDtos) {
+        log.debug("Update films batch request: {} items", updateFilmDtos.size());
+        List<BatchResultDto.Item<FilmDto>> results = new ArrayList<>(Collections.nCopies(updateFilmDtos.size(), null));
+        List<Integer> indexes = new ArrayList<>();
+        List<Film> films = new ArrayList<>();
+        Map<Long, Film> changed = new HashMap<>();
+        for (int i = 0; i < updateFilmDtos.size(); i++) {
+            UpdateFilmDto updateFilmDto = updateFilmDtos.get(i);
+            List<String> errors = Violations.of(validator, updateFilmDto);
+            if (!errors.isEmpty()) {
+                results.set(i, BatchResultDto.Item.failed(i, HttpStatus.BAD_REQUEST, errors));
+                continue;
+            }
+            Optional<Film> maybeFilm = Optional.ofNullable(changed.get(updateFilmDto.getId()))
+                    .or(() -> filmRepository.findBy(updateFilmDto.getId()));
+            if (maybeFilm.isEmpty()) {
+                results.set(i, BatchResultDto.Item.failed(i, HttpStatus.NOT_FOUND, List.of("Film not found")));
+                continue;
+            }
+            Film film = updateFilmDto.toFilm(maybeFilm.get());
+            changed.put(film.getId(), film);
+            indexes.add(i);
+            films.add(film);
+        }
+        List<Film> updated = filmRepository.updateAll(films);
+        for (int i = 0; i < updated.size(); i++) {
+            results.set(indexes.get(i),
+                    BatchResultDto.Item.succeeded(indexes.get(i), HttpStatus.OK, FilmDto.fromFilm(updated.get(i))));
+        }
+        BatchResultDto<FilmDto> result = BatchResultDto.of(results);
+        log.debug("Films updated: {}, rejected: {}", result.getSucceeded(), result.getFailed());
+        return ResponseEntity.ok(result);
     }
 }
@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.ingest.ImportReport;
+import ru.yandex.practicum.filmorate.ingest.NdjsonImporter;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Bulk import of newline-delimited JSON. The body is read while it arrives, so its size is not limited by memory.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RestController
+@RequestMapping("/import")
+@Slf4j
+@RequiredArgsConstructor
+public class ImportController {
+    private final NdjsonImporter importer;
+
+    @PostMapping("/films")
+    public ResponseEntity<ImportReport> importFilms(InputStream body) throws IOException {
+        log.debug("Import films request");
+        return ResponseEntity.ok(importer.importFilms(body));
+    }
+
+    @PostMapping("/users")
+    public ResponseEntity<ImportReport> importUsers(InputStream body) throws IOException {
+        log.debug("Import users request");
+        return ResponseEntity.ok(importer.importUsers(body));
+    }
+}
@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes items as one JSON array while they are iterated, without collecting them first.
+ * Each item is JSON that is already encoded and is copied as is, so only the current item is held in memory,
+ * and the first item is flushed right away so the client gets the first byte before the whole catalog is walked.
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class JsonArrayStreamingBody implements StreamingResponseBody {
+    private final Iterable<byte[]> items;
+
+    /**
+     * Body that copies the encoded JSON of each item as is.
+     */
+    public static JsonArrayStreamingBody ofEncoded(Iterable<byte[]> items) {
+        return new JsonArrayStreamingBody(items);
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        outputStream.write('[');
+        boolean first = true;
+        for (byte[] item : items) {
+            if (!first) {
+                outputStream.write(',');
+            }
+            outputStream.write(item);
+            if (first) {
+                outputStream.flush();
+                first = false;
+            }
+        }
+        outputStream.write(']');
+        outputStream.flush();
+    }
+}
@@ -1,66 +1,343 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.cache.JsonCache;
+import ru.yandex.practicum.filmorate.controller.dto.BatchResultDto;
+import ru.yandex.practicum.filmorate.controller.dto.PageDto;
 import ru.yandex.practicum.filmorate.controller.dto.user.CreateUserDto;
 import ru.yandex.practicum.filmorate.controller.dto.user.UpdateUserDto;
 import ru.yandex.practicum.filmorate.controller.dto.user.UserDto;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.DuplicateUserException;
 import ru.yandex.practicum.filmorate.repository.UserRepository;
 
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RestController
 @RequestMapping("/users")
 @Slf4j
 @RequiredArgsConstructor
 public class UsersController {
     private final UserRepository userRepository;
+    private final JsonCache<User> userJsonCache;
+    private final Validator validator;
 
     @PostMapping
-    public ResponseEntity<UserDto> createUser(@Valid @RequestBody CreateUserDto createUserDto) {
-        log.info("Create user request: {}", createUserDto);
-        User user = userRepository.create(createUserDto.toUser());
-        log.info("User created: {}", user);
+    public ResponseEntity<?> createUser(@Valid @RequestBody CreateUserDto createUserDto) {
+        log.debug("Create user request: {}", createUserDto);
+        User user;
+        try {
+            user = userRepository.create(createUserDto.toUser());
+        } catch (DuplicateUserException e) {
+            log.debug("User not created: {}", e.getConflicts().values());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(createUserDto);
+        }
+        log.debug("User created: {}", user.getId());
         return ResponseEntity.status(HttpStatus.CREATED).body(UserDto.fromUser(user));
     }
 
-    @GetMapping
-    public ResponseEntity<List<UserDto>> getAllUsers() {
-        log.info("Get all users request");
-        List<UserDto> users = userRepository.findAll().stream().map(UserDto::fromUser).toList();
-        log.info("Users found: {}", users);
-        return ResponseEntity.ok(users);
+    @PostMapping("/batch")
+    public ResponseEntity<BatchResultDto<UserDto>> createUsers(
+            @RequestBody @NotNull @Size(max = BatchResultDto.MAX_ITEMS) List<CreateUserDto> createUserDtos) {
+        log.debug("Create users batch request: {} items", createUserDtos.size());
+        List<BatchResultDto.Item<UserDto>> results = new ArrayList<>(Collections.nCopies(createUserDtos.size(), null));
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < createUserDtos.size(); i++) {
+            List<String> errors = Violations.of(validator, createUserDtos.get(i));
+            if (errors.isEmpty()) {
+                indexes.add(i);
+            } else {
+                results.set(i, BatchResultDto.Item.failed(i, HttpStatus.BAD_REQUEST, errors));
+            }
+        }
+        List<User> created = saveAll(indexes, results,
+                surviving -> surviving.stream().map(i -> createUserDtos.get(i).toUser()).toList(),
+                userRepository::createAll);
+        for (int i = 0; i < created.size(); i++) {
+            results.set(indexes.get(i),
+                    BatchResultDto.Item.succeeded(indexes.get(i), HttpStatus.CREATED, UserDto.fromUser(created.get(i))));
+        }
+        BatchResultDto<UserDto> result = BatchResultDto.of(results);
+        log.debug("Users created: {}, rejected: {}", result.getSucceeded(), result.getFailed());
+        return ResponseEntity.ok(result);
+    }
+
+    @GetMapping(params = {"!ids", "!limit"})
+    public ResponseEntity<byte[]> getAllUsers(WebRequest request) {
+        log.debug("Get all users request");
+        if (request.checkNotModified(ETags.of(userRepository.version()))) {
+            log.debug("Users not modified");
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        Collection<User> users = userRepository.findAll();
+        log.debug("Users found: {}", users.size());
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(userJsonCache.toArrayForScan(users));
+    }
+
+    @GetMapping(params = {"limit", "!ids"})
+    public ResponseEntity<byte[]> getUsersPage(
+            @RequestParam(defaultValue = "0") @PositiveOrZero long after,
+            @RequestParam @Positive @Max(PageDto.MAX_LIMIT) int limit,
+            WebRequest request) {
+        log.debug("Get users page request: after {}, limit {}", after, limit);
+        if (request.checkNotModified(ETags.of(userRepository.version()))) {
+            log.debug("Users not modified");
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        List<User> users = userRepository.findAllAfter(after, limit + 1);
+        Long next = null;
+        if (users.size() > limit) {
+            users = users.subList(0, limit);
+            next = users.get(limit - 1).getId();
+        }
+        log.debug("Users found: {}, next: {}", users.size(), next);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(userJsonCache.toPage(users, next));
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<byte[]> suggestUsers(
+            @RequestParam @NotBlank @Size(max = PageDto.MAX_QUERY_LENGTH) String prefix,
+            @RequestParam(defaultValue = "10") @Positive @Max(PageDto.MAX_LIMIT) int limit,
+            WebRequest request) {
+        log.debug("Suggest users request: prefix {}, limit {}", prefix, limit);
+        if (request.checkNotModified(ETags.of(userRepository.version()))) {
+            log.debug("Users not modified");
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        List<User> users = userRepository.suggest(prefix, limit);
+        log.debug("Users found: {}", users.size());
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(userJsonCache.toArray(users));
+    }
+
+    @GetMapping(params = {"ids", "!limit"})
+    public ResponseEntity<byte[]> getUsersByIds(
+            @RequestParam @Size(max = PageDto.MAX_LIMIT) List<Long> ids, WebRequest request) {
+        log.debug("Get users by ids request: {} ids", ids.size());
+        if (request.checkNotModified(ETags.of(userRepository.version()))) {
+            log.debug("Users not modified");
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        List<User> users = userRepository.findAllBy(ids);
+        log.debug("Users found: {}", users.size());
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(userJsonCache.toArray(users));
+    }
+
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamUsers(WebRequest request) {
+        log.debug("Stream all users request");
+        if (request.checkNotModified(ETags.of(userRepository.version()))) {
+            log.debug("Users not modified");
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        Iterable<byte[]> users = () -> userRepository.findAll().stream().map(userJsonCache::getForScan).iterator();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(JsonArrayStreamingBody.ofEncoded(users));
+    }
+
+    @GetMapping("/by-email/{email}")
+    public ResponseEntity<byte[]> getUserByEmail(@PathVariable String email, WebRequest request) {
+        log.debug("Get user by email request");
+        return found(userRepository.findByEmail(email), request);
+    }
+
+    @GetMapping("/by-login/{login}")
+    public ResponseEntity<byte[]> getUserByLogin(@PathVariable String login, WebRequest request) {
+        log.debug("Get user by login request: {}", login);
+        return found(userRepository.findByLogin(login), request);
+    }
+
+    @GetMapping("/{id}/friends")
+    public ResponseEntity<byte[]> getFriends(@PathVariable long id) {
+        log.debug("Get friends request: user {}", id);
+        if (userRepository.findBy(id).isEmpty()) {
+            log.debug("User not found: {}", id);
+            return ResponseEntity.notFound().build();
+        }
+        List<User> friends = userRepository.findFriends(id);
+        log.debug("Friends found: {}", friends.size());
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(userJsonCache.toArray(friends));
+    }
+
+    @GetMapping("/{id}/friends/common/{otherId}")
+    public ResponseEntity<byte[]> getCommonFriends(@PathVariable long id, @PathVariable long otherId) {
+        log.debug("Get common friends request: users {} and {}", id, otherId);
+        if (!bothExist(id, otherId)) {
+            return ResponseEntity.notFound().build();
+        }
+        List<User> friends = userRepository.findCommonFriends(id, otherId);
+        log.debug("Common friends found: {}", friends.size());
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(userJsonCache.toArray(friends));
+    }
+
+    @PutMapping("/{id}/friends/{friendId}")
+    public ResponseEntity<Void> addFriend(@PathVariable long id, @PathVariable long friendId) {
+        log.debug("Add friend request: user {}, friend {}", id, friendId);
+        if (id == friendId) {
+            log.debug("User can not be their own friend: {}", id);
+            return ResponseEntity.badRequest().build();
+        }
+        if (!bothExist(id, friendId)) {
+            return ResponseEntity.notFound().build();
+        }
+        boolean added = userRepository.addFriend(id, friendId);
+        log.debug("Friend added: user {}, friend {}, new {}", id, friendId, added);
+        return ResponseEntity.ok().build();
+    }
+
+    @DeleteMapping("/{id}/friends/{friendId}")
+    public ResponseEntity<Void> removeFriend(@PathVariable long id, @PathVariable long friendId) {
+        log.debug("Remove friend request: user {}, friend {}", id, friendId);
+        if (!bothExist(id, friendId)) {
+            return ResponseEntity.notFound().build();
+        }
+        boolean removed = userRepository.removeFriend(id, friendId);
+        log.debug("Friend removed: user {}, friend {}, were friends {}", id, friendId, removed);
+        return ResponseEntity.ok().build();
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<UserDto> getUserById(@PathVariable Long id) {
-        log.info("Get user by id request: {}", id);
+    public ResponseEntity<byte[]> getUserById(@PathVariable Long id, WebRequest request) {
+        log.debug("Get user by id request: {}", id);
         Optional<User> maybeUser = userRepository.findBy(id);
+        if (maybeUser.isPresent() && request.checkNotModified(ETags.of(maybeUser.get().getVersion()))) {
+            log.debug("User not modified: {}", id);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
         if (maybeUser.isPresent()) {
-            log.info("User found: {}", maybeUser.get());
-            return ResponseEntity.ok(UserDto.fromUser(maybeUser.get()));
+            log.debug("User found: {}", id);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(userJsonCache.get(maybeUser.get()));
         }
-        log.info("Film not found: {}", id);
+        log.debug("User not found: {}", id);
         return ResponseEntity.notFound().build();
     }
 
     @PutMapping
     public ResponseEntity<?> updateUser(@Valid @RequestBody UpdateUserDto updateUserDto) {
-        log.info("Update user request: {}", updateUserDto);
-        Optional<User> maybeUser = userRepository.findBy(updateUserDto.getId());
-        if (maybeUser.isEmpty()) {
-            log.info("User not found: {}", updateUserDto.getId());
+        log.debug("Update user request: {}", updateUserDto);
+        Optional<User> updatedUser;
+        try {
+            updatedUser = userRepository.update(updateUserDto.getId(), updateUserDto::toUser);
+        } catch (DuplicateUserException e) {
+            log.debug("User not updated: {}", e.getConflicts().values());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(updateUserDto);
+        }
+        if (updatedUser.isEmpty()) {
+            log.debug("User not found: {}", updateUserDto.getId());
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(updateUserDto);
         }
-        User user = updateUserDto.toUser(maybeUser.get());
-        User updatedUser = userRepository.update(user);
-        log.info("User updated: {}", user);
-        return ResponseEntity.ok(UserDto.fromUser(updatedUser));
+        log.debug("User updated: {}", updatedUser.get().getId());
+        return ResponseEntity.ok(UserDto.fromUser(updatedUser.get()));
+    }
+
+    @PutMapping("/batch")
+    public ResponseEntity<BatchResultDto<UserDto>> updateUsers(
+            @RequestBody @NotNull @Size(max = BatchResultDto.MAX_ITEMS) List<UpdateUserDto> updateUserDtos) {
+        log.debug("Update users batch request: {} items", updateUserDtos.size());
+        List<BatchResultDto.Item<UserDto>> results = new ArrayList<>(Collections.nCopies(updateUserDtos.size(), null));
+        List<Integer> indexes = new ArrayList<>();
+        Map<Long, User> existing = new HashMap<>();
+        for (int i = 0; i < updateUserDtos.size(); i++) {
+            UpdateUserDto updateUserDto = updateUserDtos.get(i);
+            List<String> errors = Violations.of(validator, updateUserDto);
+            if (!errors.isEmpty()) {
+                results.set(i, BatchResultDto.Item.failed(i, HttpStatus.BAD_REQUEST, errors));
+                continue;
+            }
+            Optional<User> maybeUser = Optional.ofNullable(existing.get(updateUserDto.getId()))
+                    .or(() -> userRepository.findBy(updateUserDto.getId()));
+            if (maybeUser.isEmpty()) {
+                results.set(i, BatchResultDto.Item.failed(i, HttpStatus.NOT_FOUND, List.of("User not found")));
+                continue;
+            }
+            existing.put(updateUserDto.getId(), maybeUser.get());
+            indexes.add(i);
+        }
+        List<User> updated = saveAll(indexes, results,
+                surviving -> changedUsers(updateUserDtos, surviving, existing), userRepository::updateAll);
+        for (int i = 0; i < updated.size(); i++) {
+            results.set(indexes.get(i),
+                    BatchResultDto.Item.succeeded(indexes.get(i), HttpStatus.OK, UserDto.fromUser(updated.get(i))));
+        }
+        BatchResultDto<UserDto> result = BatchResultDto.of(results);
+        log.debug("Users updated: {}, rejected: {}", result.getSucceeded(), result.getFailed());
+        return ResponseEntity.ok(result);
+    }
+
+    private ResponseEntity<byte[]> found(Optional<User> maybeUser, WebRequest request) {
+        if (maybeUser.isEmpty()) {
+            log.debug("User not found");
+            return ResponseEntity.notFound().build();
+        }
+        if (request.checkNotModified(ETags.of(maybeUser.get().getVersion()))) {
+            log.debug("User not modified: {}", maybeUser.get().getId());
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        log.debug("User found: {}", maybeUser.get().getId());
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(userJsonCache.get(maybeUser.get()));
+    }
+
+    private boolean bothExist(long id, long otherId) {
+        if (userRepository.findBy(id).isEmpty() || userRepository.findBy(otherId).isEmpty()) {
+            log.debug("User not found: {} or {}", id, otherId);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Applies the items to the users in batch order, so an item that changes a user already changed by an earlier
+     * item builds on that change.
+     */
+    private static List<User> changedUsers(List<UpdateUserDto> updateUserDtos, List<Integer> indexes,
+                                           Map<Long, User> existing) {
+        Map<Long, User> changed = new HashMap<>(existing);
+        List<User> users = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            UpdateUserDto updateUserDto = updateUserDtos.get(index);
+            User user = updateUserDto.toUser(changed.get(updateUserDto.getId()));
+            changed.put(user.getId(), user);
+            users.add(user);
+        }
+        return users;
+    }
+
+    /**
+     * Saves the users built from the remaining items, failing the items that conflict with other users with 409
+     * and building and saving the rest again until nothing conflicts. Rebuilding keeps a later item from
+     * inheriting the change of a failed item.
+     */
+    private static List<User> saveAll(List<Integer> indexes, List<BatchResultDto.Item<UserDto>> results,
+                                      Function<List<Integer>, List<User>> toUsers, UnaryOperator<List<User>> save) {
+        while (true) {
+            try {
+                return save.apply(toUsers.apply(indexes));
+            } catch (DuplicateUserException e) {
+                for (Map.Entry<Integer, String> conflict : e.getConflicts().reversed().entrySet()) {
+                    int index = indexes.remove((int) conflict.getKey());
+                    results.set(index, BatchResultDto.Item.failed(index, HttpStatus.CONFLICT,
+                            List.of(conflict.getValue())));
+                }
+            }
+        }
     }
 }
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.validation.Validator;
+
+import java.util.List;
+
+/**
+ * Validates items of batch requests one by one, so an invalid item fails alone instead of the whole request.
+ */
+public final class Violations {
+
+    private Violations() {
+    }
+
+    /**
+     * Constraint violations of the item as {@code "property: message"}, sorted so responses are stable.
+     */
+    public static List<String> of(Validator validator, Object item) {
+        if (item == null) {
+            return List.of("must not be null");
+        }
+        return validator.validate(item).stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .toList();
+    }
+}
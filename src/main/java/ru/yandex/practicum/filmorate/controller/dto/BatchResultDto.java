@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.controller.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import org.springframework.http.HttpStatus;
+
+import java.util.List;
+
+@Data
+public class BatchResultDto<T> {
+    public static final int MAX_ITEMS = 10_000;
+
+    /**
+     * One result per request item, in request order.
+     */
+    private final List<Item<T>> items;
+    private final int succeeded;
+    private final int failed;
+
+    public static <T> BatchResultDto<T> of(List<Item<T>> items) {
+        int succeeded = (int) items.stream().filter(item -> item.getErrors() == null).count();
+        return new BatchResultDto<>(items, succeeded, items.size() - succeeded);
+    }
+
+    @Data
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Item<T> {
+        private final int index;
+        private final int status;
+        private final T item;
+        private final List<String> errors;
+
+        public static <T> Item<T> succeeded(int index, HttpStatus status, T item) {
+            return new Item<>(index, status.value(), item, null);
+        }
+
+        public static <T> Item<T> failed(int index, HttpStatus status, List<String> errors) {
+            return new Item<>(index, status.value(), null, errors);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.controller.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class PageDto<T> {
+    public static final int MAX_LIMIT = 1000;
+    /**
+     * Deepest page of ranked results, which have to be ranked from the first one on every request.
+     */
+    public static final int MAX_OFFSET = 10_000;
+    public static final int MAX_QUERY_LENGTH = 200;
+
+    private final List<T> items;
+    /**
+     * Cursor to pass as {@code after}, or as {@code offset} for search results, to get the next page,
+     * null on the last page. Pages of films by release date use their release order position as the cursor.
+     */
+    private final Long next;
+}
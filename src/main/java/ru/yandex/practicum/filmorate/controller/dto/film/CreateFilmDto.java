@@ -27,7 +27,7 @@ public class CreateFilmDto {
         film.setName(name);
         film.setDescription(description);
         film.setReleaseDate(releaseDate);
-        film.setDuration(Duration.ofMinutes(duration));
+        film.setDuration(duration == null ? null : Duration.ofMinutes(duration));
         return film;
     }
 }
@@ -17,7 +17,8 @@ public class UpdateFilmDto {
     private final LocalDate releaseDate;
     private final Long duration;
 
-    public Film toFilm(Film film) {
+    public Film toFilm(Film existing) {
+        Film film = existing.toBuilder().build();
         if (name != null && !name.isEmpty()) {
             film.setName(name);
         }
@@ -19,7 +19,8 @@ public class UpdateUserDto {
     private String name;
     private LocalDate birthday;
 
-    public User toUser(User user) {
+    public User toUser(User existing) {
+        User user = existing.toBuilder().build();
         if (email != null && !email.isEmpty()) {
             user.setEmail(email);
         }
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.controller.reactive;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Reactive counterpart of {@link ru.yandex.practicum.filmorate.controller.JsonArrayStreamingBody}: wraps
+ * JSON that is already encoded into buffers of one JSON array. Items are taken from the source only as fast
+ * as the connection writes them, and the buffers share the item arrays instead of copying them.
+ */
+final class JsonArrayFlux {
+    private static final byte[] OPEN = {'['};
+    private static final byte[] SEPARATOR = {','};
+    private static final byte[] CLOSE = {']'};
+
+    private JsonArrayFlux() {
+    }
+
+    static Flux<DataBuffer> of(Flux<byte[]> items, DataBufferFactory buffers) {
+        return Flux.defer(() -> {
+            boolean[] first = {true};
+            Flux<DataBuffer> elements = items.concatMapIterable(json -> {
+                if (first[0]) {
+                    first[0] = false;
+                    return List.of(buffers.wrap(json));
+                }
+                return List.of(buffers.wrap(SEPARATOR), buffers.wrap(json));
+            });
+            return Flux.concat(Mono.fromSupplier(() -> buffers.wrap(OPEN)), elements,
+                    Mono.fromSupplier(() -> buffers.wrap(CLOSE)));
+        });
+    }
+}
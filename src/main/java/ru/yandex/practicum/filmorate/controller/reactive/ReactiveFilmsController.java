@@ -0,0 +1,366 @@
+package ru.yandex.practicum.filmorate.controller.reactive;
+
+import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.cache.JsonCache;
+import ru.yandex.practicum.filmorate.controller.ETags;
+import ru.yandex.practicum.filmorate.controller.Violations;
+import ru.yandex.practicum.filmorate.controller.dto.BatchResultDto;
+import ru.yandex.practicum.filmorate.controller.dto.PageDto;
+import ru.yandex.practicum.filmorate.controller.dto.film.CreateFilmDto;
+import ru.yandex.practicum.filmorate.controller.dto.film.FilmDto;
+import ru.yandex.practicum.filmorate.controller.dto.film.UpdateFilmDto;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.repository.ReactiveFilmRepository;
+import ru.yandex.practicum.filmorate.repository.ReactiveUserRepository;
+import ru.yandex.practicum.filmorate.repository.ReleaseOrder;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Film endpoints of the reactive server, the same as {@link ru.yandex.practicum.filmorate.controller.FilmsController}
+ * but without blocking a thread: writes complete when the journal reports them durable, and lists are written
+ * while the catalog view is walked, as fast as the client reads them.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RestController
+@RequestMapping("/films")
+@Slf4j
+@RequiredArgsConstructor
+public class ReactiveFilmsController {
+    private final ReactiveFilmRepository filmRepository;
+    private final ReactiveUserRepository userRepository;
+    private final JsonCache<Film> filmJsonCache;
+    private final Validator validator;
+
+    @PostMapping
+    public Mono<ResponseEntity<FilmDto>> createFilm(@Valid @RequestBody CreateFilmDto createFilmDto) {
+        log.debug("Create film request: {}", createFilmDto);
+        return filmRepository.create(createFilmDto.toFilm())
+                .map(film -> {
+                    log.debug("Film created: {}", film.getId());
+                    return ResponseEntity.status(HttpStatus.CREATED).body(FilmDto.fromFilm(film));
+                });
+    }
+
+    @PostMapping("/batch")
+    public Mono<ResponseEntity<BatchResultDto<FilmDto>>> createFilms(
+            @RequestBody @NotNull @Size(max = BatchResultDto.MAX_ITEMS) List<CreateFilmDto> createFilmDtos) {
+        log.debug("Create films batch request: {} items", createFilmDtos.size());
+        List<BatchResultDto.Item<FilmDto>> results = new ArrayList<>(Collections.nCopies(createFilmDtos.size(), null));
+        List<Integer> indexes = new ArrayList<>();
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < createFilmDtos.size(); i++) {
+            List<String> errors = Violations.of(validator, createFilmDtos.get(i));
+            if (errors.isEmpty()) {
+                indexes.add(i);
+                films.add(createFilmDtos.get(i).toFilm());
+            } else {
+                results.set(i, BatchResultDto.Item.failed(i, HttpStatus.BAD_REQUEST, errors));
+            }
+        }
+        return filmRepository.createAll(films)
+                .collectList()
+                .map(created -> {
+                    for (int i = 0; i < created.size(); i++) {
+                        results.set(indexes.get(i), BatchResultDto.Item.succeeded(
+                                indexes.get(i), HttpStatus.CREATED, FilmDto.fromFilm(created.get(i))));
+                    }
+                    BatchResultDto<FilmDto> result = BatchResultDto.of(results);
+                    log.debug("Films created: {}, rejected: {}", result.getSucceeded(), result.getFailed());
+                    return ResponseEntity.ok(result);
+                });
+    }
+
+    @GetMapping(value = {"", "/stream"}, params = {"!ids", "!limit", "!releasedFrom", "!releasedTo"})
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getAllFilms(ServerWebExchange exchange) {
+        log.debug("Get all films request");
+        return filmRepository.version()
+                .map(version -> {
+                    if (exchange.checkNotModified(ETags.of(version))) {
+                        log.debug("Films not modified");
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+                    }
+                    return ResponseEntity.ok()
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(encode(filmRepository.findAll().map(filmJsonCache::getForScan), exchange));
+                });
+    }
+
+    @GetMapping(params = {"limit", "!ids", "!releasedFrom", "!releasedTo"})
+    public Mono<ResponseEntity<byte[]>> getFilmsPage(
+            @RequestParam(defaultValue = "0") @PositiveOrZero long after,
+            @RequestParam @Positive @Max(PageDto.MAX_LIMIT) int limit,
+            ServerWebExchange exchange) {
+        log.debug("Get films page request: after {}, limit {}", after, limit);
+        return filmRepository.version()
+                .flatMap(version -> {
+                    if (exchange.checkNotModified(ETags.of(version))) {
+                        log.debug("Films not modified");
+                        return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+                    }
+                    return filmRepository.findAllAfter(after, limit + 1)
+                            .collectList()
+                            .map(films -> {
+                                Long next = null;
+                                if (films.size() > limit) {
+                                    films = films.subList(0, limit);
+                                    next = films.get(limit - 1).getId();
+                                }
+                                log.debug("Films found: {}, next: {}", films.size(), next);
+                                return ResponseEntity.ok()
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .body(filmJsonCache.toPage(films, next));
+                            });
+                });
+    }
+
+    @GetMapping(params = {"releasedFrom", "releasedTo", "!ids"})
+    public Mono<ResponseEntity<byte[]>> getFilmsReleasedBetween(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate releasedFrom,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate releasedTo,
+            @RequestParam(defaultValue = "0") @PositiveOrZero long after,
+            @RequestParam(defaultValue = "100") @Positive @Max(PageDto.MAX_LIMIT) int limit,
+            ServerWebExchange exchange) {
+        log.debug("Get films released between request: {} - {}, after {}, limit {}",
+                releasedFrom, releasedTo, after, limit);
+        return filmRepository.version()
+                .flatMap(version -> {
+                    if (exchange.checkNotModified(ETags.of(version))) {
+                        log.debug("Films not modified");
+                        return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+                    }
+                    return filmRepository.findAllReleasedBetween(releasedFrom, releasedTo, after, limit + 1)
+                            .collectList()
+                            .map(films -> {
+                                Long next = null;
+                                if (films.size() > limit) {
+                                    films = films.subList(0, limit);
+                                    next = ReleaseOrder.positionOf(films.get(limit - 1));
+                                }
+                                log.debug("Films found: {}, next: {}", films.size(), next);
+                                return ResponseEntity.ok()
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .body(filmJsonCache.toPage(films, next));
+                            });
+                });
+    }
+
+    @GetMapping("/search")
+    public Mono<ResponseEntity<byte[]>> searchFilms(
+            @RequestParam @NotBlank @Size(max = PageDto.MAX_QUERY_LENGTH) String q,
+            @RequestParam(defaultValue = "0") @PositiveOrZero @Max(PageDto.MAX_OFFSET) int offset,
+            @RequestParam(defaultValue = "20") @Positive @Max(PageDto.MAX_LIMIT) int limit,
+            ServerWebExchange exchange) {
+        log.debug("Search films request: q {}, offset {}, limit {}", q, offset, limit);
+        return filmRepository.version()
+                .flatMap(version -> {
+                    if (exchange.checkNotModified(ETags.of(version))) {
+                        log.debug("Films not modified");
+                        return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+                    }
+                    return filmRepository.search(q, offset, limit + 1)
+                            .collectList()
+                            .map(films -> {
+                                Long next = null;
+                                if (films.size() > limit) {
+                                    films = films.subList(0, limit);
+                                    next = (long) offset + limit;
+                                }
+                                log.debug("Films found: {}, next: {}", films.size(), next);
+                                return ResponseEntity.ok()
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .body(filmJsonCache.toPage(films, next));
+                            });
+                });
+    }
+
+    @GetMapping("/suggest")
+    public Mono<ResponseEntity<byte[]>> suggestFilms(
+            @RequestParam @NotBlank @Size(max = PageDto.MAX_QUERY_LENGTH) String prefix,
+            @RequestParam(defaultValue = "10") @Positive @Max(PageDto.MAX_LIMIT) int limit,
+            ServerWebExchange exchange) {
+        log.debug("Suggest films request: prefix {}, limit {}", prefix, limit);
+        return filmRepository.version()
+                .flatMap(version -> {
+                    if (exchange.checkNotModified(ETags.of(version))) {
+                        log.debug("Films not modified");
+                        return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+                    }
+                    return filmRepository.suggest(prefix, limit)
+                            .collectList()
+                            .map(films -> {
+                                log.debug("Films found: {}", films.size());
+                                return ResponseEntity.ok()
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .body(filmJsonCache.toArray(films));
+                            });
+                });
+    }
+
+    @GetMapping("/popular")
+    public Mono<ResponseEntity<byte[]>> getPopularFilms(
+            @RequestParam(defaultValue = "10") @Positive @Max(PageDto.MAX_LIMIT) int count) {
+        log.debug("Get popular films request: count {}", count);
+        return filmRepository.findPopular(count)
+                .collectList()
+                .map(films -> {
+                    log.debug("Films found: {}", films.size());
+                    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                            .body(filmJsonCache.toArray(films));
+                });
+    }
+
+    @GetMapping(params = {"ids", "!limit", "!releasedFrom", "!releasedTo"})
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getFilmsByIds(
+            @RequestParam @Size(max = PageDto.MAX_LIMIT) List<Long> ids, ServerWebExchange exchange) {
+        log.debug("Get films by ids request: {} ids", ids.size());
+        return filmRepository.version()
+                .map(version -> {
+                    if (exchange.checkNotModified(ETags.of(version))) {
+                        log.debug("Films not modified");
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+                    }
+                    return ResponseEntity.ok()
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(encode(filmRepository.findAllBy(ids).map(filmJsonCache::get), exchange));
+                });
+    }
+
+    @PutMapping("/{id}/like/{userId}")
+    public Mono<ResponseEntity<Void>> likeFilm(@PathVariable long id, @PathVariable long userId) {
+        log.debug("Like film request: film {}, user {}", id, userId);
+        return whenFilmAndUserExist(id, userId, () -> filmRepository.like(id, userId)
+                .map(liked -> {
+                    log.debug("Film liked: film {}, user {}, new {}", id, userId, liked);
+                    return ResponseEntity.ok().build();
+                }));
+    }
+
+    @DeleteMapping("/{id}/like/{userId}")
+    public Mono<ResponseEntity<Void>> unlikeFilm(@PathVariable long id, @PathVariable long userId) {
+        log.debug("Unlike film request: film {}, user {}", id, userId);
+        return whenFilmAndUserExist(id, userId, () -> filmRepository.unlike(id, userId)
+                .map(unliked -> {
+                    log.debug("Film unliked: film {}, user {}, was liked {}", id, userId, unliked);
+                    return ResponseEntity.ok().build();
+                }));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<byte[]>> getFilmById(@PathVariable Long id, ServerWebExchange exchange) {
+        log.debug("Get film by id request: {}", id);
+        return filmRepository.findBy(id)
+                .map(film -> {
+                    if (exchange.checkNotModified(ETags.of(film.getVersion()))) {
+                        log.debug("Film not modified: {}", id);
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).<byte[]>build();
+                    }
+                    log.debug("Film found: {}", id);
+                    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(filmJsonCache.get(film));
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    log.debug("Film not found: {}", id);
+                    return ResponseEntity.notFound().build();
+                }));
+    }
+
+    @PutMapping
+    public Mono<ResponseEntity<?>> updateFilm(@Valid @RequestBody UpdateFilmDto updateFilmDto) {
+        log.debug("Update film request: {}", updateFilmDto);
+        return filmRepository.update(updateFilmDto.getId(), updateFilmDto::toFilm)
+                .<ResponseEntity<?>>map(updatedFilm -> {
+                    log.debug("Film updated: {}", updatedFilm.getId());
+                    return ResponseEntity.ok(FilmDto.fromFilm(updatedFilm));
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    log.debug("Film not found: {}", updateFilmDto.getId());
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(updateFilmDto);
+                }));
+    }
+
+    @PutMapping("/batch")
+    public Mono<ResponseEntity<BatchResultDto<FilmDto>>> updateFilms(
+            @RequestBody @NotNull @Size(max = BatchResultDto.MAX_ITEMS) List<UpdateFilmDto> updateFilmDtos) {
+        log.debug("Update films batch request: {} items", updateFilmDtos.size());
+        List<BatchResultDto.Item<FilmDto>> results = new ArrayList<>(Collections.nCopies(updateFilmDtos.size(), null));
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < updateFilmDtos.size(); i++) {
+            List<String> errors = Violations.of(validator, updateFilmDtos.get(i));
+            if (errors.isEmpty()) {
+                ids.add(updateFilmDtos.get(i).getId());
+            } else {
+                results.set(i, BatchResultDto.Item.failed(i, HttpStatus.BAD_REQUEST, errors));
+            }
+        }
+        return filmRepository.findAllBy(ids)
+                .collectMap(Film::getId)
+                .flatMap(changed -> {
+                    List<Integer> indexes = new ArrayList<>();
+                    List<Film> films = new ArrayList<>();
+                    for (int i = 0; i < updateFilmDtos.size(); i++) {
+                        if (results.get(i) != null) {
+                            continue;
+                        }
+                        UpdateFilmDto updateFilmDto = updateFilmDtos.get(i);
+                        Film existing = changed.get(updateFilmDto.getId());
+                        if (existing == null) {
+                            results.set(i,
+                                    BatchResultDto.Item.failed(i, HttpStatus.NOT_FOUND, List.of("Film not found")));
+                            continue;
+                        }
+                        Film film = updateFilmDto.toFilm(existing);
+                        changed.put(film.getId(), film);
+                        indexes.add(i);
+                        films.add(film);
+                    }
+                    return filmRepository.updateAll(films)
+                            .collectList()
+                            .map(updated -> {
+                                for (int i = 0; i < updated.size(); i++) {
+                                    results.set(indexes.get(i), BatchResultDto.Item.succeeded(
+                                            indexes.get(i), HttpStatus.OK, FilmDto.fromFilm(updated.get(i))));
+                                }
+                                BatchResultDto<FilmDto> result = BatchResultDto.of(results);
+                                log.debug("Films updated: {}, rejected: {}", result.getSucceeded(), result.getFailed());
+                                return ResponseEntity.ok(result);
+                            });
+                });
+    }
+
+    private Mono<ResponseEntity<Void>> whenFilmAndUserExist(long id, long userId,
+                                                            Supplier<Mono<ResponseEntity<Void>>> change) {
+        return Mono.zip(filmRepository.findBy(id).hasElement(), userRepository.findBy(userId).hasElement())
+                .flatMap(found -> {
+                    if (!found.getT1() || !found.getT2()) {
+                        log.debug("Film or user not found: film {}, user {}", id, userId);
+                        return Mono.just(ResponseEntity.notFound().build());
+                    }
+                    return change.get();
+                });
+    }
+
+    private Flux<DataBuffer> encode(Flux<byte[]> films, ServerWebExchange exchange) {
+        return JsonArrayFlux.of(films, exchange.getResponse().bufferFactory());
+    }
+}
@@ -0,0 +1,389 @@
+package ru.yandex.practicum.filmorate.controller.reactive;
+
+import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.cache.JsonCache;
+import ru.yandex.practicum.filmorate.controller.ETags;
+import ru.yandex.practicum.filmorate.controller.Violations;
+import ru.yandex.practicum.filmorate.controller.dto.BatchResultDto;
+import ru.yandex.practicum.filmorate.controller.dto.PageDto;
+import ru.yandex.practicum.filmorate.controller.dto.user.CreateUserDto;
+import ru.yandex.practicum.filmorate.controller.dto.user.UserDto;
+import ru.yandex.practicum.filmorate.controller.dto.user.UpdateUserDto;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.DuplicateUserException;
+import ru.yandex.practicum.filmorate.repository.ReactiveUserRepository;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * User endpoints of the reactive server, the same as {@link ru.yandex.practicum.filmorate.controller.UsersController}
+ * but without blocking a thread: writes complete when the journal reports them durable, and lists are written
+ * while the view of all users is walked, as fast as the client reads them.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RestController
+@RequestMapping("/users")
+@Slf4j
+@RequiredArgsConstructor
+public class ReactiveUsersController {
+    private final ReactiveUserRepository userRepository;
+    private final JsonCache<User> userJsonCache;
+    private final Validator validator;
+
+    @PostMapping
+    public Mono<ResponseEntity<?>> createUser(@Valid @RequestBody CreateUserDto createUserDto) {
+        log.debug("Create user request: {}", createUserDto);
+        return userRepository.create(createUserDto.toUser())
+                .<ResponseEntity<?>>map(user -> {
+                    log.debug("User created: {}", user.getId());
+                    return ResponseEntity.status(HttpStatus.CREATED).body(UserDto.fromUser(user));
+                })
+                .onErrorResume(DuplicateUserException.class, e -> {
+                    log.debug("User not created: {}", e.getConflicts().values());
+                    return Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).body(createUserDto));
+                });
+    }
+
+    @PostMapping("/batch")
+    public Mono<ResponseEntity<BatchResultDto<UserDto>>> createUsers(
+            @RequestBody @NotNull @Size(max = BatchResultDto.MAX_ITEMS) List<CreateUserDto> createUserDtos) {
+        log.debug("Create users batch request: {} items", createUserDtos.size());
+        List<BatchResultDto.Item<UserDto>> results = new ArrayList<>(Collections.nCopies(createUserDtos.size(), null));
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < createUserDtos.size(); i++) {
+            List<String> errors = Violations.of(validator, createUserDtos.get(i));
+            if (errors.isEmpty()) {
+                indexes.add(i);
+            } else {
+                results.set(i, BatchResultDto.Item.failed(i, HttpStatus.BAD_REQUEST, errors));
+            }
+        }
+        return saveAll(indexes, results,
+                surviving -> surviving.stream().map(i -> createUserDtos.get(i).toUser()).toList(),
+                userRepository::createAll)
+                .map(created -> {
+                    for (int i = 0; i < created.size(); i++) {
+                        results.set(indexes.get(i), BatchResultDto.Item.succeeded(
+                                indexes.get(i), HttpStatus.CREATED, UserDto.fromUser(created.get(i))));
+                    }
+                    BatchResultDto<UserDto> result = BatchResultDto.of(results);
+                    log.debug("Users created: {}, rejected: {}", result.getSucceeded(), result.getFailed());
+                    return ResponseEntity.ok(result);
+                });
+    }
+
+    @GetMapping(value = {"", "/stream"}, params = {"!ids", "!limit"})
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getAllUsers(ServerWebExchange exchange) {
+        log.debug("Get all users request");
+        return userRepository.version()
+                .map(version -> {
+                    if (exchange.checkNotModified(ETags.of(version))) {
+                        log.debug("Users not modified");
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+                    }
+                    return ResponseEntity.ok()
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(encode(userRepository.findAll().map(userJsonCache::getForScan), exchange));
+                });
+    }
+
+    @GetMapping(params = {"limit", "!ids"})
+    public Mono<ResponseEntity<byte[]>> getUsersPage(
+            @RequestParam(defaultValue = "0") @PositiveOrZero long after,
+            @RequestParam @Positive @Max(PageDto.MAX_LIMIT) int limit,
+            ServerWebExchange exchange) {
+        log.debug("Get users page request: after {}, limit {}", after, limit);
+        return userRepository.version()
+                .flatMap(version -> {
+                    if (exchange.checkNotModified(ETags.of(version))) {
+                        log.debug("Users not modified");
+                        return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+                    }
+                    return userRepository.findAllAfter(after, limit + 1)
+                            .collectList()
+                            .map(users -> {
+                                Long next = null;
+                                if (users.size() > limit) {
+                                    users = users.subList(0, limit);
+                                    next = users.get(limit - 1).getId();
+                                }
+                                log.debug("Users found: {}, next: {}", users.size(), next);
+                                return ResponseEntity.ok()
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .body(userJsonCache.toPage(users, next));
+                            });
+                });
+    }
+
+    @GetMapping("/suggest")
+    public Mono<ResponseEntity<byte[]>> suggestUsers(
+            @RequestParam @NotBlank @Size(max = PageDto.MAX_QUERY_LENGTH) String prefix,
+            @RequestParam(defaultValue = "10") @Positive @Max(PageDto.MAX_LIMIT) int limit,
+            ServerWebExchange exchange) {
+        log.debug("Suggest users request: prefix {}, limit {}", prefix, limit);
+        return userRepository.version()
+                .flatMap(version -> {
+                    if (exchange.checkNotModified(ETags.of(version))) {
+                        log.debug("Users not modified");
+                        return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+                    }
+                    return userRepository.suggest(prefix, limit)
+                            .collectList()
+                            .map(users -> {
+                                log.debug("Users found: {}", users.size());
+                                return ResponseEntity.ok()
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .body(userJsonCache.toArray(users));
+                            });
+                });
+    }
+
+    @GetMapping(params = {"ids", "!limit"})
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getUsersByIds(
+            @RequestParam @Size(max = PageDto.MAX_LIMIT) List<Long> ids, ServerWebExchange exchange) {
+        log.debug("Get users by ids request: {} ids", ids.size());
+        return userRepository.version()
+                .map(version -> {
+                    if (exchange.checkNotModified(ETags.of(version))) {
+                        log.debug("Users not modified");
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+                    }
+                    return ResponseEntity.ok()
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(encode(userRepository.findAllBy(ids).map(userJsonCache::get), exchange));
+                });
+    }
+
+    @GetMapping("/by-email/{email}")
+    public Mono<ResponseEntity<byte[]>> getUserByEmail(@PathVariable String email, ServerWebExchange exchange) {
+        log.debug("Get user by email request");
+        return found(userRepository.findByEmail(email), exchange);
+    }
+
+    @GetMapping("/by-login/{login}")
+    public Mono<ResponseEntity<byte[]>> getUserByLogin(@PathVariable String login, ServerWebExchange exchange) {
+        log.debug("Get user by login request: {}", login);
+        return found(userRepository.findByLogin(login), exchange);
+    }
+
+    @GetMapping("/{id}/friends")
+    public Mono<ResponseEntity<byte[]>> getFriends(@PathVariable long id) {
+        log.debug("Get friends request: user {}", id);
+        return userRepository.findBy(id)
+                .flatMap(user -> userRepository.findFriends(id).collectList())
+                .map(friends -> {
+                    log.debug("Friends found: {}", friends.size());
+                    return ResponseEntity.ok()
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(userJsonCache.toArray(friends));
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    log.debug("User not found: {}", id);
+                    return ResponseEntity.notFound().build();
+                }));
+    }
+
+    @GetMapping("/{id}/friends/common/{otherId}")
+    public Mono<ResponseEntity<byte[]>> getCommonFriends(@PathVariable long id, @PathVariable long otherId) {
+        log.debug("Get common friends request: users {} and {}", id, otherId);
+        return whenBothExist(id, otherId, () -> userRepository.findCommonFriends(id, otherId)
+                .collectList()
+                .map(friends -> {
+                    log.debug("Common friends found: {}", friends.size());
+                    return ResponseEntity.ok()
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(userJsonCache.toArray(friends));
+                }));
+    }
+
+    @PutMapping("/{id}/friends/{friendId}")
+    public Mono<ResponseEntity<Void>> addFriend(@PathVariable long id, @PathVariable long friendId) {
+        log.debug("Add friend request: user {}, friend {}", id, friendId);
+        if (id == friendId) {
+            log.debug("User can not be their own friend: {}", id);
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return whenBothExist(id, friendId, () -> userRepository.addFriend(id, friendId)
+                .map(added -> {
+                    log.debug("Friend added: user {}, friend {}, new {}", id, friendId, added);
+                    return ResponseEntity.ok().build();
+                }));
+    }
+
+    @DeleteMapping("/{id}/friends/{friendId}")
+    public Mono<ResponseEntity<Void>> removeFriend(@PathVariable long id, @PathVariable long friendId) {
+        log.debug("Remove friend request: user {}, friend {}", id, friendId);
+        return whenBothExist(id, friendId, () -> userRepository.removeFriend(id, friendId)
+                .map(removed -> {
+                    log.debug("Friend removed: user {}, friend {}, were friends {}", id, friendId, removed);
+                    return ResponseEntity.ok().build();
+                }));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<byte[]>> getUserById(@PathVariable Long id, ServerWebExchange exchange) {
+        log.debug("Get user by id request: {}", id);
+        return userRepository.findBy(id)
+                .map(user -> {
+                    if (exchange.checkNotModified(ETags.of(user.getVersion()))) {
+                        log.debug("User not modified: {}", id);
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).<byte[]>build();
+                    }
+                    log.debug("User found: {}", id);
+                    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(userJsonCache.get(user));
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    log.debug("User not found: {}", id);
+                    return ResponseEntity.notFound().build();
+                }));
+    }
+
+    @PutMapping
+    public Mono<ResponseEntity<?>> updateUser(@Valid @RequestBody UpdateUserDto updateUserDto) {
+        log.debug("Update user request: {}", updateUserDto);
+        return userRepository.update(updateUserDto.getId(), updateUserDto::toUser)
+                .<ResponseEntity<?>>map(updatedUser -> {
+                    log.debug("User updated: {}", updatedUser.getId());
+                    return ResponseEntity.ok(UserDto.fromUser(updatedUser));
+                })
+                .onErrorResume(DuplicateUserException.class, e -> {
+                    log.debug("User not updated: {}", e.getConflicts().values());
+                    return Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).body(updateUserDto));
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    log.debug("User not found: {}", updateUserDto.getId());
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(updateUserDto);
+                }));
+    }
+
+    @PutMapping("/batch")
+    public Mono<ResponseEntity<BatchResultDto<UserDto>>> updateUsers(
+            @RequestBody @NotNull @Size(max = BatchResultDto.MAX_ITEMS) List<UpdateUserDto> updateUserDtos) {
+        log.debug("Update users batch request: {} items", updateUserDtos.size());
+        List<BatchResultDto.Item<UserDto>> results = new ArrayList<>(Collections.nCopies(updateUserDtos.size(), null));
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < updateUserDtos.size(); i++) {
+            List<String> errors = Violations.of(validator, updateUserDtos.get(i));
+            if (errors.isEmpty()) {
+                ids.add(updateUserDtos.get(i).getId());
+            } else {
+                results.set(i, BatchResultDto.Item.failed(i, HttpStatus.BAD_REQUEST, errors));
+            }
+        }
+        return userRepository.findAllBy(ids)
+                .collectMap(User::getId)
+                .flatMap(existing -> {
+                    List<Integer> indexes = new ArrayList<>();
+                    for (int i = 0; i < updateUserDtos.size(); i++) {
+                        if (results.get(i) != null) {
+                            continue;
+                        }
+                        if (!existing.containsKey(updateUserDtos.get(i).getId())) {
+                            results.set(i,
+                                    BatchResultDto.Item.failed(i, HttpStatus.NOT_FOUND, List.of("User not found")));
+                            continue;
+                        }
+                        indexes.add(i);
+                    }
+                    return saveAll(indexes, results,
+                            surviving -> changedUsers(updateUserDtos, surviving, existing),
+                            userRepository::updateAll)
+                            .map(updated -> {
+                                for (int i = 0; i < updated.size(); i++) {
+                                    results.set(indexes.get(i), BatchResultDto.Item.succeeded(
+                                            indexes.get(i), HttpStatus.OK, UserDto.fromUser(updated.get(i))));
+                                }
+                                BatchResultDto<UserDto> result = BatchResultDto.of(results);
+                                log.debug("Users updated: {}, rejected: {}", result.getSucceeded(), result.getFailed());
+                                return ResponseEntity.ok(result);
+                            });
+                });
+    }
+
+    private Mono<ResponseEntity<byte[]>> found(Mono<User> maybeUser, ServerWebExchange exchange) {
+        return maybeUser
+                .map(user -> {
+                    if (exchange.checkNotModified(ETags.of(user.getVersion()))) {
+                        log.debug("User not modified: {}", user.getId());
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).<byte[]>build();
+                    }
+                    log.debug("User found: {}", user.getId());
+                    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(userJsonCache.get(user));
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    log.debug("User not found");
+                    return ResponseEntity.notFound().build();
+                }));
+    }
+
+    private <T> Mono<ResponseEntity<T>> whenBothExist(long id, long otherId, Supplier<Mono<ResponseEntity<T>>> then) {
+        return Mono.zip(userRepository.findBy(id).hasElement(), userRepository.findBy(otherId).hasElement())
+                .flatMap(found -> {
+                    if (!found.getT1() || !found.getT2()) {
+                        log.debug("User not found: {} or {}", id, otherId);
+                        return Mono.just(ResponseEntity.notFound().build());
+                    }
+                    return then.get();
+                });
+    }
+
+    /**
+     * Applies the items to the users in batch order, so an item that changes a user already changed by an earlier
+     * item builds on that change.
+     */
+    private static List<User> changedUsers(List<UpdateUserDto> updateUserDtos, List<Integer> indexes,
+                                           Map<Long, User> existing) {
+        Map<Long, User> changed = new HashMap<>(existing);
+        List<User> users = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            UpdateUserDto updateUserDto = updateUserDtos.get(index);
+            User user = updateUserDto.toUser(changed.get(updateUserDto.getId()));
+            changed.put(user.getId(), user);
+            users.add(user);
+        }
+        return users;
+    }
+
+    /**
+     * Saves the users built from the remaining items, failing the items that conflict with other users with 409
+     * and building and saving the rest again until nothing conflicts. Rebuilding keeps a later item from
+     * inheriting the change of a failed item.
+     */
+    private static Mono<List<User>> saveAll(List<Integer> indexes, List<BatchResultDto.Item<UserDto>> results,
+                                            Function<List<Integer>, List<User>> toUsers,
+                                            Function<List<User>, Flux<User>> save) {
+        return Mono.defer(() -> save.apply(toUsers.apply(indexes)).collectList())
+                .onErrorResume(DuplicateUserException.class, e -> {
+                    for (Map.Entry<Integer, String> conflict : e.getConflicts().reversed().entrySet()) {
+                        int index = indexes.remove((int) conflict.getKey());
+                        results.set(index, BatchResultDto.Item.failed(index, HttpStatus.CONFLICT,
+                                List.of(conflict.getValue())));
+                    }
+                    return saveAll(indexes, results, toUsers, save);
+                });
+    }
+
+    private Flux<DataBuffer> encode(Flux<byte[]> users, ServerWebExchange exchange) {
+        return JsonArrayFlux.of(users, exchange.getResponse().bufferFactory());
+    }
+}
@@ -0,0 +1,160 @@
+package ru.yandex.practicum.filmorate.infrastructure;
+
+import ru.yandex.practicum.filmorate.infrastructure.persistence.Links;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.Lock;
+import java.util.function.LongFunction;
+
+/**
+ * Ids of the users who like each film, and all films ranked by their number of likes.
+ * <p>
+ * The ranking is a concurrent skip list of longs that order films by likes, most first, then by id,
+ * so a like moves its film in O(log n) and the top N films are the first N entries. A moved film is added
+ * under its new rank before it is removed from the old one, so it is never missing, and readers skip the second
+ * entry of a film they meet twice. The user ids of a film are a {@link LongHashSet} that is only touched under
+ * the repository's lock of that film.
+ */
+class FilmLikes {
+    static final int ID_BITS = 40;
+    static final long MAX_ID = (1L << ID_BITS) - 1;
+    static final int MAX_RANKED_LIKES = (1 << (Long.SIZE - 1 - ID_BITS)) - 1;
+
+    private final ConcurrentHashMap<Long, LongHashSet> users = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Long> ranking = new ConcurrentSkipListSet<>();
+
+    /**
+     * Ranks a new film with no likes. Calls for one film must not overlap with each other or with likes of it,
+     * which the repository's per-id locks ensure, as for all other changes.
+     */
+    void add(long filmId) {
+        ranking.add(rank(filmId, count(filmId)));
+    }
+
+    /**
+     * Adds the like and returns true, or returns false if the user likes the film already.
+     */
+    boolean like(long filmId, long userId) {
+        LongHashSet filmUsers = users.computeIfAbsent(filmId, id -> new LongHashSet());
+        if (!filmUsers.add(userId)) {
+            return false;
+        }
+        move(filmId, filmUsers.size() - 1, filmUsers.size());
+        return true;
+    }
+
+    /**
+     * Removes the like and returns true, or returns false if the user does not like the film.
+     */
+    boolean unlike(long filmId, long userId) {
+        LongHashSet filmUsers = users.get(filmId);
+        if (filmUsers == null || !filmUsers.remove(userId)) {
+            return false;
+        }
+        if (filmUsers.isEmpty()) {
+            users.remove(filmId);
+        }
+        move(filmId, filmUsers.size() + 1, filmUsers.size());
+        return true;
+    }
+
+    boolean likes(long filmId, long userId) {
+        LongHashSet filmUsers = users.get(filmId);
+        return filmUsers != null && filmUsers.contains(userId);
+    }
+
+    int count(long filmId) {
+        LongHashSet filmUsers = users.get(filmId);
+        return filmUsers == null ? 0 : filmUsers.size();
+    }
+
+    /**
+     * Ids of the users who like the film in ascending order.
+     */
+    long[] usersOf(long filmId) {
+        LongHashSet filmUsers = users.get(filmId);
+        return filmUsers == null ? new long[0] : filmUsers.toSortedArray();
+    }
+
+    /**
+     * Ids of up to {@code count} films with the most likes, most first and then by id. Reads the ranking only,
+     * so it never waits for likes.
+     */
+    long[] top(int count) {
+        long[] ids = new long[count];
+        Set<Long> seen = new HashSet<>();
+        int found = 0;
+        for (long rank : ranking) {
+            if (found == count) {
+                break;
+            }
+            long id = rank & MAX_ID;
+            if (seen.add(id)) {
+                ids[found++] = id;
+            }
+        }
+        return found == count ? ids : Arrays.copyOf(ids, found);
+    }
+
+    /**
+     * Ranks the given films with the likes they have, dropping all likes and ranks that were there before.
+     */
+    void rebuild(Iterable<Long> filmIds, List<Links> likes) {
+        users.clear();
+        ranking.clear();
+        for (Links filmLikes : likes) {
+            LongHashSet filmUsers = new LongHashSet();
+            for (long userId : filmLikes.ids()) {
+                filmUsers.add(userId);
+            }
+            if (!filmUsers.isEmpty()) {
+                users.put(filmLikes.id(), filmUsers);
+            }
+        }
+        for (long filmId : filmIds) {
+            ranking.add(rank(filmId, count(filmId)));
+        }
+    }
+
+    /**
+     * Films with the users who like them, for writing a snapshot. Every film is copied under its lock.
+     */
+    List<Links> copy(LongFunction<Lock> locks) {
+        List<Links> copied = new ArrayList<>(users.size());
+        for (long filmId : users.keySet()) {
+            Lock lock = locks.apply(filmId);
+            lock.lock();
+            try {
+                long[] ids = usersOf(filmId);
+                if (ids.length > 0) {
+                    copied.add(new Links(filmId, ids));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return copied;
+    }
+
+    private void move(long filmId, int before, int after) {
+        long from = rank(filmId, before);
+        long to = rank(filmId, after);
+        if (from != to) {
+            ranking.add(to);
+            ranking.remove(from);
+        }
+    }
+
+    /**
+     * Orders films by likes, most first, then by id. Counts above {@link #MAX_RANKED_LIKES} rank as that many.
+     */
+    static long rank(long filmId, int likes) {
+        if (filmId < 0 || filmId > MAX_ID) {
+            throw new IllegalArgumentException("Film id does not fit in " + ID_BITS + " bits: " + filmId);
+        }
+        return (long) (MAX_RANKED_LIKES - Math.min(likes, MAX_RANKED_LIKES)) << ID_BITS | filmId;
+    }
+}
@@ -0,0 +1,272 @@
+package ru.yandex.practicum.filmorate.infrastructure;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.PostingList;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+
+/**
+ * Inverted index from the words of film names and descriptions to the films that contain them.
+ * <p>
+ * A word is a run of letters and digits, compared in lower case. Each word maps to a {@link PostingList} of film ids
+ * and weights, where a word counts {@value #NAME_WEIGHT} times in the name and once in the description.
+ * Lists are immutable and replaced per word, so a search never waits for writers, though it may see a film
+ * already indexed under its new words and not yet removed from its old ones.
+ * <p>
+ * A search returns films that contain every word of the query, ranked by the BM25 sum of their word weights.
+ * It walks the list of the rarest word and looks the others up with cursors, and once it holds enough
+ * hits it skips blocks of the rarest list whose greatest weight could not rank.
+ */
+class FilmSearchIndex {
+    static final int MAX_TERM_LENGTH = 64;
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    /**
+     * BM25 term frequency saturation. Names and descriptions are short, so there is no length normalization.
+     */
+    private static final double K1 = 1.2;
+
+    private final ConcurrentHashMap<String, PostingList> postings = new ConcurrentHashMap<>();
+
+    /**
+     * Moves the film from the words of its previous state to the words of its new one.
+     * Calls for one film must not overlap, which the repository's per-id locks ensure.
+     */
+    void update(Film previous, Film film) {
+        long id = film.getId();
+        Map<String, Integer> before = previous == null ? Map.of() : termWeights(previous);
+        Map<String, Integer> after = termWeights(film);
+        for (String term : before.keySet()) {
+            if (!after.containsKey(term)) {
+                postings.computeIfPresent(term, (key, list) -> {
+                    PostingList changed = list.without(id);
+                    return changed.isEmpty() ? null : changed;
+                });
+            }
+        }
+        for (Map.Entry<String, Integer> entry : after.entrySet()) {
+            int weight = entry.getValue();
+            if (!Objects.equals(before.get(entry.getKey()), weight)) {
+                postings.compute(entry.getKey(),
+                        (key, list) -> (list == null ? PostingList.empty() : list).with(id, weight));
+            }
+        }
+    }
+
+    /**
+     * Replaces the whole index with one built from the films, which must be ordered by id.
+     */
+    void rebuild(Collection<Film> films) {
+        Map<String, ListBuilder> builders = new HashMap<>();
+        for (Film film : films) {
+            termWeights(film).forEach((term, weight) ->
+                    builders.computeIfAbsent(term, key -> new ListBuilder()).add(film.getId(), weight));
+        }
+        postings.clear();
+        builders.forEach((term, builder) -> postings.put(term, builder.build()));
+    }
+
+    /**
+     * Ids of the films that contain every word of the query, best match first and equal matches by id,
+     * without the first {@code offset} of them. Films the filter rejects are left out before ranking, so they take
+     * no place in the page and the page is only short if no more films match.
+     *
+     * @param documents number of indexed films, which makes words that few films contain count for more
+     * @param exists    whether a film is still there, for ids left in the index by a change that is half done
+     */
+    long[] search(String query, int offset, int limit, int documents, LongPredicate exists) {
+        List<String> terms = terms(query);
+        if (terms.isEmpty()) {
+            return new long[0];
+        }
+        PostingList[] lists = new PostingList[terms.size()];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = postings.get(terms.get(i));
+            if (lists[i] == null) {
+                return new long[0];
+            }
+        }
+        Arrays.sort(lists, Comparator.comparingInt(PostingList::size));
+        double[] idf = new double[lists.length];
+        double othersBound = 0.0;
+        for (int i = 0; i < lists.length; i++) {
+            int frequency = lists[i].size();
+            idf[i] = Math.log(1.0 + (documents - frequency + 0.5) / (frequency + 0.5));
+            if (i > 0) {
+                othersBound += idf[i] * (K1 + 1.0);
+            }
+        }
+        double bound = othersBound;
+        PostingList.Cursor[] others = new PostingList.Cursor[lists.length - 1];
+        for (int i = 1; i < lists.length; i++) {
+            others[i - 1] = lists[i].cursor();
+        }
+        TopHits hits = new TopHits(offset + limit);
+        lists[0].forEachUnlessSkipped(
+                maxWeight -> hits.canBeatAll(score(idf[0], maxWeight) + bound),
+                (id, weight) -> {
+                    double score = score(idf[0], weight);
+                    if (!hits.canTake(id, score + bound) || !exists.test(id)) {
+                        return;
+                    }
+                    for (int i = 1; i < lists.length; i++) {
+                        int other = others[i - 1].weightOf(id);
+                        if (other == 0) {
+                            return;
+                        }
+                        score += score(idf[i], other);
+                    }
+                    hits.offer(id, score);
+                });
+        return hits.rankedIds(offset);
+    }
+
+    static List<String> terms(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        Set<String> terms = new LinkedHashSet<>();
+        forEachTerm(text, terms::add);
+        return new ArrayList<>(terms);
+    }
+
+    private static Map<String, Integer> termWeights(Film film) {
+        Map<String, Integer> weights = new HashMap<>();
+        if (film.getName() != null) {
+            forEachTerm(film.getName(), term -> weights.merge(term, NAME_WEIGHT, Integer::sum));
+        }
+        if (film.getDescription() != null) {
+            forEachTerm(film.getDescription(), term -> weights.merge(term, DESCRIPTION_WEIGHT, Integer::sum));
+        }
+        return weights;
+    }
+
+    private static void forEachTerm(String text, Consumer<String> consumer) {
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isLetterOrDigit(codePoint)) {
+                if (term.length() < MAX_TERM_LENGTH) {
+                    term.appendCodePoint(Character.toLowerCase(codePoint));
+                }
+            } else if (!term.isEmpty()) {
+                consumer.accept(term.toString());
+                term.setLength(0);
+            }
+        }
+        if (!term.isEmpty()) {
+            consumer.accept(term.toString());
+        }
+    }
+
+    private static double score(double idf, int weight) {
+        return idf * weight * (K1 + 1.0) / (weight + K1);
+    }
+
+    private static final class ListBuilder {
+        private long[] ids = new long[4];
+        private byte[] weights = new byte[4];
+        private int count;
+
+        private void add(long id, int weight) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                weights = Arrays.copyOf(weights, count * 2);
+            }
+            ids[count] = id;
+            weights[count++] = (byte) Math.min(weight, PostingList.MAX_WEIGHT);
+        }
+
+        private PostingList build() {
+            return PostingList.of(ids, weights, count);
+        }
+    }
+
+    /**
+     * The best hits seen so far, in a min-heap whose root is the hit that would be dropped first:
+     * the lowest score, and of equal scores the greatest id.
+     */
+    private static final class TopHits {
+        private final long[] ids;
+        private final double[] scores;
+        private int size;
+
+        private TopHits(int capacity) {
+            ids = new long[capacity];
+            scores = new double[capacity];
+        }
+
+        /**
+         * Whether a hit with this score and any id could get in. Packed entries are offered in id order,
+         * so before a packed block the held hits all have smaller ids, and a hit only gets in with a greater score.
+         */
+        private boolean canBeatAll(double score) {
+            return size < ids.length || score > scores[0];
+        }
+
+        private boolean canTake(long id, double score) {
+            return size < ids.length || worse(ids[0], scores[0], id, score);
+        }
+
+        private void offer(long id, double score) {
+            if (size < ids.length) {
+                int child = size++;
+                while (child > 0) {
+                    int parent = (child - 1) >>> 1;
+                    if (!worse(id, score, ids[parent], scores[parent])) {
+                        break;
+                    }
+                    ids[child] = ids[parent];
+                    scores[child] = scores[parent];
+                    child = parent;
+                }
+                ids[child] = id;
+                scores[child] = score;
+            } else if (worse(ids[0], scores[0], id, score)) {
+                siftDown(id, score);
+            }
+        }
+
+        private long[] rankedIds(int offset) {
+            int count = size;
+            long[] ranked = new long[count];
+            while (size > 0) {
+                ranked[--count] = ids[0];
+                int last = --size;
+                if (last > 0) {
+                    siftDown(ids[last], scores[last]);
+                }
+            }
+            return offset >= ranked.length ? new long[0] : Arrays.copyOfRange(ranked, offset, ranked.length);
+        }
+
+        private void siftDown(long id, double score) {
+            int parent = 0;
+            while (true) {
+                int child = 2 * parent + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && worse(ids[child + 1], scores[child + 1], ids[child], scores[child])) {
+                    child++;
+                }
+                if (!worse(ids[child], scores[child], id, score)) {
+                    break;
+                }
+                ids[parent] = ids[child];
+                scores[parent] = scores[child];
+                parent = child;
+            }
+            ids[parent] = id;
+            scores[parent] = score;
+        }
+
+        private static boolean worse(long id, double score, long otherId, double otherScore) {
+            return score < otherScore || score == otherScore && id > otherId;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate.infrastructure;
+
+import ru.yandex.practicum.filmorate.infrastructure.persistence.Links;
+import ru.yandex.practicum.filmorate.util.PackedLongSet;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mutual friendships of users: the friend ids of each user in a {@link PackedLongSet}, so an edge takes about
+ * two bytes on each side and the common friends of two users are one merge of their sets.
+ * <p>
+ * Sets are immutable and replaced on change, so readers never wait and always see a whole set. A friendship
+ * changes the sets of both users one after the other under the repository's locks of both, so a reader may see
+ * it on one side only for that moment.
+ */
+class FriendGraph {
+    private final ConcurrentHashMap<Long, PackedLongSet> friends = new ConcurrentHashMap<>();
+
+    /**
+     * Makes the users friends and returns true, or returns false if they are friends already.
+     */
+    boolean add(long userId, long friendId) {
+        PackedLongSet userFriends = setOf(userId);
+        if (userFriends.contains(friendId)) {
+            return false;
+        }
+        friends.put(userId, userFriends.with(friendId));
+        friends.put(friendId, setOf(friendId).with(userId));
+        return true;
+    }
+
+    /**
+     * Ends the friendship and returns true, or returns false if the users are not friends.
+     */
+    boolean remove(long userId, long friendId) {
+        PackedLongSet userFriends = setOf(userId);
+        if (!userFriends.contains(friendId)) {
+            return false;
+        }
+        replace(userId, userFriends.without(friendId));
+        replace(friendId, setOf(friendId).without(userId));
+        return true;
+    }
+
+    boolean areFriends(long userId, long friendId) {
+        return setOf(userId).contains(friendId);
+    }
+
+    /**
+     * Friend ids of the user in ascending order.
+     */
+    long[] friendsOf(long userId) {
+        return setOf(userId).toArray();
+    }
+
+    /**
+     * Ids of the users who are friends of both in ascending order.
+     */
+    long[] common(long userId, long otherId) {
+        return setOf(userId).intersect(setOf(otherId));
+    }
+
+    /**
+     * Replaces all friendships with the given ones, each of which may be listed under either user or both.
+     */
+    void rebuild(List<Links> friendships) {
+        Map<Long, long[]> adjacency = new HashMap<>();
+        Map<Long, Integer> counts = new HashMap<>();
+        for (Links userFriends : friendships) {
+            for (long friendId : userFriends.ids()) {
+                append(adjacency, counts, userFriends.id(), friendId);
+                append(adjacency, counts, friendId, userFriends.id());
+            }
+        }
+        friends.clear();
+        for (Map.Entry<Long, long[]> user : adjacency.entrySet()) {
+            long[] ids = user.getValue();
+            int count = counts.get(user.getKey());
+            Arrays.sort(ids, 0, count);
+            int distinct = 0;
+            for (int i = 0; i < count; i++) {
+                if (distinct == 0 || ids[i] != ids[distinct - 1]) {
+                    ids[distinct++] = ids[i];
+                }
+            }
+            friends.put(user.getKey(), PackedLongSet.of(ids, distinct));
+        }
+    }
+
+    /**
+     * Every friendship once, under the user with the smaller id, for writing a snapshot.
+     */
+    List<Links> copy() {
+        List<Links> copied = new ArrayList<>();
+        for (Map.Entry<Long, PackedLongSet> user : friends.entrySet()) {
+            long[] greater = user.getValue().greaterThan(user.getKey());
+            if (greater.length > 0) {
+                copied.add(new Links(user.getKey(), greater));
+            }
+        }
+        return copied;
+    }
+
+    private PackedLongSet setOf(long userId) {
+        return friends.getOrDefault(userId, PackedLongSet.empty());
+    }
+
+    private void replace(long userId, PackedLongSet userFriends) {
+        if (userFriends.isEmpty()) {
+            friends.remove(userId);
+        } else {
+            friends.put(userId, userFriends);
+        }
+    }
+
+    private static void append(Map<Long, long[]> adjacency, Map<Long, Integer> counts, long userId, long friendId) {
+        int count = counts.merge(userId, 1, Integer::sum);
+        long[] ids = adjacency.computeIfAbsent(userId, id -> new long[4]);
+        if (count > ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+            adjacency.put(userId, ids);
+        }
+        ids[count - 1] = friendId;
+    }
+}
@@ -1,38 +1,426 @@
 package ru.yandex.practicum.filmorate.infrastructure;
 
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.infrastructure.persistence.Journal;
+import ru.yandex.practicum.filmorate.infrastructure.persistence.Links;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.repository.FilmRepository;
+import ru.yandex.practicum.filmorate.repository.ReleaseOrder;
 import ru.yandex.practicum.filmorate.util.IdGenerator;
+import ru.yandex.practicum.filmorate.util.PersistentLongMap;
+import ru.yandex.practicum.filmorate.util.StripedLocks;
 
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.function.UnaryOperator;
 
+/**
+ * Keeps films in a persistent map that writers swap with CAS. Readers take the current map as a snapshot,
+ * so they never block writers and always see a consistent view. Every film is appended to the journal under
+ * a per-id lock before it is put, so records of one film reach the journal in the order they are applied, and
+ * a save that fails to be journaled changes nothing.
+ * <p>
+ * Each save makes the film version and the map version one greater, so the map version is the sum of all film
+ * versions. Versions are journaled with the films, so the catalog version survives restarts as well.
+ * <p>
+ * Saves also move the film in a {@link FilmSearchIndex}, a {@link ReleaseDateIndex} and a {@link PrefixIndex}
+ * of names under the same lock, so the indexes follow the map.
+ * <p>
+ * Likes are kept apart from the films in {@link FilmLikes}, so a like neither copies its film nor changes
+ * the catalog version. It is applied and journaled under the lock of its film, like a save.
+ */
 @Component
+@RequiredArgsConstructor
 public class InMemoryFilmRepository implements FilmRepository {
-    private final Map<Long, Film> films = new HashMap<>();
+    private static final int LOCK_STRIPES = 64;
+    private static final int FOUND_CAPACITY = 128;
+    private static final long UNCHANGED = -1L;
+
+    private final AtomicReference<PersistentLongMap<Film>> films = new AtomicReference<>(PersistentLongMap.empty());
+    private final StripedLocks locks = new StripedLocks(LOCK_STRIPES);
+    private final FilmSearchIndex index = new FilmSearchIndex();
+    private final ReleaseDateIndex releaseDates = new ReleaseDateIndex();
+    private final PrefixIndex names = new PrefixIndex();
+    private final FilmLikes likes = new FilmLikes();
+    private final IdGenerator idGenerator;
+    private final Journal journal;
 
     @Override
     public Film create(Film film) {
-        Long id = IdGenerator.generateFilmId();
-        film.setId(id);
-        films.put(id, film);
+        film.setId(idGenerator.generateFilmId());
+        journal.awaitDurable(apply(film));
         return film;
     }
 
+    /**
+     * Creates the film like {@link #create}, but completes once it is durable instead of waiting for that.
+     */
+    public CompletableFuture<Film> createAsync(Film film) {
+        film.setId(idGenerator.generateFilmId());
+        return journal.whenDurable(apply(film)).thenApply(durable -> film);
+    }
+
+    @Override
+    public List<Film> createAll(List<Film> newFilms) {
+        if (newFilms.isEmpty()) {
+            return newFilms;
+        }
+        long firstId = idGenerator.generateFilmIds(newFilms.size());
+        for (int i = 0; i < newFilms.size(); i++) {
+            newFilms.get(i).setId(firstId + i);
+        }
+        journal.awaitDurable(applyAll(newFilms));
+        return newFilms;
+    }
+
+    /**
+     * Creates the films like {@link #createAll}, but completes once they are durable instead of waiting for that.
+     */
+    public CompletableFuture<List<Film>> createAllAsync(List<Film> newFilms) {
+        if (newFilms.isEmpty()) {
+            return CompletableFuture.completedFuture(newFilms);
+        }
+        long firstId = idGenerator.generateFilmIds(newFilms.size());
+        for (int i = 0; i < newFilms.size(); i++) {
+            newFilms.get(i).setId(firstId + i);
+        }
+        return journal.whenDurable(applyAll(newFilms)).thenApply(durable -> newFilms);
+    }
+
     @Override
     public Optional<Film> findBy(Long id) {
-        Film film = films.getOrDefault(id, null);
-        return Optional.ofNullable(film);
+        if (id == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(films.get().get(id));
+    }
+
+    @Override
+    public List<Film> findAllBy(Collection<Long> ids) {
+        long[] keys = ids.stream().filter(Objects::nonNull).mapToLong(Long::longValue).sorted().distinct().toArray();
+        return films.get().getAll(keys);
     }
 
     @Override
     public Collection<Film> findAll() {
-        return films.values();
+        return films.get().values();
+    }
+
+    @Override
+    public List<Film> findAllAfter(long afterId, int limit) {
+        return films.get().valuesAfter(afterId, limit);
+    }
+
+    @Override
+    public List<Film> search(String query, int offset, int limit) {
+        PersistentLongMap<Film> snapshot = films.get();
+        long[] ids = index.search(query, offset, limit, snapshot.size(), id -> snapshot.get(id) != null);
+        return snapshot.getAll(ids);
+    }
+
+    @Override
+    public List<Film> findAllReleasedBetween(LocalDate from, LocalDate to, long after, int limit) {
+        PersistentLongMap<Film> snapshot = films.get();
+        List<Film> found = new ArrayList<>(Math.min(limit, FOUND_CAPACITY));
+        Iterator<Long> positions = releaseDates.positionsBetween(from, to, after);
+        while (found.size() < limit && positions.hasNext()) {
+            long position = positions.next();
+            Film film = snapshot.get(ReleaseOrder.idOf(position));
+            if (film != null && film.getReleaseDate() != null && ReleaseOrder.positionOf(film) == position
+                    && !film.getReleaseDate().isBefore(from) && !film.getReleaseDate().isAfter(to)) {
+                found.add(film);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<Film> suggest(String prefix, int limit) {
+        return names.startingWith(prefix, limit, films.get()::get, Film::getName);
+    }
+
+    @Override
+    public List<Film> findPopular(int count) {
+        PersistentLongMap<Film> snapshot = films.get();
+        long[] ids = likes.top(count);
+        List<Film> found = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Film film = snapshot.get(id);
+            if (film != null) {
+                found.add(film);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public boolean like(long filmId, long userId) {
+        return awaitChange(changeLike(filmId, userId, true));
+    }
+
+    /**
+     * Likes the film like {@link #like}, but completes once the like is durable instead of waiting for that.
+     */
+    public CompletableFuture<Boolean> likeAsync(long filmId, long userId) {
+        return whenChanged(changeLike(filmId, userId, true));
+    }
+
+    @Override
+    public boolean unlike(long filmId, long userId) {
+        return awaitChange(changeLike(filmId, userId, false));
+    }
+
+    /**
+     * Takes the like back like {@link #unlike}, but completes once that is durable instead of waiting for it.
+     */
+    public CompletableFuture<Boolean> unlikeAsync(long filmId, long userId) {
+        return whenChanged(changeLike(filmId, userId, false));
+    }
+
+    @Override
+    public long version() {
+        return films.get().version();
     }
 
     @Override
     public Film update(Film film) {
-        films.put(film.getId(), film);
+        journal.awaitDurable(apply(film));
         return film;
     }
+
+    /**
+     * Replaces the film like {@link #update}, but completes once it is durable instead of waiting for that.
+     */
+    public CompletableFuture<Film> updateAsync(Film film) {
+        return journal.whenDurable(apply(film)).thenApply(durable -> film);
+    }
+
+    @Override
+    public Optional<Film> update(long id, UnaryOperator<Film> change) {
+        Changed changed = applyChange(id, change);
+        if (changed == null) {
+            return Optional.empty();
+        }
+        journal.awaitDurable(changed.lsn());
+        return Optional.of(changed.film());
+    }
+
+    /**
+     * Changes the film like {@link #update(long, UnaryOperator)}, but completes once it is durable instead of
+     * waiting for that.
+     */
+    public CompletableFuture<Optional<Film>> updateAsync(long id, UnaryOperator<Film> change) {
+        Changed changed = applyChange(id, change);
+        if (changed == null) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        return journal.whenDurable(changed.lsn()).thenApply(durable -> Optional.of(changed.film()));
+    }
+
+    @Override
+    public List<Film> updateAll(List<Film> changedFilms) {
+        journal.awaitDurable(applyAll(changedFilms));
+        return changedFilms;
+    }
+
+    /**
+     * Replaces the films like {@link #updateAll}, but completes once they are durable instead of waiting for that.
+     */
+    public CompletableFuture<List<Film>> updateAllAsync(List<Film> changedFilms) {
+        return journal.whenDurable(applyAll(changedFilms)).thenApply(durable -> changedFilms);
+    }
+
+    /**
+     * Puts a film read back from the journal without journaling it again.
+     */
+    public void restore(Film film) {
+        Film existing = films.get().get(film.getId());
+        index.update(existing, film);
+        releaseDates.update(existing, film);
+        names.update(existing == null ? null : existing.getName(), film.getName(), film.getId());
+        if (existing == null) {
+            likes.add(film.getId());
+        }
+        films.updateAndGet(snapshot -> {
+            Film previous = snapshot.get(film.getId());
+            long version = snapshot.version() + film.getVersion() - (previous == null ? 0L : previous.getVersion());
+            return snapshot.put(film.getId(), film).withVersion(version);
+        });
+        idGenerator.getFilmIds().advancePast(film.getId());
+    }
+
+    /**
+     * Applies a like or its removal read back from the journal without journaling it again.
+     */
+    public void restoreLike(long filmId, long userId, boolean liked) {
+        if (liked) {
+            likes.like(filmId, userId);
+        } else {
+            likes.unlike(filmId, userId);
+        }
+    }
+
+    /**
+     * Replaces all films with ones loaded from a snapshot, before the journal is replayed on top.
+     */
+    public void restoreAll(PersistentLongMap<Film> loaded) {
+        restoreAll(loaded, List.of());
+    }
+
+    /**
+     * Replaces all films and their likes with ones loaded from a snapshot, before the journal is replayed on top.
+     */
+    public void restoreAll(PersistentLongMap<Film> loaded, List<Links> loadedLikes) {
+        films.set(loaded.withVersion(loaded.values().stream().mapToLong(Film::getVersion).sum()));
+        index.rebuild(loaded.values());
+        releaseDates.rebuild(loaded.values());
+        names.clear();
+        for (Film film : loaded.values()) {
+            names.update(null, film.getName(), film.getId());
+        }
+        likes.rebuild(loaded.values().stream().map(Film::getId).toList(), loadedLikes);
+        idGenerator.getFilmIds().advancePast(loaded.lastKey());
+    }
+
+    /**
+     * Current state of all films, for writing a snapshot.
+     */
+    public PersistentLongMap<Film> snapshot() {
+        return films.get();
+    }
+
+    /**
+     * Current likes of all films, for writing a snapshot. Each film is copied at once, but films one after another.
+     */
+    public List<Links> likesSnapshot() {
+        return likes.copy(locks::forKey);
+    }
+
+    /**
+     * Waits for the saves and likes in progress, so every change journaled before the call is applied after it.
+     */
+    public void awaitWritesInProgress() {
+        locks.awaitReleased();
+    }
+
+    /**
+     * Appends the film to the journal and then puts it, so a save that fails to be journaled is never seen.
+     * Returns the LSN that has to be durable before the save is.
+     */
+    /**
+     * Saves the change of a copy of the stored film, holding the lock of the film from the read to the save, so no
+     * other save of the film can come in between. Returns null if there is no such film.
+     */
+    private Changed applyChange(long id, UnaryOperator<Film> change) {
+        Lock lock = locks.forKey(id);
+        lock.lock();
+        try {
+            Film existing = films.get().get(id);
+            if (existing == null) {
+                return null;
+            }
+            Film film = change.apply(existing.toBuilder().build());
+            return new Changed(film, apply(film));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long apply(Film film) {
+        long lsn;
+        Lock lock = locks.forKey(film.getId());
+        lock.lock();
+        try {
+            Film previous = films.get().get(film.getId());
+            film.setVersion(previous == null ? 1L : previous.getVersion() + 1);
+            lsn = journal.appendFilm(film);
+            films.updateAndGet(snapshot -> snapshot.put(film.getId(), film));
+            index.update(previous, film);
+            releaseDates.update(previous, film);
+            names.update(previous == null ? null : previous.getName(), film.getName(), film.getId());
+            if (previous == null) {
+                likes.add(film.getId());
+            }
+        } finally {
+            lock.unlock();
+        }
+        return lsn;
+    }
+
+    private long applyAll(List<Film> batch) {
+        long lsn;
+        List<Lock> batchLocks = locks.forKeys(batch.stream().mapToLong(Film::getId).toArray());
+        batchLocks.forEach(Lock::lock);
+        try {
+            PersistentLongMap<Film> current = films.get();
+            Map<Long, Film> saved = new HashMap<>();
+            List<Film> previousFilms = new ArrayList<>(batch.size());
+            for (Film film : batch) {
+                Film previous = saved.containsKey(film.getId()) ? saved.get(film.getId()) : current.get(film.getId());
+                film.setVersion(previous == null ? 1L : previous.getVersion() + 1);
+                saved.put(film.getId(), film);
+                previousFilms.add(previous);
+            }
+            lsn = journal.appendFilms(batch);
+            films.updateAndGet(snapshot -> snapshot.putAll(batch, Film::getId));
+            for (int i = 0; i < batch.size(); i++) {
+                Film previous = previousFilms.get(i);
+                Film film = batch.get(i);
+                index.update(previous, film);
+                releaseDates.update(previous, film);
+                names.update(previous == null ? null : previous.getName(), film.getName(), film.getId());
+                if (previous == null) {
+                    likes.add(film.getId());
+                }
+            }
+        } finally {
+            batchLocks.forEach(Lock::unlock);
+        }
+        return lsn;
+    }
+
+    /**
+     * Journals the like under the lock of the film and then changes it. Returns the LSN that has to be durable before
+     * the change is, or {@link #UNCHANGED} if there is no such film or it already had the like, or had not.
+     */
+    private long changeLike(long filmId, long userId, boolean liked) {
+        Lock lock = locks.forKey(filmId);
+        lock.lock();
+        try {
+            if (films.get().get(filmId) == null || likes.likes(filmId, userId) == liked) {
+                return UNCHANGED;
+            }
+            long lsn = journal.appendLike(filmId, userId, liked);
+            if (liked) {
+                likes.like(filmId, userId);
+            } else {
+                likes.unlike(filmId, userId);
+            }
+            return lsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean awaitChange(long lsn) {
+        if (lsn == UNCHANGED) {
+            return false;
+        }
+        journal.awaitDurable(lsn);
+        return true;
+    }
+
+    private CompletableFuture<Boolean> whenChanged(long lsn) {
+        if (lsn == UNCHANGED) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return journal.whenDurable(lsn).thenApply(durable -> true);
+    }
+
+    private record Changed(Film film, long lsn) {
+    }
 }
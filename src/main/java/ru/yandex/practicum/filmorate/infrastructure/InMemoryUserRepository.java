@@ -1,38 +1,495 @@
 package ru.yandex.practicum.filmorate.infrastructure;
 
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.infrastructure.persistence.Journal;
+import ru.yandex.practicum.filmorate.infrastructure.persistence.Links;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.DuplicateUserException;
 import ru.yandex.practicum.filmorate.repository.UserRepository;
 import ru.yandex.practicum.filmorate.util.IdGenerator;
+import ru.yandex.practicum.filmorate.util.PersistentLongMap;
+import ru.yandex.practicum.filmorate.util.StripedLocks;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
 
+/**
+ * Keeps users in a persistent map that writers swap with CAS. Readers take the current map as a snapshot,
+ * so they never block writers and always see a consistent view. Every user is appended to the journal under
+ * a per-id lock before it is put, so records of one user reach the journal in the order they are applied, and
+ * a save that fails to be journaled changes nothing but the claims it frees again.
+ * <p>
+ * Each save makes the user version and the map version one greater, so the map version is the sum of all user
+ * versions. Versions are journaled with the users, so the catalog version survives restarts as well.
+ * <p>
+ * Emails, compared ignoring case, and logins are unique. A save claims them in {@link UniqueIndex}es under
+ * the same lock before it puts the user, frees its claims again if any of them is taken, and frees the email and
+ * login the user no longer has once it is put. Lookups by email or login check the found user still has it,
+ * so they never return a user whose change is half done.
+ * <p>
+ * Saves also move the user in a {@link PrefixIndex} of logins under the same lock, for suggestions.
+ * <p>
+ * Friendships are mutual and kept apart from the users in a {@link FriendGraph}, so making friends neither copies
+ * the users nor changes their versions. A friendship changes under the locks of both users and is journaled
+ * as one record.
+ */
 @Component
+@RequiredArgsConstructor
 public class InMemoryUserRepository implements UserRepository {
-    private final Map<Long, User> users = new HashMap<>();
+    private static final int LOCK_STRIPES = 64;
+    private static final long UNCHANGED = -1L;
+
+    private final AtomicReference<PersistentLongMap<User>> users = new AtomicReference<>(PersistentLongMap.empty());
+    private final StripedLocks locks = new StripedLocks(LOCK_STRIPES);
+    private final UniqueIndex emails = new UniqueIndex();
+    private final UniqueIndex logins = new UniqueIndex();
+    private final PrefixIndex loginPrefixes = new PrefixIndex();
+    private final FriendGraph friends = new FriendGraph();
+    private final IdGenerator idGenerator;
+    private final Journal journal;
 
     @Override
     public User create(User user) {
-        Long id = IdGenerator.generateUserId();
-        user.setId(id);
-        users.put(id, user);
+        user.setId(idGenerator.generateUserId());
+        journal.awaitDurable(apply(user));
         return user;
     }
 
+    /**
+     * Creates the user like {@link #create}, but completes once it is durable instead of waiting for that.
+     */
+    public CompletableFuture<User> createAsync(User user) {
+        user.setId(idGenerator.generateUserId());
+        return journal.whenDurable(apply(user)).thenApply(durable -> user);
+    }
+
+    @Override
+    public List<User> createAll(List<User> newUsers) {
+        if (newUsers.isEmpty()) {
+            return newUsers;
+        }
+        long firstId = idGenerator.generateUserIds(newUsers.size());
+        for (int i = 0; i < newUsers.size(); i++) {
+            newUsers.get(i).setId(firstId + i);
+        }
+        journal.awaitDurable(applyAll(newUsers));
+        return newUsers;
+    }
+
+    /**
+     * Creates the users like {@link #createAll}, but completes once they are durable instead of waiting for that.
+     */
+    public CompletableFuture<List<User>> createAllAsync(List<User> newUsers) {
+        if (newUsers.isEmpty()) {
+            return CompletableFuture.completedFuture(newUsers);
+        }
+        long firstId = idGenerator.generateUserIds(newUsers.size());
+        for (int i = 0; i < newUsers.size(); i++) {
+            newUsers.get(i).setId(firstId + i);
+        }
+        return journal.whenDurable(applyAll(newUsers)).thenApply(durable -> newUsers);
+    }
+
     @Override
     public Optional<User> findBy(Long id) {
-        User user = users.getOrDefault(id, null);
-        return Optional.ofNullable(user);
+        if (id == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(users.get().get(id));
+    }
+
+    @Override
+    public List<User> findAllBy(Collection<Long> ids) {
+        long[] keys = ids.stream().filter(Objects::nonNull).mapToLong(Long::longValue).sorted().distinct().toArray();
+        return users.get().getAll(keys);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        String key = emailKey(email);
+        return findBy(emails.idOf(key)).filter(user -> Objects.equals(emailKey(user.getEmail()), key));
+    }
+
+    @Override
+    public Optional<User> findByLogin(String login) {
+        return findBy(logins.idOf(login)).filter(user -> Objects.equals(user.getLogin(), login));
+    }
+
+    @Override
+    public List<User> suggest(String prefix, int limit) {
+        return loginPrefixes.startingWith(prefix, limit, users.get()::get, User::getLogin);
+    }
+
+    @Override
+    public List<User> findFriends(long id) {
+        return users.get().getAll(friends.friendsOf(id));
+    }
+
+    @Override
+    public List<User> findCommonFriends(long id, long otherId) {
+        return users.get().getAll(friends.common(id, otherId));
+    }
+
+    @Override
+    public boolean addFriend(long id, long friendId) {
+        return awaitChange(changeFriend(id, friendId, true));
+    }
+
+    /**
+     * Makes the users friends like {@link #addFriend}, but completes once that is durable instead of waiting for it.
+     */
+    public CompletableFuture<Boolean> addFriendAsync(long id, long friendId) {
+        return whenChanged(changeFriend(id, friendId, true));
+    }
+
+    @Override
+    public boolean removeFriend(long id, long friendId) {
+        return awaitChange(changeFriend(id, friendId, false));
+    }
+
+    /**
+     * Ends the friendship like {@link #removeFriend}, but completes once that is durable instead of waiting for it.
+     */
+    public CompletableFuture<Boolean> removeFriendAsync(long id, long friendId) {
+        return whenChanged(changeFriend(id, friendId, false));
     }
 
     @Override
     public Collection<User> findAll() {
-        return users.values();
+        return users.get().values();
+    }
+
+    @Override
+    public List<User> findAllAfter(long afterId, int limit) {
+        return users.get().valuesAfter(afterId, limit);
+    }
+
+    @Override
+    public long version() {
+        return users.get().version();
     }
 
     @Override
     public User update(User user) {
-        users.put(user.getId(), user);
+        journal.awaitDurable(apply(user));
         return user;
     }
+
+    /**
+     * Replaces the user like {@link #update}, but completes once it is durable instead of waiting for that.
+     */
+    public CompletableFuture<User> updateAsync(User user) {
+        return journal.whenDurable(apply(user)).thenApply(durable -> user);
+    }
+
+    @Override
+    public Optional<User> update(long id, UnaryOperator<User> change) {
+        Changed changed = applyChange(id, change);
+        if (changed == null) {
+            return Optional.empty();
+        }
+        journal.awaitDurable(changed.lsn());
+        return Optional.of(changed.user());
+    }
+
+    /**
+     * Changes the user like {@link #update(long, UnaryOperator)}, but completes once it is durable instead of
+     * waiting for that.
+     */
+    public CompletableFuture<Optional<User>> updateAsync(long id, UnaryOperator<User> change) {
+        Changed changed = applyChange(id, change);
+        if (changed == null) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        return journal.whenDurable(changed.lsn()).thenApply(durable -> Optional.of(changed.user()));
+    }
+
+    @Override
+    public List<User> updateAll(List<User> changedUsers) {
+        journal.awaitDurable(applyAll(changedUsers));
+        return changedUsers;
+    }
+
+    /**
+     * Replaces the users like {@link #updateAll}, but completes once they are durable instead of waiting for that.
+     */
+    public CompletableFuture<List<User>> updateAllAsync(List<User> changedUsers) {
+        return journal.whenDurable(applyAll(changedUsers)).thenApply(durable -> changedUsers);
+    }
+
+    /**
+     * Puts a user read back from the journal without journaling it again.
+     */
+    public void restore(User user) {
+        User existing = users.get().get(user.getId());
+        if (existing != null) {
+            emails.release(emailKey(existing.getEmail()), existing.getId());
+            logins.release(existing.getLogin(), existing.getId());
+        }
+        emails.put(emailKey(user.getEmail()), user.getId());
+        logins.put(user.getLogin(), user.getId());
+        loginPrefixes.update(existing == null ? null : existing.getLogin(), user.getLogin(), user.getId());
+        users.updateAndGet(snapshot -> {
+            User previous = snapshot.get(user.getId());
+            long version = snapshot.version() + user.getVersion() - (previous == null ? 0L : previous.getVersion());
+            return snapshot.put(user.getId(), user).withVersion(version);
+        });
+        idGenerator.getUserIds().advancePast(user.getId());
+    }
+
+    /**
+     * Makes the users friends, or ends their friendship, as read back from the journal without journaling it again.
+     */
+    public void restoreFriend(long id, long friendId, boolean added) {
+        if (added) {
+            friends.add(id, friendId);
+        } else {
+            friends.remove(id, friendId);
+        }
+    }
+
+    /**
+     * Replaces all users with ones loaded from a snapshot, before the journal is replayed on top.
+     */
+    public void restoreAll(PersistentLongMap<User> loaded) {
+        restoreAll(loaded, List.of());
+    }
+
+    /**
+     * Replaces all users and their friendships with ones loaded from a snapshot, before the journal is replayed
+     * on top.
+     */
+    public void restoreAll(PersistentLongMap<User> loaded, List<Links> loadedFriends) {
+        users.set(loaded.withVersion(loaded.values().stream().mapToLong(User::getVersion).sum()));
+        emails.clear();
+        logins.clear();
+        loginPrefixes.clear();
+        for (User user : loaded.values()) {
+            emails.put(emailKey(user.getEmail()), user.getId());
+            logins.put(user.getLogin(), user.getId());
+            loginPrefixes.update(null, user.getLogin(), user.getId());
+        }
+        friends.rebuild(loadedFriends);
+        idGenerator.getUserIds().advancePast(loaded.lastKey());
+    }
+
+    /**
+     * Current state of all users, for writing a snapshot.
+     */
+    public PersistentLongMap<User> snapshot() {
+        return users.get();
+    }
+
+    /**
+     * Current friendships, each once, for writing a snapshot. Friendships that change meanwhile may be in it or not.
+     */
+    public List<Links> friendsSnapshot() {
+        return friends.copy();
+    }
+
+    /**
+     * Waits for the saves and friendships in progress, so every change journaled before the call is applied after it.
+     */
+    public void awaitWritesInProgress() {
+        locks.awaitReleased();
+    }
+
+    /**
+     * Appends the user to the journal and then puts it, so a save that fails to be journaled is never seen.
+     * Returns the LSN that has to be durable before the save is.
+     */
+    /**
+     * Saves the change of a copy of the stored user, holding the lock of the user from the read to the save, so no
+     * other save of the user can come in between. Returns null if there is no such user.
+     */
+    private Changed applyChange(long id, UnaryOperator<User> change) {
+        Lock lock = locks.forKey(id);
+        lock.lock();
+        try {
+            User existing = users.get().get(id);
+            if (existing == null) {
+                return null;
+            }
+            User user = change.apply(existing.toBuilder().build());
+            return new Changed(user, apply(user));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long apply(User user) {
+        long lsn;
+        Lock lock = locks.forKey(user.getId());
+        lock.lock();
+        try {
+            User previous = users.get().get(user.getId());
+            List<Runnable> claimed = new ArrayList<>();
+            String conflict = claim(user, claimed);
+            if (conflict != null) {
+                throw new DuplicateUserException(Map.of(0, conflict));
+            }
+            user.setVersion(previous == null ? 1L : previous.getVersion() + 1);
+            lsn = appendOrRelease(() -> journal.appendUser(user), claimed);
+            users.updateAndGet(snapshot -> snapshot.put(user.getId(), user));
+            loginPrefixes.update(previous == null ? null : previous.getLogin(), user.getLogin(), user.getId());
+            if (previous != null) {
+                releaseUnused(previous, user);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return lsn;
+    }
+
+    private long applyAll(List<User> batch) {
+        long lsn;
+        List<Lock> batchLocks = locks.forKeys(batch.stream().mapToLong(User::getId).toArray());
+        batchLocks.forEach(Lock::lock);
+        try {
+            PersistentLongMap<User> current = users.get();
+            List<Runnable> claimed = new ArrayList<>();
+            Map<Integer, String> conflicts = new HashMap<>();
+            for (int i = 0; i < batch.size(); i++) {
+                String conflict = claim(batch.get(i), claimed);
+                if (conflict != null) {
+                    conflicts.put(i, conflict);
+                }
+            }
+            if (!conflicts.isEmpty()) {
+                claimed.forEach(Runnable::run);
+                throw new DuplicateUserException(conflicts);
+            }
+            Map<Long, User> saved = new HashMap<>();
+            for (User user : batch) {
+                User previous = saved.containsKey(user.getId()) ? saved.get(user.getId()) : current.get(user.getId());
+                user.setVersion(previous == null ? 1L : previous.getVersion() + 1);
+                saved.put(user.getId(), user);
+            }
+            lsn = appendOrRelease(() -> journal.appendUsers(batch), claimed);
+            users.updateAndGet(snapshot -> snapshot.putAll(batch, User::getId));
+            for (User user : batch) {
+                User previous = current.get(user.getId());
+                if (previous != null) {
+                    releaseUnused(previous, saved.get(user.getId()));
+                }
+                releaseUnused(user, saved.get(user.getId()));
+            }
+            for (Map.Entry<Long, User> user : saved.entrySet()) {
+                User previous = current.get(user.getKey());
+                loginPrefixes.update(previous == null ? null : previous.getLogin(), user.getValue().getLogin(),
+                        user.getKey());
+            }
+        } finally {
+            batchLocks.forEach(Lock::unlock);
+        }
+        return lsn;
+    }
+
+    /**
+     * Journals the friendship under the locks of both users and then changes it. Returns the LSN that has to be durable
+     * before the change is, or {@link #UNCHANGED} if either user does not exist, the ids are the same or the users
+     * already were friends, or were not.
+     */
+    private long changeFriend(long id, long friendId, boolean added) {
+        if (id == friendId) {
+            return UNCHANGED;
+        }
+        List<Lock> pairLocks = locks.forKeys(new long[]{id, friendId});
+        pairLocks.forEach(Lock::lock);
+        try {
+            PersistentLongMap<User> current = users.get();
+            if (current.get(id) == null || current.get(friendId) == null
+                    || friends.areFriends(id, friendId) == added) {
+                return UNCHANGED;
+            }
+            long lsn = journal.appendFriend(id, friendId, added);
+            if (added) {
+                friends.add(id, friendId);
+            } else {
+                friends.remove(id, friendId);
+            }
+            return lsn;
+        } finally {
+            pairLocks.forEach(Lock::unlock);
+        }
+    }
+
+    /**
+     * Appends the records of a save, or frees the claims it made if that fails.
+     */
+    private long appendOrRelease(LongSupplier append, List<Runnable> claimed) {
+        try {
+            return append.getAsLong();
+        } catch (RuntimeException e) {
+            claimed.forEach(Runnable::run);
+            throw e;
+        }
+    }
+
+    private boolean awaitChange(long lsn) {
+        if (lsn == UNCHANGED) {
+            return false;
+        }
+        journal.awaitDurable(lsn);
+        return true;
+    }
+
+    private CompletableFuture<Boolean> whenChanged(long lsn) {
+        if (lsn == UNCHANGED) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return journal.whenDurable(lsn).thenApply(durable -> true);
+    }
+
+    /**
+     * Claims the email and login of the user. Returns what is taken by another user, after freeing what this call
+     * claimed, or null with undo actions of the new claims added to {@code claimed}.
+     */
+    private String claim(User user, List<Runnable> claimed) {
+        long id = user.getId();
+        String email = emailKey(user.getEmail());
+        UniqueIndex.Claim emailClaim = emails.claim(email, id);
+        if (emailClaim == UniqueIndex.Claim.TAKEN) {
+            return "email: " + user.getEmail() + " is already taken";
+        }
+        UniqueIndex.Claim loginClaim = logins.claim(user.getLogin(), id);
+        if (loginClaim == UniqueIndex.Claim.TAKEN) {
+            if (emailClaim == UniqueIndex.Claim.NEW) {
+                emails.release(email, id);
+            }
+            return "login: " + user.getLogin() + " is already taken";
+        }
+        if (emailClaim == UniqueIndex.Claim.NEW) {
+            claimed.add(() -> emails.release(email, id));
+        }
+        if (loginClaim == UniqueIndex.Claim.NEW) {
+            claimed.add(() -> logins.release(user.getLogin(), id));
+        }
+        return null;
+    }
+
+    /**
+     * Frees the email and login of an earlier state of the user that its saved state no longer has.
+     */
+    private void releaseUnused(User earlier, User saved) {
+        String email = emailKey(earlier.getEmail());
+        if (!Objects.equals(email, emailKey(saved.getEmail()))) {
+            emails.release(email, saved.getId());
+        }
+        if (!Objects.equals(earlier.getLogin(), saved.getLogin())) {
+            logins.release(earlier.getLogin(), saved.getId());
+        }
+    }
+
+    private static String emailKey(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Changed(User user, long lsn) {
+    }
 }
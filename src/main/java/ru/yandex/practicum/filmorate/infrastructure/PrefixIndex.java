@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.infrastructure;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+/**
+ * Lower-cased texts with the ids they belong to in a concurrent skip list ordered by text, then id, so the texts
+ * starting with a prefix are one range: finding it takes O(log n) and every match after it one step. Keys are cut
+ * to {@link #MAX_KEY_LENGTH} characters, so an entry costs a bounded amount of memory however long its text is,
+ * and a key that is already lower case is the text itself rather than a copy.
+ * <p>
+ * Readers never wait for writers. A changed text is added under its new key before it is removed from the old one,
+ * so it is never missing, and readers check every entry against the current state of its owner.
+ */
+class PrefixIndex {
+    static final int MAX_KEY_LENGTH = 64;
+
+    private static final Comparator<Entry> ORDER = Comparator.comparing(Entry::key).thenComparingLong(Entry::id);
+
+    private final ConcurrentSkipListSet<Entry> entries = new ConcurrentSkipListSet<>(ORDER);
+
+    private record Entry(String key, long id) {
+    }
+
+    /**
+     * Moves the id from the key of its previous text to that of its new one. Null texts have no key.
+     * Calls for one id must not overlap, which the repositories' per-id locks ensure.
+     */
+    void update(String previous, String text, long id) {
+        String before = keyOf(previous);
+        String after = keyOf(text);
+        if (after != null) {
+            entries.add(new Entry(after, id));
+        }
+        if (before != null && !before.equals(after)) {
+            entries.remove(new Entry(before, id));
+        }
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Returns up to {@code limit} owners whose text starts with the prefix, ignoring case, ordered by key, then id.
+     * Owners are looked up with {@code owners}, which returns null for ones that are gone, and skipped unless
+     * their current text still has the key they were found under.
+     */
+    <T> List<T> startingWith(String prefix, int limit, LongFunction<T> owners, Function<T, String> text) {
+        String normalized = normalize(prefix);
+        String from = cut(normalized);
+        List<T> found = new ArrayList<>(Math.min(limit, MAX_KEY_LENGTH));
+        for (Entry entry : entries.subSet(new Entry(from, Long.MIN_VALUE), new Entry(from + Character.MAX_VALUE, 0L))) {
+            if (found.size() == limit) {
+                break;
+            }
+            T owner = owners.apply(entry.id());
+            String current = owner == null ? null : normalize(text.apply(owner));
+            if (current != null && cut(current).equals(entry.key()) && current.startsWith(normalized)) {
+                found.add(owner);
+            }
+        }
+        return found;
+    }
+
+    private static String keyOf(String text) {
+        return text == null ? null : cut(normalize(text));
+    }
+
+    private static String normalize(String text) {
+        return text == null ? null : text.stripLeading().toLowerCase(Locale.ROOT);
+    }
+
+    private static String cut(String key) {
+        return key.length() <= MAX_KEY_LENGTH ? key : key.substring(0, MAX_KEY_LENGTH);
+    }
+}
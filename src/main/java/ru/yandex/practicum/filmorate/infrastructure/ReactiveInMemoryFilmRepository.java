@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.infrastructure;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.repository.ReactiveFilmRepository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Reactive view of {@link InMemoryFilmRepository}. Reads take a snapshot of the map, so they complete
+ * on the subscribing thread. Writes apply the film right away and complete when the journal reports it durable.
+ * They take the repository locks and may wait for room in the journal, so they run on the bounded elastic scheduler
+ * rather than on the subscribing thread, which may be an event loop. Writes that had to wait for an fsync continue
+ * on the parallel scheduler, so the journal thread only hands them over and goes on with the next group commit.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReactiveInMemoryFilmRepository implements ReactiveFilmRepository {
+    private final InMemoryFilmRepository films;
+
+    @Override
+    public Mono<Film> create(Film film) {
+        return whenDurable(() -> films.createAsync(film));
+    }
+
+    @Override
+    public Flux<Film> createAll(List<Film> newFilms) {
+        return whenDurable(() -> films.createAllAsync(newFilms)).flatMapIterable(created -> created);
+    }
+
+    @Override
+    public Mono<Film> findBy(Long id) {
+        return Mono.fromSupplier(() -> films.findBy(id).orElse(null));
+    }
+
+    @Override
+    public Flux<Film> findAllBy(Collection<Long> ids) {
+        return Flux.defer(() -> Flux.fromIterable(films.findAllBy(ids)));
+    }
+
+    @Override
+    public Flux<Film> findAll() {
+        return Flux.defer(() -> Flux.fromIterable(films.findAll()));
+    }
+
+    @Override
+    public Flux<Film> findAllAfter(long afterId, int limit) {
+        return Flux.defer(() -> Flux.fromIterable(films.findAllAfter(afterId, limit)));
+    }
+
+    @Override
+    public Flux<Film> findAllReleasedBetween(LocalDate from, LocalDate to, long after, int limit) {
+        return Flux.defer(() -> Flux.fromIterable(films.findAllReleasedBetween(from, to, after, limit)));
+    }
+
+    @Override
+    public Flux<Film> search(String query, int offset, int limit) {
+        return Flux.defer(() -> Flux.fromIterable(films.search(query, offset, limit)));
+    }
+
+    @Override
+    public Flux<Film> suggest(String prefix, int limit) {
+        return Flux.defer(() -> Flux.fromIterable(films.suggest(prefix, limit)));
+    }
+
+    @Override
+    public Flux<Film> findPopular(int count) {
+        return Flux.defer(() -> Flux.fromIterable(films.findPopular(count)));
+    }
+
+    @Override
+    public Mono<Boolean> like(long filmId, long userId) {
+        return whenDurable(() -> films.likeAsync(filmId, userId));
+    }
+
+    @Override
+    public Mono<Boolean> unlike(long filmId, long userId) {
+        return whenDurable(() -> films.unlikeAsync(filmId, userId));
+    }
+
+    @Override
+    public Mono<Long> version() {
+        return Mono.fromSupplier(films::version);
+    }
+
+    @Override
+    public Mono<Film> update(Film film) {
+        return whenDurable(() -> films.updateAsync(film));
+    }
+
+    @Override
+    public Mono<Film> update(long id, UnaryOperator<Film> change) {
+        return whenDurable(() -> films.updateAsync(id, change)).flatMap(Mono::justOrEmpty);
+    }
+
+    @Override
+    public Flux<Film> updateAll(List<Film> changedFilms) {
+        return whenDurable(() -> films.updateAllAsync(changedFilms)).flatMapIterable(updated -> updated);
+    }
+
+    private static <T> Mono<T> whenDurable(Supplier<CompletableFuture<T>> write) {
+        return Mono.defer(() -> {
+            CompletableFuture<T> saved = write.get();
+            return saved.isDone() ? Mono.fromFuture(saved) : Mono.fromFuture(saved).publishOn(Schedulers.parallel());
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate.infrastructure;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.ReactiveUserRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Reactive view of {@link InMemoryUserRepository}. Reads take a snapshot of the map, so they complete
+ * on the subscribing thread. Writes apply the user right away and complete when the journal reports it durable.
+ * They take the repository locks and may wait for room in the journal, so they run on the bounded elastic scheduler
+ * rather than on the subscribing thread, which may be an event loop. Writes that had to wait for an fsync continue
+ * on the parallel scheduler, so the journal thread only hands them over and goes on with the next group commit.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReactiveInMemoryUserRepository implements ReactiveUserRepository {
+    private final InMemoryUserRepository users;
+
+    @Override
+    public Mono<User> create(User user) {
+        return whenDurable(() -> users.createAsync(user));
+    }
+
+    @Override
+    public Flux<User> createAll(List<User> newUsers) {
+        return whenDurable(() -> users.createAllAsync(newUsers)).flatMapIterable(created -> created);
+    }
+
+    @Override
+    public Mono<User> findBy(Long id) {
+        return Mono.fromSupplier(() -> users.findBy(id).orElse(null));
+    }
+
+    @Override
+    public Flux<User> findAllBy(Collection<Long> ids) {
+        return Flux.defer(() -> Flux.fromIterable(users.findAllBy(ids)));
+    }
+
+    @Override
+    public Mono<User> findByEmail(String email) {
+        return Mono.fromSupplier(() -> users.findByEmail(email).orElse(null));
+    }
+
+    @Override
+    public Mono<User> findByLogin(String login) {
+        return Mono.fromSupplier(() -> users.findByLogin(login).orElse(null));
+    }
+
+    @Override
+    public Flux<User> suggest(String prefix, int limit) {
+        return Flux.defer(() -> Flux.fromIterable(users.suggest(prefix, limit)));
+    }
+
+    @Override
+    public Flux<User> findFriends(long id) {
+        return Flux.defer(() -> Flux.fromIterable(users.findFriends(id)));
+    }
+
+    @Override
+    public Flux<User> findCommonFriends(long id, long otherId) {
+        return Flux.defer(() -> Flux.fromIterable(users.findCommonFriends(id, otherId)));
+    }
+
+    @Override
+    public Mono<Boolean> addFriend(long id, long friendId) {
+        return whenDurable(() -> users.addFriendAsync(id, friendId));
+    }
+
+    @Override
+    public Mono<Boolean> removeFriend(long id, long friendId) {
+        return whenDurable(() -> users.removeFriendAsync(id, friendId));
+    }
+
+    @Override
+    public Flux<User> findAll() {
+        return Flux.defer(() -> Flux.fromIterable(users.findAll()));
+    }
+
+    @Override
+    public Flux<User> findAllAfter(long afterId, int limit) {
+        return Flux.defer(() -> Flux.fromIterable(users.findAllAfter(afterId, limit)));
+    }
+
+    @Override
+    public Mono<Long> version() {
+        return Mono.fromSupplier(users::version);
+    }
+
+    @Override
+    public Mono<User> update(User user) {
+        return whenDurable(() -> users.updateAsync(user));
+    }
+
+    @Override
+    public Mono<User> update(long id, UnaryOperator<User> change) {
+        return whenDurable(() -> users.updateAsync(id, change)).flatMap(Mono::justOrEmpty);
+    }
+
+    @Override
+    public Flux<User> updateAll(List<User> changedUsers) {
+        return whenDurable(() -> users.updateAllAsync(changedUsers)).flatMapIterable(updated -> updated);
+    }
+
+    private static <T> Mono<T> whenDurable(Supplier<CompletableFuture<T>> write) {
+        return Mono.defer(() -> {
+            CompletableFuture<T> saved = write.get();
+            return saved.isDone() ? Mono.fromFuture(saved) : Mono.fromFuture(saved).publishOn(Schedulers.parallel());
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+}
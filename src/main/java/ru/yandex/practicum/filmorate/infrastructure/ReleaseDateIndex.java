@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.infrastructure;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.repository.ReleaseOrder;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Films with a release date, as their {@link ReleaseOrder} positions in a concurrent skip list, so finding
+ * the start of a date range takes O(log n) and every film after it one step. Readers never wait for writers,
+ * and a moved film is added under its new position before it is removed from the old one, so it is never missing,
+ * though a reader may meet it under both.
+ */
+class ReleaseDateIndex {
+    private final ConcurrentSkipListSet<Long> positions = new ConcurrentSkipListSet<>();
+
+    /**
+     * Moves the film from the position of its previous state to that of its new one.
+     * Calls for one film must not overlap, which the repository's per-id locks ensure.
+     */
+    void update(Film previous, Film film) {
+        Long before = previous == null || previous.getReleaseDate() == null ? null : ReleaseOrder.positionOf(previous);
+        Long after = film.getReleaseDate() == null ? null : ReleaseOrder.positionOf(film);
+        if (after != null) {
+            positions.add(after);
+        }
+        if (before != null && !before.equals(after)) {
+            positions.remove(before);
+        }
+    }
+
+    /**
+     * Replaces the whole index with the positions of the films.
+     */
+    void rebuild(Collection<Film> films) {
+        positions.clear();
+        for (Film film : films) {
+            if (film.getReleaseDate() != null) {
+                positions.add(ReleaseOrder.positionOf(film));
+            }
+        }
+    }
+
+    /**
+     * Positions of films released from {@code from} to {@code to} inclusive that come after {@code after},
+     * in order. The iterator is weakly consistent, like the skip list.
+     */
+    Iterator<Long> positionsBetween(LocalDate from, LocalDate to, long after) {
+        long last = ReleaseOrder.lastPositionOf(to);
+        if (after >= last) {
+            return Collections.emptyIterator();
+        }
+        long first = Math.max(ReleaseOrder.firstPositionOf(from), after + 1);
+        if (first > last) {
+            return Collections.emptyIterator();
+        }
+        return positions.subSet(first, true, last, true).iterator();
+    }
+}
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.infrastructure;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Unique key to id map whose keys are claimed with {@code putIfAbsent}, so of two ids racing for one key
+ * exactly one gets it. A null key stands for no key and is always free.
+ */
+class UniqueIndex {
+    private final ConcurrentHashMap<String, Long> ids = new ConcurrentHashMap<>();
+
+    enum Claim {
+        /**
+         * The key was free and is now held by the id.
+         */
+        NEW,
+        /**
+         * The id held the key already, or the key is null.
+         */
+        HELD,
+        /**
+         * Another id holds the key.
+         */
+        TAKEN
+    }
+
+    Claim claim(String key, long id) {
+        if (key == null) {
+            return Claim.HELD;
+        }
+        Long owner = ids.putIfAbsent(key, id);
+        if (owner == null) {
+            return Claim.NEW;
+        }
+        return owner == id ? Claim.HELD : Claim.TAKEN;
+    }
+
+    /**
+     * Frees the key if the id holds it.
+     */
+    void release(String key, long id) {
+        if (key != null) {
+            ids.remove(key, id);
+        }
+    }
+
+    /**
+     * Gives the key to the id whoever held it, for replaying saves that were checked before.
+     */
+    void put(String key, long id) {
+        if (key != null) {
+            ids.put(key, id);
+        }
+    }
+
+    Long idOf(String key) {
+        return key == null ? null : ids.get(key);
+    }
+
+    void clear() {
+        ids.clear();
+    }
+}
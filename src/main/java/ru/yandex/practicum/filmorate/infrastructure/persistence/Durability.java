@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.infrastructure.persistence;
+
+public enum Durability {
+    /**
+     * Records are buffered and written to the OS by the flusher every flush interval, but never fsynced.
+     * A process crash loses the records buffered since the last write, and a power loss also what the OS still held.
+     */
+    NONE,
+    /**
+     * Records are fsynced in the background every flush interval; writers do not wait.
+     */
+    ASYNC,
+    /**
+     * Writers wait until their record is fsynced. Records that arrive during one fsync share the next one.
+     */
+    SYNC
+}
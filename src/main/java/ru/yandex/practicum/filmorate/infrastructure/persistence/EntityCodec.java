@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.infrastructure.persistence;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * Compact binary form of films, users and their links shared by the write-ahead log and snapshots.
+ * Dates are stored as epoch days and durations as seconds; absent values are flagged with a zero byte.
+ */
+public final class EntityCodec {
+
+    private EntityCodec() {
+    }
+
+    public static void writeFilm(BinaryWriter out, Film film) {
+        out.writeLong(film.getId());
+        out.writeLong(film.getVersion());
+        out.writeString(film.getName());
+        out.writeString(film.getDescription());
+        writeDate(out, film.getReleaseDate());
+        if (film.getDuration() == null) {
+            out.writeByte(0);
+        } else {
+            out.writeByte(1);
+            out.writeLong(film.getDuration().getSeconds());
+        }
+    }
+
+    public static Film readFilm(ByteBuffer in) {
+        Film film = new Film();
+        film.setId(in.getLong());
+        film.setVersion(in.getLong());
+        film.setName(readString(in));
+        film.setDescription(readString(in));
+        film.setReleaseDate(readDate(in));
+        if (in.get() != 0) {
+            film.setDuration(Duration.ofSeconds(in.getLong()));
+        }
+        return film;
+    }
+
+    public static void writeUser(BinaryWriter out, User user) {
+        out.writeLong(user.getId());
+        out.writeLong(user.getVersion());
+        out.writeString(user.getEmail());
+        out.writeString(user.getLogin());
+        out.writeString(user.getName());
+        writeDate(out, user.getBirthday());
+    }
+
+    public static User readUser(ByteBuffer in) {
+        User user = new User();
+        user.setId(in.getLong());
+        user.setVersion(in.getLong());
+        user.setEmail(readString(in));
+        user.setLogin(readString(in));
+        user.setName(readString(in));
+        user.setBirthday(readDate(in));
+        return user;
+    }
+
+    public static void writeLinks(BinaryWriter out, Links links) {
+        out.writeLong(links.id());
+        out.writeInt(links.ids().length);
+        for (long id : links.ids()) {
+            out.writeLong(id);
+        }
+    }
+
+    public static Links readLinks(ByteBuffer in) {
+        long id = in.getLong();
+        long[] ids = new long[in.getInt()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = in.getLong();
+        }
+        return new Links(id, ids);
+    }
+
+    private static void writeDate(BinaryWriter out, LocalDate date) {
+        if (date == null) {
+            out.writeByte(0);
+        } else {
+            out.writeByte(1);
+            out.writeLong(date.toEpochDay());
+        }
+    }
+
+    private static LocalDate readDate(ByteBuffer in) {
+        return in.get() == 0 ? null : LocalDate.ofEpochDay(in.getLong());
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
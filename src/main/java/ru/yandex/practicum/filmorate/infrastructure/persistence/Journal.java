@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.infrastructure.persistence;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Durable record of repository writes. Records of one entity must be appended in the order they were applied.
+ */
+public interface Journal extends AutoCloseable {
+    Journal NONE = new Journal() {
+        @Override
+        public long appendFilm(Film film) {
+            return 0L;
+        }
+
+        @Override
+        public long appendUser(User user) {
+            return 0L;
+        }
+
+        @Override
+        public long appendLike(long filmId, long userId, boolean liked) {
+            return 0L;
+        }
+
+        @Override
+        public long appendFriend(long userId, long friendId, boolean added) {
+            return 0L;
+        }
+
+        @Override
+        public void awaitDurable(long lsn) {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    /**
+     * Appends the saved film and returns the log sequence number of the record.
+     */
+    long appendFilm(Film film);
+
+    /**
+     * Appends the saved user and returns the log sequence number of the record.
+     */
+    long appendUser(User user);
+
+    /**
+     * Appends a like of the film by the user, or its removal, and returns the log sequence number of the record.
+     */
+    long appendLike(long filmId, long userId, boolean liked);
+
+    /**
+     * Appends a friendship of two users, or its end, and returns the log sequence number of the record.
+     */
+    long appendFriend(long userId, long friendId, boolean added);
+
+    /**
+     * Appends saved films in order and returns the log sequence number of the last record.
+     */
+    default long appendFilms(List<Film> films) {
+        long lsn = 0L;
+        for (Film film : films) {
+            lsn = appendFilm(film);
+        }
+        return lsn;
+    }
+
+    /**
+     * Appends saved users in order and returns the log sequence number of the last record.
+     */
+    default long appendUsers(List<User> users) {
+        long lsn = 0L;
+        for (User user : users) {
+            lsn = appendUser(user);
+        }
+        return lsn;
+    }
+
+    /**
+     * Blocks until the record with the given log sequence number is as durable as the configured level requires.
+     */
+    void awaitDurable(long lsn);
+
+    /**
+     * Completes once the record with the given log sequence number is as durable as the configured level requires.
+     * Journals that can tell it without waiting override this, so reactive callers never block on it.
+     */
+    default CompletableFuture<Void> whenDurable(long lsn) {
+        awaitDurable(lsn);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    void close();
+}
@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.infrastructure.persistence;
+
+/**
+ * Id of an entity with the ids of the entities it links to in ascending order, like the users who like a film
+ * or the friends of a user.
+ */
+public record Links(long id, long[] ids) {
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.infrastructure.persistence;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties({WalProperties.class, SnapshotProperties.class})
+public class PersistenceConfiguration {
+    @Bean(destroyMethod = "close")
+    public Journal journal(WalProperties properties) {
+        return properties.isEnabled() ? new WriteAheadLog(properties) : Journal.NONE;
+    }
+
+    @Bean
+    public SnapshotStore snapshotStore(SnapshotProperties properties) {
+        return new SnapshotStore(properties);
+    }
+}
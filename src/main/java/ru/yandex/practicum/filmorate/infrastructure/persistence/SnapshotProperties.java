@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.infrastructure.persistence;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties("filmorate.snapshot")
+public class SnapshotProperties {
+    /**
+     * Snapshots are taken only when the write-ahead log is enabled too.
+     */
+    private boolean enabled = false;
+    private Path directory = Path.of("data", "snapshots");
+    private Duration interval = Duration.ofMinutes(5);
+    /**
+     * Number of newest snapshots to keep. Log segments are kept from the oldest of them on,
+     * so startup can fall back to an older snapshot if the newest one is unreadable.
+     */
+    private int retained = 2;
+}
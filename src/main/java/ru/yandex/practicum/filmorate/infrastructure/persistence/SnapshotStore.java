@@ -0,0 +1,294 @@
+package ru.yandex.practicum.filmorate.infrastructure.persistence;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.PersistentLongMap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary snapshots of both repositories, named after the last log sequence number they include.
+ * <p>
+ * A file holds a header (magic, format version, LSN) and then sections of films, of users, of film likes and
+ * of friendships. Files of version {@value #LIKELESS_FORMAT_VERSION}, written before likes, end after the users,
+ * and files of version {@value #FRIENDLESS_FORMAT_VERSION} after the likes; they load without what they lack.
+ * A section is a chunk count followed by chunks {@code [entity count][byte length][CRC32C][entities]}
+ * of up to {@value #CHUNK_SIZE} entities each, so loading maps and decodes the chunks in parallel.
+ * A snapshot is written to a temporary file and renamed once it is on disk, so a crash never leaves half of one.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class SnapshotStore {
+    static final int MAGIC = 0x46534E31;
+    static final int FORMAT_VERSION = 4;
+    static final int LIKELESS_FORMAT_VERSION = 2;
+    static final int FRIENDLESS_FORMAT_VERSION = 3;
+    static final int CHUNK_SIZE = 64 * 1024;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES + Long.BYTES;
+    private static final int CHUNK_HEADER_SIZE = 3 * Integer.BYTES;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final SnapshotProperties properties;
+
+    @Value
+    public static class Snapshot {
+        long lsn;
+        PersistentLongMap<Film> films;
+        PersistentLongMap<User> users;
+        /**
+         * Films that have likes, with the users who like them.
+         */
+        List<Links> likes;
+        /**
+         * Users with their friends of greater ids, so every friendship is in the snapshot once.
+         */
+        List<Links> friends;
+    }
+
+    /**
+     * Writes a snapshot and returns its size in bytes.
+     */
+    public long write(Snapshot snapshot) throws IOException {
+        Files.createDirectories(properties.getDirectory());
+        Path target = properties.getDirectory().resolve(fileName(snapshot.getLsn()));
+        Path temporary = properties.getDirectory().resolve(fileName(snapshot.getLsn()) + TEMPORARY_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            BinaryWriter out = new BinaryWriter(1024 * 1024);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(snapshot.getLsn());
+            writeSection(channel, out, snapshot.getFilms().values(), EntityCodec::writeFilm);
+            writeSection(channel, out, snapshot.getUsers().values(), EntityCodec::writeUser);
+            writeSection(channel, out, snapshot.getLikes(), EntityCodec::writeLinks);
+            writeSection(channel, out, snapshot.getFriends(), EntityCodec::writeLinks);
+            drain(channel, out);
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+        return Files.size(target);
+    }
+
+    /**
+     * Loads the newest readable snapshot.
+     */
+    public Optional<Snapshot> loadLatest() throws IOException {
+        List<Path> snapshots = snapshots();
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            try {
+                return Optional.of(load(snapshots.get(i)));
+            } catch (IOException | UncheckedIOException | IllegalStateException e) {
+                log.warn("Skipping unreadable snapshot {}", snapshots.get(i), e);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Deletes all but the newest retained snapshots, along with leftovers of interrupted writes.
+     *
+     * @return LSN of the oldest retained snapshot, everything up to it is no longer needed in the log
+     */
+    public long deleteOld() throws IOException {
+        List<Path> snapshots = snapshots();
+        int keepFrom = Math.max(0, snapshots.size() - properties.getRetained());
+        for (Path path : snapshots.subList(0, keepFrom)) {
+            Files.delete(path);
+            log.info("Deleted snapshot {}", path);
+        }
+        try (Stream<Path> files = Files.list(properties.getDirectory())) {
+            for (Path path : files.filter(path -> path.toString().endsWith(TEMPORARY_SUFFIX)).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+        return keepFrom < snapshots.size() ? lsn(snapshots.get(keepFrom)) : 0L;
+    }
+
+    private Snapshot load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = read(channel, 0, HEADER_SIZE);
+            int magic = header.getInt();
+            int version = header.getInt();
+            if (magic != MAGIC || version < LIKELESS_FORMAT_VERSION || version > FORMAT_VERSION) {
+                throw new IllegalStateException("Not a snapshot of version " + FORMAT_VERSION + ": " + path);
+            }
+            long lsn = header.getLong();
+            List<Chunk> filmChunks = new ArrayList<>();
+            long position = readChunks(channel, HEADER_SIZE, filmChunks);
+            List<Chunk> userChunks = new ArrayList<>();
+            position = readChunks(channel, position, userChunks);
+            List<Chunk> likeChunks = new ArrayList<>();
+            if (version > LIKELESS_FORMAT_VERSION) {
+                position = readChunks(channel, position, likeChunks);
+            }
+            List<Chunk> friendChunks = new ArrayList<>();
+            if (version > FRIENDLESS_FORMAT_VERSION) {
+                position = readChunks(channel, position, friendChunks);
+            }
+            if (position != channel.size()) {
+                throw new IllegalStateException("Unexpected bytes after the last section of " + path);
+            }
+            return new Snapshot(lsn,
+                    decode(channel, filmChunks, EntityCodec::readFilm, Film::getId),
+                    decode(channel, userChunks, EntityCodec::readUser, User::getId),
+                    decodeLinks(channel, likeChunks),
+                    decodeLinks(channel, friendChunks));
+        }
+    }
+
+    private static <V> void writeSection(FileChannel channel, BinaryWriter out, Collection<V> values,
+                                         BiConsumer<BinaryWriter, V> encoder) throws IOException {
+        out.writeInt((values.size() + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        BinaryWriter chunk = new BinaryWriter(1024 * 1024);
+        int count = 0;
+        for (V value : values) {
+            encoder.accept(chunk, value);
+            if (++count == CHUNK_SIZE) {
+                writeChunk(channel, out, chunk, count);
+                count = 0;
+            }
+        }
+        if (count > 0) {
+            writeChunk(channel, out, chunk, count);
+        }
+    }
+
+    private static void writeChunk(FileChannel channel, BinaryWriter out, BinaryWriter chunk, int count)
+            throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(chunk.array(), 0, chunk.length());
+        out.writeInt(count);
+        out.writeInt(chunk.length());
+        out.writeInt((int) crc.getValue());
+        out.write(chunk.array(), 0, chunk.length());
+        chunk.reset();
+        drain(channel, out);
+    }
+
+    private static void drain(FileChannel channel, BinaryWriter out) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(out.array(), 0, out.length());
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        out.reset();
+    }
+
+    private static long readChunks(FileChannel channel, long position, List<Chunk> chunks) throws IOException {
+        int chunkCount = read(channel, position, Integer.BYTES).getInt();
+        position += Integer.BYTES;
+        for (int i = 0; i < chunkCount; i++) {
+            ByteBuffer header = read(channel, position, CHUNK_HEADER_SIZE);
+            Chunk chunk = new Chunk(position + CHUNK_HEADER_SIZE, header.getInt(), header.getInt(), header.getInt());
+            chunks.add(chunk);
+            position = chunk.offset + chunk.length;
+        }
+        return position;
+    }
+
+    private static <V> PersistentLongMap<V> decode(FileChannel channel, List<Chunk> chunks,
+                                                   Function<ByteBuffer, V> decoder, ToLongFunction<V> id) {
+        PersistentLongMap.Builder<V> builder = PersistentLongMap.builder();
+        for (List<V> values : decodeChunks(channel, chunks, decoder)) {
+            for (V value : values) {
+                builder.put(id.applyAsLong(value), value);
+            }
+        }
+        return builder.build();
+    }
+
+    private static List<Links> decodeLinks(FileChannel channel, List<Chunk> chunks) {
+        return decodeChunks(channel, chunks, EntityCodec::readLinks).stream().flatMap(List::stream).toList();
+    }
+
+    private static <V> List<List<V>> decodeChunks(FileChannel channel, List<Chunk> chunks,
+                                                  Function<ByteBuffer, V> decoder) {
+        return chunks.parallelStream()
+                .map(chunk -> decodeChunk(channel, chunk, decoder))
+                .toList();
+    }
+
+    private static <V> List<V> decodeChunk(FileChannel channel, Chunk chunk, Function<ByteBuffer, V> decoder) {
+        MappedByteBuffer bytes;
+        try {
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, chunk.offset, chunk.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(bytes.duplicate());
+        if ((int) crc.getValue() != chunk.checksum) {
+            throw new IllegalStateException("Snapshot chunk at byte " + chunk.offset + " is corrupted");
+        }
+        List<V> values = new ArrayList<>(chunk.count);
+        for (int i = 0; i < chunk.count; i++) {
+            values.add(decoder.apply(bytes));
+        }
+        return values;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, position + bytes.position()) < 0) {
+                throw new IllegalStateException("Snapshot ends at byte " + (position + bytes.position()));
+            }
+        }
+        return bytes.flip();
+    }
+
+    private void syncDirectory() {
+        try (FileChannel directory = FileChannel.open(properties.getDirectory(), StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            log.debug("Can not sync snapshot directory {}", properties.getDirectory(), e);
+        }
+    }
+
+    private List<Path> snapshots() throws IOException {
+        if (!Files.isDirectory(properties.getDirectory())) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(properties.getDirectory())) {
+            return files
+                    .filter(path -> path.getFileName().toString().startsWith(PREFIX))
+                    .filter(path -> path.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long lsn(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static String fileName(long lsn) {
+        return String.format("%s%020d%s", PREFIX, lsn, SUFFIX);
+    }
+
+    private record Chunk(long offset, int count, int length, int checksum) {
+    }
+}
@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.infrastructure.persistence;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.infrastructure.InMemoryFilmRepository;
+import ru.yandex.practicum.filmorate.infrastructure.InMemoryUserRepository;
+import ru.yandex.practicum.filmorate.util.BackgroundThreads;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Periodically writes a snapshot of both repositories and deletes snapshots and log segments it makes obsolete.
+ * <p>
+ * The durable LSN is read before the repository maps. A change is journaled before it is applied, under the locks
+ * of what it changes, so the snapshot waits for the writes in progress after reading the LSN, and then every record
+ * up to that LSN is in the maps. The maps may also hold later changes, which is fine because replaying a record
+ * after the snapshot just writes the same full state again.
+ */
+@Slf4j
+@Component
+public class Snapshotter implements DisposableBean {
+    private final SnapshotProperties properties;
+    private final SnapshotStore store;
+    private final Journal journal;
+    private final InMemoryFilmRepository filmRepository;
+    private final InMemoryUserRepository userRepository;
+    private final BackgroundThreads threads;
+    private final Timer duration;
+    private final AtomicLong size = new AtomicLong();
+    private final Lock lock = new ReentrantLock();
+    private ScheduledExecutorService executor;
+
+    public Snapshotter(SnapshotProperties properties, SnapshotStore store, Journal journal,
+                       InMemoryFilmRepository filmRepository, InMemoryUserRepository userRepository,
+                       BackgroundThreads threads, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.store = store;
+        this.journal = journal;
+        this.filmRepository = filmRepository;
+        this.userRepository = userRepository;
+        this.threads = threads;
+        this.duration = Timer.builder("filmorate.snapshot.duration")
+                .description("Time to write a snapshot")
+                .register(meterRegistry);
+        Gauge.builder("filmorate.snapshot.size", size, AtomicLong::get)
+                .description("Size of the last written snapshot")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts taking snapshots in the background. Called once the repositories are recovered.
+     */
+    public void start() {
+        if (!properties.isEnabled() || !(journal instanceof WriteAheadLog)) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (executor != null) {
+                return;
+            }
+            long interval = properties.getInterval().toMillis();
+            executor = Executors.newSingleThreadScheduledExecutor(threads.factory("snapshotter-"));
+            executor.scheduleWithFixedDelay(this::snapshotQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes a snapshot now and returns its LSN.
+     */
+    public long snapshot() throws IOException {
+        WriteAheadLog wal = (WriteAheadLog) journal;
+        long start = System.nanoTime();
+        long lsn = wal.durableLsn();
+        filmRepository.awaitWritesInProgress();
+        userRepository.awaitWritesInProgress();
+        SnapshotStore.Snapshot snapshot = new SnapshotStore.Snapshot(lsn, filmRepository.snapshot(),
+                userRepository.snapshot(), filmRepository.likesSnapshot(), userRepository.friendsSnapshot());
+        long bytes = store.write(snapshot);
+        long elapsed = System.nanoTime() - start;
+        duration.record(elapsed, TimeUnit.NANOSECONDS);
+        size.set(bytes);
+        log.info("Wrote snapshot at LSN {} with {} films and {} users, {} bytes in {} ms", lsn,
+                snapshot.getFilms().size(), snapshot.getUsers().size(), bytes, elapsed / 1_000_000);
+        wal.deleteSegmentsUpTo(store.deleteOld());
+        return lsn;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        ScheduledExecutorService running;
+        lock.lock();
+        try {
+            running = executor;
+        } finally {
+            lock.unlock();
+        }
+        if (running != null) {
+            running.shutdown();
+            running.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Can not write snapshot", e);
+        }
+    }
+}
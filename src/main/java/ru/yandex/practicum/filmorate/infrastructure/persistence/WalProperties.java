@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.infrastructure.persistence;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties("filmorate.wal")
+public class WalProperties {
+    private boolean enabled = false;
+    private Path directory = Path.of("data", "wal");
+    private Durability durability = Durability.SYNC;
+    /**
+     * How often buffered records are written out when writers do not wait for them.
+     */
+    private Duration flushInterval = Duration.ofMillis(10);
+    /**
+     * Size after which the log continues in a new segment file.
+     */
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+    /**
+     * Size of appended but not yet written records after which writers wait for the flusher.
+     */
+    private DataSize maxPendingSize = DataSize.ofMegabytes(16);
+}
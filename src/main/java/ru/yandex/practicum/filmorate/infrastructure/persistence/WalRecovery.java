@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.infrastructure.persistence;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.infrastructure.InMemoryFilmRepository;
+import ru.yandex.practicum.filmorate.infrastructure.InMemoryUserRepository;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+
+/**
+ * Restores the repositories once all beans are created, before the web server starts taking requests:
+ * loads the newest snapshot, replays only the part of the write-ahead log after it and starts the snapshotter.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WalRecovery implements SmartInitializingSingleton {
+    private final Journal journal;
+    private final SnapshotProperties snapshotProperties;
+    private final SnapshotStore snapshotStore;
+    private final Snapshotter snapshotter;
+    private final InMemoryFilmRepository filmRepository;
+    private final InMemoryUserRepository userRepository;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!(journal instanceof WriteAheadLog wal)) {
+            return;
+        }
+        long start = System.nanoTime();
+        long snapshotLsn = 0L;
+        if (snapshotProperties.isEnabled()) {
+            Optional<SnapshotStore.Snapshot> snapshot = loadSnapshot();
+            if (snapshot.isPresent()) {
+                snapshotLsn = snapshot.get().getLsn();
+                filmRepository.restoreAll(snapshot.get().getFilms(), snapshot.get().getLikes());
+                userRepository.restoreAll(snapshot.get().getUsers(), snapshot.get().getFriends());
+                log.info("Loaded snapshot at LSN {} in {} ms", snapshotLsn, (System.nanoTime() - start) / 1_000_000);
+            }
+        }
+        long lastLsn = wal.recover(snapshotLsn, new WriteAheadLog.RecordHandler() {
+            @Override
+            public void onFilm(Film film) {
+                filmRepository.restore(film);
+            }
+
+            @Override
+            public void onUser(User user) {
+                userRepository.restore(user);
+            }
+
+            @Override
+            public void onLike(long filmId, long userId, boolean liked) {
+                filmRepository.restoreLike(filmId, userId, liked);
+            }
+
+            @Override
+            public void onFriend(long userId, long friendId, boolean added) {
+                userRepository.restoreFriend(userId, friendId, added);
+            }
+        });
+        log.info("Recovered {} films and {} users up to LSN {} in {} ms", filmRepository.findAll().size(),
+                userRepository.findAll().size(), lastLsn, (System.nanoTime() - start) / 1_000_000);
+        snapshotter.start();
+    }
+
+    private Optional<SnapshotStore.Snapshot> loadSnapshot() {
+        try {
+            return snapshotStore.loadLatest();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can not load snapshot from " + snapshotProperties.getDirectory(), e);
+        }
+    }
+}
@@ -0,0 +1,534 @@
+package ru.yandex.practicum.filmorate.infrastructure.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of saved films and users, of likes and of friendships, split into segment files named after
+ * their first log sequence number.
+ * <p>
+ * A segment starts with a header (magic, format version, first LSN) followed by records
+ * {@code [body length][CRC32C of body][type][entity]}. The LSN of a record is its position in the log,
+ * so it is not stored. Writers only copy their encoded record into a shared buffer; a single flusher thread
+ * writes the buffer out and fsyncs it, so all records that arrive during one fsync share the next one.
+ */
+@Slf4j
+public class WriteAheadLog implements Journal {
+    static final int MAGIC = 0x46574C31;
+    static final short FORMAT_VERSION = 2;
+    static final int SEGMENT_HEADER_SIZE = Integer.BYTES + Short.BYTES + Long.BYTES;
+    static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    static final byte FILM = 1;
+    static final byte USER = 2;
+    static final byte LIKE = 3;
+    static final byte UNLIKE = 4;
+    static final byte FRIEND = 5;
+    static final byte UNFRIEND = 6;
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private static final int RECORD_CAPACITY = 128;
+
+    private final WalProperties properties;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pending = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final PriorityQueue<DurableWaiter> durableWaiters =
+            new PriorityQueue<>(Comparator.comparingLong(DurableWaiter::lsn));
+    private BinaryWriter buffer = new BinaryWriter(INITIAL_BUFFER_SIZE);
+    private long appendedLsn;
+    private long durableLsn;
+    private boolean started;
+    private boolean closed;
+    private IOException failure;
+    private Thread flusher;
+    private FileChannel segment;
+    private long segmentBytes;
+
+    public WriteAheadLog(WalProperties properties) {
+        this.properties = properties;
+    }
+
+    public interface RecordHandler {
+        void onFilm(Film film);
+
+        void onUser(User user);
+
+        void onLike(long filmId, long userId, boolean liked);
+
+        void onFriend(long userId, long friendId, boolean added);
+    }
+
+    /**
+     * Replays records after {@code afterLsn} and starts accepting appends after the last record in the log.
+     * Segments that hold only earlier records are not read at all.
+     * A torn record at the end of the last segment, left by a crash in the middle of a write, is cut off, and a last
+     * segment left without records by a crash right after it was opened is deleted, so the flusher can open
+     * a segment of that name again. Earlier segments were closed whole before the next one was opened, so a bad
+     * record in one of them, or a segment that does not start right after the previous one, fails the recovery
+     * instead of dropping durable records.
+     *
+     * @param afterLsn LSN up to which the state is already restored, for example from a snapshot
+     * @return LSN of the last record in the log, but not less than {@code afterLsn}
+     */
+    public long recover(long afterLsn, RecordHandler handler) {
+        long lsn = afterLsn;
+        try {
+            Files.createDirectories(properties.getDirectory());
+            List<Path> segments = segments();
+            int first = 0;
+            while (first + 1 < segments.size() && startLsn(segments.get(first + 1)) <= afterLsn + 1) {
+                first++;
+            }
+            for (int i = first; i < segments.size(); i++) {
+                lsn = replaySegment(segments.get(i), lsn, afterLsn, i == first, i == segments.size() - 1, handler);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can not recover write-ahead log in " + properties.getDirectory(), e);
+        }
+        lock.lock();
+        try {
+            appendedLsn = lsn;
+            durableLsn = lsn;
+            started = true;
+        } finally {
+            lock.unlock();
+        }
+        long firstLsn = lsn + 1;
+        flusher = Thread.ofPlatform().name("wal-flusher").daemon(true).start(() -> flushLoop(firstLsn));
+        return lsn;
+    }
+
+    /**
+     * LSN up to which records are written out with the configured durability.
+     */
+    public long durableLsn() {
+        lock.lock();
+        try {
+            return durableLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes segments that hold only records up to the given LSN. The segment in use is never deleted.
+     */
+    public void deleteSegmentsUpTo(long lsn) throws IOException {
+        List<Path> segments = segments();
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (startLsn(segments.get(i + 1)) > lsn + 1) {
+                return;
+            }
+            Files.delete(segments.get(i));
+            log.info("Deleted write-ahead log segment {}", segments.get(i));
+        }
+    }
+
+    @Override
+    public long appendFilm(Film film) {
+        BinaryWriter record = new BinaryWriter(RECORD_CAPACITY);
+        encode(record, FILM, out -> EntityCodec.writeFilm(out, film));
+        return append(record, 1);
+    }
+
+    @Override
+    public long appendUser(User user) {
+        BinaryWriter record = new BinaryWriter(RECORD_CAPACITY);
+        encode(record, USER, out -> EntityCodec.writeUser(out, user));
+        return append(record, 1);
+    }
+
+    @Override
+    public long appendLike(long filmId, long userId, boolean liked) {
+        BinaryWriter record = new BinaryWriter(RECORD_CAPACITY);
+        encode(record, liked ? LIKE : UNLIKE, out -> {
+            out.writeLong(filmId);
+            out.writeLong(userId);
+        });
+        return append(record, 1);
+    }
+
+    @Override
+    public long appendFriend(long userId, long friendId, boolean added) {
+        BinaryWriter record = new BinaryWriter(RECORD_CAPACITY);
+        encode(record, added ? FRIEND : UNFRIEND, out -> {
+            out.writeLong(userId);
+            out.writeLong(friendId);
+        });
+        return append(record, 1);
+    }
+
+    @Override
+    public long appendFilms(List<Film> films) {
+        BinaryWriter records = new BinaryWriter(RECORD_CAPACITY * Math.max(films.size(), 1));
+        for (Film film : films) {
+            encode(records, FILM, out -> EntityCodec.writeFilm(out, film));
+        }
+        return append(records, films.size());
+    }
+
+    @Override
+    public long appendUsers(List<User> users) {
+        BinaryWriter records = new BinaryWriter(RECORD_CAPACITY * Math.max(users.size(), 1));
+        for (User user : users) {
+            encode(records, USER, out -> EntityCodec.writeUser(out, user));
+        }
+        return append(records, users.size());
+    }
+
+    @Override
+    public void awaitDurable(long lsn) {
+        if (properties.getDurability() != Durability.SYNC) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (durableLsn < lsn) {
+                checkFailure();
+                flushed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Completes from the flusher thread once the record is fsynced, instead of parking the caller until then.
+     */
+    @Override
+    public CompletableFuture<Void> whenDurable(long lsn) {
+        if (properties.getDurability() != Durability.SYNC) {
+            return CompletableFuture.completedFuture(null);
+        }
+        lock.lock();
+        try {
+            if (failure != null) {
+                return CompletableFuture.failedFuture(new UncheckedIOException("Write-ahead log failed", failure));
+            }
+            if (durableLsn >= lsn) {
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> durable = new CompletableFuture<>();
+            durableWaiters.add(new DurableWaiter(lsn, durable));
+            return durable;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes out and fsyncs everything appended so far and stops the flusher.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pending.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            if (flusher != null) {
+                flusher.join();
+            }
+            if (segment != null) {
+                segment.force(true);
+                segment.close();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.error("Can not close write-ahead log segment", e);
+        }
+    }
+
+    private static void encode(BinaryWriter out, byte type, Consumer<BinaryWriter> entity) {
+        int start = out.length();
+        out.writeLong(0L);
+        out.writeByte(type);
+        entity.accept(out);
+        int bodyLength = out.length() - start - RECORD_HEADER_SIZE;
+        CRC32C crc = new CRC32C();
+        crc.update(out.array(), start + RECORD_HEADER_SIZE, bodyLength);
+        out.writeInt(start, bodyLength);
+        out.writeInt(start + Integer.BYTES, (int) crc.getValue());
+    }
+
+    /**
+     * Copies encoded records into the shared buffer under one lock acquisition and returns the LSN of the last one.
+     */
+    private long append(BinaryWriter records, int count) {
+        long maxPendingBytes = properties.getMaxPendingSize().toBytes();
+        lock.lock();
+        try {
+            checkWritable();
+            while (buffer.length() >= maxPendingBytes) {
+                flushed.awaitUninterruptibly();
+                checkWritable();
+            }
+            buffer.write(records.array(), 0, records.length());
+            if (properties.getDurability() == Durability.SYNC) {
+                pending.signal();
+            }
+            appendedLsn += count;
+            return appendedLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushLoop(long firstLsn) {
+        boolean sync = properties.getDurability() == Durability.SYNC;
+        long intervalNanos = properties.getFlushInterval().toNanos();
+        BinaryWriter spare = new BinaryWriter(INITIAL_BUFFER_SIZE);
+        long nextLsn = firstLsn;
+        while (true) {
+            BinaryWriter batch;
+            long lastLsn;
+            lock.lock();
+            try {
+                if (!sync && !closed) {
+                    awaitPending(intervalNanos);
+                }
+                while (buffer.length() == 0 && !closed) {
+                    if (sync) {
+                        pending.awaitUninterruptibly();
+                    } else {
+                        awaitPending(intervalNanos);
+                    }
+                }
+                if (buffer.length() == 0) {
+                    return;
+                }
+                batch = buffer;
+                buffer = spare;
+                lastLsn = appendedLsn;
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                write(batch, nextLsn);
+            } catch (IOException e) {
+                log.error("Can not write to write-ahead log, rejecting further writes", e);
+                List<DurableWaiter> failed;
+                lock.lock();
+                try {
+                    failure = e;
+                    flushed.signalAll();
+                    failed = new ArrayList<>(durableWaiters);
+                    durableWaiters.clear();
+                } finally {
+                    lock.unlock();
+                }
+                failed.forEach(waiter -> waiter.durable()
+                        .completeExceptionally(new UncheckedIOException("Write-ahead log failed", e)));
+                return;
+            }
+
+            List<DurableWaiter> done = new ArrayList<>();
+            lock.lock();
+            try {
+                durableLsn = lastLsn;
+                flushed.signalAll();
+                while (!durableWaiters.isEmpty() && durableWaiters.peek().lsn() <= lastLsn) {
+                    done.add(durableWaiters.poll());
+                }
+            } finally {
+                lock.unlock();
+            }
+            done.forEach(waiter -> waiter.durable().complete(null));
+            nextLsn = lastLsn + 1;
+            batch.reset();
+            spare = batch;
+        }
+    }
+
+    private void awaitPending(long nanos) {
+        try {
+            pending.awaitNanos(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(BinaryWriter batch, long firstLsn) throws IOException {
+        long segmentSize = properties.getSegmentSize().toBytes();
+        if (segment == null || segmentBytes > SEGMENT_HEADER_SIZE && segmentBytes + batch.length() > segmentSize) {
+            openSegment(firstLsn);
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(batch.array(), 0, batch.length());
+        while (bytes.hasRemaining()) {
+            segment.write(bytes);
+        }
+        segmentBytes += batch.length();
+        if (properties.getDurability() != Durability.NONE) {
+            segment.force(false);
+        }
+    }
+
+    private void openSegment(long firstLsn) throws IOException {
+        if (segment != null) {
+            segment.force(true);
+            segment.close();
+        }
+        Path path = properties.getDirectory().resolve(segmentName(firstLsn));
+        segment = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE)
+                .putInt(MAGIC)
+                .putShort(FORMAT_VERSION)
+                .putLong(firstLsn)
+                .flip();
+        while (header.hasRemaining()) {
+            segment.write(header);
+        }
+        segmentBytes = SEGMENT_HEADER_SIZE;
+        log.info("Write-ahead log continues in {}", path);
+    }
+
+    /**
+     * Replays the records of one segment and returns the LSN of its last record, but not less than {@code lsn}.
+     *
+     * @param lsn   LSN of the last record replayed so far, or {@code afterLsn} before the first segment
+     * @param first whether this is the first segment read, which may start at or before {@code afterLsn + 1}
+     * @param last  whether this is the last segment, whose tail may be torn
+     */
+    private long replaySegment(Path path, long lsn, long afterLsn, boolean first, boolean last,
+                               RecordHandler handler) throws IOException {
+        boolean empty;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size < SEGMENT_HEADER_SIZE) {
+                if (!last) {
+                    throw new IllegalStateException("Write-ahead log segment " + path + " has no complete header");
+                }
+                log.warn("Deleting write-ahead log segment {} without a complete header", path);
+                channel.close();
+                Files.delete(path);
+                return lsn;
+            }
+            MappedByteBuffer segmentBytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (segmentBytes.getInt() != MAGIC || segmentBytes.getShort() != FORMAT_VERSION) {
+                throw new IllegalStateException("Not a write-ahead log segment of version " + FORMAT_VERSION + ": " + path);
+            }
+            long startLsn = segmentBytes.getLong();
+            if (first ? startLsn > afterLsn + 1 : startLsn != lsn + 1) {
+                throw new IllegalStateException("Write-ahead log segment " + path + " starts at LSN " + startLsn
+                        + ", but the log continues at LSN " + (lsn + 1));
+            }
+            long recordLsn = startLsn - 1;
+            int position = segmentBytes.position();
+            while (segmentBytes.remaining() >= RECORD_HEADER_SIZE) {
+                int length = segmentBytes.getInt();
+                int checksum = segmentBytes.getInt();
+                if (length <= 0 || length > segmentBytes.remaining()) {
+                    break;
+                }
+                ByteBuffer body = segmentBytes.slice(segmentBytes.position(), length);
+                CRC32C crc = new CRC32C();
+                crc.update(body.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                recordLsn++;
+                if (recordLsn > afterLsn) {
+                    dispatch(body, handler);
+                }
+                segmentBytes.position(segmentBytes.position() + length);
+                position = segmentBytes.position();
+            }
+            if (position < size) {
+                if (!last) {
+                    throw new IllegalStateException("Write-ahead log segment " + path + " is corrupted at byte "
+                            + position + ", after LSN " + recordLsn);
+                }
+                log.warn("Cutting off torn write-ahead log tail of {} at byte {}", path, position);
+                channel.truncate(position);
+            }
+            empty = position == SEGMENT_HEADER_SIZE;
+            lsn = Math.max(lsn, recordLsn);
+        }
+        if (last && empty) {
+            log.warn("Deleting write-ahead log segment {} without records", path);
+            Files.delete(path);
+        }
+        return lsn;
+    }
+
+    private static void dispatch(ByteBuffer body, RecordHandler handler) {
+        byte type = body.get();
+        switch (type) {
+            case FILM -> handler.onFilm(EntityCodec.readFilm(body));
+            case USER -> handler.onUser(EntityCodec.readUser(body));
+            case LIKE -> handler.onLike(body.getLong(), body.getLong(), true);
+            case UNLIKE -> handler.onLike(body.getLong(), body.getLong(), false);
+            case FRIEND -> handler.onFriend(body.getLong(), body.getLong(), true);
+            case UNFRIEND -> handler.onFriend(body.getLong(), body.getLong(), false);
+            default -> throw new IllegalStateException("Unknown write-ahead log record type: " + type);
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(properties.getDirectory())) {
+            return files
+                    .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long startLsn(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static String segmentName(long firstLsn) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, firstLsn, SEGMENT_SUFFIX);
+    }
+
+    private void checkWritable() {
+        if (!started) {
+            throw new IllegalStateException("Write-ahead log is not recovered yet");
+        }
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log is closed");
+        }
+        checkFailure();
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("Write-ahead log failed", failure);
+        }
+    }
+
+    private record DurableWaiter(long lsn, CompletableFuture<Void> durable) {
+    }
+}
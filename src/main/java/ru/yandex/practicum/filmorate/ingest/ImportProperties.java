@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.ingest;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties("filmorate.import")
+public class ImportProperties {
+    /**
+     * Number of threads that parse and validate lines.
+     */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    /**
+     * Lines per chunk handed between stages; valid records of a chunk are inserted as one batch.
+     */
+    private int batchSize = 1000;
+    /**
+     * Chunks each queue holds before the stage in front of it waits.
+     */
+    private int queueCapacity = 16;
+    private Duration progressInterval = Duration.ofSeconds(5);
+    /**
+     * NDJSON files to import on startup, one film or user per line.
+     */
+    private Path filmsFile;
+    private Path usersFile;
+    /**
+     * Stops the application once the startup imports are done, for running the import as a command.
+     */
+    private boolean exitWhenDone = false;
+}
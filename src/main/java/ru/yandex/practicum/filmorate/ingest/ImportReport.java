@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.ingest;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ImportReport {
+    public static final int MAX_REPORTED_REJECTIONS = 100;
+
+    private final long imported;
+    private final long rejected;
+    private final long elapsedMillis;
+    private final double recordsPerSecond;
+    /**
+     * First {@value #MAX_REPORTED_REJECTIONS} rejected lines; all of them are logged.
+     */
+    private final List<Rejection> rejections;
+
+    @Data
+    public static class Rejection {
+        private final long line;
+        private final List<String> errors;
+    }
+}
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.ingest;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Imports the files given by {@code filmorate.import.films-file} and {@code filmorate.import.users-file}
+ * once the application has started, e.g.
+ * {@code java -jar filmorate.jar --filmorate.import.films-file=films.ndjson --filmorate.import.exit-when-done=true}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImportRunner implements ApplicationRunner {
+    private final NdjsonImporter importer;
+    private final ImportProperties properties;
+    private final ApplicationContext context;
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (properties.getUsersFile() != null) {
+            try (InputStream in = open(properties.getUsersFile())) {
+                importer.importUsers(in);
+            }
+        }
+        if (properties.getFilmsFile() != null) {
+            try (InputStream in = open(properties.getFilmsFile())) {
+                importer.importFilms(in);
+            }
+        }
+        if (properties.isExitWhenDone()) {
+            log.info("Imports are done, stopping");
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+
+    private static InputStream open(Path file) throws IOException {
+        log.info("Importing {}", file);
+        return Files.newInputStream(file);
+    }
+}
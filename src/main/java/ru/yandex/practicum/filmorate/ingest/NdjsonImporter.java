@@ -0,0 +1,310 @@
+package ru.yandex.practicum.filmorate.ingest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.controller.dto.film.CreateFilmDto;
+import ru.yandex.practicum.filmorate.controller.dto.user.CreateUserDto;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.DuplicateUserException;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+import ru.yandex.practicum.filmorate.repository.UserRepository;
+import ru.yandex.practicum.filmorate.util.BackgroundThreads;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Imports films or users from newline-delimited JSON, one {@link CreateFilmDto} or {@link CreateUserDto} per line.
+ * <p>
+ * The calling thread reads lines into chunks, a pool of workers parses and validates the chunks in parallel and
+ * a single inserter saves the valid records of each chunk with one {@code createAll}. Both queues between
+ * the stages are bounded, so a slow stage makes the ones in front of it wait instead of buffering the input.
+ * Records get ids in the order chunks are inserted, which is not necessarily the order of lines. Users whose email
+ * or login is taken are rejected with their line like invalid records, and the rest of their chunk is saved.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NdjsonImporter {
+    private static final long POLL_MILLIS = 100L;
+
+    private final FilmRepository filmRepository;
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ImportProperties properties;
+    private final BackgroundThreads threads;
+
+    public ImportReport importFilms(InputStream in) throws IOException {
+        return run("films", in, CreateFilmDto.class, CreateFilmDto::toFilm, chunk -> {
+            filmRepository.createAll(chunk.records());
+            return List.of();
+        });
+    }
+
+    public ImportReport importUsers(InputStream in) throws IOException {
+        return run("users", in, CreateUserDto.class, CreateUserDto::toUser, this::createUsers);
+    }
+
+    /**
+     * Creates the users that do not conflict with others, leaving out the ones that do.
+     * Returns the rejections of the users left out.
+     */
+    private List<ImportReport.Rejection> createUsers(Validated<User> chunk) {
+        List<User> remaining = new ArrayList<>(chunk.records());
+        List<Long> lines = new ArrayList<>(chunk.lines());
+        List<ImportReport.Rejection> conflicts = new ArrayList<>();
+        while (true) {
+            try {
+                userRepository.createAll(remaining);
+                return conflicts;
+            } catch (DuplicateUserException e) {
+                for (Map.Entry<Integer, String> conflict : e.getConflicts().reversed().entrySet()) {
+                    remaining.remove((int) conflict.getKey());
+                    conflicts.add(new ImportReport.Rejection(lines.remove((int) conflict.getKey()),
+                            List.of(conflict.getValue())));
+                }
+            }
+        }
+    }
+
+    private <D, E> ImportReport run(String entities, InputStream in, Class<D> dtoType, Function<D, E> toEntity,
+                                    Function<Validated<E>, List<ImportReport.Rejection>> insert) throws IOException {
+        Pipeline<D, E> pipeline = new Pipeline<>(entities, objectMapper.readerFor(dtoType), toEntity, insert);
+        return pipeline.run(in);
+    }
+
+    private record Chunk(long firstLine, List<String> lines) {
+    }
+
+    /**
+     * Valid records of a chunk with the line of each, and the rejections of the invalid ones.
+     */
+    private record Validated<E>(List<E> records, List<Long> lines, List<ImportReport.Rejection> rejections) {
+    }
+
+    private final class Pipeline<D, E> {
+        private final Chunk endOfInput = new Chunk(0L, List.of());
+        private final Validated<E> workerDone = new Validated<>(List.of(), List.of(), List.of());
+        private final String entities;
+        private final ObjectReader reader;
+        private final Function<D, E> toEntity;
+        private final Function<Validated<E>, List<ImportReport.Rejection>> insert;
+        private final BlockingQueue<Chunk> lines = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        private final BlockingQueue<Validated<E>> validated = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final List<ImportReport.Rejection> reportedRejections = new ArrayList<>();
+        private long imported;
+        private long rejected;
+
+        private Pipeline(String entities, ObjectReader reader, Function<D, E> toEntity,
+                         Function<Validated<E>, List<ImportReport.Rejection>> insert) {
+            this.entities = entities;
+            this.reader = reader;
+            this.toEntity = toEntity;
+            this.insert = insert;
+        }
+
+        ImportReport run(InputStream in) throws IOException {
+            int parallelism = properties.getParallelism();
+            long start = System.nanoTime();
+            ExecutorService executor = Executors.newFixedThreadPool(parallelism + 1,
+                    threads.factory("import-" + entities + "-"));
+            try {
+                for (int i = 0; i < parallelism; i++) {
+                    executor.execute(guarded(this::validate));
+                }
+                Future<?> inserter = executor.submit(guarded(() -> insertAll(parallelism, start)));
+                read(in, parallelism);
+                inserter.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Import of " + entities + " was interrupted");
+            } catch (ExecutionException | CancellationException e) {
+                rethrowFailure();
+                throw e instanceof CancellationException cancellation ? cancellation : new IllegalStateException(e);
+            } finally {
+                executor.shutdownNow();
+            }
+            rethrowFailure();
+            long elapsedNanos = System.nanoTime() - start;
+            ImportReport report = new ImportReport(imported, rejected, elapsedNanos / 1_000_000,
+                    recordsPerSecond(imported + rejected, elapsedNanos), List.copyOf(reportedRejections));
+            log.info("Import of {} done: {} imported, {} rejected in {} ms, {} records/s", entities,
+                    report.getImported(), report.getRejected(), report.getElapsedMillis(),
+                    Math.round(report.getRecordsPerSecond()));
+            return report;
+        }
+
+        private void read(InputStream in, int parallelism) throws IOException, InterruptedException {
+            BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            long lineNumber = 0L;
+            List<String> chunk = new ArrayList<>(properties.getBatchSize());
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                lineNumber++;
+                chunk.add(line);
+                if (chunk.size() == properties.getBatchSize()) {
+                    put(lines, new Chunk(lineNumber - chunk.size() + 1, chunk));
+                    chunk = new ArrayList<>(properties.getBatchSize());
+                }
+            }
+            if (!chunk.isEmpty()) {
+                put(lines, new Chunk(lineNumber - chunk.size() + 1, chunk));
+            }
+            for (int i = 0; i < parallelism; i++) {
+                put(lines, endOfInput);
+            }
+        }
+
+        private void validate() throws InterruptedException {
+            while (true) {
+                Chunk chunk = take(lines);
+                if (chunk == endOfInput) {
+                    put(validated, workerDone);
+                    return;
+                }
+                List<E> records = new ArrayList<>(chunk.lines().size());
+                List<Long> recordLines = new ArrayList<>(chunk.lines().size());
+                List<ImportReport.Rejection> rejections = new ArrayList<>();
+                for (int i = 0; i < chunk.lines().size(); i++) {
+                    String line = chunk.lines().get(i);
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    List<String> errors;
+                    D dto = null;
+                    try {
+                        dto = reader.readValue(line);
+                        errors = violations(dto);
+                    } catch (JsonProcessingException e) {
+                        errors = List.of("invalid JSON: " + e.getOriginalMessage());
+                    }
+                    if (errors.isEmpty()) {
+                        records.add(toEntity.apply(dto));
+                        recordLines.add(chunk.firstLine() + i);
+                    } else {
+                        rejections.add(new ImportReport.Rejection(chunk.firstLine() + i, errors));
+                    }
+                }
+                put(validated, new Validated<>(records, recordLines, rejections));
+            }
+        }
+
+        private void insertAll(int workers, long start) throws InterruptedException {
+            long progressNanos = properties.getProgressInterval().toNanos();
+            long nextProgress = start + progressNanos;
+            int running = workers;
+            while (running > 0) {
+                Validated<E> chunk = take(validated);
+                if (chunk == workerDone) {
+                    running--;
+                    continue;
+                }
+                reject(chunk.rejections());
+                if (!chunk.records().isEmpty()) {
+                    List<ImportReport.Rejection> conflicts = insert.apply(chunk);
+                    imported += chunk.records().size() - conflicts.size();
+                    reject(conflicts);
+                }
+                long now = System.nanoTime();
+                if (now >= nextProgress) {
+                    log.info("Importing {}: {} imported, {} rejected, {} records/s", entities, imported, rejected,
+                            Math.round(recordsPerSecond(imported + rejected, now - start)));
+                    nextProgress = now + progressNanos;
+                }
+            }
+        }
+
+        private void reject(List<ImportReport.Rejection> rejections) {
+            for (ImportReport.Rejection rejection : rejections) {
+                log.warn("Rejected {} line {}: {}", entities, rejection.getLine(), rejection.getErrors());
+                if (reportedRejections.size() < ImportReport.MAX_REPORTED_REJECTIONS) {
+                    reportedRejections.add(rejection);
+                }
+            }
+            rejected += rejections.size();
+        }
+
+        private List<String> violations(D dto) {
+            if (dto == null) {
+                return List.of("must not be null");
+            }
+            return validator.validate(dto).stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .toList();
+        }
+
+        /**
+         * Waits for room in the queue, giving up once another stage has failed so no stage waits forever.
+         */
+        private <T> void put(BlockingQueue<T> queue, T item) throws InterruptedException {
+            while (!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkNotFailed();
+            }
+        }
+
+        private <T> T take(BlockingQueue<T> queue) throws InterruptedException {
+            T item;
+            while ((item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                checkNotFailed();
+            }
+            return item;
+        }
+
+        private void checkNotFailed() {
+            if (failure.get() != null) {
+                throw new CancellationException("Import of " + entities + " failed in another stage");
+            }
+        }
+
+        private void rethrowFailure() {
+            Throwable cause = failure.get();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            if (cause != null) {
+                throw new IllegalStateException("Import of " + entities + " failed", cause);
+            }
+        }
+
+        private Runnable guarded(Stage stage) {
+            return () -> {
+                try {
+                    stage.run();
+                } catch (CancellationException e) {
+                    // another stage failed and recorded why
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            };
+        }
+    }
+
+    private static double recordsPerSecond(long records, long nanos) {
+        return nanos == 0 ? 0.0 : records * 1e9 / nanos;
+    }
+
+    @FunctionalInterface
+    private interface Stage {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Configuration
+@EnableConfigurationProperties(RequestLoggingProperties.class)
+@RequiredArgsConstructor
+public class RequestLoggingConfiguration implements WebMvcConfigurer {
+    private final RequestLoggingProperties properties;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new RequestLoggingInterceptor(properties));
+    }
+}
@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs one line per request with the endpoint, status and time spent, never the payload.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class RequestLoggingInterceptor implements HandlerInterceptor {
+    private static final String START_ATTRIBUTE = RequestLoggingInterceptor.class.getName() + ".start";
+
+    private final RequestLoggingProperties properties;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(START_ATTRIBUTE) == null) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start == null || !log.isInfoEnabled()) {
+            return;
+        }
+        int status = response.getStatus();
+        boolean failed = ex != null || status >= 400;
+        if (!failed && !sampled()) {
+            return;
+        }
+        String endpoint = request.getMethod() + " " + pattern(request);
+        RequestLoggingProperties.Verbosity verbosity =
+                properties.getEndpoints().getOrDefault(endpoint, properties.getDefaultVerbosity());
+        if (verbosity == RequestLoggingProperties.Verbosity.OFF && !failed) {
+            return;
+        }
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - (long) start);
+        if (verbosity == RequestLoggingProperties.Verbosity.FULL) {
+            log.info("{} {} status={} timeUs={} query={} handler={}", endpoint, request.getRequestURI(), status,
+                    micros, request.getQueryString(), handlerName(handler));
+        } else {
+            log.info("{} status={} timeUs={}", endpoint, status, micros);
+        }
+    }
+
+    private boolean sampled() {
+        double sampleRate = properties.getSampleRate();
+        return sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    private static Object pattern(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern : request.getRequestURI();
+    }
+
+    private static String handlerName(Object handler) {
+        if (handler instanceof HandlerMethod handlerMethod) {
+            return handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName();
+        }
+        return String.valueOf(handler);
+    }
+}
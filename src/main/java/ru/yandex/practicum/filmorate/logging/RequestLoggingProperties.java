@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties("filmorate.request-logging")
+public class RequestLoggingProperties {
+    /**
+     * Share of successful requests that get logged, from 0.0 to 1.0. Failed requests are always logged.
+     */
+    private double sampleRate = 1.0;
+    private Verbosity defaultVerbosity = Verbosity.SUMMARY;
+    /**
+     * Verbosity per endpoint, keyed by method and mapping pattern,
+     * e.g. {@code endpoints[GET\ /films/{id}]=OFF} in application.properties.
+     */
+    private Map<String, Verbosity> endpoints = new HashMap<>();
+
+    public enum Verbosity {
+        OFF,
+        SUMMARY,
+        FULL
+    }
+}
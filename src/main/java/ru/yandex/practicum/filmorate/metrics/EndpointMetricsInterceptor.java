@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts requests and errors per controller method. Counters of a method are registered on its first request
+ * and looked up by the method afterwards, so counting a request allocates nothing.
+ * A request fails with a client error on a 4xx status, and with a server error on a 5xx status
+ * or an exception that no resolver turned into a response.
+ */
+@RequiredArgsConstructor
+public class EndpointMetricsInterceptor implements HandlerInterceptor {
+    private final MeterRegistry meterRegistry;
+    private final Map<Method, EndpointCounters> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return;
+        }
+        EndpointCounters endpoint = counters.get(handlerMethod.getMethod());
+        if (endpoint == null) {
+            endpoint = counters.computeIfAbsent(handlerMethod.getMethod(),
+                    method -> new EndpointCounters(handlerMethod.getBeanType().getSimpleName(), method.getName()));
+        }
+        endpoint.requests.increment();
+        int status = response.getStatus();
+        if (ex != null || status >= 500) {
+            endpoint.serverErrors.increment();
+        } else if (status >= 400) {
+            endpoint.clientErrors.increment();
+        }
+    }
+
+    private final class EndpointCounters {
+        private final Counter requests;
+        private final Counter clientErrors;
+        private final Counter serverErrors;
+
+        private EndpointCounters(String controller, String method) {
+            requests = Counter.builder("filmorate.endpoint.requests")
+                    .description("Requests handled by a controller method")
+                    .tag("controller", controller)
+                    .tag("method", method)
+                    .register(meterRegistry);
+            clientErrors = errors(controller, method, "client");
+            serverErrors = errors(controller, method, "server");
+        }
+
+        private Counter errors(String controller, String method, String kind) {
+            return Counter.builder("filmorate.endpoint.errors")
+                    .description("Requests a controller method failed")
+                    .tag("controller", controller)
+                    .tag("method", method)
+                    .tag("kind", kind)
+                    .register(meterRegistry);
+        }
+    }
+}
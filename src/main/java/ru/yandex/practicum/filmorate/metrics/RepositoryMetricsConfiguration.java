@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import ru.yandex.practicum.filmorate.infrastructure.InMemoryFilmRepository;
+import ru.yandex.practicum.filmorate.infrastructure.InMemoryUserRepository;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+import ru.yandex.practicum.filmorate.repository.UserRepository;
+import ru.yandex.practicum.filmorate.util.IdGenerator;
+import ru.yandex.practicum.filmorate.util.IdSequence;
+
+/**
+ * Timers around the repositories that controllers and the importer use, and meters read only when scraped:
+ * numbers of stored entities and ids handed out so far, whose rate is the id allocation rate.
+ */
+@Configuration
+public class RepositoryMetricsConfiguration {
+
+    @Bean
+    @Primary
+    public FilmRepository timedFilmRepository(InMemoryFilmRepository films, MeterRegistry meterRegistry) {
+        return new TimedFilmRepository(films, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public UserRepository timedUserRepository(InMemoryUserRepository users, MeterRegistry meterRegistry) {
+        return new TimedUserRepository(users, meterRegistry);
+    }
+
+    @Bean
+    public MeterBinder entityMetrics(InMemoryFilmRepository films, InMemoryUserRepository users,
+                                     IdGenerator idGenerator) {
+        return meterRegistry -> {
+            Gauge.builder("filmorate.entities", films, repository -> repository.snapshot().size())
+                    .description("Stored entities")
+                    .tag("entity", "films")
+                    .register(meterRegistry);
+            Gauge.builder("filmorate.entities", users, repository -> repository.snapshot().size())
+                    .description("Stored entities")
+                    .tag("entity", "users")
+                    .register(meterRegistry);
+            FunctionCounter.builder("filmorate.ids.allocated", idGenerator.getFilmIds(), IdSequence::last)
+                    .description("Ids handed out, including ones restored from persisted state")
+                    .tag("entity", "films")
+                    .register(meterRegistry);
+            FunctionCounter.builder("filmorate.ids.allocated", idGenerator.getUserIds(), IdSequence::last)
+                    .description("Ids handed out, including ones restored from persisted state")
+                    .tag("entity", "users")
+                    .register(meterRegistry);
+        };
+    }
+}
@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+
+final class RepositoryTimers {
+    /**
+     * Histogram range of repository calls: reads of the in-memory maps take well under a microsecond,
+     * writes that wait for the journal take milliseconds.
+     */
+    private static final Duration MIN_EXPECTED = Duration.ofNanos(100);
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(10);
+
+    private RepositoryTimers() {
+    }
+
+    static Timer register(MeterRegistry meterRegistry, String repository, String method) {
+        return Timer.builder("filmorate.repository.calls")
+                .description("Latency of repository calls")
+                .tag("repository", repository)
+                .tag("method", method)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED)
+                .maximumExpectedValue(MAX_EXPECTED)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,203 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Times the calls of the wrapped repository. Timers are registered once, and a call only reads the clock twice
+ * and records the difference, so timing allocates nothing. {@link #version()} and {@link #findAll()} are not timed:
+ * the first reads one field on every conditional request, where the timer would cost more than the call, and the
+ * second only returns a view that is scanned later, while the response is written.
+ */
+public class TimedFilmRepository implements FilmRepository {
+    private final FilmRepository films;
+    private final Timer create;
+    private final Timer createAll;
+    private final Timer findBy;
+    private final Timer findAllBy;
+    private final Timer findAllAfter;
+    private final Timer findAllReleasedBetween;
+    private final Timer search;
+    private final Timer suggest;
+    private final Timer findPopular;
+    private final Timer like;
+    private final Timer unlike;
+    private final Timer update;
+    private final Timer updateAll;
+
+    public TimedFilmRepository(FilmRepository films, MeterRegistry meterRegistry) {
+        this.films = films;
+        this.create = RepositoryTimers.register(meterRegistry, "films", "create");
+        this.createAll = RepositoryTimers.register(meterRegistry, "films", "createAll");
+        this.findBy = RepositoryTimers.register(meterRegistry, "films", "findBy");
+        this.findAllBy = RepositoryTimers.register(meterRegistry, "films", "findAllBy");
+        this.findAllAfter = RepositoryTimers.register(meterRegistry, "films", "findAllAfter");
+        this.findAllReleasedBetween = RepositoryTimers.register(meterRegistry, "films", "findAllReleasedBetween");
+        this.search = RepositoryTimers.register(meterRegistry, "films", "search");
+        this.suggest = RepositoryTimers.register(meterRegistry, "films", "suggest");
+        this.findPopular = RepositoryTimers.register(meterRegistry, "films", "findPopular");
+        this.like = RepositoryTimers.register(meterRegistry, "films", "like");
+        this.unlike = RepositoryTimers.register(meterRegistry, "films", "unlike");
+        this.update = RepositoryTimers.register(meterRegistry, "films", "update");
+        this.updateAll = RepositoryTimers.register(meterRegistry, "films", "updateAll");
+    }
+
+    @Override
+    public Film create(Film film) {
+        long start = System.nanoTime();
+        try {
+            return films.create(film);
+        } finally {
+            create.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<Film> createAll(List<Film> newFilms) {
+        long start = System.nanoTime();
+        try {
+            return films.createAll(newFilms);
+        } finally {
+            createAll.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Optional<Film> findBy(Long id) {
+        long start = System.nanoTime();
+        try {
+            return films.findBy(id);
+        } finally {
+            findBy.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<Film> findAllBy(Collection<Long> ids) {
+        long start = System.nanoTime();
+        try {
+            return films.findAllBy(ids);
+        } finally {
+            findAllBy.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        return films.findAll();
+    }
+
+    @Override
+    public List<Film> findAllAfter(long afterId, int limit) {
+        long start = System.nanoTime();
+        try {
+            return films.findAllAfter(afterId, limit);
+        } finally {
+            findAllAfter.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<Film> findAllReleasedBetween(LocalDate from, LocalDate to, long after, int limit) {
+        long start = System.nanoTime();
+        try {
+            return films.findAllReleasedBetween(from, to, after, limit);
+        } finally {
+            findAllReleasedBetween.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<Film> search(String query, int offset, int limit) {
+        long start = System.nanoTime();
+        try {
+            return films.search(query, offset, limit);
+        } finally {
+            search.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<Film> suggest(String prefix, int limit) {
+        long start = System.nanoTime();
+        try {
+            return films.suggest(prefix, limit);
+        } finally {
+            suggest.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<Film> findPopular(int count) {
+        long start = System.nanoTime();
+        try {
+            return films.findPopular(count);
+        } finally {
+            findPopular.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public boolean like(long filmId, long userId) {
+        long start = System.nanoTime();
+        try {
+            return films.like(filmId, userId);
+        } finally {
+            like.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public boolean unlike(long filmId, long userId) {
+        long start = System.nanoTime();
+        try {
+            return films.unlike(filmId, userId);
+        } finally {
+            unlike.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public long version() {
+        return films.version();
+    }
+
+    @Override
+    public Film update(Film film) {
+        long start = System.nanoTime();
+        try {
+            return films.update(film);
+        } finally {
+            update.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Optional<Film> update(long id, UnaryOperator<Film> change) {
+        long start = System.nanoTime();
+        try {
+            return films.update(id, change);
+        } finally {
+            update.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<Film> updateAll(List<Film> changedFilms) {
+        long start = System.nanoTime();
+        try {
+            return films.updateAll(changedFilms);
+        } finally {
+            updateAll.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
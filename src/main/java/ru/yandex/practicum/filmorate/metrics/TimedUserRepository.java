@@ -0,0 +1,214 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.UserRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Times the calls of the wrapped repository. Timers are registered once, and a call only reads the clock twice
+ * and records the difference, so timing allocates nothing. {@link #version()} and {@link #findAll()} are not timed:
+ * the first reads one field on every conditional request, where the timer would cost more than the call, and the
+ * second only returns a view that is scanned later, while the response is written.
+ */
+public class TimedUserRepository implements UserRepository {
+    private final UserRepository users;
+    private final Timer create;
+    private final Timer createAll;
+    private final Timer findBy;
+    private final Timer findAllBy;
+    private final Timer findByEmail;
+    private final Timer findByLogin;
+    private final Timer suggest;
+    private final Timer findFriends;
+    private final Timer findCommonFriends;
+    private final Timer addFriend;
+    private final Timer removeFriend;
+    private final Timer findAllAfter;
+    private final Timer update;
+    private final Timer updateAll;
+
+    public TimedUserRepository(UserRepository users, MeterRegistry meterRegistry) {
+        this.users = users;
+        this.create = RepositoryTimers.register(meterRegistry, "users", "create");
+        this.createAll = RepositoryTimers.register(meterRegistry, "users", "createAll");
+        this.findBy = RepositoryTimers.register(meterRegistry, "users", "findBy");
+        this.findAllBy = RepositoryTimers.register(meterRegistry, "users", "findAllBy");
+        this.findByEmail = RepositoryTimers.register(meterRegistry, "users", "findByEmail");
+        this.findByLogin = RepositoryTimers.register(meterRegistry, "users", "findByLogin");
+        this.suggest = RepositoryTimers.register(meterRegistry, "users", "suggest");
+        this.findFriends = RepositoryTimers.register(meterRegistry, "users", "findFriends");
+        this.findCommonFriends = RepositoryTimers.register(meterRegistry, "users", "findCommonFriends");
+        this.addFriend = RepositoryTimers.register(meterRegistry, "users", "addFriend");
+        this.removeFriend = RepositoryTimers.register(meterRegistry, "users", "removeFriend");
+        this.findAllAfter = RepositoryTimers.register(meterRegistry, "users", "findAllAfter");
+        this.update = RepositoryTimers.register(meterRegistry, "users", "update");
+        this.updateAll = RepositoryTimers.register(meterRegistry, "users", "updateAll");
+    }
+
+    @Override
+    public User create(User user) {
+        long start = System.nanoTime();
+        try {
+            return users.create(user);
+        } finally {
+            create.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<User> createAll(List<User> newUsers) {
+        long start = System.nanoTime();
+        try {
+            return users.createAll(newUsers);
+        } finally {
+            createAll.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Optional<User> findBy(Long id) {
+        long start = System.nanoTime();
+        try {
+            return users.findBy(id);
+        } finally {
+            findBy.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<User> findAllBy(Collection<Long> ids) {
+        long start = System.nanoTime();
+        try {
+            return users.findAllBy(ids);
+        } finally {
+            findAllBy.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        long start = System.nanoTime();
+        try {
+            return users.findByEmail(email);
+        } finally {
+            findByEmail.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Optional<User> findByLogin(String login) {
+        long start = System.nanoTime();
+        try {
+            return users.findByLogin(login);
+        } finally {
+            findByLogin.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<User> suggest(String prefix, int limit) {
+        long start = System.nanoTime();
+        try {
+            return users.suggest(prefix, limit);
+        } finally {
+            suggest.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<User> findFriends(long id) {
+        long start = System.nanoTime();
+        try {
+            return users.findFriends(id);
+        } finally {
+            findFriends.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<User> findCommonFriends(long id, long otherId) {
+        long start = System.nanoTime();
+        try {
+            return users.findCommonFriends(id, otherId);
+        } finally {
+            findCommonFriends.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public boolean addFriend(long id, long friendId) {
+        long start = System.nanoTime();
+        try {
+            return users.addFriend(id, friendId);
+        } finally {
+            addFriend.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public boolean removeFriend(long id, long friendId) {
+        long start = System.nanoTime();
+        try {
+            return users.removeFriend(id, friendId);
+        } finally {
+            removeFriend.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        return users.findAll();
+    }
+
+    @Override
+    public List<User> findAllAfter(long afterId, int limit) {
+        long start = System.nanoTime();
+        try {
+            return users.findAllAfter(afterId, limit);
+        } finally {
+            findAllAfter.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public long version() {
+        return users.version();
+    }
+
+    @Override
+    public User update(User user) {
+        long start = System.nanoTime();
+        try {
+            return users.update(user);
+        } finally {
+            update.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Optional<User> update(long id, UnaryOperator<User> change) {
+        long start = System.nanoTime();
+        try {
+            return users.update(id, change);
+        } finally {
+            update.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<User> updateAll(List<User> changedUsers) {
+        long start = System.nanoTime();
+        try {
+            return users.updateAll(changedUsers);
+        } finally {
+            updateAll.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
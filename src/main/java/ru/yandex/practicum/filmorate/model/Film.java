@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.model;
 
 import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -11,6 +12,7 @@ import java.time.LocalDate;
  * Film.
  */
 @Data
+@Builder(toBuilder = true)
 @AllArgsConstructor
 @NoArgsConstructor
 public class Film {
@@ -19,4 +21,12 @@ public class Film {
     private String description;
     private LocalDate releaseDate;
     private Duration duration;
+    /**
+     * Number of times the film was saved, set by the repository. Every update makes it one greater.
+     */
+    private long version;
+
+    public Film(Long id, String name, String description, LocalDate releaseDate, Duration duration) {
+        this(id, name, description, releaseDate, duration, 0L);
+    }
 }
@@ -1,12 +1,14 @@
 package ru.yandex.practicum.filmorate.model;
 
 import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
 
 @Data
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class User {
@@ -15,4 +17,12 @@ public class User {
     private String login;
     private String name;
     private LocalDate birthday;
+    /**
+     * Number of times the user was saved, set by the repository. Every update makes it one greater.
+     */
+    private long version;
+
+    public User(Long id, String email, String login, String name, LocalDate birthday) {
+        this(id, email, login, name, birthday, 0L);
+    }
 }
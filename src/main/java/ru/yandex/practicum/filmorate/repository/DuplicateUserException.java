@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Thrown when a save would give two users the same email or login. Nothing of the failed call is saved.
+ */
+@Getter
+public class DuplicateUserException extends RuntimeException {
+    /**
+     * Positions of the conflicting users in the list that was saved, 0 for a single user, with what they conflict on.
+     */
+    private final SortedMap<Integer, String> conflicts;
+
+    public DuplicateUserException(Map<Integer, String> conflicts) {
+        super("Users conflict with existing ones: " + conflicts);
+        this.conflicts = new TreeMap<>(conflicts);
+    }
+}
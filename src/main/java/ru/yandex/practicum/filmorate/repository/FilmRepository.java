@@ -2,16 +2,94 @@ package ru.yandex.practicum.filmorate.repository;
 
 import ru.yandex.practicum.filmorate.model.Film;
 
+import java.time.LocalDate;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.UnaryOperator;
 
 public interface FilmRepository {
 
     Film create(Film film);
 
+    /**
+     * Creates all films in one pass. They get consecutive ids in list order.
+     */
+    List<Film> createAll(List<Film> films);
+
     Optional<Film> findBy(Long id);
 
+    /**
+     * Returns the films with the given ids that exist, ordered by id, all read from one point-in-time view.
+     */
+    List<Film> findAllBy(Collection<Long> ids);
+
+    /**
+     * Returns a point-in-time view of all films ordered by id. Writes made after the call are not visible in it.
+     */
     Collection<Film> findAll();
 
+    /**
+     * Returns up to {@code limit} films with ids greater than {@code afterId}, ordered by id.
+     */
+    List<Film> findAllAfter(long afterId, int limit);
+
+    /**
+     * Returns up to {@code limit} films released from {@code from} to {@code to} inclusive, ordered by
+     * release date and then id, that come after the {@link ReleaseOrder} position {@code after}.
+     * Pass 0 for the first page and the position of the last film for the next one.
+     */
+    List<Film> findAllReleasedBetween(LocalDate from, LocalDate to, long after, int limit);
+
+    /**
+     * Returns films whose name or description contain every word of the query, best match first,
+     * skipping the first {@code offset} matches. Words are runs of letters and digits and ignore case.
+     */
+    List<Film> search(String query, int offset, int limit);
+
+    /**
+     * Returns up to {@code limit} films whose name starts with the prefix, ignoring case, ordered by name.
+     */
+    List<Film> suggest(String prefix, int limit);
+
+    /**
+     * Returns up to {@code count} films with the most likes, most first, then by id.
+     * Films without likes come last, so every film is ranked.
+     */
+    List<Film> findPopular(int count);
+
+    /**
+     * Records that the user likes the film. Returns false if there is no such film or the user likes it already.
+     * Likes do not change the film or catalog versions.
+     */
+    boolean like(long filmId, long userId);
+
+    /**
+     * Takes back a like of the film by the user. Returns false if there is no such film or no such like.
+     */
+    boolean unlike(long filmId, long userId);
+
+    /**
+     * Version of the whole catalog: it grows with every saved film, so an unchanged version means unchanged films.
+     * Read it before the films it should describe, so they are never older than the version.
+     */
+    long version();
+
+    /**
+     * Replaces the stored film and makes its version one greater. Stored films are shared with readers,
+     * so change a copy instead of the found instance.
+     */
     Film update(Film film);
+
+    /**
+     * Replaces the stored film with the result of the change, applied to a copy of it while no other save of the
+     * film can run, so concurrent changes of different fields are all kept. The change must keep the id.
+     * Returns empty if there is no such film.
+     */
+    Optional<Film> update(long id, UnaryOperator<Film> change);
+
+    /**
+     * Replaces all given films in one pass, in list order.
+     */
+    List<Film> updateAll(List<Film> films);
 }
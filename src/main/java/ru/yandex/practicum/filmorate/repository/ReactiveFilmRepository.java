@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Non-blocking counterpart of {@link FilmRepository}: nothing happens until a result is subscribed to,
+ * and no method parks the subscribing thread.
+ */
+public interface ReactiveFilmRepository {
+
+    Mono<Film> create(Film film);
+
+    /**
+     * Creates all films in one pass. They get consecutive ids in list order.
+     */
+    Flux<Film> createAll(List<Film> films);
+
+    Mono<Film> findBy(Long id);
+
+    /**
+     * Emits the films with the given ids that exist, ordered by id, all read from one point-in-time view.
+     */
+    Flux<Film> findAllBy(Collection<Long> ids);
+
+    /**
+     * Emits a point-in-time view of all films ordered by id, as fast as the subscriber requests them.
+     */
+    Flux<Film> findAll();
+
+    /**
+     * Emits up to {@code limit} films with ids greater than {@code afterId}, ordered by id.
+     */
+    Flux<Film> findAllAfter(long afterId, int limit);
+
+    /**
+     * Emits a page of films released in the date range, see {@link FilmRepository#findAllReleasedBetween}.
+     */
+    Flux<Film> findAllReleasedBetween(LocalDate from, LocalDate to, long after, int limit);
+
+    /**
+     * Emits the films matching the query, best match first, see {@link FilmRepository#search}.
+     */
+    Flux<Film> search(String query, int offset, int limit);
+
+    /**
+     * Emits the films whose name starts with the prefix, see {@link FilmRepository#suggest}.
+     */
+    Flux<Film> suggest(String prefix, int limit);
+
+    /**
+     * Emits the films with the most likes, most first, see {@link FilmRepository#findPopular}.
+     */
+    Flux<Film> findPopular(int count);
+
+    /**
+     * Emits whether the like was added once it is durable, see {@link FilmRepository#like}.
+     */
+    Mono<Boolean> like(long filmId, long userId);
+
+    /**
+     * Emits whether the like was removed once that is durable, see {@link FilmRepository#unlike}.
+     */
+    Mono<Boolean> unlike(long filmId, long userId);
+
+    /**
+     * Version of the whole catalog, see {@link FilmRepository#version()}.
+     */
+    Mono<Long> version();
+
+    /**
+     * Replaces the stored film and makes its version one greater.
+     */
+    Mono<Film> update(Film film);
+
+    /**
+     * Emits the changed film once it is durable, or completes empty if there is no such film,
+     * see {@link FilmRepository#update(long, UnaryOperator)}.
+     */
+    Mono<Film> update(long id, UnaryOperator<Film> change);
+
+    /**
+     * Replaces all given films in one pass, in list order.
+     */
+    Flux<Film> updateAll(List<Film> films);
+}
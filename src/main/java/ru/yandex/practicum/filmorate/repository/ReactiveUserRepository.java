@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Non-blocking counterpart of {@link UserRepository}: nothing happens until a result is subscribed to,
+ * and no method parks the subscribing thread.
+ */
+public interface ReactiveUserRepository {
+
+    Mono<User> create(User user);
+
+    /**
+     * Creates all users in one pass. They get consecutive ids in list order.
+     */
+    Flux<User> createAll(List<User> users);
+
+    Mono<User> findBy(Long id);
+
+    /**
+     * Emits the users with the given ids that exist, ordered by id, all read from one point-in-time view.
+     */
+    Flux<User> findAllBy(Collection<Long> ids);
+
+    /**
+     * Emits the user with the email, ignoring case.
+     */
+    Mono<User> findByEmail(String email);
+
+    Mono<User> findByLogin(String login);
+
+    /**
+     * Emits the users whose login starts with the prefix, see {@link UserRepository#suggest}.
+     */
+    Flux<User> suggest(String prefix, int limit);
+
+    /**
+     * Emits the friends of the user ordered by id, see {@link UserRepository#findFriends}.
+     */
+    Flux<User> findFriends(long id);
+
+    /**
+     * Emits the users who are friends of both users ordered by id, see {@link UserRepository#findCommonFriends}.
+     */
+    Flux<User> findCommonFriends(long id, long otherId);
+
+    /**
+     * Emits whether the users became friends once that is durable, see {@link UserRepository#addFriend}.
+     */
+    Mono<Boolean> addFriend(long id, long friendId);
+
+    /**
+     * Emits whether the friendship ended once that is durable, see {@link UserRepository#removeFriend}.
+     */
+    Mono<Boolean> removeFriend(long id, long friendId);
+
+    /**
+     * Emits a point-in-time view of all users ordered by id, as fast as the subscriber requests them.
+     */
+    Flux<User> findAll();
+
+    /**
+     * Emits up to {@code limit} users with ids greater than {@code afterId}, ordered by id.
+     */
+    Flux<User> findAllAfter(long afterId, int limit);
+
+    /**
+     * Version of the whole catalog, see {@link UserRepository#version()}.
+     */
+    Mono<Long> version();
+
+    /**
+     * Replaces the stored user and makes its version one greater.
+     */
+    Mono<User> update(User user);
+
+    /**
+     * Emits the changed user once it is durable, or completes empty if there is no such user,
+     * see {@link UserRepository#update(long, UnaryOperator)}.
+     */
+    Mono<User> update(long id, UnaryOperator<User> change);
+
+    /**
+     * Replaces all given users in one pass, in list order.
+     */
+    Flux<User> updateAll(List<User> users);
+}
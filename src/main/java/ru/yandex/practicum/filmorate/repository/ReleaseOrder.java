@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+
+/**
+ * Order of films by release date and then id, as non-negative {@code long} positions: the days since 0001-01-01
+ * in the high bits and the id in the low {@value #ID_BITS} bits. Positions compare like the pairs they encode,
+ * so the position of the last film of a page is the cursor for the next one.
+ * Dates outside the years 1 to about 23,000 take the position of the nearest date inside them.
+ */
+public final class ReleaseOrder {
+    public static final int ID_BITS = 40;
+    private static final long MAX_ID = (1L << ID_BITS) - 1;
+    private static final long MAX_DAY = (1L << (Long.SIZE - 1 - ID_BITS)) - 1;
+    private static final long FIRST_EPOCH_DAY = LocalDate.of(1, 1, 1).toEpochDay();
+
+    private ReleaseOrder() {
+    }
+
+    /**
+     * Position of the film, which must have a release date.
+     */
+    public static long positionOf(Film film) {
+        long id = film.getId();
+        if (id < 0 || id > MAX_ID) {
+            throw new IllegalArgumentException("Film id does not fit in a release order position: " + id);
+        }
+        return day(film.getReleaseDate()) << ID_BITS | id;
+    }
+
+    /**
+     * Position before every film released on the date.
+     */
+    public static long firstPositionOf(LocalDate date) {
+        return day(date) << ID_BITS;
+    }
+
+    /**
+     * Position after every film released on the date.
+     */
+    public static long lastPositionOf(LocalDate date) {
+        return day(date) << ID_BITS | MAX_ID;
+    }
+
+    public static long idOf(long position) {
+        return position & MAX_ID;
+    }
+
+    private static long day(LocalDate date) {
+        return Math.min(Math.max(date.toEpochDay() - FIRST_EPOCH_DAY, 0L), MAX_DAY);
+    }
+}
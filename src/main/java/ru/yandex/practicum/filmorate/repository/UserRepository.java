@@ -3,15 +3,95 @@ package ru.yandex.practicum.filmorate.repository;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.UnaryOperator;
 
+/**
+ * Emails, compared ignoring case, and logins are unique: saves that would repeat one of another user throw
+ * {@link DuplicateUserException}, and a batch that has such a user saves none of them.
+ */
 public interface UserRepository {
 
     User create(User user);
 
+    /**
+     * Creates all users in one pass. They get consecutive ids in list order.
+     */
+    List<User> createAll(List<User> users);
+
     Optional<User> findBy(Long id);
 
+    /**
+     * Returns the users with the given ids that exist, ordered by id, all read from one point-in-time view.
+     */
+    List<User> findAllBy(Collection<Long> ids);
+
+    /**
+     * Finds the user with the email, ignoring case.
+     */
+    Optional<User> findByEmail(String email);
+
+    Optional<User> findByLogin(String login);
+
+    /**
+     * Returns up to {@code limit} users whose login starts with the prefix, ignoring case, ordered by login.
+     */
+    List<User> suggest(String prefix, int limit);
+
+    /**
+     * Returns the friends of the user ordered by id. Friendships are mutual.
+     */
+    List<User> findFriends(long id);
+
+    /**
+     * Returns the users who are friends of both users, ordered by id.
+     */
+    List<User> findCommonFriends(long id, long otherId);
+
+    /**
+     * Makes the users friends of each other. Returns false if either user does not exist, the ids are the same
+     * or the users are friends already. Friendships do not change the user or catalog versions.
+     */
+    boolean addFriend(long id, long friendId);
+
+    /**
+     * Ends the friendship of the users. Returns false if either user does not exist or they are not friends.
+     */
+    boolean removeFriend(long id, long friendId);
+
+    /**
+     * Returns a point-in-time view of all users ordered by id. Writes made after the call are not visible in it.
+     */
     Collection<User> findAll();
 
+    /**
+     * Returns up to {@code limit} users with ids greater than {@code afterId}, ordered by id.
+     */
+    List<User> findAllAfter(long afterId, int limit);
+
+    /**
+     * Version of the whole catalog: it grows with every saved user, so an unchanged version means unchanged users.
+     * Read it before the users it should describe, so they are never older than the version.
+     */
+    long version();
+
+    /**
+     * Replaces the stored user and makes its version one greater. Stored users are shared with readers,
+     * so change a copy instead of the found instance.
+     */
     User update(User user);
+
+    /**
+     * Replaces the stored user with the result of the change, applied to a copy of it while no other save of the
+     * user can run, so concurrent changes of different fields are all kept. The change must keep the id.
+     * Returns empty if there is no such user. Throws {@link DuplicateUserException}
+     * if the changed user takes the email or login of another user.
+     */
+    Optional<User> update(long id, UnaryOperator<User> change);
+
+    /**
+     * Replaces all given users in one pass, in list order.
+     */
+    List<User> updateAll(List<User> users);
 }
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Threads for background work of the same kind as the request threads: virtual when
+ * {@code spring.threads.virtual.enabled} is set, daemon platform threads otherwise.
+ */
+@Component
+public class BackgroundThreads {
+    private final boolean virtual;
+
+    public BackgroundThreads(@Value("${spring.threads.virtual.enabled:false}") boolean virtual) {
+        this.virtual = virtual;
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Factory of threads named with the given prefix and a counter starting from zero.
+     */
+    public ThreadFactory factory(String namePrefix) {
+        if (virtual) {
+            return Thread.ofVirtual().name(namePrefix, 0).factory();
+        }
+        return Thread.ofPlatform().name(namePrefix, 0).daemon(true).factory();
+    }
+}
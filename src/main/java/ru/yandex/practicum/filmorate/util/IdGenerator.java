@@ -1,14 +1,33 @@
 package ru.yandex.practicum.filmorate.util;
 
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+@Component
+@Getter
 public class IdGenerator {
-    private static long filmsIdCounter = 1L;
-    private static long usersIdCounter = 1L;
+    private final IdSequence filmIds = new IdSequence();
+    private final IdSequence userIds = new IdSequence();
+
+    public long generateFilmId() {
+        return filmIds.next();
+    }
+
+    public long generateUserId() {
+        return userIds.next();
+    }
 
-    public static synchronized long generateFilmId() {
-        return filmsIdCounter++;
+    /**
+     * Reserves {@code count} consecutive film ids and returns the first of them.
+     */
+    public long generateFilmIds(int count) {
+        return filmIds.reserve(count);
     }
 
-    public static synchronized long generateUserId() {
-        return usersIdCounter++;
+    /**
+     * Reserves {@code count} consecutive user ids and returns the first of them.
+     */
+    public long generateUserIds(int count) {
+        return userIds.reserve(count);
     }
 }
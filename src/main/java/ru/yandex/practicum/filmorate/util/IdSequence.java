@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free sequence of positive ids for one entity type.
+ */
+public class IdSequence {
+    private final AtomicLong nextId = new AtomicLong(1L);
+
+    public long next() {
+        return nextId.getAndIncrement();
+    }
+
+    /**
+     * Hands out {@code count} consecutive ids at once and returns the first of them.
+     */
+    public long reserve(int count) {
+        return nextId.getAndAdd(count);
+    }
+
+    /**
+     * Makes sure the sequence never hands out {@code id} or anything below it,
+     * e.g. after entities were restored from persisted state.
+     */
+    public void advancePast(long id) {
+        nextId.accumulateAndGet(id + 1, Math::max);
+    }
+
+    public long last() {
+        return nextId.get() - 1;
+    }
+}
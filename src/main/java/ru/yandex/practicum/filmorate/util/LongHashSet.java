@@ -0,0 +1,138 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+
+/**
+ * Set of longs in one open-addressing array with linear probing, so an element costs eight to sixteen bytes
+ * instead of a boxed key in a hash map node. Removal shifts the following entries back instead of leaving
+ * tombstones, so lookups never slow down over time. Not thread-safe.
+ */
+public final class LongHashSet {
+    private static final long FREE = 0L;
+    private static final int MIN_CAPACITY = 4;
+
+    private long[] slots = new long[MIN_CAPACITY];
+    private boolean hasZero;
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(long value) {
+        if (value == FREE) {
+            return hasZero;
+        }
+        int mask = slots.length - 1;
+        for (int i = mix(value) & mask; slots[i] != FREE; i = (i + 1) & mask) {
+            if (slots[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the value and returns true, or returns false if the set has it already.
+     */
+    public boolean add(long value) {
+        if (value == FREE) {
+            if (hasZero) {
+                return false;
+            }
+            hasZero = true;
+            size++;
+            return true;
+        }
+        int mask = slots.length - 1;
+        int i = mix(value) & mask;
+        for (; slots[i] != FREE; i = (i + 1) & mask) {
+            if (slots[i] == value) {
+                return false;
+            }
+        }
+        slots[i] = value;
+        size++;
+        if (size * 4 > slots.length * 3) {
+            resize(slots.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the value and returns true, or returns false if the set does not have it.
+     */
+    public boolean remove(long value) {
+        if (value == FREE) {
+            if (!hasZero) {
+                return false;
+            }
+            hasZero = false;
+            size--;
+            return true;
+        }
+        int mask = slots.length - 1;
+        int i = mix(value) & mask;
+        for (; slots[i] != value; i = (i + 1) & mask) {
+            if (slots[i] == FREE) {
+                return false;
+            }
+        }
+        int gap = i;
+        for (int j = (gap + 1) & mask; slots[j] != FREE; j = (j + 1) & mask) {
+            int home = mix(slots[j]) & mask;
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                slots[gap] = slots[j];
+                gap = j;
+            }
+        }
+        slots[gap] = FREE;
+        size--;
+        if (slots.length > MIN_CAPACITY && size * 8 < slots.length) {
+            resize(slots.length / 2);
+        }
+        return true;
+    }
+
+    /**
+     * Elements in ascending order.
+     */
+    public long[] toSortedArray() {
+        long[] values = new long[size];
+        int count = 0;
+        if (hasZero) {
+            values[count++] = FREE;
+        }
+        for (long slot : slots) {
+            if (slot != FREE) {
+                values[count++] = slot;
+            }
+        }
+        Arrays.sort(values);
+        return values;
+    }
+
+    private void resize(int capacity) {
+        long[] previous = slots;
+        slots = new long[capacity];
+        int mask = capacity - 1;
+        for (long value : previous) {
+            if (value != FREE) {
+                int i = mix(value) & mask;
+                while (slots[i] != FREE) {
+                    i = (i + 1) & mask;
+                }
+                slots[i] = value;
+            }
+        }
+    }
+
+    private static int mix(long value) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
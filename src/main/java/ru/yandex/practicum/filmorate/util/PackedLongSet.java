@@ -0,0 +1,227 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+
+/**
+ * Immutable sorted set of non-negative longs packed into one byte array as varint deltas from the previous element,
+ * so ids a few thousand apart take two bytes each rather than the eight of a {@code long[]}, or the forty or so
+ * of a boxed {@code Set<Long>} entry. A change returns a new set and costs O(n), which is cheap for the hundreds
+ * of elements it is meant for, like the friends of a user. Two sets intersect in one merge of both.
+ * <p>
+ * Sets are safe to read from any thread once published.
+ */
+public final class PackedLongSet {
+    /**
+     * Room a varint of a non-negative long may take.
+     */
+    private static final int MAX_VARINT_BYTES = 9;
+    private static final long[] NO_VALUES = {};
+    private static final PackedLongSet EMPTY = new PackedLongSet(new byte[0], 0);
+
+    private final byte[] bytes;
+    private final int size;
+
+    private PackedLongSet(byte[] bytes, int size) {
+        this.bytes = bytes;
+        this.size = size;
+    }
+
+    public static PackedLongSet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Packs the first {@code count} values, which must be non-negative and strictly increasing.
+     */
+    public static PackedLongSet of(long[] values, int count) {
+        if (count == 0) {
+            return EMPTY;
+        }
+        byte[] packed = new byte[count * MAX_VARINT_BYTES];
+        int length = 0;
+        long previous = 0L;
+        for (int i = 0; i < count; i++) {
+            if (values[i] < 0 || i > 0 && values[i] <= previous) {
+                throw new IllegalArgumentException("Values must be non-negative and strictly increasing: "
+                        + values[i] + " after " + previous);
+            }
+            length = writeVarint(packed, length, values[i] - previous);
+            previous = values[i];
+        }
+        return new PackedLongSet(Arrays.copyOf(packed, length), count);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Bytes the elements take, without the array and object headers.
+     */
+    public int packedLength() {
+        return bytes.length;
+    }
+
+    public boolean contains(long value) {
+        Cursor cursor = new Cursor();
+        while (cursor.hasNext()) {
+            long next = cursor.next();
+            if (next >= value) {
+                return next == value;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * This set with the value added, or this set itself if it has the value already.
+     */
+    public PackedLongSet with(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Value must be non-negative: " + value);
+        }
+        byte[] packed = new byte[bytes.length + MAX_VARINT_BYTES];
+        int length = 0;
+        long previous = 0L;
+        boolean added = false;
+        Cursor cursor = new Cursor();
+        while (cursor.hasNext()) {
+            long next = cursor.next();
+            if (next == value) {
+                return this;
+            }
+            if (!added && next > value) {
+                length = writeVarint(packed, length, value - previous);
+                previous = value;
+                added = true;
+            }
+            length = writeVarint(packed, length, next - previous);
+            previous = next;
+        }
+        if (!added) {
+            length = writeVarint(packed, length, value - previous);
+        }
+        return new PackedLongSet(Arrays.copyOf(packed, length), size + 1);
+    }
+
+    /**
+     * This set without the value, or this set itself if it does not have the value.
+     */
+    public PackedLongSet without(long value) {
+        if (!contains(value)) {
+            return this;
+        }
+        if (size == 1) {
+            return EMPTY;
+        }
+        byte[] packed = new byte[bytes.length];
+        int length = 0;
+        long previous = 0L;
+        Cursor cursor = new Cursor();
+        while (cursor.hasNext()) {
+            long next = cursor.next();
+            if (next != value) {
+                length = writeVarint(packed, length, next - previous);
+                previous = next;
+            }
+        }
+        return new PackedLongSet(Arrays.copyOf(packed, length), size - 1);
+    }
+
+    /**
+     * Elements in ascending order.
+     */
+    public long[] toArray() {
+        return greaterThan(-1L);
+    }
+
+    /**
+     * Elements greater than the value in ascending order.
+     */
+    public long[] greaterThan(long value) {
+        long[] values = new long[size];
+        int count = 0;
+        Cursor cursor = new Cursor();
+        while (cursor.hasNext()) {
+            long next = cursor.next();
+            if (next > value) {
+                values[count++] = next;
+            }
+        }
+        return count == values.length ? values : Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Elements of both sets in ascending order, found in one merge of the two.
+     */
+    public long[] intersect(PackedLongSet other) {
+        if (isEmpty() || other.isEmpty()) {
+            return NO_VALUES;
+        }
+        long[] common = new long[Math.min(size, other.size)];
+        int count = 0;
+        Cursor left = new Cursor();
+        Cursor right = other.new Cursor();
+        long a = left.next();
+        long b = right.next();
+        while (true) {
+            if (a == b) {
+                common[count++] = a;
+                if (!left.hasNext() || !right.hasNext()) {
+                    break;
+                }
+                a = left.next();
+                b = right.next();
+            } else if (a < b) {
+                if (!left.hasNext()) {
+                    break;
+                }
+                a = left.next();
+            } else {
+                if (!right.hasNext()) {
+                    break;
+                }
+                b = right.next();
+            }
+        }
+        return count == common.length ? common : Arrays.copyOf(common, count);
+    }
+
+    private static int writeVarint(byte[] packed, int length, long value) {
+        while ((value & ~0x7FL) != 0) {
+            packed[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        packed[length++] = (byte) value;
+        return length;
+    }
+
+    /**
+     * Decodes the elements one after another in ascending order.
+     */
+    private final class Cursor {
+        private int position;
+        private long previous;
+
+        private boolean hasNext() {
+            return position < bytes.length;
+        }
+
+        private long next() {
+            long delta = 0L;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                delta |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            previous += delta;
+            return previous;
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.*;
+import java.util.function.ToLongFunction;
+
+/**
+ * Immutable map from non-negative {@code long} keys to non-null values, ordered by key.
+ * It is a 32-way trie over the key bits: leaves hold values directly, so there is no boxing and no
+ * node per entry, and dense keys cost little more than one reference each.
+ * {@link #put} copies only the path to the changed leaf, so every instance is a cheap point-in-time snapshot.
+ */
+public final class PersistentLongMap<V> {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final PersistentLongMap<?> EMPTY = new PersistentLongMap<>(new Object[WIDTH], 0, 0, 0L);
+
+    private final Object[] root;
+    private final int shift;
+    private final int size;
+    private final long version;
+
+    private PersistentLongMap(Object[] root, int shift, int size, long version) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+        this.version = version;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> PersistentLongMap<V> empty() {
+        return (PersistentLongMap<V>) EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Number of puts that led to this map.
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * The same entries under another version, for carrying over a version that was counted before a restart.
+     */
+    public PersistentLongMap<V> withVersion(long newVersion) {
+        return new PersistentLongMap<>(root, shift, size, newVersion);
+    }
+
+    /**
+     * Builder that fills fresh nodes in place, for loading many entries at once without copying paths.
+     */
+    public static <V> Builder<V> builder() {
+        return new Builder<>();
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        Object[] leaf = leaf(key);
+        return leaf == null ? null : (V) leaf[index(key, 0)];
+    }
+
+    /**
+     * Values of the keys that are present, in the order of the keys. Neighbouring keys share one leaf lookup,
+     * so sorted keys are read in a single walk over the trie.
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> getAll(long[] keys) {
+        List<V> values = new ArrayList<>(keys.length);
+        Object[] leaf = null;
+        long leafPrefix = -1L;
+        for (long key : keys) {
+            if (key >>> BITS != leafPrefix) {
+                leaf = leaf(key);
+                leafPrefix = key >>> BITS;
+            }
+            if (leaf != null && leaf[index(key, 0)] != null) {
+                values.add((V) leaf[index(key, 0)]);
+            }
+        }
+        return values;
+    }
+
+    public PersistentLongMap<V> put(long key, V value) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Key must not be negative: " + key);
+        }
+        Objects.requireNonNull(value, "value");
+        Object[] newRoot = root;
+        int newShift = shift;
+        while (!fits(key, newShift)) {
+            Object[] parent = new Object[WIDTH];
+            parent[0] = newRoot;
+            newRoot = parent;
+            newShift += BITS;
+        }
+        int newSize = get(key) == null ? size + 1 : size;
+        return new PersistentLongMap<>(put(newRoot, newShift, key, value), newShift, newSize, version + 1);
+    }
+
+    /**
+     * Puts all values under the keys the function gives, in iteration order. Every node on the changed paths
+     * is copied once for the whole batch instead of once per value.
+     */
+    public PersistentLongMap<V> putAll(Collection<? extends V> values, ToLongFunction<? super V> keyOf) {
+        if (values.isEmpty()) {
+            return this;
+        }
+        Set<Object[]> copied = Collections.newSetFromMap(new IdentityHashMap<>());
+        Object[] newRoot = root;
+        int newShift = shift;
+        int newSize = size;
+        for (V value : values) {
+            long key = keyOf.applyAsLong(value);
+            if (key < 0) {
+                throw new IllegalArgumentException("Key must not be negative: " + key);
+            }
+            Objects.requireNonNull(value, "value");
+            while (!fits(key, newShift)) {
+                Object[] parent = new Object[WIDTH];
+                parent[0] = newRoot;
+                newRoot = parent;
+                copied.add(parent);
+                newShift += BITS;
+            }
+            if (!copied.contains(newRoot)) {
+                newRoot = newRoot.clone();
+                copied.add(newRoot);
+            }
+            Object[] node = newRoot;
+            for (int level = newShift; level > 0; level -= BITS) {
+                int index = index(key, level);
+                Object[] child = (Object[]) node[index];
+                if (child == null) {
+                    child = new Object[WIDTH];
+                    copied.add(child);
+                } else if (!copied.contains(child)) {
+                    child = child.clone();
+                    copied.add(child);
+                }
+                node[index] = child;
+                node = child;
+            }
+            int index = index(key, 0);
+            if (node[index] == null) {
+                newSize++;
+            }
+            node[index] = value;
+        }
+        return new PersistentLongMap<>(newRoot, newShift, newSize, version + values.size());
+    }
+
+    /**
+     * Greatest key in the map, or -1 if it is empty.
+     */
+    public long lastKey() {
+        if (size == 0) {
+            return -1L;
+        }
+        long key = 0L;
+        Object[] node = root;
+        for (int level = shift; ; level -= BITS) {
+            int index = WIDTH - 1;
+            while (node[index] == null) {
+                index--;
+            }
+            key |= (long) index << level;
+            if (level == 0) {
+                return key;
+            }
+            node = (Object[]) node[index];
+        }
+    }
+
+    /**
+     * Values in key order. The view is backed by this snapshot, so it never changes and costs nothing to create.
+     */
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new ValueIterator(0L);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Up to {@code limit} values with keys greater than {@code afterKey}, in key order.
+     */
+    public List<V> valuesAfter(long afterKey, int limit) {
+        List<V> values = new ArrayList<>(Math.min(limit, size));
+        if (afterKey == Long.MAX_VALUE) {
+            return values;
+        }
+        Iterator<V> iterator = new ValueIterator(Math.max(afterKey + 1, 0L));
+        while (values.size() < limit && iterator.hasNext()) {
+            values.add(iterator.next());
+        }
+        return values;
+    }
+
+    private Object[] leaf(long key) {
+        if (key < 0 || !fits(key, shift)) {
+            return null;
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[index(key, level)];
+            if (node == null) {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    private static Object[] put(Object[] node, int level, long key, Object value) {
+        Object[] copy = node == null ? new Object[WIDTH] : node.clone();
+        int index = index(key, level);
+        copy[index] = level == 0 ? value : put((Object[]) copy[index], level - BITS, key, value);
+        return copy;
+    }
+
+    public static final class Builder<V> {
+        private Object[] root = new Object[WIDTH];
+        private int shift;
+        private int size;
+        private long puts;
+        private boolean built;
+
+        private Builder() {
+        }
+
+        public Builder<V> put(long key, V value) {
+            if (built) {
+                throw new IllegalStateException("Map is already built");
+            }
+            if (key < 0) {
+                throw new IllegalArgumentException("Key must not be negative: " + key);
+            }
+            Objects.requireNonNull(value, "value");
+            while (!fits(key, shift)) {
+                Object[] parent = new Object[WIDTH];
+                parent[0] = root;
+                root = parent;
+                shift += BITS;
+            }
+            Object[] node = root;
+            for (int level = shift; level > 0; level -= BITS) {
+                int index = index(key, level);
+                if (node[index] == null) {
+                    node[index] = new Object[WIDTH];
+                }
+                node = (Object[]) node[index];
+            }
+            int index = index(key, 0);
+            if (node[index] == null) {
+                size++;
+            }
+            node[index] = value;
+            puts++;
+            return this;
+        }
+
+        /**
+         * Hands the filled nodes over to the map, so the builder can not be used afterwards.
+         */
+        public PersistentLongMap<V> build() {
+            built = true;
+            return new PersistentLongMap<>(root, shift, size, puts);
+        }
+    }
+
+    private static boolean fits(long key, int shift) {
+        return shift + BITS >= Long.SIZE || key >>> (shift + BITS) == 0;
+    }
+
+    private static int index(long key, int level) {
+        return (int) (key >>> level) & MASK;
+    }
+
+    /**
+     * Depth-first walk over the trie that starts at the first key not less than a given one.
+     */
+    private final class ValueIterator implements Iterator<V> {
+        private final Object[][] nodes = new Object[shift / BITS + 1][];
+        private final int[] indexes = new int[nodes.length];
+        private final int leaf = nodes.length - 1;
+        private int depth;
+        private Object next;
+
+        private ValueIterator(long fromKey) {
+            if (!fits(fromKey, shift)) {
+                depth = -1;
+                return;
+            }
+            nodes[0] = root;
+            for (int level = shift; ; level -= BITS) {
+                indexes[depth] = index(fromKey, level);
+                if (level == 0) {
+                    break;
+                }
+                Object child = nodes[depth][indexes[depth]];
+                if (child == null) {
+                    indexes[depth]++;
+                    break;
+                }
+                nodes[++depth] = (Object[]) child;
+            }
+            seek();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            V value = (V) next;
+            indexes[leaf]++;
+            seek();
+            return value;
+        }
+
+        /**
+         * Moves to the first value at or after the current position.
+         */
+        private void seek() {
+            next = null;
+            while (depth >= 0) {
+                if (indexes[depth] == WIDTH) {
+                    depth--;
+                    if (depth >= 0) {
+                        indexes[depth]++;
+                    }
+                    continue;
+                }
+                Object child = nodes[depth][indexes[depth]];
+                if (child == null) {
+                    indexes[depth]++;
+                } else if (depth == leaf) {
+                    next = child;
+                    return;
+                } else {
+                    nodes[++depth] = (Object[]) child;
+                    indexes[depth] = 0;
+                }
+            }
+        }
+    }
+}
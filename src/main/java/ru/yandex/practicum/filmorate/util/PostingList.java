@@ -0,0 +1,484 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Persistent list of {@code (id, weight)} pairs ordered by id, for one term of an inverted index:
+ * a change returns a new list and leaves the old one as it was.
+ * <p>
+ * Most entries are packed: ids as varint deltas from the previous id, each followed by a weight byte, so dense ids
+ * take two bytes per entry. The packed bytes are split into blocks of {@value #BLOCK} entries whose first id is
+ * stored whole and also kept in a skip table, so a lookup decodes one block instead of the whole list.
+ * The table also holds the greatest weight of each block, so a ranked search can skip blocks that cannot rank.
+ * <p>
+ * An id greater than every packed one is appended to the packed arrays in place. A list only reads the entries
+ * that were packed when it was made, so older lists are unaffected, and the arrays are shared until they are full
+ * and then grow by doubling. Other changes go to small sorted arrays of added and removed ids that are consulted
+ * next to the packed entries, and are packed in once there are more of them than the square root of the list
+ * length, so such a change costs O(√n) rather than the O(n) of packing every time.
+ * <p>
+ * Changes of lists made from one another must not run at the same time; the search index changes each list inside
+ * {@code ConcurrentHashMap.compute}. Reading is safe from any thread once a list is published.
+ */
+public final class PostingList {
+    public static final int MAX_WEIGHT = 255;
+    private static final int BLOCK = 64;
+    private static final int MIN_PENDING = 16;
+    /**
+     * Room an entry may take: a varint of up to ten bytes and a weight byte.
+     */
+    private static final int MAX_ENTRY_BYTES = 11;
+    private static final long[] NO_IDS = {};
+    private static final byte[] NO_WEIGHTS = {};
+    private static final PostingList EMPTY = new PostingList(new Packed(0, 0), 0, 0, 0L, NO_IDS, NO_WEIGHTS, NO_IDS, 0);
+
+    private final Packed packed;
+    private final int packedCount;
+    private final int packedLength;
+    private final long lastPackedId;
+    /**
+     * Entries added since packing. An added id replaces a packed entry with the same id.
+     */
+    private final long[] addedIds;
+    private final byte[] addedWeights;
+    /**
+     * Packed ids removed since packing.
+     */
+    private final long[] removedIds;
+    private final int size;
+
+    private PostingList(Packed packed, int packedCount, int packedLength, long lastPackedId,
+                        long[] addedIds, byte[] addedWeights, long[] removedIds, int size) {
+        this.packed = packed;
+        this.packedCount = packedCount;
+        this.packedLength = packedLength;
+        this.lastPackedId = lastPackedId;
+        this.addedIds = addedIds;
+        this.addedWeights = addedWeights;
+        this.removedIds = removedIds;
+        this.size = size;
+    }
+
+    public static PostingList empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Packs entries whose ids are strictly increasing.
+     */
+    public static PostingList of(long[] ids, byte[] weights, int count) {
+        if (count == 0) {
+            return EMPTY;
+        }
+        Packed packed = new Packed(count * 2 + MAX_ENTRY_BYTES, (count + BLOCK - 1) / BLOCK);
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && ids[i] <= ids[i - 1]) {
+                throw new IllegalArgumentException("Ids must be strictly increasing: " + ids[i] + " after " + ids[i - 1]);
+            }
+            packed = packed.withRoomAfter(i, length);
+            length = packed.append(i, length, i == 0 ? 0L : ids[i - 1], ids[i], weights[i]);
+        }
+        packed.count = count;
+        return new PostingList(packed, count, length, ids[count - 1], NO_IDS, NO_WEIGHTS, NO_IDS, count);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * List with the entry of {@code id} set to {@code weight}, which is capped at {@link #MAX_WEIGHT}.
+     */
+    public PostingList with(long id, int weight) {
+        byte stored = (byte) Math.min(Math.max(weight, 1), MAX_WEIGHT);
+        int index = Arrays.binarySearch(addedIds, id);
+        if ((packedCount == 0 || id > lastPackedId) && index < 0) {
+            return appended(id, stored);
+        }
+        int newSize = weightOf(id) == 0 ? size + 1 : size;
+        long[] ids;
+        byte[] weights;
+        if (index >= 0) {
+            ids = addedIds;
+            weights = addedWeights.clone();
+            weights[index] = stored;
+        } else {
+            int insertAt = -index - 1;
+            ids = insert(addedIds, insertAt, id);
+            weights = new byte[addedWeights.length + 1];
+            System.arraycopy(addedWeights, 0, weights, 0, insertAt);
+            weights[insertAt] = stored;
+            System.arraycopy(addedWeights, insertAt, weights, insertAt + 1, addedWeights.length - insertAt);
+        }
+        return withPending(ids, weights, removedIds, newSize);
+    }
+
+    /**
+     * List without the entry of {@code id}.
+     */
+    public PostingList without(long id) {
+        if (weightOf(id) == 0) {
+            return this;
+        }
+        long[] ids = addedIds;
+        byte[] weights = addedWeights;
+        int index = Arrays.binarySearch(addedIds, id);
+        if (index >= 0) {
+            ids = new long[addedIds.length - 1];
+            weights = new byte[addedIds.length - 1];
+            System.arraycopy(addedIds, 0, ids, 0, index);
+            System.arraycopy(addedIds, index + 1, ids, index, ids.length - index);
+            System.arraycopy(addedWeights, 0, weights, 0, index);
+            System.arraycopy(addedWeights, index + 1, weights, index, weights.length - index);
+        }
+        long[] removed = removedIds;
+        if (packedWeightOf(id) != 0) {
+            removed = insert(removedIds, -Arrays.binarySearch(removedIds, id) - 1, id);
+        }
+        return withPending(ids, weights, removed, size - 1);
+    }
+
+    /**
+     * Weight of {@code id}, or 0 if the list has no entry for it.
+     */
+    public int weightOf(long id) {
+        int added = Arrays.binarySearch(addedIds, id);
+        if (added >= 0) {
+            return addedWeights[added] & 0xFF;
+        }
+        return packedWeightOf(id);
+    }
+
+    /**
+     * Cursor for looking up ids in increasing order, which decodes each block at most once for all of them.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Passes every entry to the consumer in id order.
+     */
+    public void forEach(Consumer consumer) {
+        byte[] bytes = packed.bytes;
+        int added = 0;
+        int removed = 0;
+        int position = 0;
+        long current = 0L;
+        for (int i = 0; i < packedCount; i++) {
+            if (i % BLOCK == 0) {
+                current = 0L;
+            }
+            long value = 0L;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            current += value;
+            int weight = bytes[position++] & 0xFF;
+            while (added < addedIds.length && addedIds[added] < current) {
+                consumer.accept(addedIds[added], addedWeights[added] & 0xFF);
+                added++;
+            }
+            if (added < addedIds.length && addedIds[added] == current) {
+                consumer.accept(current, addedWeights[added] & 0xFF);
+                added++;
+                continue;
+            }
+            while (removed < removedIds.length && removedIds[removed] < current) {
+                removed++;
+            }
+            if (removed < removedIds.length && removedIds[removed] == current) {
+                continue;
+            }
+            consumer.accept(current, weight);
+        }
+        for (; added < addedIds.length; added++) {
+            consumer.accept(addedIds[added], addedWeights[added] & 0xFF);
+        }
+    }
+
+    /**
+     * Passes every entry to the consumer, but skips the packed blocks whose greatest weight the filter rejects.
+     * The filter is asked right before each block, so it may get stricter as entries are consumed.
+     * Packed entries come first in id order, then the entries added since packing in id order.
+     */
+    public void forEachUnlessSkipped(IntPredicate worthReading, Consumer consumer) {
+        byte[] bytes = packed.bytes;
+        byte[] blockMaxWeights = packed.blockMaxWeights;
+        int[] blockOffsets = packed.blockOffsets;
+        int removed = 0;
+        for (int block = 0; block * BLOCK < packedCount; block++) {
+            if (!worthReading.test(blockMaxWeights[block] & 0xFF)) {
+                continue;
+            }
+            int position = blockOffsets[block];
+            int end = Math.min(packedCount - block * BLOCK, BLOCK);
+            long current = 0L;
+            for (int i = 0; i < end; i++) {
+                long value = 0L;
+                int shift = 0;
+                byte b;
+                do {
+                    b = bytes[position++];
+                    value |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                current += value;
+                int weight = bytes[position++] & 0xFF;
+                while (removed < removedIds.length && removedIds[removed] < current) {
+                    removed++;
+                }
+                if (removed < removedIds.length && removedIds[removed] == current
+                        || addedIds.length > 0 && Arrays.binarySearch(addedIds, current) >= 0) {
+                    continue;
+                }
+                consumer.accept(current, weight);
+            }
+        }
+        for (int added = 0; added < addedIds.length; added++) {
+            consumer.accept(addedIds[added], addedWeights[added] & 0xFF);
+        }
+    }
+
+    private int packedWeightOf(long id) {
+        if (packedCount == 0 || id > lastPackedId || Arrays.binarySearch(removedIds, id) >= 0) {
+            return 0;
+        }
+        int block = Arrays.binarySearch(packed.blockFirstIds, 0, blockCount(), id);
+        if (block < 0) {
+            block = -block - 2;
+            if (block < 0) {
+                return 0;
+            }
+        }
+        byte[] bytes = packed.bytes;
+        int position = packed.blockOffsets[block];
+        int end = Math.min(packedCount - block * BLOCK, BLOCK);
+        long current = 0L;
+        for (int i = 0; i < end; i++) {
+            long value = 0L;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            current += value;
+            if (current >= id) {
+                return current == id ? bytes[position] & 0xFF : 0;
+            }
+            position++;
+        }
+        return 0;
+    }
+
+    private int blockCount() {
+        return (packedCount + BLOCK - 1) / BLOCK;
+    }
+
+    private PostingList appended(long id, byte weight) {
+        Packed target = packed.count == packedCount
+                ? packed.withRoomAfter(packedCount, packedLength)
+                : packed.copy(packedCount, packedLength, packedCount + 1);
+        int length = target.append(packedCount, packedLength, lastPackedId, id, weight);
+        target.count = packedCount + 1;
+        return new PostingList(target, packedCount + 1, length, id, addedIds, addedWeights, removedIds, size + 1);
+    }
+
+    private PostingList withPending(long[] ids, byte[] weights, long[] removed, int newSize) {
+        if (newSize == 0) {
+            return EMPTY;
+        }
+        PostingList list =
+                new PostingList(packed, packedCount, packedLength, lastPackedId, ids, weights, removed, newSize);
+        if (ids.length + removed.length <= Math.max(MIN_PENDING, (int) Math.sqrt(packedCount))) {
+            return list;
+        }
+        return list.repacked();
+    }
+
+    private PostingList repacked() {
+        long[] ids = new long[size];
+        byte[] weights = new byte[ids.length];
+        int[] count = {0};
+        forEach((id, weight) -> {
+            ids[count[0]] = id;
+            weights[count[0]++] = (byte) weight;
+        });
+        return of(ids, weights, count[0]);
+    }
+
+    private static long[] insert(long[] array, int index, long value) {
+        long[] result = new long[array.length + 1];
+        System.arraycopy(array, 0, result, 0, index);
+        result[index] = value;
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        return result;
+    }
+
+    @FunctionalInterface
+    public interface Consumer {
+        void accept(long id, int weight);
+    }
+
+    /**
+     * Looks up ids of one list in increasing order. It gallops forward through the skip table from the block
+     * of the previous id and goes on decoding where it stopped, so a run of lookups decodes every block it touches
+     * once. An id smaller than the previous one starts over with a binary search.
+     */
+    public final class Cursor {
+        private int block = -1;
+        private long requested;
+        private int index;
+        private int position;
+        private long current;
+        private int weight;
+
+        private Cursor() {
+        }
+
+        /**
+         * Weight of {@code id}, or 0 if the list has no entry for it.
+         */
+        public int weightOf(long id) {
+            int added = Arrays.binarySearch(addedIds, id);
+            if (added >= 0) {
+                return addedWeights[added] & 0xFF;
+            }
+            if (packedCount == 0 || id > lastPackedId || Arrays.binarySearch(removedIds, id) >= 0) {
+                return 0;
+            }
+            long[] blockFirstIds = packed.blockFirstIds;
+            int blocks = blockCount();
+            if (block < 0 || id < requested) {
+                int found = Arrays.binarySearch(blockFirstIds, 0, blocks, id);
+                found = found >= 0 ? found : -found - 2;
+                if (found < 0) {
+                    return 0;
+                }
+                enter(found);
+            } else if (block + 1 < blocks && blockFirstIds[block + 1] <= id) {
+                int low = block + 1;
+                int step = 1;
+                while (low + step < blocks && blockFirstIds[low + step] <= id) {
+                    low += step;
+                    step <<= 1;
+                }
+                int found = Arrays.binarySearch(blockFirstIds, low, Math.min(low + step, blocks), id);
+                enter(found >= 0 ? found : -found - 2);
+            } else if (index > 0 && current >= id) {
+                requested = id;
+                return current == id ? weight : 0;
+            }
+            requested = id;
+            byte[] bytes = packed.bytes;
+            int end = Math.min(packedCount - block * BLOCK, BLOCK);
+            while (index < end) {
+                long value = 0L;
+                int shift = 0;
+                byte b;
+                do {
+                    b = bytes[position++];
+                    value |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                current += value;
+                weight = bytes[position++] & 0xFF;
+                index++;
+                if (current >= id) {
+                    return current == id ? weight : 0;
+                }
+            }
+            return 0;
+        }
+
+        private void enter(int newBlock) {
+            block = newBlock;
+            index = 0;
+            position = packed.blockOffsets[newBlock];
+            current = 0L;
+        }
+    }
+
+    /**
+     * Packed entries and their skip table. Lists made from one another share it while the arrays have room,
+     * and {@code count} is the number of entries of the newest of them, the only one that appends in place.
+     */
+    private static final class Packed {
+        private final byte[] bytes;
+        private final long[] blockFirstIds;
+        private final int[] blockOffsets;
+        private final byte[] blockMaxWeights;
+        private int count;
+
+        private Packed(int byteCapacity, int blockCapacity) {
+            this(new byte[byteCapacity], new long[blockCapacity], new int[blockCapacity], new byte[blockCapacity]);
+        }
+
+        private Packed(byte[] bytes, long[] blockFirstIds, int[] blockOffsets, byte[] blockMaxWeights) {
+            this.bytes = bytes;
+            this.blockFirstIds = blockFirstIds;
+            this.blockOffsets = blockOffsets;
+            this.blockMaxWeights = blockMaxWeights;
+        }
+
+        /**
+         * Copy of the first {@code entries} entries, with room for {@code capacity} entries in all.
+         */
+        private Packed copy(int entries, int length, int capacity) {
+            int blockCapacity = Math.max((capacity + BLOCK - 1) / BLOCK, 1);
+            int byteCapacity = Math.max(length + MAX_ENTRY_BYTES, capacity * 2 + MAX_ENTRY_BYTES);
+            Packed copy = new Packed(Arrays.copyOf(bytes, byteCapacity), Arrays.copyOf(blockFirstIds, blockCapacity),
+                    Arrays.copyOf(blockOffsets, blockCapacity), Arrays.copyOf(blockMaxWeights, blockCapacity));
+            copy.count = entries;
+            return copy;
+        }
+
+        /**
+         * This storage if it has room for an entry after {@code entries} entries, or a copy with twice the room.
+         */
+        private Packed withRoomAfter(int entries, int length) {
+            boolean bytesFull = bytes.length - length < MAX_ENTRY_BYTES;
+            boolean blocksFull = entries % BLOCK == 0 && entries / BLOCK >= blockFirstIds.length;
+            if (!bytesFull && !blocksFull) {
+                return this;
+            }
+            return copy(entries, length, Math.max(entries * 2, BLOCK));
+        }
+
+        /**
+         * Writes entry number {@code entry} at {@code length} and returns the new length.
+         */
+        private int append(int entry, int length, long previousId, long id, byte weight) {
+            int block = entry / BLOCK;
+            long delta = id - previousId;
+            if (entry % BLOCK == 0) {
+                blockFirstIds[block] = id;
+                blockOffsets[block] = length;
+                blockMaxWeights[block] = 0;
+                delta = id;
+            }
+            while ((delta & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            bytes[length++] = (byte) delta;
+            bytes[length++] = weight;
+            if ((weight & 0xFF) > (blockMaxWeights[block] & 0xFF)) {
+                blockMaxWeights[block] = weight;
+            }
+            return length;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of locks shared by keys with the same hash, so writes to different keys rarely wait for each other.
+ */
+public class StripedLocks {
+    private final Lock[] locks;
+
+    public StripedLocks(int stripes) {
+        if (Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("Number of stripes must be a power of two: " + stripes);
+        }
+        locks = new Lock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public Lock forKey(long key) {
+        return locks[stripe(key)];
+    }
+
+    /**
+     * Locks of all given keys, each one once and always in the same order, so taking them one after another
+     * can not deadlock with another caller doing the same.
+     */
+    public List<Lock> forKeys(long[] keys) {
+        boolean[] used = new boolean[locks.length];
+        for (long key : keys) {
+            used[stripe(key)] = true;
+        }
+        List<Lock> keyLocks = new ArrayList<>();
+        for (int i = 0; i < locks.length; i++) {
+            if (used[i]) {
+                keyLocks.add(locks[i]);
+            }
+        }
+        return keyLocks;
+    }
+
+    /**
+     * Takes and releases every lock in turn, so whatever held a lock when this was called has released it.
+     */
+    public void awaitReleased() {
+        for (Lock lock : locks) {
+            lock.lock();
+            lock.unlock();
+        }
+    }
+
+    private int stripe(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (locks.length - 1);
+    }
+}
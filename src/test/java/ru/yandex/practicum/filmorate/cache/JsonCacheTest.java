@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.controller.dto.PageDto;
+import ru.yandex.practicum.filmorate.controller.dto.film.FilmDto;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonCacheTest {
+    private static final ObjectMapper OBJECT_MAPPER = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void servesSameBytesUntilVersionChanges() throws Exception {
+        JsonCache<Film> cache = cache(1024 * 1024);
+        Film film = film(1L, "Star Wars");
+
+        byte[] first = cache.get(film);
+        byte[] second = cache.get(film);
+        Film updated = film.toBuilder().name("Star Wars, updated").version(2L).build();
+        byte[] third = cache.get(updated);
+
+        assertSame(first, second);
+        assertEquals(OBJECT_MAPPER.writeValueAsString(FilmDto.fromFilm(film)), new String(first));
+        assertEquals(OBJECT_MAPPER.writeValueAsString(FilmDto.fromFilm(updated)), new String(third));
+        assertSame(third, cache.get(updated));
+        assertEquals(2.0, count("hit"));
+        assertEquals(2.0, count("miss"));
+    }
+
+    @Test
+    void evictsLeastRecentlyReadWhenFull() {
+        JsonCache<Film> cache = cache(16 * 1024);
+        for (long id = 1; id <= 1000; id++) {
+            cache.get(film(id, "Film " + id));
+        }
+
+        assertTrue(cache.size() <= 16 * 1024);
+        assertTrue(meterRegistry.get("filmorate.json.cache.evictions").counter().count() > 0);
+        assertEquals(1000.0, count("miss"));
+    }
+
+    @Test
+    void scanReusesCachedJsonWithoutEvictingIt() throws Exception {
+        JsonCache<Film> cache = cache(16 * 1024);
+        Film hot = film(1L, "Hot");
+        byte[] cached = cache.get(hot);
+        List<Film> all = new ArrayList<>(List.of(hot));
+        for (long id = 2; id <= 1000; id++) {
+            all.add(film(id, "Film " + id));
+        }
+
+        for (Film film : all) {
+            cache.getForScan(film);
+        }
+        byte[] array = cache.toArrayForScan(all);
+
+        assertSame(cached, cache.get(hot));
+        assertSame(cached, cache.getForScan(hot));
+        assertEquals(OBJECT_MAPPER.writeValueAsString(all.stream().map(FilmDto::fromFilm).toList()), new String(array));
+        assertEquals(0.0, meterRegistry.get("filmorate.json.cache.evictions").counter().count());
+        assertEquals(cached.length + 96L, cache.size());
+    }
+
+    @Test
+    void joinsCachedJsonLikeJackson() throws Exception {
+        JsonCache<Film> cache = cache(1024 * 1024);
+        List<Film> films = List.of(film(1L, "First"), film(2L, "Second"));
+        List<FilmDto> dtos = films.stream().map(FilmDto::fromFilm).toList();
+
+        assertEquals(OBJECT_MAPPER.writeValueAsString(dtos), new String(cache.toArray(films)));
+        assertEquals(OBJECT_MAPPER.writeValueAsString(List.of()), new String(cache.toArray(List.of())));
+        assertEquals(OBJECT_MAPPER.writeValueAsString(new PageDto<>(dtos, 2L)), new String(cache.toPage(films, 2L)));
+        assertEquals(OBJECT_MAPPER.writeValueAsString(new PageDto<>(dtos, null)), new String(cache.toPage(films, null)));
+    }
+
+    @Test
+    void encodesEveryReadWhenSizeIsZero() {
+        JsonCache<Film> cache = cache(0);
+        Film film = film(1L, "Star Wars");
+
+        assertNotSame(cache.get(film), cache.get(film));
+        assertEquals(0L, cache.size());
+    }
+
+    private JsonCache<Film> cache(long maxSize) {
+        return new JsonCache<>("films", OBJECT_MAPPER.writerFor(FilmDto.class), FilmDto::fromFilm,
+                Film::getId, Film::getVersion, maxSize, meterRegistry);
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("filmorate.json.cache.gets").tag("result", result).counter().count();
+    }
+
+    private static Film film(long id, String name) {
+        Film film = new Film(id, name, "Description", LocalDate.of(1999, Month.AUGUST, 19), Duration.ofMinutes(90));
+        film.setVersion(1L);
+        return film;
+    }
+}
@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.yandex.practicum.filmorate.infrastructure.InMemoryFilmRepository;
+import ru.yandex.practicum.filmorate.infrastructure.InMemoryUserRepository;
+import ru.yandex.practicum.filmorate.infrastructure.persistence.Journal;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.IdGenerator;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Sends partial updates of one film or user from several threads at once, each changing only its own field.
+ * No update may bring back an older value of a field that another update changed.
+ */
+class ConcurrentUpdateTest {
+    private static final int UPDATES = 500;
+    private static final ObjectMapper OBJECT_MAPPER = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private static final LocalDate RELEASED = LocalDate.of(2000, Month.JANUARY, 1);
+    private static final LocalDate BORN = LocalDate.of(1950, Month.JANUARY, 1);
+
+    private final IdGenerator idGenerator = new IdGenerator();
+    private final InMemoryFilmRepository filmRepository = new InMemoryFilmRepository(idGenerator, Journal.NONE);
+    private final InMemoryUserRepository userRepository = new InMemoryUserRepository(idGenerator, Journal.NONE);
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(
+            new FilmsController(filmRepository, userRepository, null, null),
+            new UsersController(userRepository, null, null)).build();
+
+    @Test
+    void concurrentFilmUpdatesKeepEveryField() throws Exception {
+        List<Writer<Film>> writers = List.of(
+                new Writer<>("name", j -> "Name " + j, Film::getName),
+                new Writer<>("description", j -> "Description " + j, Film::getDescription),
+                new Writer<>("releaseDate", RELEASED::plusDays, Film::getReleaseDate),
+                new Writer<>("duration", j -> j + 1L, film -> film.getDuration().toMinutes()));
+        long id = filmRepository.create(
+                new Film(null, "Name 0", "Description 0", RELEASED, Duration.ofMinutes(1))).getId();
+
+        updateConcurrently("/films", id, filmId -> filmRepository.findBy(filmId).orElseThrow(), writers);
+    }
+
+    @Test
+    void concurrentUserUpdatesKeepEveryField() throws Exception {
+        List<Writer<User>> writers = List.of(
+                new Writer<>("email", j -> "user" + j + "@test.com", User::getEmail),
+                new Writer<>("login", j -> "login_" + j, User::getLogin),
+                new Writer<>("name", j -> "Name " + j, User::getName),
+                new Writer<>("birthday", BORN::plusDays, User::getBirthday));
+        long id = userRepository.create(new User(null, "user0@test.com", "login_0", "Name 0", BORN)).getId();
+
+        updateConcurrently("/users", id, userId -> userRepository.findBy(userId).orElseThrow(), writers);
+    }
+
+    private <T> void updateConcurrently(String uri, long id, LongFunction<T> find, List<Writer<T>> writers)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(writers.size());
+        List<Future<?>> futures = new ArrayList<>();
+        for (Writer<T> writer : writers) {
+            futures.add(executor.submit(() -> {
+                for (int j = 1; j <= UPDATES; j++) {
+                    assertEquals(writer.value().apply(j - 1), writer.read().apply(find.apply(id)), writer.field());
+                    mockMvc.perform(put(uri)
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(OBJECT_MAPPER.writeValueAsString(
+                                            Map.of("id", id, writer.field(), writer.value().apply(j)))))
+                            .andExpect(status().isOk());
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        for (Writer<T> writer : writers) {
+            assertEquals(writer.value().apply(UPDATES), writer.read().apply(find.apply(id)), writer.field());
+        }
+    }
+
+    /**
+     * Updates one field, setting it to {@code value(j)} on the j-th update.
+     */
+    private record Writer<T>(String field, IntFunction<Object> value, Function<T, Object> read) {
+    }
+}
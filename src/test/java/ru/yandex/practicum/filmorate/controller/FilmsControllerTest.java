@@ -1,26 +1,48 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import ru.yandex.practicum.filmorate.cache.JsonCacheConfiguration;
+import ru.yandex.practicum.filmorate.controller.dto.BatchResultDto;
+import ru.yandex.practicum.filmorate.controller.dto.PageDto;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.repository.FilmRepository;
+import ru.yandex.practicum.filmorate.repository.ReleaseOrder;
+import ru.yandex.practicum.filmorate.repository.UserRepository;
 
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.Month;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 
+@Import({JsonCacheConfiguration.class, SimpleMeterRegistry.class})
 @WebMvcTest(FilmsController.class)
 public class FilmsControllerTest {
 
@@ -30,6 +52,9 @@ public class FilmsControllerTest {
     @MockBean
     private FilmRepository filmRepository;
 
+    @MockBean
+    private UserRepository userRepository;
+
     @Test
     public void testGetFilmById() throws Exception {
         Long id = 1L;
@@ -49,6 +74,30 @@ public class FilmsControllerTest {
 
     }
 
+    @Test
+    public void testGetFilmByIdNotModified() throws Exception {
+        Long id = 1L;
+        Film film = new Film(
+            id,
+            "Star Wars",
+            "Science Fiction",
+            LocalDate.of(1999, Month.AUGUST, 19),
+            Duration.ofMinutes(90)
+        );
+        film.setVersion(3L);
+        when(filmRepository.findBy(id)).thenReturn(Optional.of(film));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/films/" + id))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag(3)));
+        mockMvc.perform(MockMvcRequestBuilders.get("/films/" + id).header("If-None-Match", etag(3)))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(MockMvcRequestBuilders.get("/films/" + id).header("If-None-Match", etag(2)))
+                .andExpect(status().isOk());
+
+    }
+
     @Test
     public void testGetFilmByIdNotFound() throws Exception {
         Long id = 1L;
@@ -77,6 +126,249 @@ public class FilmsControllerTest {
 
     }
 
+    @Test
+    public void testGetFilmsNotModified() throws Exception {
+        when(filmRepository.version()).thenReturn(7L);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/films").header("If-None-Match", etag(7)))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag(7)));
+        mockMvc.perform(MockMvcRequestBuilders.get("/films?limit=10").header("If-None-Match", etag(7)))
+                .andExpect(status().isNotModified());
+
+        verify(filmRepository, never()).findAll();
+        verify(filmRepository, never()).findAllAfter(any(Long.class), any(Integer.class));
+    }
+
+    @Test
+    public void testGetFilmsModifiedForTagOfPreviousStart() throws Exception {
+        when(filmRepository.version()).thenReturn(7L);
+        when(filmRepository.findAll()).thenReturn(List.of());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/films").header("If-None-Match", "\"7\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag(7)));
+    }
+
+    @Test
+    public void testStreamFilms() throws Exception {
+        Film film = new Film(
+                1L,
+                "Star Wars",
+                "Science Fiction",
+                LocalDate.of(1999, Month.AUGUST, 19),
+                Duration.ofMinutes(90)
+        );
+        when(filmRepository.findAll()).thenReturn(List.of(film));
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/films/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().json("[{\"id\": 1, \"name\":\"Star Wars\",\"description\":" +
+                        "\"Science Fiction\",\"releaseDate\":\"1999-08-19\", \"duration\": 90 }]"));
+
+    }
+
+    @Test
+    public void testGetFilmsPage() throws Exception {
+        Film first = new Film(
+                5L,
+                "Star Wars",
+                "Science Fiction",
+                LocalDate.of(1999, Month.AUGUST, 19),
+                Duration.ofMinutes(90)
+        );
+        Film second = new Film(
+                6L,
+                "Some film",
+                "Some description",
+                LocalDate.of(2009, Month.AUGUST, 19),
+                Duration.ofMinutes(50)
+        );
+        when(filmRepository.findAllAfter(4L, 2)).thenReturn(List.of(first, second));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/films?after=4&limit=1"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"items\": [{\"id\": 5, \"name\":\"Star Wars\",\"description\":" +
+                        "\"Science Fiction\",\"releaseDate\":\"1999-08-19\", \"duration\": 90 }], \"next\": 5}", true));
+
+    }
+
+    @Test
+    public void testGetFilmsLastPage() throws Exception {
+        Film film = new Film(
+                5L,
+                "Star Wars",
+                "Science Fiction",
+                LocalDate.of(1999, Month.AUGUST, 19),
+                Duration.ofMinutes(90)
+        );
+        when(filmRepository.findAllAfter(0L, 11)).thenReturn(List.of(film));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/films?limit=10"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"items\": [{\"id\": 5}], \"next\": null}"));
+
+    }
+
+    @Test
+    public void testGetFilmsPageLimitTooLarge() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/films?limit=100000"))
+                .andExpect(status().isBadRequest());
+
+    }
+
+    @Test
+    public void testGetFilmsReleasedBetween() throws Exception {
+        Film first = new Film(
+                5L,
+                "Star Wars",
+                "Science Fiction",
+                LocalDate.of(1999, Month.AUGUST, 19),
+                Duration.ofMinutes(90)
+        );
+        Film second = new Film(
+                6L,
+                "Some film",
+                "Some description",
+                LocalDate.of(2009, Month.AUGUST, 19),
+                Duration.ofMinutes(50)
+        );
+        LocalDate from = LocalDate.of(1990, Month.JANUARY, 1);
+        LocalDate to = LocalDate.of(2010, Month.JANUARY, 1);
+        when(filmRepository.version()).thenReturn(7L);
+        when(filmRepository.findAllReleasedBetween(from, to, 0L, 2)).thenReturn(List.of(first, second));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/films?releasedFrom=1990-01-01&releasedTo=2010-01-01&limit=1"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"items\": [{\"id\": 5}], \"next\": "
+                        + ReleaseOrder.positionOf(first) + "}"));
+
+    }
+
+    @Test
+    public void testGetFilmsReleasedBetweenInvalidDate() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/films?releasedFrom=1990-13-01&releasedTo=2010-01-01"))
+                .andExpect(status().isBadRequest());
+
+    }
+
+    @Test
+    public void testGetFilmsReleasedBetweenOneSided() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/films?releasedFrom=1990-01-01"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(MockMvcRequestBuilders.get("/films?releasedTo=2010-01-01&limit=10"))
+                .andExpect(status().isBadRequest());
+        verify(filmRepository, never()).findAll();
+        verify(filmRepository, never()).findAllAfter(anyLong(), anyInt());
+
+    }
+
+    @Test
+    public void testGetFilmsByIdsWithLimit() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/films?ids=1,3&limit=10"))
+                .andExpect(status().isBadRequest());
+        verify(filmRepository, never()).findAllBy(any());
+        verify(filmRepository, never()).findAllAfter(anyLong(), anyInt());
+
+    }
+
+    @Test
+    public void testGetPopularFilms() throws Exception {
+        Film film = new Film(2L, "Star Trek", "Science Fiction", LocalDate.of(2009, Month.AUGUST, 19),
+                Duration.ofMinutes(50));
+        when(filmRepository.findPopular(10)).thenReturn(List.of(film));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/films/popular"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[{\"id\": 2, \"name\": \"Star Trek\"}]"));
+        mockMvc.perform(MockMvcRequestBuilders.get("/films/popular?count=0"))
+                .andExpect(status().isBadRequest());
+
+    }
+
+    @Test
+    public void testLikeFilm() throws Exception {
+        Film film = new Film(1L, "Star Wars", "Science Fiction", LocalDate.of(1999, Month.AUGUST, 19),
+                Duration.ofMinutes(90));
+        User user = new User(2L, "user@test.com", "user", null, LocalDate.of(1988, Month.APRIL, 1));
+        when(filmRepository.findBy(1L)).thenReturn(Optional.of(film));
+        when(userRepository.findBy(2L)).thenReturn(Optional.of(user));
+        when(userRepository.findBy(3L)).thenReturn(Optional.empty());
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/films/1/like/2"))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.delete("/films/1/like/2"))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.put("/films/1/like/3"))
+                .andExpect(status().isNotFound());
+        verify(filmRepository).like(1L, 2L);
+        verify(filmRepository).unlike(1L, 2L);
+        verify(filmRepository, never()).like(1L, 3L);
+
+    }
+
+    @Test
+    public void testSuggestFilms() throws Exception {
+        Film film = new Film(2L, "Star Trek", "Science Fiction", LocalDate.of(2009, Month.AUGUST, 19),
+                Duration.ofMinutes(50));
+        when(filmRepository.version()).thenReturn(7L);
+        when(filmRepository.suggest("sta", 10)).thenReturn(List.of(film));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/films/suggest?prefix=sta"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag(7)))
+                .andExpect(content().json("[{\"id\": 2, \"name\": \"Star Trek\"}]"));
+        mockMvc.perform(MockMvcRequestBuilders.get("/films/suggest?prefix= "))
+                .andExpect(status().isBadRequest());
+
+    }
+
+    @Test
+    public void testSearchFilms() throws Exception {
+        Film first = new Film(
+                5L,
+                "Star Wars",
+                "Science Fiction",
+                LocalDate.of(1999, Month.AUGUST, 19),
+                Duration.ofMinutes(90)
+        );
+        Film second = new Film(
+                2L,
+                "Star Trek",
+                "Science Fiction",
+                LocalDate.of(2009, Month.AUGUST, 19),
+                Duration.ofMinutes(50)
+        );
+        when(filmRepository.version()).thenReturn(7L);
+        when(filmRepository.search("star", 10, 2)).thenReturn(List.of(first, second));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/films/search?q=star&offset=10&limit=1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag(7)))
+                .andExpect(content().json("{\"items\": [{\"id\": 5}], \"next\": 11}"));
+
+    }
+
+    @Test
+    public void testSearchFilmsBlankQuery() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/films/search?q= "))
+                .andExpect(status().isBadRequest());
+        verify(filmRepository, never()).search(any(), any(Integer.class), any(Integer.class));
+
+    }
+
+    @Test
+    public void testGetFilmsPageNegativeCursor() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/films?after=-1&limit=10"))
+                .andExpect(status().isBadRequest());
+
+    }
+
     @Test
     public void testCreateFilmSuccessfully() throws Exception {
         Film expectedFilm = new Film(
@@ -208,15 +500,8 @@ public class FilmsControllerTest {
                 LocalDate.of(1999, Month.AUGUST, 19),
                 Duration.ofMinutes(90)
         );
-        Film updatedFilm = new Film(
-                id,
-                "Some film",
-                "Some description",
-                LocalDate.of(2009, Month.AUGUST, 19),
-                Duration.ofMinutes(50)
-        );
         when(filmRepository.findBy(id)).thenReturn(Optional.of(film));
-        when(filmRepository.update(updatedFilm)).thenReturn(updatedFilm);
+        updatesFrom(film);
 
         mockMvc.perform(MockMvcRequestBuilders.put("/films")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -260,15 +545,8 @@ public class FilmsControllerTest {
                 LocalDate.of(1999, Month.AUGUST, 19),
                 Duration.ofMinutes(90)
         );
-        Film updatedFilm = new Film(
-                id,
-                "Star Wars",
-                "Some description",
-                LocalDate.of(2009, Month.AUGUST, 19),
-                Duration.ofMinutes(50)
-        );
         when(filmRepository.findBy(id)).thenReturn(Optional.of(film));
-        when(filmRepository.update(updatedFilm)).thenReturn(updatedFilm);
+        updatesFrom(film);
 
         mockMvc.perform(MockMvcRequestBuilders.put("/films")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -290,15 +568,8 @@ public class FilmsControllerTest {
                 LocalDate.of(1999, Month.AUGUST, 19),
                 Duration.ofMinutes(90)
         );
-        Film updatedFilm = new Film(
-                id,
-                "Some name",
-                "Science Fiction",
-                LocalDate.of(2009, Month.AUGUST, 19),
-                Duration.ofMinutes(50)
-        );
         when(filmRepository.findBy(id)).thenReturn(Optional.of(film));
-        when(filmRepository.update(updatedFilm)).thenReturn(updatedFilm);
+        updatesFrom(film);
 
         mockMvc.perform(MockMvcRequestBuilders.put("/films")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -320,15 +591,8 @@ public class FilmsControllerTest {
                 LocalDate.of(1999, Month.AUGUST, 19),
                 Duration.ofMinutes(90)
         );
-        Film updatedFilm = new Film(
-                id,
-                "Some name",
-                "Science Fiction",
-                LocalDate.of(2009, Month.AUGUST, 19),
-                Duration.ofMinutes(50)
-        );
         when(filmRepository.findBy(id)).thenReturn(Optional.of(film));
-        when(filmRepository.update(updatedFilm)).thenReturn(updatedFilm);
+        updatesFrom(film);
 
         mockMvc.perform(MockMvcRequestBuilders.put("/films")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -350,15 +614,8 @@ public class FilmsControllerTest {
             LocalDate.of(1999, Month.AUGUST, 19),
             Duration.ofMinutes(90)
         );
-        Film updatedFilm = new Film(
-            id,
-            "Some name",
-            "Some description",
-            LocalDate.of(1999, Month.AUGUST, 19),
-            Duration.ofMinutes(50)
-        );
         when(filmRepository.findBy(id)).thenReturn(Optional.of(film));
-        when(filmRepository.update(updatedFilm)).thenReturn(updatedFilm);
+        updatesFrom(film);
 
         mockMvc.perform(MockMvcRequestBuilders.put("/films")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -380,15 +637,8 @@ public class FilmsControllerTest {
                 LocalDate.of(1999, Month.AUGUST, 19),
                 Duration.ofMinutes(90)
         );
-        Film updatedFilm = new Film(
-                id,
-                "Some name",
-                "Some description",
-                LocalDate.of(1999, Month.AUGUST, 19),
-                Duration.ofMinutes(90)
-        );
         when(filmRepository.findBy(id)).thenReturn(Optional.of(film));
-        when(filmRepository.update(updatedFilm)).thenReturn(updatedFilm);
+        updatesFrom(film);
 
         mockMvc.perform(MockMvcRequestBuilders.put("/films")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -410,15 +660,8 @@ public class FilmsControllerTest {
                 LocalDate.of(1999, Month.AUGUST, 19),
                 Duration.ofMinutes(90)
         );
-        Film updatedFilm = new Film(
-                id,
-                "Some name",
-                "Some description",
-                LocalDate.of(1999, Month.AUGUST, 19),
-                Duration.ofMinutes(90)
-        );
         when(filmRepository.findBy(id)).thenReturn(Optional.of(film));
-        when(filmRepository.update(updatedFilm)).thenReturn(updatedFilm);
+        updatesFrom(film);
 
         mockMvc.perform(MockMvcRequestBuilders.put("/films")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -429,4 +672,89 @@ public class FilmsControllerTest {
                         "\"Some description\",\"releaseDate\":\"1999-08-19\", \"duration\": 90 }"));
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCreateFilmsBatch() throws Exception {
+        when(filmRepository.createAll(any())).thenAnswer(invocation -> {
+            List<Film> films = invocation.getArgument(0);
+            for (int i = 0; i < films.size(); i++) {
+                films.get(i).setId(i + 1L);
+            }
+            return films;
+        });
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/films/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"name\":\"Star Wars\",\"description\":\"Science Fiction\",\"releaseDate\":\"1999-08-19\",\"duration\":90},{\"name\":\"\",\"description\":\"Science Fiction\",\"releaseDate\":\"1999-08-19\",\"duration\":90},{\"name\":\"Star Wars\",\"description\":\"Science Fiction\",\"releaseDate\":\"1999-08-19\",\"duration\":90}]")
+                )
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"succeeded\": 2, \"failed\": 1, \"items\": [" +
+                        "{\"index\": 0, \"status\": 201, \"item\": {\"id\": 1}}," +
+                        "{\"index\": 1, \"status\": 400, \"errors\": [\"name: must not be blank\"]}," +
+                        "{\"index\": 2, \"status\": 201, \"item\": {\"id\": 2}}]}"));
+
+    }
+
+    @Test
+    public void testCreateFilmsBatchTooLarge() throws Exception {
+        String items = String.join(",", Collections.nCopies(BatchResultDto.MAX_ITEMS + 1, "{\"name\":\"Star Wars\",\"description\":\"Science Fiction\",\"releaseDate\":\"1999-08-19\",\"duration\":90}"));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/films/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + items + "]")
+                )
+                .andExpect(status().isBadRequest());
+
+    }
+
+    @Test
+    public void testUpdateFilmsBatch() throws Exception {
+        when(filmRepository.findBy(1L)).thenReturn(Optional.of(new Film(1L, "Star Wars", "Science Fiction", LocalDate.of(1999, Month.AUGUST, 19), Duration.ofMinutes(90))));
+        when(filmRepository.findBy(2L)).thenReturn(Optional.empty());
+        when(filmRepository.updateAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/films/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"id\":1,\"name\":\"A New Hope\"},{\"id\":2},{\"name\":\"No id\"}]")
+                )
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"succeeded\": 1, \"failed\": 2, \"items\": [" +
+                        "{\"index\": 0, \"status\": 200, \"item\": {\"id\": 1, \"name\": \"A New Hope\"}}," +
+                        "{\"index\": 1, \"status\": 404, \"errors\": [\"Film not found\"]}," +
+                        "{\"index\": 2, \"status\": 400, \"errors\": [\"id: must not be null\"]}]}"));
+
+    }
+
+    @Test
+    public void testGetFilmsByIds() throws Exception {
+        List<Film> films = LongStream.of(41L, 43L)
+                .mapToObj(id -> new Film(id, "Film " + id, "Science Fiction", LocalDate.of(1999, Month.AUGUST, 19), Duration.ofMinutes(90)))
+                .toList();
+        when(filmRepository.findAllBy(List.of(43L, 41L, 45L))).thenReturn(films);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/films?ids=43,41,45"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[{\"id\": 41}, {\"id\": 43}]"));
+
+    }
+
+    @Test
+    public void testGetFilmsByTooManyIds() throws Exception {
+        String ids = LongStream.rangeClosed(1, PageDto.MAX_LIMIT + 1)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(","));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/films?ids=" + ids))
+                .andExpect(status().isBadRequest());
+
+    }
+
+    private void updatesFrom(Film stored) {
+        when(filmRepository.update(eq(stored.getId()), any())).thenAnswer(invocation ->
+                Optional.of(invocation.<UnaryOperator<Film>>getArgument(1).apply(stored.toBuilder().build())));
+    }
+
+    private static String etag(long version) {
+        return "\"" + ETags.of(version) + "\"";
+    }
+}
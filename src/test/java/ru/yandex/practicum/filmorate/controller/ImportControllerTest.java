@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import ru.yandex.practicum.filmorate.ingest.ImportReport;
+import ru.yandex.practicum.filmorate.ingest.NdjsonImporter;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(ImportController.class)
+public class ImportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private NdjsonImporter importer;
+
+    @Test
+    public void testImportFilms() throws Exception {
+        when(importer.importFilms(any())).thenAnswer(invocation -> {
+            InputStream body = invocation.getArgument(0);
+            long lines = new String(body.readAllBytes(), StandardCharsets.UTF_8).lines().count();
+            return new ImportReport(lines - 1, 1L, 10L, 300.0,
+                    List.of(new ImportReport.Rejection(2L, List.of("name: must not be blank"))));
+        });
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/import/films")
+                        .contentType("application/x-ndjson")
+                        .content("{\"name\":\"A\"}\n{\"name\":\"\"}\n{\"name\":\"B\"}\n")
+                )
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(content().json("{\"imported\": 2, \"rejected\": 1, \"rejections\": " +
+                        "[{\"line\": 2, \"errors\": [\"name: must not be blank\"]}]}"));
+
+    }
+}
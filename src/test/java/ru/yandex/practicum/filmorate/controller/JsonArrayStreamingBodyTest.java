@@ -0,0 +1,177 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.cache.JsonCache;
+import ru.yandex.practicum.filmorate.controller.dto.film.FilmDto;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JsonArrayStreamingBodyTest {
+    private static final ObjectMapper OBJECT_MAPPER = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private static final String SMALL_HEAP = "-Xmx32m";
+    private static final long FILMS_IN_SMALL_HEAP = 1_000_000L;
+    private static final long CACHE_SIZE = 64L * 1024 * 1024;
+
+    @Test
+    void writesItemsAsJsonArray() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        JsonArrayStreamingBody.ofEncoded(List.of(encode(film(1L)), encode(film(2L)))).writeTo(out);
+
+        ArrayNode films = (ArrayNode) OBJECT_MAPPER.readTree(out.toByteArray());
+        assertEquals(2, films.size());
+        assertEquals(1L, films.get(0).get("id").asLong());
+        assertEquals("1999-08-19", films.get(0).get("releaseDate").asText());
+        assertEquals(2L, films.get(1).get("id").asLong());
+    }
+
+    @Test
+    void writesEmptyArray() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        JsonArrayStreamingBody.ofEncoded(List.of()).writeTo(out);
+
+        assertEquals("[]", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void flushesFirstItemBeforeIteratingFurther() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Iterable<byte[]> films = () -> new Iterator<>() {
+            private long next = 1L;
+
+            @Override
+            public boolean hasNext() {
+                if (next == 2L) {
+                    assertTrue(out.toString(StandardCharsets.UTF_8).startsWith("[{\"id\":1"));
+                }
+                return next <= 3L;
+            }
+
+            @Override
+            public byte[] next() {
+                return encode(film(next++));
+            }
+        };
+
+        JsonArrayStreamingBody.ofEncoded(films).writeTo(out);
+
+        assertEquals(3, OBJECT_MAPPER.readTree(out.toByteArray()).size());
+    }
+
+    @Test
+    void streamsMillionFilmsInSmallFixedHeap() throws Exception {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        Process process = new ProcessBuilder(java, SMALL_HEAP, "-cp", System.getProperty("java.class.path"),
+                JsonArrayStreamingBodyTest.class.getName())
+                .redirectErrorStream(true)
+                .start();
+
+        assertTrue(process.waitFor(2, TimeUnit.MINUTES));
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertEquals(0, process.exitValue(), output);
+        assertTrue(output.contains("items=" + FILMS_IN_SMALL_HEAP + " "), output);
+        assertTrue(output.contains("cached=0"), output);
+    }
+
+    /**
+     * Entry point of the small heap JVM: streams films from the {@code /films/stream} handler, with a repository
+     * that makes them on the fly, so only the handler and the JSON cache can run out of memory.
+     */
+    public static void main(String[] args) throws IOException {
+        Collection<Film> catalog = new AbstractCollection<>() {
+            @Override
+            public Iterator<Film> iterator() {
+                return LongStream.rangeClosed(1L, FILMS_IN_SMALL_HEAP)
+                        .mapToObj(JsonArrayStreamingBodyTest::film)
+                        .iterator();
+            }
+
+            @Override
+            public int size() {
+                return (int) FILMS_IN_SMALL_HEAP;
+            }
+        };
+        FilmRepository filmRepository = mock(FilmRepository.class);
+        when(filmRepository.version()).thenReturn(1L);
+        when(filmRepository.findAll()).thenReturn(catalog);
+        JsonCache<Film> filmJsonCache = new JsonCache<>("films", OBJECT_MAPPER.writerFor(FilmDto.class),
+                FilmDto::fromFilm, Film::getId, Film::getVersion, CACHE_SIZE, new SimpleMeterRegistry());
+        FilmsController controller = new FilmsController(filmRepository, null, filmJsonCache, null);
+        CountingOutputStream out = new CountingOutputStream();
+
+        StreamingResponseBody body = controller.streamFilms(
+                new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse())).getBody();
+        body.writeTo(out);
+
+        System.out.println("items=" + out.objects + " bytes=" + out.bytes + " cached=" + filmJsonCache.size());
+    }
+
+    private static byte[] encode(Film film) {
+        try {
+            return OBJECT_MAPPER.writeValueAsBytes(FilmDto.fromFilm(film));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Film film(long id) {
+        return new Film(id, "Film " + id, "Description " + id, LocalDate.of(1999, Month.AUGUST, 19),
+                Duration.ofMinutes(90));
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long bytes;
+        private long objects;
+
+        @Override
+        public void write(int b) {
+            count((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                count(b[i]);
+            }
+        }
+
+        private void count(byte b) {
+            bytes++;
+            if (b == '{') {
+                objects++;
+            }
+        }
+    }
+}
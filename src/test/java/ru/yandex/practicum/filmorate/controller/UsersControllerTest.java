@@ -1,25 +1,44 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import ru.yandex.practicum.filmorate.cache.JsonCacheConfiguration;
+import ru.yandex.practicum.filmorate.controller.dto.BatchResultDto;
+import ru.yandex.practicum.filmorate.controller.dto.PageDto;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.DuplicateUserException;
 import ru.yandex.practicum.filmorate.repository.UserRepository;
 
 import java.time.LocalDate;
 import java.time.Month;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+@Import({JsonCacheConfiguration.class, SimpleMeterRegistry.class})
 @WebMvcTest(UsersController.class)
 public class UsersControllerTest {
 
@@ -48,6 +67,37 @@ public class UsersControllerTest {
 
     }
 
+    @Test
+    public void testGetUserByIdNotModified() throws Exception {
+        Long id = 1L;
+        User user = new User(
+                id,
+                "email@test.com",
+                "login_test",
+                "John Wick",
+                LocalDate.of(1888, Month.APRIL, 1)
+        );
+        user.setVersion(2L);
+        when(userRepository.findBy(id)).thenReturn(Optional.of(user));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/" + id).header("If-None-Match", etag(2)))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag(2)));
+
+    }
+
+    @Test
+    public void testGetUsersNotModified() throws Exception {
+        when(userRepository.version()).thenReturn(4L);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/users").header("If-None-Match", etag(4)))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(MockMvcRequestBuilders.get("/users").header("If-None-Match", etag(3)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag(4)));
+
+    }
+
     @Test
     public void testGetUserByIdNotFound() throws Exception {
         Long id = 1L;
@@ -76,6 +126,78 @@ public class UsersControllerTest {
 
     }
 
+    @Test
+    public void testStreamUsers() throws Exception {
+        User user = new User(
+                1L,
+                "email@test.com",
+                "login_test",
+                "John Wick",
+                LocalDate.of(1888, Month.APRIL, 1)
+        );
+        when(userRepository.findAll()).thenReturn(List.of(user));
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/users/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().json("[{\"id\": 1, \"email\":\"email@test.com\",\"login\":" +
+                        "\"login_test\",\"name\":\"John Wick\", \"birthday\":\"1888-04-01\" }]"));
+
+    }
+
+    @Test
+    public void testGetUsersPage() throws Exception {
+        User first = new User(
+                5L,
+                "email@test.com",
+                "login_test",
+                "John Wick",
+                LocalDate.of(1888, Month.APRIL, 1)
+        );
+        User second = new User(
+                6L,
+                "other@test.com",
+                "other_login",
+                "Jane Doe",
+                LocalDate.of(1990, Month.MAY, 2)
+        );
+        when(userRepository.findAllAfter(4L, 2)).thenReturn(List.of(first, second));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/users?after=4&limit=1"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"items\": [{\"id\": 5, \"email\":\"email@test.com\",\"login\":" +
+                        "\"login_test\",\"name\":\"John Wick\", \"birthday\":\"1888-04-01\" }], \"next\": 5}", true));
+
+    }
+
+    @Test
+    public void testGetUsersLastPage() throws Exception {
+        User user = new User(
+                5L,
+                "email@test.com",
+                "login_test",
+                "John Wick",
+                LocalDate.of(1888, Month.APRIL, 1)
+        );
+        when(userRepository.findAllAfter(0L, 11)).thenReturn(List.of(user));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/users?limit=10"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"items\": [{\"id\": 5}], \"next\": null}"));
+
+    }
+
+    @Test
+    public void testGetUsersPageZeroLimit() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/users?limit=0"))
+                .andExpect(status().isBadRequest());
+
+    }
+
     @Test
     public void testCreateUserSuccessfully() throws Exception {
         User expectedUser = new User(
@@ -248,15 +370,8 @@ public class UsersControllerTest {
                 "John Wick",
                 LocalDate.of(1888, Month.APRIL, 1)
         );
-        User updatedUser = new User(
-                id,
-                "new@test.com",
-                "new_login_test",
-                "John Wicked",
-                LocalDate.of(1900, Month.APRIL, 1)
-        );
         when(userRepository.findBy(id)).thenReturn(Optional.of(user));
-        when(userRepository.update(updatedUser)).thenReturn(updatedUser);
+        updatesFrom(user);
 
         mockMvc.perform(MockMvcRequestBuilders.put("/users")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -300,15 +415,8 @@ public class UsersControllerTest {
                 "John Wick",
                 LocalDate.of(1888, Month.APRIL, 1)
         );
-        User updatedUser = new User(
-                id,
-                "email@test.com",
-                "new_login_test",
-                "John Wicked",
-                LocalDate.of(1900, Month.APRIL, 1)
-        );
         when(userRepository.findBy(id)).thenReturn(Optional.of(user));
-        when(userRepository.update(updatedUser)).thenReturn(updatedUser);
+        updatesFrom(user);
 
         mockMvc.perform(MockMvcRequestBuilders.put("/users")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -331,15 +439,8 @@ public class UsersControllerTest {
                 "John Wick",
                 LocalDate.of(1888, Month.APRIL, 1)
         );
-        User updatedUser = new User(
-                id,
-                "email@test.com",
-                "new_login_test",
-                "John Wicked",
-                LocalDate.of(1900, Month.APRIL, 1)
-        );
         when(userRepository.findBy(id)).thenReturn(Optional.of(user));
-        when(userRepository.update(updatedUser)).thenReturn(updatedUser);
+        updatesFrom(user);
 
         mockMvc.perform(MockMvcRequestBuilders.put("/users")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -404,15 +505,8 @@ public class UsersControllerTest {
                 "John Wick",
                 LocalDate.of(1888, Month.APRIL, 1)
         );
-        User updatedUser = new User(
-                id,
-                "test@test.com",
-                "login_test",
-                "John Wicked",
-                LocalDate.of(1900, Month.APRIL, 1)
-        );
         when(userRepository.findBy(id)).thenReturn(Optional.of(user));
-        when(userRepository.update(updatedUser)).thenReturn(updatedUser);
+        updatesFrom(user);
 
         mockMvc.perform(MockMvcRequestBuilders.put("/users")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -435,15 +529,8 @@ public class UsersControllerTest {
                 "John Wick",
                 LocalDate.of(1888, Month.APRIL, 1)
         );
-        User updatedUser = new User(
-                id,
-                "test@test.com",
-                "new_login",
-                "John Wick",
-                LocalDate.of(1900, Month.APRIL, 1)
-        );
         when(userRepository.findBy(id)).thenReturn(Optional.of(user));
-        when(userRepository.update(updatedUser)).thenReturn(updatedUser);
+        updatesFrom(user);
 
         mockMvc.perform(MockMvcRequestBuilders.put("/users")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -466,15 +553,8 @@ public class UsersControllerTest {
                 "John Wick",
                 LocalDate.of(1888, Month.APRIL, 1)
         );
-        User updatedUser = new User(
-                id,
-                "test@test.com",
-                "new_login",
-                "John Wick",
-                LocalDate.of(1900, Month.APRIL, 1)
-        );
         when(userRepository.findBy(id)).thenReturn(Optional.of(user));
-        when(userRepository.update(updatedUser)).thenReturn(updatedUser);
+        updatesFrom(user);
 
         mockMvc.perform(MockMvcRequestBuilders.put("/users")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -497,15 +577,8 @@ public class UsersControllerTest {
                 "John Wick",
                 LocalDate.of(1888, Month.APRIL, 1)
         );
-        User updatedUser = new User(
-                id,
-                "test@test.com",
-                "new_login",
-                "John Wicked",
-                LocalDate.of(1888, Month.APRIL, 1)
-        );
         when(userRepository.findBy(id)).thenReturn(Optional.of(user));
-        when(userRepository.update(updatedUser)).thenReturn(updatedUser);
+        updatesFrom(user);
 
         mockMvc.perform(MockMvcRequestBuilders.put("/users")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -528,15 +601,8 @@ public class UsersControllerTest {
                 "John Wick",
                 LocalDate.of(1888, Month.APRIL, 1)
         );
-        User updatedUser = new User(
-                id,
-                "test@test.com",
-                "new_login",
-                "John Wicked",
-                LocalDate.of(1888, Month.APRIL, 1)
-        );
         when(userRepository.findBy(id)).thenReturn(Optional.of(user));
-        when(userRepository.update(updatedUser)).thenReturn(updatedUser);
+        updatesFrom(user);
 
         mockMvc.perform(MockMvcRequestBuilders.put("/users")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -548,4 +614,238 @@ public class UsersControllerTest {
                         "\"new_login\",\"name\":\"John Wicked\", \"birthday\":\"1888-04-01\" }"));
 
     }
+
+    @Test
+    public void testCreateUsersBatch() throws Exception {
+        when(userRepository.createAll(any())).thenAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            for (int i = 0; i < users.size(); i++) {
+                users.get(i).setId(i + 1L);
+            }
+            return users;
+        });
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"email\":\"mail@mail.ru\",\"login\":\"dolore\",\"name\":\"Nick Name\",\"birthday\":\"1946-08-20\"},{\"email\":\"not an email\",\"login\":\"dolore\",\"birthday\":\"1946-08-20\"},{\"email\":\"mail@mail.ru\",\"login\":\"dolore\",\"name\":\"Nick Name\",\"birthday\":\"1946-08-20\"}]")
+                )
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"succeeded\": 2, \"failed\": 1, \"items\": [" +
+                        "{\"index\": 0, \"status\": 201, \"item\": {\"id\": 1}}," +
+                        "{\"index\": 1, \"status\": 400, \"errors\": [\"email: must be a well-formed email address\"]}," +
+                        "{\"index\": 2, \"status\": 201, \"item\": {\"id\": 2}}]}"));
+
+    }
+
+    @Test
+    public void testCreateUsersBatchTooLarge() throws Exception {
+        String items = String.join(",", Collections.nCopies(BatchResultDto.MAX_ITEMS + 1, "{\"email\":\"mail@mail.ru\",\"login\":\"dolore\",\"name\":\"Nick Name\",\"birthday\":\"1946-08-20\"}"));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + items + "]")
+                )
+                .andExpect(status().isBadRequest());
+
+    }
+
+    @Test
+    public void testUpdateUsersBatch() throws Exception {
+        when(userRepository.findBy(1L)).thenReturn(Optional.of(new User(1L, "mail@mail.ru", "dolore", "Nick Name", LocalDate.of(1946, Month.AUGUST, 20))));
+        when(userRepository.findBy(2L)).thenReturn(Optional.empty());
+        when(userRepository.updateAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"id\":1,\"name\":\"New Name\"},{\"id\":2},{\"name\":\"No id\"}]")
+                )
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"succeeded\": 1, \"failed\": 2, \"items\": [" +
+                        "{\"index\": 0, \"status\": 200, \"item\": {\"id\": 1, \"name\": \"New Name\"}}," +
+                        "{\"index\": 1, \"status\": 404, \"errors\": [\"User not found\"]}," +
+                        "{\"index\": 2, \"status\": 400, \"errors\": [\"id: must not be null\"]}]}"));
+
+    }
+
+    @Test
+    public void testGetUsersByIds() throws Exception {
+        List<User> users = LongStream.of(1L, 3L)
+                .mapToObj(id -> new User(id, "mail" + id + "@mail.ru", "login" + id, "Nick Name", LocalDate.of(1946, Month.AUGUST, 20)))
+                .toList();
+        when(userRepository.findAllBy(List.of(3L, 1L, 5L))).thenReturn(users);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/users?ids=3,1,5"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[{\"id\": 1}, {\"id\": 3}]"));
+
+    }
+
+    @Test
+    public void testGetUsersByIdsWithLimit() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/users?ids=1,3&limit=10"))
+                .andExpect(status().isBadRequest());
+        verify(userRepository, never()).findAllBy(any());
+
+    }
+
+    @Test
+    public void testGetUsersByTooManyIds() throws Exception {
+        String ids = LongStream.rangeClosed(1, PageDto.MAX_LIMIT + 1)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(","));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/users?ids=" + ids))
+                .andExpect(status().isBadRequest());
+
+    }
+
+    @Test
+    public void testGetUserByEmail() throws Exception {
+        User user = new User(1L, "email@test.com", "login_test", "John Wick", LocalDate.of(1888, Month.APRIL, 1));
+        user.setVersion(3L);
+        when(userRepository.findByEmail("Email@Test.com")).thenReturn(Optional.of(user));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/by-email/Email@Test.com"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag(3)))
+                .andExpect(content().json("{\"id\": 1, \"email\":\"email@test.com\"}"));
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/by-email/Email@Test.com").header("If-None-Match", etag(3)))
+                .andExpect(status().isNotModified());
+
+    }
+
+    @Test
+    public void testGetFriendsAndCommonFriends() throws Exception {
+        User user = new User(20L, "neo@test.com", "neo", "Neo", LocalDate.of(1971, Month.SEPTEMBER, 13));
+        User other = new User(21L, "trinity@test.com", "trinity", "Trinity", LocalDate.of(1971, Month.JULY, 1));
+        User friend = new User(22L, "tank@test.com", "tank", "Tank", LocalDate.of(1975, Month.MARCH, 2));
+        when(userRepository.findBy(20L)).thenReturn(Optional.of(user));
+        when(userRepository.findBy(21L)).thenReturn(Optional.of(other));
+        when(userRepository.findBy(23L)).thenReturn(Optional.empty());
+        when(userRepository.findFriends(20L)).thenReturn(List.of(friend));
+        when(userRepository.findCommonFriends(20L, 21L)).thenReturn(List.of(friend));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/20/friends"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[{\"id\": 22, \"login\": \"tank\"}]"));
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/20/friends/common/21"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[{\"id\": 22}]"));
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/23/friends"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/20/friends/common/23"))
+                .andExpect(status().isNotFound());
+
+    }
+
+    @Test
+    public void testAddAndRemoveFriend() throws Exception {
+        User user = new User(20L, "neo@test.com", "neo", "Neo", LocalDate.of(1971, Month.SEPTEMBER, 13));
+        User friend = new User(22L, "tank@test.com", "tank", "Tank", LocalDate.of(1975, Month.MARCH, 2));
+        when(userRepository.findBy(20L)).thenReturn(Optional.of(user));
+        when(userRepository.findBy(22L)).thenReturn(Optional.of(friend));
+        when(userRepository.findBy(23L)).thenReturn(Optional.empty());
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/users/20/friends/22"))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.delete("/users/20/friends/22"))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.put("/users/20/friends/23"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(MockMvcRequestBuilders.put("/users/20/friends/20"))
+                .andExpect(status().isBadRequest());
+        verify(userRepository).addFriend(20L, 22L);
+        verify(userRepository).removeFriend(20L, 22L);
+        verify(userRepository, never()).addFriend(20L, 23L);
+        verify(userRepository, never()).addFriend(20L, 20L);
+
+    }
+
+    @Test
+    public void testSuggestUsers() throws Exception {
+        User user = new User(1L, "email@test.com", "login_test", "John Wick", LocalDate.of(1888, Month.APRIL, 1));
+        when(userRepository.version()).thenReturn(3L);
+        when(userRepository.suggest("log", 5)).thenReturn(List.of(user));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/suggest?prefix=log&limit=5"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[{\"id\": 1, \"login\": \"login_test\"}]"));
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/suggest?prefix=log&limit=0"))
+                .andExpect(status().isBadRequest());
+
+    }
+
+    @Test
+    public void testGetUserByLoginNotFound() throws Exception {
+        when(userRepository.findByLogin("login_test")).thenReturn(Optional.empty());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/by-login/login_test"))
+                .andExpect(status().isNotFound());
+
+    }
+
+    @Test
+    public void testCreateUserDuplicate() throws Exception {
+        when(userRepository.create(any()))
+                .thenThrow(new DuplicateUserException(Map.of(0, "email: email@test.com is already taken")));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"email@test.com\",\"login\":\"login_test\",\"birthday\":\"1888-04-01\"}")
+                )
+                .andExpect(status().isConflict())
+                .andExpect(content().json("{\"email\":\"email@test.com\",\"login\":\"login_test\"}"));
+
+    }
+
+    @Test
+    public void testCreateUsersBatchWithDuplicates() throws Exception {
+        when(userRepository.createAll(any()))
+                .thenThrow(new DuplicateUserException(Map.of(1, "login: taken is already taken")))
+                .thenAnswer(invocation -> {
+                    List<User> users = invocation.getArgument(0);
+                    for (int i = 0; i < users.size(); i++) {
+                        users.get(i).setId(i + 1L);
+                    }
+                    return users;
+                });
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"email\":\"a@mail.ru\",\"login\":\"first\",\"birthday\":\"1946-08-20\"},{\"email\":\"b@mail.ru\",\"login\":\"taken\",\"birthday\":\"1946-08-20\"},{\"email\":\"c@mail.ru\",\"login\":\"third\",\"birthday\":\"1946-08-20\"}]")
+                )
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"succeeded\": 2, \"failed\": 1, \"items\": [" +
+                        "{\"index\": 0, \"status\": 201, \"item\": {\"id\": 1, \"login\": \"first\"}}," +
+                        "{\"index\": 1, \"status\": 409, \"errors\": [\"login: taken is already taken\"]}," +
+                        "{\"index\": 2, \"status\": 201, \"item\": {\"id\": 2, \"login\": \"third\"}}]}"));
+
+    }
+
+    @Test
+    public void testUpdateUsersBatchDropsChangeOfConflictingItem() throws Exception {
+        when(userRepository.findBy(7L)).thenReturn(Optional.of(new User(7L, "mail@mail.ru", "dolore", "Nick Name", LocalDate.of(1946, Month.AUGUST, 20))));
+        when(userRepository.updateAll(any()))
+                .thenThrow(new DuplicateUserException(Map.of(0, "login: taken is already taken")))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"id\":7,\"login\":\"taken\"},{\"id\":7,\"name\":\"New Name\"}]")
+                )
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"succeeded\": 1, \"failed\": 1, \"items\": [" +
+                        "{\"index\": 0, \"status\": 409, \"errors\": [\"login: taken is already taken\"]}," +
+                        "{\"index\": 1, \"status\": 200, \"item\": {\"id\": 7, \"login\": \"dolore\", \"name\": \"New Name\"}}]}"));
+
+    }
+
+    private void updatesFrom(User stored) {
+        when(userRepository.update(eq(stored.getId()), any())).thenAnswer(invocation ->
+                Optional.of(invocation.<UnaryOperator<User>>getArgument(1).apply(stored.toBuilder().build())));
+    }
+
+    private static String etag(long version) {
+        return "\"" + ETags.of(version) + "\"";
+    }
 }
@@ -0,0 +1,354 @@
+package ru.yandex.practicum.filmorate.controller.reactive;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.cache.JsonCacheConfiguration;
+import ru.yandex.practicum.filmorate.controller.ETags;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.ReactiveFilmRepository;
+import ru.yandex.practicum.filmorate.repository.ReactiveUserRepository;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.stream.LongStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@Import({JsonCacheConfiguration.class, SimpleMeterRegistry.class})
+@WebFluxTest(controllers = ReactiveFilmsController.class, properties = "spring.main.web-application-type=reactive")
+public class ReactiveFilmsControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveFilmRepository filmRepository;
+
+    @MockBean
+    private ReactiveUserRepository userRepository;
+
+    @Test
+    public void testGetFilmById() {
+        when(filmRepository.findBy(1L)).thenReturn(Mono.just(film(1L, "Star Wars")));
+
+        webTestClient.get().uri("/films/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("{\"id\": 1, \"name\":\"Star Wars\",\"description\":" +
+                        "\"Science Fiction\",\"releaseDate\":\"1999-08-19\", \"duration\": 90 }");
+
+    }
+
+    @Test
+    public void testGetFilmByIdNotModified() {
+        Film film = film(1L, "Star Wars");
+        film.setVersion(3L);
+        when(filmRepository.findBy(1L)).thenReturn(Mono.just(film));
+
+        webTestClient.get().uri("/films/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", etag(3));
+        webTestClient.get().uri("/films/1").header("If-None-Match", etag(3))
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+
+    }
+
+    @Test
+    public void testGetFilmByIdNotFound() {
+        when(filmRepository.findBy(1L)).thenReturn(Mono.empty());
+
+        webTestClient.get().uri("/films/1")
+                .exchange()
+                .expectStatus().isNotFound();
+
+    }
+
+    @Test
+    public void testGetFilms() {
+        when(filmRepository.version()).thenReturn(Mono.just(2L));
+        when(filmRepository.findAll()).thenReturn(Flux.just(film(1L, "Star Wars"), film(2L, "Alien")));
+
+        webTestClient.get().uri("/films")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectHeader().valueEquals("ETag", etag(2))
+                .expectBody().json("[{\"id\": 1, \"name\":\"Star Wars\"}, {\"id\": 2, \"name\":\"Alien\"}]");
+
+    }
+
+    @Test
+    public void testGetFilmsEmpty() {
+        when(filmRepository.version()).thenReturn(Mono.just(0L));
+        when(filmRepository.findAll()).thenReturn(Flux.empty());
+
+        webTestClient.get().uri("/films/stream")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("[]");
+
+    }
+
+    @Test
+    public void testGetFilmsNotModified() {
+        when(filmRepository.version()).thenReturn(Mono.just(7L));
+
+        webTestClient.get().uri("/films").header("If-None-Match", etag(7))
+                .exchange()
+                .expectStatus().isNotModified();
+        verify(filmRepository, never()).findAll();
+
+    }
+
+    @Test
+    public void testGetFilmsPage() {
+        when(filmRepository.version()).thenReturn(Mono.just(7L));
+        when(filmRepository.findAllAfter(4L, 3))
+                .thenReturn(Flux.fromStream(LongStream.rangeClosed(5, 7).mapToObj(id -> film(id, "Film " + id))));
+
+        webTestClient.get().uri("/films?after=4&limit=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("{\"items\": [{\"id\": 5}, {\"id\": 6}], \"next\": 6}");
+
+    }
+
+    @Test
+    public void testGetFilmsReleasedBetween() {
+        LocalDate date = LocalDate.of(1999, Month.AUGUST, 19);
+        when(filmRepository.version()).thenReturn(Mono.just(7L));
+        when(filmRepository.findAllReleasedBetween(date, date, 0L, 101)).thenReturn(Flux.just(film(1L, "Star Wars")));
+
+        webTestClient.get().uri("/films?releasedFrom=1999-08-19&releasedTo=1999-08-19")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("{\"items\": [{\"id\": 1, \"releaseDate\": \"1999-08-19\"}], \"next\": null}");
+
+    }
+
+    @Test
+    public void testGetFilmsReleasedBetweenOneSided() {
+        webTestClient.get().uri("/films?releasedFrom=1999-08-19")
+                .exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.get().uri("/films?releasedTo=1999-08-19&limit=10")
+                .exchange()
+                .expectStatus().isBadRequest();
+        verify(filmRepository, never()).findAll();
+        verify(filmRepository, never()).findAllAfter(anyLong(), anyInt());
+
+    }
+
+    @Test
+    public void testGetFilmsByIdsWithLimit() {
+        webTestClient.get().uri("/films?ids=3,1&limit=10")
+                .exchange()
+                .expectStatus().isBadRequest();
+        verify(filmRepository, never()).findAllBy(any());
+        verify(filmRepository, never()).findAllAfter(anyLong(), anyInt());
+
+    }
+
+    @Test
+    public void testSearchFilms() {
+        when(filmRepository.version()).thenReturn(Mono.just(7L));
+        when(filmRepository.search("star wars", 0, 21)).thenReturn(Flux.just(film(1L, "Star Wars")));
+
+        webTestClient.get().uri("/films/search?q=star wars")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("{\"items\": [{\"id\": 1, \"name\": \"Star Wars\"}], \"next\": null}");
+
+    }
+
+    @Test
+    public void testGetPopularFilms() {
+        when(filmRepository.findPopular(2)).thenReturn(Flux.just(film(30L, "Popular"), film(10L, "Less popular")));
+
+        webTestClient.get().uri("/films/popular?count=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("[{\"id\": 30}, {\"id\": 10}]");
+
+    }
+
+    @Test
+    public void testLikeFilm() {
+        when(filmRepository.findBy(1L)).thenReturn(Mono.just(film(1L, "Star Wars")));
+        when(userRepository.findBy(2L)).thenReturn(Mono.just(
+                new User(2L, "user@test.com", "user", null, LocalDate.of(1988, Month.APRIL, 1))));
+        when(userRepository.findBy(3L)).thenReturn(Mono.empty());
+        when(filmRepository.like(1L, 2L)).thenReturn(Mono.just(true));
+        when(filmRepository.unlike(1L, 2L)).thenReturn(Mono.just(false));
+
+        webTestClient.put().uri("/films/1/like/2")
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.delete().uri("/films/1/like/2")
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.put().uri("/films/1/like/3")
+                .exchange()
+                .expectStatus().isNotFound();
+        verify(filmRepository, never()).like(1L, 3L);
+
+    }
+
+    @Test
+    public void testSuggestFilms() {
+        when(filmRepository.version()).thenReturn(Mono.just(7L));
+        when(filmRepository.suggest("star", 10)).thenReturn(Flux.just(film(1L, "Star Wars")));
+
+        webTestClient.get().uri("/films/suggest?prefix=star")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", etag(7))
+                .expectBody().json("[{\"id\": 1, \"name\": \"Star Wars\"}]");
+
+    }
+
+    @Test
+    public void testSearchFilmsOffsetTooLarge() {
+        webTestClient.get().uri("/films/search?q=star&offset=100000")
+                .exchange()
+                .expectStatus().isBadRequest();
+        verify(filmRepository, never()).search(any(), any(Integer.class), any(Integer.class));
+
+    }
+
+    @Test
+    public void testGetFilmsPageLimitTooLarge() {
+        webTestClient.get().uri("/films?limit=100000")
+                .exchange()
+                .expectStatus().isBadRequest();
+        verify(filmRepository, never()).findAllAfter(anyLong(), any(Integer.class));
+
+    }
+
+    @Test
+    public void testGetFilmsByIds() {
+        when(filmRepository.version()).thenReturn(Mono.just(7L));
+        when(filmRepository.findAllBy(List.of(3L, 1L))).thenReturn(Flux.just(film(1L, "Star Wars")));
+
+        webTestClient.get().uri("/films?ids=3,1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("[{\"id\": 1}]");
+
+    }
+
+    @Test
+    public void testCreateFilmSuccessfully() {
+        when(filmRepository.create(any())).thenReturn(Mono.just(film(1L, "Star Wars")));
+
+        webTestClient.post().uri("/films")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"name\":\"Star Wars\",\"description\":" +
+                        "\"Science Fiction\",\"releaseDate\":\"1999-08-19\", \"duration\": 90 }")
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody().json("{\"id\": 1, \"name\":\"Star Wars\"}");
+
+    }
+
+    @Test
+    public void testCreateFilmEmptyName() {
+        webTestClient.post().uri("/films")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"name\":\"\",\"description\":" +
+                        "\"Science Fiction\",\"releaseDate\":\"1999-08-19\", \"duration\": 90 }")
+                .exchange()
+                .expectStatus().isBadRequest();
+        verify(filmRepository, never()).create(any());
+
+    }
+
+    @Test
+    public void testCreateFilmsBatch() {
+        when(filmRepository.createAll(any())).thenReturn(Flux.just(film(1L, "Star Wars"), film(2L, "Star Wars")));
+
+        webTestClient.post().uri("/films/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[{\"name\":\"Star Wars\",\"description\":\"Science Fiction\",\"releaseDate\":\"1999-08-19\",\"duration\":90},{\"name\":\"\",\"description\":\"Science Fiction\",\"releaseDate\":\"1999-08-19\",\"duration\":90},{\"name\":\"Star Wars\",\"description\":\"Science Fiction\",\"releaseDate\":\"1999-08-19\",\"duration\":90}]")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("{\"succeeded\": 2, \"failed\": 1, \"items\": [" +
+                        "{\"index\": 0, \"status\": 201, \"item\": {\"id\": 1}}," +
+                        "{\"index\": 1, \"status\": 400, \"errors\": [\"name: must not be blank\"]}," +
+                        "{\"index\": 2, \"status\": 201, \"item\": {\"id\": 2}}]}");
+
+    }
+
+    @Test
+    public void testUpdateFilmById() {
+        Film stored = film(1L, "Star Wars");
+        when(filmRepository.update(eq(1L), any())).thenAnswer(invocation ->
+                Mono.just(invocation.<UnaryOperator<Film>>getArgument(1).apply(stored.toBuilder().build())));
+
+        webTestClient.put().uri("/films")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"id\": 1, \"name\":\"Some film\"}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("{\"id\": 1, \"name\":\"Some film\"}");
+
+    }
+
+    @Test
+    public void testUpdateFilmByIdNotFound() {
+        when(filmRepository.update(eq(1L), any())).thenReturn(Mono.empty());
+
+        webTestClient.put().uri("/films")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"id\": 1, \"name\":\"Some film\"}")
+                .exchange()
+                .expectStatus().isNotFound();
+
+    }
+
+    @Test
+    public void testUpdateFilmsBatch() {
+        when(filmRepository.findAllBy(List.of(1L, 2L))).thenReturn(Flux.just(film(1L, "Star Wars")));
+        when(filmRepository.updateAll(any())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+
+        webTestClient.put().uri("/films/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[{\"id\":1,\"name\":\"A New Hope\"},{\"id\":2},{\"name\":\"No id\"}]")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("{\"succeeded\": 1, \"failed\": 2, \"items\": [" +
+                        "{\"index\": 0, \"status\": 200, \"item\": {\"id\": 1, \"name\": \"A New Hope\"}}," +
+                        "{\"index\": 1, \"status\": 404, \"errors\": [\"Film not found\"]}," +
+                        "{\"index\": 2, \"status\": 400, \"errors\": [\"id: must not be null\"]}]}");
+
+    }
+
+    private static Film film(long id, String name) {
+        return new Film(id, name, "Science Fiction", LocalDate.of(1999, Month.AUGUST, 19), Duration.ofMinutes(90));
+    }
+
+    private static String etag(long version) {
+        return "\"" + ETags.of(version) + "\"";
+    }
+}
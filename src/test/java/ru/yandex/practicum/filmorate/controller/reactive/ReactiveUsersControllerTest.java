@@ -0,0 +1,226 @@
+package ru.yandex.practicum.filmorate.controller.reactive;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.cache.JsonCacheConfiguration;
+import ru.yandex.practicum.filmorate.controller.ETags;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.DuplicateUserException;
+import ru.yandex.practicum.filmorate.repository.ReactiveUserRepository;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@Import({JsonCacheConfiguration.class, SimpleMeterRegistry.class})
+@WebFluxTest(controllers = ReactiveUsersController.class, properties = "spring.main.web-application-type=reactive")
+public class ReactiveUsersControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveUserRepository userRepository;
+
+    @Test
+    public void testGetUserById() {
+        when(userRepository.findBy(1L)).thenReturn(Mono.just(user(1L, "login_test")));
+
+        webTestClient.get().uri("/users/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("{\"id\": 1, \"email\":\"email@test.com\",\"login\":" +
+                        "\"login_test\",\"name\":\"John Wick\", \"birthday\":\"1888-04-01\" }");
+
+    }
+
+    @Test
+    public void testGetUserByIdNotFound() {
+        when(userRepository.findBy(1L)).thenReturn(Mono.empty());
+
+        webTestClient.get().uri("/users/1")
+                .exchange()
+                .expectStatus().isNotFound();
+
+    }
+
+    @Test
+    public void testGetUsers() {
+        when(userRepository.version()).thenReturn(Mono.just(2L));
+        when(userRepository.findAll()).thenReturn(Flux.just(user(1L, "login_test"), user(2L, "second")));
+
+        webTestClient.get().uri("/users")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", etag(2))
+                .expectBody().json("[{\"id\": 1, \"login\":\"login_test\"}, {\"id\": 2, \"login\":\"second\"}]");
+
+    }
+
+    @Test
+    public void testGetUsersPageZeroLimit() {
+        webTestClient.get().uri("/users?limit=0")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+    }
+
+    @Test
+    public void testCreateUserSuccessfully() {
+        when(userRepository.create(any())).thenReturn(Mono.just(user(1L, "login_test")));
+
+        webTestClient.post().uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"email\":\"email@test.com\",\"login\":\"login_test\",\"name\":\"John Wick\"," +
+                        "\"birthday\":\"1888-04-01\"}")
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody().json("{\"id\": 1, \"login\":\"login_test\"}");
+
+    }
+
+    @Test
+    public void testCreateUserInvalidEmailFormat() {
+        webTestClient.post().uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"email\":\"email\",\"login\":\"login_test\",\"name\":\"John Wick\"," +
+                        "\"birthday\":\"1888-04-01\"}")
+                .exchange()
+                .expectStatus().isBadRequest();
+        verify(userRepository, never()).create(any());
+
+    }
+
+    @Test
+    public void testUpdateUserByIdNotFound() {
+        when(userRepository.update(eq(1L), any())).thenReturn(Mono.empty());
+
+        webTestClient.put().uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"id\": 1, \"name\":\"John\"}")
+                .exchange()
+                .expectStatus().isNotFound();
+
+    }
+
+    @Test
+    public void testGetUserByLogin() {
+        when(userRepository.findByLogin("login_test")).thenReturn(Mono.just(user(1L, "login_test")));
+        when(userRepository.findByEmail("other@test.com")).thenReturn(Mono.empty());
+
+        webTestClient.get().uri("/users/by-login/login_test")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("{\"id\": 1, \"login\":\"login_test\"}");
+        webTestClient.get().uri("/users/by-email/other@test.com")
+                .exchange()
+                .expectStatus().isNotFound();
+
+    }
+
+    @Test
+    public void testUpdateUserDuplicate() {
+        when(userRepository.update(eq(1L), any()))
+                .thenReturn(Mono.error(new DuplicateUserException(Map.of(0, "login: taken is already taken"))));
+
+        webTestClient.put().uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"id\": 1, \"login\":\"taken\"}")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT)
+                .expectBody().json("{\"id\": 1, \"login\":\"taken\"}");
+
+    }
+
+    @Test
+    public void testGetCommonFriends() {
+        when(userRepository.findBy(20L)).thenReturn(Mono.just(user(20L, "neo")));
+        when(userRepository.findBy(21L)).thenReturn(Mono.just(user(21L, "trinity")));
+        when(userRepository.findBy(23L)).thenReturn(Mono.empty());
+        when(userRepository.findFriends(20L)).thenReturn(Flux.just(user(22L, "tank")));
+        when(userRepository.findCommonFriends(20L, 21L)).thenReturn(Flux.just(user(22L, "tank")));
+
+        webTestClient.get().uri("/users/20/friends")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("[{\"id\": 22, \"login\": \"tank\"}]");
+        webTestClient.get().uri("/users/20/friends/common/21")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("[{\"id\": 22}]");
+        webTestClient.get().uri("/users/23/friends")
+                .exchange()
+                .expectStatus().isNotFound();
+        webTestClient.get().uri("/users/23/friends/common/21")
+                .exchange()
+                .expectStatus().isNotFound();
+
+    }
+
+    @Test
+    public void testAddAndRemoveFriend() {
+        when(userRepository.findBy(20L)).thenReturn(Mono.just(user(20L, "neo")));
+        when(userRepository.findBy(22L)).thenReturn(Mono.just(user(22L, "tank")));
+        when(userRepository.findBy(23L)).thenReturn(Mono.empty());
+        when(userRepository.addFriend(20L, 22L)).thenReturn(Mono.just(true));
+        when(userRepository.removeFriend(20L, 22L)).thenReturn(Mono.just(true));
+
+        webTestClient.put().uri("/users/20/friends/22")
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.delete().uri("/users/20/friends/22")
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.put().uri("/users/20/friends/23")
+                .exchange()
+                .expectStatus().isNotFound();
+        webTestClient.put().uri("/users/20/friends/20")
+                .exchange()
+                .expectStatus().isBadRequest();
+        verify(userRepository, never()).addFriend(20L, 23L);
+
+    }
+
+    @Test
+    public void testUpdateUsersBatchDropsChangeOfConflictingItem() {
+        when(userRepository.findAllBy(List.of(27L, 27L))).thenReturn(Flux.just(user(27L, "morpheus")));
+        when(userRepository.updateAll(any()))
+                .thenReturn(Flux.error(new DuplicateUserException(Map.of(0, "login: taken is already taken"))))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+
+        webTestClient.put().uri("/users/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[{\"id\":27,\"login\":\"taken\"},{\"id\":27,\"name\":\"Laurence\"}]")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("{\"succeeded\": 1, \"failed\": 1, \"items\": [" +
+                        "{\"index\": 0, \"status\": 409, \"errors\": [\"login: taken is already taken\"]}," +
+                        "{\"index\": 1, \"status\": 200, " +
+                        "\"item\": {\"id\": 27, \"login\": \"morpheus\", \"name\": \"Laurence\"}}]}");
+
+    }
+
+    private static User user(long id, String login) {
+        return new User(id, "email@test.com", login, "John Wick", LocalDate.of(1888, Month.APRIL, 1));
+    }
+
+    private static String etag(long version) {
+        return "\"" + ETags.of(version) + "\"";
+    }
+}
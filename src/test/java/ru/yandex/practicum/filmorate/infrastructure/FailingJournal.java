@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.infrastructure;
+
+import ru.yandex.practicum.filmorate.infrastructure.persistence.Journal;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Journal that rejects every append while it is failing, as a broken disk would.
+ */
+class FailingJournal implements Journal {
+    private long lsn;
+    private volatile boolean failing;
+
+    void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    @Override
+    public long appendFilm(Film film) {
+        return append();
+    }
+
+    @Override
+    public long appendUser(User user) {
+        return append();
+    }
+
+    @Override
+    public long appendLike(long filmId, long userId, boolean liked) {
+        return append();
+    }
+
+    @Override
+    public long appendFriend(long userId, long friendId, boolean added) {
+        return append();
+    }
+
+    @Override
+    public void awaitDurable(long lsn) {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private synchronized long append() {
+        if (failing) {
+            throw new UncheckedIOException(new IOException("No space left on device"));
+        }
+        return ++lsn;
+    }
+}
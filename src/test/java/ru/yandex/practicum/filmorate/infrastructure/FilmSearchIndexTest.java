@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.infrastructure;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmSearchIndexTest {
+    private final FilmSearchIndex index = new FilmSearchIndex();
+
+    @Test
+    void splitsTextIntoLowerCaseWords() {
+        assertEquals(List.of("star", "wars", "épisode", "1"), FilmSearchIndex.terms("Star-Wars: ÉPISODE 1, star!"));
+        assertEquals(List.of(), FilmSearchIndex.terms("  --  "));
+    }
+
+    @Test
+    void findsFilmsContainingEveryWord() {
+        index.update(null, film(1L, "Star Wars", "Space opera"));
+        index.update(null, film(2L, "Star Trek", "Space travel"));
+        index.update(null, film(3L, "Wars of roses", "History"));
+
+        assertArrayEquals(new long[]{1L, 2L}, index.search("star", 0, 10, 3, id -> true));
+        assertArrayEquals(new long[]{1L}, index.search("WARS space", 0, 10, 3, id -> true));
+        assertArrayEquals(new long[]{}, index.search("star roses", 0, 10, 3, id -> true));
+        assertArrayEquals(new long[]{}, index.search("unknown", 0, 10, 3, id -> true));
+        assertArrayEquals(new long[]{}, index.search("!!", 0, 10, 3, id -> true));
+    }
+
+    @Test
+    void ranksNameMatchesAboveDescriptionMatches() {
+        index.update(null, film(1L, "Drama", "A story about a robot"));
+        index.update(null, film(2L, "Robot", "A drama"));
+        index.update(null, film(3L, "Robot robot", "Robot"));
+
+        assertArrayEquals(new long[]{3L, 2L, 1L}, index.search("robot", 0, 10, 3, id -> true));
+        assertArrayEquals(new long[]{2L, 1L}, index.search("robot", 1, 10, 3, id -> true));
+        assertArrayEquals(new long[]{3L}, index.search("robot", 0, 1, 3, id -> true));
+    }
+
+    @Test
+    void leavesOutFilmsThatAreGoneBeforeTakingPage() {
+        index.update(null, film(1L, "Drama", "A story about a robot"));
+        index.update(null, film(2L, "Robot", "A drama"));
+        index.update(null, film(3L, "Robot robot", "Robot"));
+
+        assertArrayEquals(new long[]{2L}, index.search("robot", 0, 1, 3, id -> id != 3L));
+        assertArrayEquals(new long[]{2L, 1L}, index.search("robot", 0, 2, 3, id -> id != 3L));
+        assertArrayEquals(new long[]{1L}, index.search("robot", 1, 2, 3, id -> id != 3L));
+    }
+
+    @Test
+    void updateMovesFilmToNewWords() {
+        Film before = film(1L, "Star Wars", "Space opera");
+        Film after = film(1L, "Star Trek", "Space opera");
+        index.update(null, before);
+
+        index.update(before, after);
+
+        assertArrayEquals(new long[]{}, index.search("wars", 0, 10, 1, id -> true));
+        assertArrayEquals(new long[]{1L}, index.search("trek star", 0, 10, 1, id -> true));
+    }
+
+    @Test
+    void skippedBlocksDoNotChangeRanking() {
+        List<Film> films = new ArrayList<>();
+        for (long id = 1; id <= 10_000; id++) {
+            films.add(film(id, id % 1_000 == 0 ? "Common common" : "Film", id % 3 == 0 ? "common words" : "common"));
+        }
+        index.rebuild(films);
+        index.update(films.get(0), film(1L, "Common common common", "common"));
+
+        long[] ids = index.search("common", 0, 5, films.size(), id -> true);
+
+        assertArrayEquals(new long[]{1L, 1_000L, 2_000L, 3_000L, 4_000L}, ids);
+        assertEquals(3_333, index.search("common words", 0, 10_000, films.size(), id -> true).length);
+    }
+
+    private static Film film(long id, String name, String description) {
+        return new Film(id, name, description, LocalDate.of(2000, 1, 1), Duration.ofMinutes(90));
+    }
+}
@@ -0,0 +1,329 @@
+package ru.yandex.practicum.filmorate.infrastructure;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.infrastructure.persistence.Journal;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.repository.ReleaseOrder;
+import ru.yandex.practicum.filmorate.util.IdGenerator;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryFilmRepositoryTest {
+    private static final int THREADS = 16;
+    private static final int FILMS_PER_THREAD = 2_000;
+
+    private final InMemoryFilmRepository filmRepository = new InMemoryFilmRepository(new IdGenerator(), Journal.NONE);
+
+    @Test
+    void concurrentCreatesAreNotLost() throws Exception {
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        Future<Integer> reader = executor.submit(() -> {
+            int iterations = 0;
+            while (writing.get()) {
+                for (Film film : filmRepository.findAll()) {
+                    assertNotNull(film.getId());
+                }
+                iterations++;
+            }
+            return iterations;
+        });
+
+        List<Future<List<Long>>> writers = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            writers.add(executor.submit(() -> {
+                List<Long> ids = new ArrayList<>();
+                for (int j = 0; j < FILMS_PER_THREAD; j++) {
+                    ids.add(filmRepository.create(film("Film " + j)).getId());
+                }
+                return ids;
+            }));
+        }
+        Set<Long> ids = new HashSet<>();
+        for (Future<List<Long>> writer : writers) {
+            ids.addAll(writer.get(30, TimeUnit.SECONDS));
+        }
+        writing.set(false);
+        reader.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals(THREADS * FILMS_PER_THREAD, ids.size());
+        assertEquals(THREADS * FILMS_PER_THREAD, filmRepository.findAll().size());
+        for (Long id : ids) {
+            assertTrue(filmRepository.findBy(id).isPresent());
+        }
+    }
+
+    @Test
+    void concurrentUpdatesAreNotLost() throws Exception {
+        long id = filmRepository.create(film("Film")).getId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<List<Long>>> writers = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            int thread = i;
+            writers.add(executor.submit(() -> {
+                List<Long> versions = new ArrayList<>();
+                for (int j = 0; j < FILMS_PER_THREAD; j++) {
+                    Film film = film("Film " + thread + " v" + j);
+                    film.setId(id);
+                    versions.add(filmRepository.update(film).getVersion());
+                }
+                return versions;
+            }));
+        }
+        Set<Long> versions = new HashSet<>();
+        for (Future<List<Long>> writer : writers) {
+            versions.addAll(writer.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        // Every update bumps the version it read, so two updates built on the same version would repeat it
+        assertEquals(THREADS * FILMS_PER_THREAD, versions.size());
+        Film film = filmRepository.findBy(id).orElseThrow();
+        assertEquals(THREADS * FILMS_PER_THREAD + 1L, film.getVersion());
+        assertTrue(film.getName().endsWith(" v" + (FILMS_PER_THREAD - 1)));
+        assertEquals(1, filmRepository.findAll().size());
+    }
+
+    @Test
+    void findAllAfterReturnsPageOrderedById() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ids.add(filmRepository.create(film("Film " + i)).getId());
+        }
+
+        List<Film> firstPage = filmRepository.findAllAfter(0L, 4);
+        List<Film> lastPage = filmRepository.findAllAfter(ids.get(7), 4);
+
+        assertEquals(ids.subList(0, 4), firstPage.stream().map(Film::getId).toList());
+        assertEquals(ids.subList(8, 10), lastPage.stream().map(Film::getId).toList());
+        assertTrue(filmRepository.findAllAfter(ids.get(9), 4).isEmpty());
+        assertTrue(filmRepository.findAllAfter(Long.MAX_VALUE, 4).isEmpty());
+    }
+
+    @Test
+    void findAllIsPointInTimeSnapshot() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(filmRepository.create(film("Film " + i)).getId());
+        }
+        Collection<Film> snapshot = filmRepository.findAll();
+
+        Film changed = filmRepository.findBy(ids.get(0)).orElseThrow().toBuilder().name("changed").build();
+        filmRepository.update(changed);
+        filmRepository.create(film("new"));
+
+        assertEquals(3, snapshot.size());
+        assertEquals(ids, snapshot.stream().map(Film::getId).toList());
+        assertEquals("Film 0", snapshot.iterator().next().getName());
+        assertEquals(4, filmRepository.findAll().size());
+        assertEquals("changed", filmRepository.findAll().iterator().next().getName());
+    }
+
+    private static Film film(String name) {
+        return new Film(null, name, "Description", LocalDate.of(1999, Month.AUGUST, 19), Duration.ofMinutes(90));
+    }
+
+    @Test
+    void createAllAssignsConsecutiveIdsAndUpdateAllReplaces() {
+        filmRepository.create(film("single"));
+        List<Film> batch = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            batch.add(film("Film " + i));
+        }
+
+        List<Film> created = filmRepository.createAll(batch);
+
+        assertEquals(List.of(2L, 3L, 4L, 5L, 6L), created.stream().map(Film::getId).toList());
+        assertEquals(6, filmRepository.findAll().size());
+
+        List<Film> changed = List.of(
+                created.get(0).toBuilder().name("first").build(),
+                created.get(4).toBuilder().name("last").build());
+        filmRepository.updateAll(changed);
+
+        assertEquals("first", filmRepository.findBy(2L).orElseThrow().getName());
+        assertEquals("last", filmRepository.findBy(6L).orElseThrow().getName());
+        assertEquals(6, filmRepository.findAll().size());
+    }
+
+    @Test
+    void findAllByReturnsExistingOrderedById() {
+        for (int i = 0; i < 5; i++) {
+            filmRepository.create(film("Film " + i));
+        }
+
+        List<Film> found = filmRepository.findAllBy(Arrays.asList(4L, 2L, 99L, null, 2L, 0L));
+
+        assertEquals(List.of(2L, 4L), found.stream().map(Film::getId).toList());
+        assertTrue(filmRepository.findAllBy(List.of()).isEmpty());
+    }
+
+    @Test
+    void everySaveMakesFilmAndCatalogVersionGreater() {
+        Film first = filmRepository.create(film("First"));
+        Film second = filmRepository.createAll(new ArrayList<>(List.of(film("Second")))).get(0);
+        filmRepository.update(first.toBuilder().name("First, updated").build());
+        filmRepository.updateAll(List.of(
+                second.toBuilder().name("Second, updated").build(),
+                second.toBuilder().name("Second, updated twice").build()));
+
+        assertEquals(1L, second.getVersion());
+        assertEquals(2L, filmRepository.findBy(first.getId()).orElseThrow().getVersion());
+        assertEquals(3L, filmRepository.findBy(second.getId()).orElseThrow().getVersion());
+        assertEquals(5L, filmRepository.version());
+    }
+
+    @Test
+    void searchFollowsCreatesAndUpdates() {
+        Film first = filmRepository.create(film("Star Wars"));
+        Film second = filmRepository.createAll(new ArrayList<>(List.of(film("Star Trek")))).get(0);
+        filmRepository.update(first.toBuilder().name("Alien").build());
+        filmRepository.updateAll(List.of(
+                second.toBuilder().name("Star Gate").build(),
+                second.toBuilder().name("Star Trek Beyond").build()));
+
+        assertEquals(List.of(second.getId()), ids(filmRepository.search("star", 0, 10)));
+        assertEquals(List.of(), filmRepository.search("gate", 0, 10));
+        assertEquals(List.of(first.getId()), ids(filmRepository.search("alien", 0, 10)));
+        assertEquals(List.of(), filmRepository.search("wars", 0, 10));
+    }
+
+    @Test
+    void findAllReleasedBetweenPagesByDateThenId() {
+        Film late = filmRepository.create(released(2010));
+        Film early = filmRepository.create(released(1990));
+        Film middle = filmRepository.create(released(2000));
+        Film sameDay = filmRepository.create(released(2000));
+        Film moved = filmRepository.create(released(1950));
+        filmRepository.create(released(2020));
+        filmRepository.update(moved.toBuilder().releaseDate(LocalDate.of(2005, 1, 1)).build());
+        LocalDate from = LocalDate.of(1990, 1, 1);
+        LocalDate to = LocalDate.of(2010, 1, 1);
+
+        List<Film> firstPage = filmRepository.findAllReleasedBetween(from, to, 0L, 3);
+        List<Film> secondPage = filmRepository.findAllReleasedBetween(
+                from, to, ReleaseOrder.positionOf(firstPage.get(2)), 3);
+
+        assertEquals(List.of(early.getId(), middle.getId(), sameDay.getId()), ids(firstPage));
+        assertEquals(List.of(moved.getId(), late.getId()), ids(secondPage));
+        assertEquals(List.of(), filmRepository.findAllReleasedBetween(to, from, 0L, 3));
+    }
+
+    @Test
+    void suggestFindsFilmsByNamePrefix() {
+        Film wars = filmRepository.create(film("Star Wars"));
+        Film trek = filmRepository.create(film("Star Trek"));
+        Film renamed = filmRepository.create(film("Starship Troopers"));
+        filmRepository.createAll(new ArrayList<>(List.of(film("Alien"), film("The Star"))));
+        filmRepository.update(renamed.toBuilder().name("Troopers").build());
+
+        assertEquals(List.of(trek.getId(), wars.getId()), ids(filmRepository.suggest("star", 10)));
+        assertEquals(List.of(trek.getId()), ids(filmRepository.suggest("STAR", 1)));
+        assertEquals(List.of(renamed.getId()), ids(filmRepository.suggest("troop", 10)));
+        assertEquals(List.of(), filmRepository.suggest("starship", 10));
+    }
+
+    @Test
+    void popularOrdersFilmsByLikesThenId() {
+        Film first = filmRepository.create(film("First"));
+        Film second = filmRepository.create(film("Second"));
+        Film third = filmRepository.create(film("Third"));
+
+        assertTrue(filmRepository.like(third.getId(), 1L));
+        assertTrue(filmRepository.like(third.getId(), 2L));
+        assertFalse(filmRepository.like(third.getId(), 2L));
+        assertTrue(filmRepository.like(second.getId(), 1L));
+        assertFalse(filmRepository.like(42L, 1L));
+
+        assertEquals(List.of(third.getId(), second.getId(), first.getId()), ids(filmRepository.findPopular(10)));
+        assertEquals(List.of(third.getId()), ids(filmRepository.findPopular(1)));
+
+        assertTrue(filmRepository.unlike(third.getId(), 1L));
+        assertTrue(filmRepository.unlike(third.getId(), 2L));
+        assertFalse(filmRepository.unlike(third.getId(), 2L));
+
+        assertEquals(List.of(second.getId(), first.getId(), third.getId()), ids(filmRepository.findPopular(10)));
+    }
+
+    @Test
+    void concurrentLikesAreCountedExactly() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ids.add(filmRepository.create(film("Film " + i)).getId());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            long firstUser = (long) i * FILMS_PER_THREAD;
+            writers.add(executor.submit(() -> {
+                for (long userId = firstUser; userId < firstUser + FILMS_PER_THREAD; userId++) {
+                    for (int film = 0; film < ids.size(); film++) {
+                        if (userId % (film + 1) == 0) {
+                            filmRepository.like(ids.get(film), userId);
+                        }
+                    }
+                    if (userId % 8 == 0) {
+                        filmRepository.unlike(ids.get(3), userId);
+                    }
+                    for (Film popular : filmRepository.findPopular(ids.size())) {
+                        assertNotNull(popular.getId());
+                    }
+                }
+            }));
+        }
+        for (Future<?> writer : writers) {
+            writer.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        int users = THREADS * FILMS_PER_THREAD;
+        assertEquals(ids, ids(filmRepository.findPopular(10)));
+        Map<Long, Integer> counts = new HashMap<>();
+        filmRepository.likesSnapshot().forEach(links -> counts.put(links.id(), links.ids().length));
+        assertEquals(Map.of(ids.get(0), users, ids.get(1), users / 2, ids.get(2), users / 3 + 1, ids.get(3), users / 8),
+                counts);
+    }
+
+    @Test
+    void changesThatFailToBeJournaledAreNotApplied() {
+        FailingJournal journal = new FailingJournal();
+        InMemoryFilmRepository films = new InMemoryFilmRepository(new IdGenerator(), journal);
+        Film kept = films.create(film("Kept"));
+        journal.setFailing(true);
+
+        assertThrows(UncheckedIOException.class, () -> films.create(film("Lost")));
+        assertThrows(UncheckedIOException.class, () -> films.createAll(new ArrayList<>(List.of(film("Lost")))));
+        assertThrows(UncheckedIOException.class,
+                () -> films.update(kept.toBuilder().name("Changed").releaseDate(null).build()));
+        assertThrows(UncheckedIOException.class, () -> films.like(kept.getId(), 1L));
+
+        assertEquals(List.of(kept.getId()), ids(List.copyOf(films.findAll())));
+        assertEquals("Kept", films.findBy(kept.getId()).orElseThrow().getName());
+        assertEquals(1L, films.version());
+        assertEquals(List.of(), films.search("lost", 0, 10));
+        assertEquals(List.of(), films.search("changed", 0, 10));
+        assertEquals(List.of(), films.suggest("Changed", 10));
+        assertEquals(List.of(kept.getId()), ids(films.findAllReleasedBetween(LocalDate.of(1999, Month.JANUARY, 1),
+                LocalDate.of(1999, Month.DECEMBER, 31), 0L, 10)));
+        assertEquals(List.of(), films.likesSnapshot());
+    }
+
+    private static Film released(int year) {
+        return new Film(null, "Film", "Description", LocalDate.of(year, 1, 1), Duration.ofMinutes(90));
+    }
+
+    private static List<Long> ids(List<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+}
@@ -0,0 +1,386 @@
+package ru.yandex.practicum.filmorate.infrastructure;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.infrastructure.persistence.Journal;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.DuplicateUserException;
+import ru.yandex.practicum.filmorate.util.IdGenerator;
+
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryUserRepositoryTest {
+    private static final int THREADS = 16;
+    private static final int USERS_PER_THREAD = 2_000;
+
+    private final InMemoryUserRepository userRepository = new InMemoryUserRepository(new IdGenerator(), Journal.NONE);
+
+    @Test
+    void concurrentCreatesAreNotLost() throws Exception {
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        Future<Integer> reader = executor.submit(() -> {
+            int iterations = 0;
+            while (writing.get()) {
+                for (User user : userRepository.findAll()) {
+                    assertNotNull(user.getId());
+                }
+                iterations++;
+            }
+            return iterations;
+        });
+
+        List<Future<List<Long>>> writers = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            int thread = i;
+            writers.add(executor.submit(() -> {
+                List<Long> ids = new ArrayList<>();
+                for (int j = 0; j < USERS_PER_THREAD; j++) {
+                    ids.add(userRepository.create(user("login_" + thread + "_" + j)).getId());
+                }
+                return ids;
+            }));
+        }
+        Set<Long> ids = new HashSet<>();
+        for (Future<List<Long>> writer : writers) {
+            ids.addAll(writer.get(30, TimeUnit.SECONDS));
+        }
+        writing.set(false);
+        reader.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals(THREADS * USERS_PER_THREAD, ids.size());
+        assertEquals(THREADS * USERS_PER_THREAD, userRepository.findAll().size());
+        for (Long id : ids) {
+            assertTrue(userRepository.findBy(id).isPresent());
+        }
+    }
+
+    @Test
+    void concurrentUpdatesAreNotLost() throws Exception {
+        long id = userRepository.create(user("login")).getId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<List<Long>>> writers = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            int thread = i;
+            writers.add(executor.submit(() -> {
+                List<Long> versions = new ArrayList<>();
+                for (int j = 0; j < USERS_PER_THREAD; j++) {
+                    User user = user("login_" + thread + "_v" + j);
+                    user.setId(id);
+                    versions.add(userRepository.update(user).getVersion());
+                }
+                return versions;
+            }));
+        }
+        Set<Long> versions = new HashSet<>();
+        for (Future<List<Long>> writer : writers) {
+            versions.addAll(writer.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        // Every update bumps the version it read, so two updates built on the same version would repeat it
+        assertEquals(THREADS * USERS_PER_THREAD, versions.size());
+        User user = userRepository.findBy(id).orElseThrow();
+        assertEquals(THREADS * USERS_PER_THREAD + 1L, user.getVersion());
+        assertTrue(user.getLogin().endsWith("_v" + (USERS_PER_THREAD - 1)));
+        assertEquals(1, userRepository.findAll().size());
+        // Only the last login stays taken, so any other login written during the run is free again
+        String released = user.getLogin().equals("login_0_v0") ? "login_1_v0" : "login_0_v0";
+        assertNotNull(userRepository.create(user(released)).getId());
+    }
+
+    @Test
+    void findAllAfterReturnsPageOrderedById() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ids.add(userRepository.create(user("login_" + i)).getId());
+        }
+
+        List<User> firstPage = userRepository.findAllAfter(0L, 4);
+        List<User> lastPage = userRepository.findAllAfter(ids.get(7), 4);
+
+        assertEquals(ids.subList(0, 4), firstPage.stream().map(User::getId).toList());
+        assertEquals(ids.subList(8, 10), lastPage.stream().map(User::getId).toList());
+        assertTrue(userRepository.findAllAfter(ids.get(9), 4).isEmpty());
+        assertTrue(userRepository.findAllAfter(Long.MAX_VALUE, 4).isEmpty());
+    }
+
+    @Test
+    void findAllIsPointInTimeSnapshot() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(userRepository.create(user("login_" + i)).getId());
+        }
+        Collection<User> snapshot = userRepository.findAll();
+
+        User changed = userRepository.findBy(ids.get(0)).orElseThrow().toBuilder().login("changed").build();
+        userRepository.update(changed);
+        userRepository.create(user("new"));
+
+        assertEquals(3, snapshot.size());
+        assertEquals(ids, snapshot.stream().map(User::getId).toList());
+        assertEquals("login_0", snapshot.iterator().next().getLogin());
+        assertEquals(4, userRepository.findAll().size());
+        assertEquals("changed", userRepository.findAll().iterator().next().getLogin());
+    }
+
+    private static User user(String login) {
+        return new User(null, login + "@test.com", login, "John Wick", LocalDate.of(1988, Month.APRIL, 1));
+    }
+
+    @Test
+    void createAllAssignsConsecutiveIdsAndUpdateAllReplaces() {
+        userRepository.create(user("single"));
+        List<User> batch = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            batch.add(user("login_" + i));
+        }
+
+        List<User> created = userRepository.createAll(batch);
+
+        assertEquals(List.of(2L, 3L, 4L, 5L, 6L), created.stream().map(User::getId).toList());
+        assertEquals(6, userRepository.findAll().size());
+
+        List<User> changed = List.of(
+                created.get(0).toBuilder().login("first").build(),
+                created.get(4).toBuilder().login("last").build());
+        userRepository.updateAll(changed);
+
+        assertEquals("first", userRepository.findBy(2L).orElseThrow().getLogin());
+        assertEquals("last", userRepository.findBy(6L).orElseThrow().getLogin());
+        assertEquals(6, userRepository.findAll().size());
+    }
+
+    @Test
+    void findAllByReturnsExistingOrderedById() {
+        for (int i = 0; i < 5; i++) {
+            userRepository.create(user("login_" + i));
+        }
+
+        List<User> found = userRepository.findAllBy(Arrays.asList(4L, 2L, 99L, null, 2L, 0L));
+
+        assertEquals(List.of(2L, 4L), found.stream().map(User::getId).toList());
+        assertTrue(userRepository.findAllBy(List.of()).isEmpty());
+    }
+
+    @Test
+    void findsUsersByEmailIgnoringCaseAndByLogin() {
+        User created = userRepository.create(user("neo"));
+
+        assertEquals(created.getId(), userRepository.findByEmail("NEO@Test.com").orElseThrow().getId());
+        assertEquals(created.getId(), userRepository.findByLogin("neo").orElseThrow().getId());
+        assertTrue(userRepository.findByLogin("NEO").isEmpty());
+        assertTrue(userRepository.findByEmail("trinity@test.com").isEmpty());
+        assertTrue(userRepository.findByEmail(null).isEmpty());
+    }
+
+    @Test
+    void rejectsTakenEmailOrLoginAndKeepsStoredUsers() {
+        userRepository.create(user("neo"));
+        User sameEmail = user("trinity").toBuilder().email("Neo@test.com").build();
+
+        DuplicateUserException emailTaken = assertThrows(DuplicateUserException.class,
+                () -> userRepository.create(sameEmail));
+        assertThrows(DuplicateUserException.class, () -> userRepository.create(user("neo")));
+
+        assertEquals(Map.of(0, "email: Neo@test.com is already taken"), emailTaken.getConflicts());
+        assertEquals(1, userRepository.findAll().size());
+        assertTrue(userRepository.findByLogin("trinity").isEmpty());
+        assertEquals(1L, userRepository.version());
+    }
+
+    @Test
+    void renamedLoginIsFreedForOthers() {
+        User neo = userRepository.create(user("neo"));
+
+        userRepository.update(neo.toBuilder().login("the_one").build());
+        User other = userRepository.create(user("morpheus").toBuilder().login("neo").build());
+
+        assertEquals(neo.getId(), userRepository.findByLogin("the_one").orElseThrow().getId());
+        assertEquals(other.getId(), userRepository.findByLogin("neo").orElseThrow().getId());
+        assertEquals(neo.getId(), userRepository.findByEmail("neo@test.com").orElseThrow().getId());
+    }
+
+    @Test
+    void batchWithConflictsSavesNothing() {
+        userRepository.create(user("neo"));
+        List<User> batch = List.of(user("trinity"), user("neo"), user("morpheus"),
+                user("tank").toBuilder().login("trinity").build());
+
+        DuplicateUserException e = assertThrows(DuplicateUserException.class, () -> userRepository.createAll(batch));
+
+        assertEquals(Set.of(1, 3), e.getConflicts().keySet());
+        assertEquals(1, userRepository.findAll().size());
+        assertTrue(userRepository.findByLogin("trinity").isEmpty());
+        assertTrue(userRepository.findByEmail("morpheus@test.com").isEmpty());
+        assertEquals(2, userRepository.createAll(List.of(user("trinity"), user("morpheus"))).size());
+    }
+
+    @Test
+    void suggestFindsUsersByLoginPrefix() {
+        User neo = userRepository.create(user("neo"));
+        User nemo = userRepository.create(user("Nemo"));
+        userRepository.createAll(List.of(user("morpheus"), user("niobe")));
+        userRepository.update(neo.toBuilder().login("the_one").build());
+
+        assertEquals(List.of(nemo.getId()), userRepository.suggest("ne", 10).stream().map(User::getId).toList());
+        assertEquals(List.of(neo.getId()), userRepository.suggest("THE", 10).stream().map(User::getId).toList());
+        assertEquals(2, userRepository.suggest("n", 10).size());
+    }
+
+    @Test
+    void exactlyOneOfConcurrentClaimsOfOneEmailWins() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int round = 0; round < 100; round++) {
+            String email = "race_" + round + "@test.com";
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Boolean>> attempts = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                User user = user("race_" + round + "_" + i).toBuilder().email(email).build();
+                attempts.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        userRepository.create(user);
+                        return true;
+                    } catch (DuplicateUserException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+            int won = 0;
+            for (Future<Boolean> attempt : attempts) {
+                won += attempt.get(30, TimeUnit.SECONDS) ? 1 : 0;
+            }
+            assertEquals(1, won);
+            assertTrue(userRepository.findByEmail(email).isPresent());
+        }
+        executor.shutdown();
+
+        assertEquals(100, userRepository.findAll().size());
+    }
+
+    @Test
+    void friendshipsAreMutualAndCommonFriendsAreOrderedById() {
+        User neo = userRepository.create(user("neo"));
+        User trinity = userRepository.create(user("trinity"));
+        User morpheus = userRepository.create(user("morpheus"));
+        User tank = userRepository.create(user("tank"));
+
+        assertTrue(userRepository.addFriend(neo.getId(), tank.getId()));
+        assertTrue(userRepository.addFriend(morpheus.getId(), neo.getId()));
+        assertFalse(userRepository.addFriend(tank.getId(), neo.getId()));
+        assertTrue(userRepository.addFriend(trinity.getId(), morpheus.getId()));
+        assertTrue(userRepository.addFriend(trinity.getId(), tank.getId()));
+        assertFalse(userRepository.addFriend(neo.getId(), neo.getId()));
+        assertFalse(userRepository.addFriend(neo.getId(), 42L));
+
+        assertEquals(List.of(morpheus.getId(), tank.getId()), ids(userRepository.findFriends(neo.getId())));
+        assertEquals(List.of(neo.getId(), trinity.getId()), ids(userRepository.findFriends(tank.getId())));
+        assertEquals(List.of(morpheus.getId(), tank.getId()),
+                ids(userRepository.findCommonFriends(neo.getId(), trinity.getId())));
+        assertEquals(List.of(), userRepository.findCommonFriends(neo.getId(), 42L));
+        assertEquals(1L, userRepository.findBy(neo.getId()).orElseThrow().getVersion());
+
+        assertTrue(userRepository.removeFriend(tank.getId(), neo.getId()));
+        assertFalse(userRepository.removeFriend(neo.getId(), tank.getId()));
+
+        assertEquals(List.of(morpheus.getId()), ids(userRepository.findFriends(neo.getId())));
+        assertEquals(List.of(trinity.getId()), ids(userRepository.findFriends(tank.getId())));
+    }
+
+    @Test
+    void friendsSnapshotRestoresEveryFriendship() {
+        List<User> users = userRepository.createAll(List.of(user("neo"), user("trinity"), user("morpheus")));
+        userRepository.addFriend(users.get(2).getId(), users.get(0).getId());
+        userRepository.addFriend(users.get(1).getId(), users.get(2).getId());
+
+        InMemoryUserRepository restored = new InMemoryUserRepository(new IdGenerator(), Journal.NONE);
+        restored.restoreAll(userRepository.snapshot(), userRepository.friendsSnapshot());
+
+        for (User user : users) {
+            assertEquals(ids(userRepository.findFriends(user.getId())), ids(restored.findFriends(user.getId())));
+        }
+        assertEquals(2, userRepository.friendsSnapshot().stream().mapToInt(links -> links.ids().length).sum());
+    }
+
+    @Test
+    void concurrentFriendshipChangesKeepBothSidesEqual() throws Exception {
+        List<User> created = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            created.add(user("friend_" + i));
+        }
+        List<Long> ids = ids(userRepository.createAll(created));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            long seed = i;
+            writers.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                for (int j = 0; j < USERS_PER_THREAD * 5; j++) {
+                    long id = ids.get(random.nextInt(ids.size()));
+                    long friendId = ids.get(random.nextInt(ids.size()));
+                    if (random.nextInt(3) == 0) {
+                        userRepository.removeFriend(id, friendId);
+                    } else {
+                        userRepository.addFriend(friendId, id);
+                    }
+                    userRepository.findCommonFriends(id, friendId);
+                }
+            }));
+        }
+        for (Future<?> writer : writers) {
+            writer.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        int edges = 0;
+        for (long id : ids) {
+            for (User friend : userRepository.findFriends(id)) {
+                assertNotEquals(id, friend.getId());
+                assertTrue(ids(userRepository.findFriends(friend.getId())).contains(id));
+                edges++;
+            }
+        }
+        assertTrue(edges > 0);
+        assertEquals(edges / 2, userRepository.friendsSnapshot().stream().mapToInt(links -> links.ids().length).sum());
+    }
+
+    @Test
+    void changesThatFailToBeJournaledAreNotApplied() {
+        FailingJournal journal = new FailingJournal();
+        InMemoryUserRepository users = new InMemoryUserRepository(new IdGenerator(), journal);
+        User neo = users.create(user("neo"));
+        User trinity = users.create(user("trinity"));
+        journal.setFailing(true);
+
+        assertThrows(UncheckedIOException.class, () -> users.create(user("morpheus")));
+        assertThrows(UncheckedIOException.class, () -> users.createAll(new ArrayList<>(List.of(user("tank")))));
+        assertThrows(UncheckedIOException.class, () -> users.update(neo.toBuilder().login("the_one").build()));
+        assertThrows(UncheckedIOException.class, () -> users.addFriend(neo.getId(), trinity.getId()));
+
+        assertEquals(List.of(neo.getId(), trinity.getId()), ids(List.copyOf(users.findAll())));
+        assertEquals(2L, users.version());
+        assertEquals(neo.getId(), users.findByLogin("neo").orElseThrow().getId());
+        assertTrue(users.findByLogin("the_one").isEmpty());
+        assertEquals(List.of(), users.suggest("the", 10));
+        assertEquals(List.of(), users.findFriends(neo.getId()));
+
+        journal.setFailing(false);
+        assertNotNull(users.create(user("morpheus")).getId());
+        assertEquals("the_one", users.update(neo.toBuilder().login("the_one").build()).getLogin());
+    }
+
+    private static List<Long> ids(List<User> users) {
+        return users.stream().map(User::getId).toList();
+    }
+}
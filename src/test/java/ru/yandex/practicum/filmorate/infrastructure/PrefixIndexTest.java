@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.infrastructure;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixIndexTest {
+    private final PrefixIndex index = new PrefixIndex();
+    private final Map<Long, String> texts = new HashMap<>();
+
+    @Test
+    void findsTextsStartingWithPrefixIgnoringCaseInTextOrder() {
+        put(1L, "Star Wars");
+        put(2L, "star trek");
+        put(3L, "Stardust");
+        put(4L, "The Star");
+        put(5L, "Star Wars");
+
+        assertEquals(List.of(2L, 1L, 5L, 3L), suggest("STAR", 10));
+        assertEquals(List.of(2L, 1L), suggest("star ", 2));
+        assertEquals(List.of(3L), suggest("stard", 10));
+        assertEquals(List.of(), suggest("wars", 10));
+    }
+
+    @Test
+    void updateMovesIdToNewText() {
+        put(1L, "Alien");
+        put(1L, "Aliens");
+        texts.remove(2L);
+
+        assertEquals(List.of(1L), suggest("alien", 10));
+        assertEquals(List.of(1L), suggest("aliens", 10));
+        put(1L, "Prometheus");
+        assertEquals(List.of(), suggest("alien", 10));
+        assertEquals(List.of(1L), suggest("prom", 10));
+    }
+
+    @Test
+    void skipsEntriesTheirOwnersNoLongerMatch() {
+        put(1L, "Alien");
+        texts.put(1L, "Prometheus");
+        put(2L, "Alien 3");
+        texts.remove(2L);
+
+        assertEquals(List.of(), suggest("alien", 10));
+    }
+
+    @Test
+    void cutsLongTextsButMatchesWholePrefix() {
+        String common = "a".repeat(PrefixIndex.MAX_KEY_LENGTH);
+        put(1L, common + "bc");
+        put(2L, common + "bd");
+        put(3L, common);
+
+        assertEquals(List.of(1L, 2L, 3L), suggest(common, 10));
+        assertEquals(List.of(2L), suggest(common + "bd", 10));
+    }
+
+    private void put(long id, String text) {
+        index.update(texts.get(id), text, id);
+        texts.put(id, text);
+    }
+
+    private List<Long> suggest(String prefix, int limit) {
+        return index.startingWith(prefix, limit, id -> texts.containsKey(id) ? id : null, texts::get);
+    }
+}
@@ -0,0 +1,154 @@
+package ru.yandex.practicum.filmorate.infrastructure;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import reactor.blockhound.BlockHound;
+import reactor.blockhound.BlockingOperationError;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.ReactorBlockHoundIntegration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+import ru.yandex.practicum.filmorate.infrastructure.persistence.Journal;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.IdGenerator;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Runs reactive writes on threads that BlockHound treats as an event loop, against a journal that blocks until
+ * every record is durable, as a full write-ahead log does under back-pressure.
+ */
+class ReactiveInMemoryRepositoryBlockingTest {
+    private static final String EVENT_LOOP = "blockhound-event-loop";
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private static Scheduler eventLoop;
+
+    private final Journal journal = new BlockingJournal();
+    private final IdGenerator idGenerator = new IdGenerator();
+    private final ReactiveInMemoryFilmRepository films =
+            new ReactiveInMemoryFilmRepository(new InMemoryFilmRepository(idGenerator, journal));
+    private final ReactiveInMemoryUserRepository users =
+            new ReactiveInMemoryUserRepository(new InMemoryUserRepository(idGenerator, journal));
+
+    @BeforeAll
+    static void installBlockHound() {
+        // Checks only the threads of this test, so other tests in the same JVM may still block where they like
+        BlockHound.builder()
+                .with(new ReactorBlockHoundIntegration())
+                .nonBlockingThreadPredicate(current -> thread -> thread.getName().startsWith(EVENT_LOOP))
+                .install();
+        eventLoop = Schedulers.newParallel(EVENT_LOOP, 1);
+    }
+
+    @AfterAll
+    static void disposeEventLoop() {
+        eventLoop.dispose();
+    }
+
+    @Test
+    void detectsBlockingOnEventLoop() {
+        StepVerifier.create(onEventLoop(() -> Mono.fromRunnable(() -> journal.awaitDurable(1L))))
+                .expectError(BlockingOperationError.class)
+                .verify(TIMEOUT);
+    }
+
+    @Test
+    void filmWritesDoNotBlockEventLoop() {
+        Film film = onEventLoop(() -> films.create(film("Film"))).blockLast(TIMEOUT);
+
+        StepVerifier.create(onEventLoop(() -> films.update(film.toBuilder().name("Updated").build())))
+                .expectNextCount(1)
+                .verifyComplete();
+        List<Film> batch = new ArrayList<>(List.of(film("First"), film("Second")));
+        StepVerifier.create(onEventLoop(() -> films.createAll(batch)))
+                .expectNextCount(2)
+                .verifyComplete();
+        StepVerifier.create(onEventLoop(() -> films.like(film.getId(), 1L)))
+                .expectNext(true)
+                .verifyComplete();
+        StepVerifier.create(onEventLoop(() -> films.unlike(film.getId(), 1L)))
+                .expectNext(true)
+                .verifyComplete();
+    }
+
+    @Test
+    void userWritesDoNotBlockEventLoop() {
+        User neo = onEventLoop(() -> users.create(user("neo"))).blockLast(TIMEOUT);
+        User trinity = onEventLoop(() -> users.create(user("trinity"))).blockLast(TIMEOUT);
+
+        StepVerifier.create(onEventLoop(() -> users.update(neo.toBuilder().name("Thomas Anderson").build())))
+                .expectNextCount(1)
+                .verifyComplete();
+        List<User> batch = List.of(trinity.toBuilder().name("Trinity").build());
+        StepVerifier.create(onEventLoop(() -> users.updateAll(batch)))
+                .expectNextCount(1)
+                .verifyComplete();
+        StepVerifier.create(onEventLoop(() -> users.addFriend(neo.getId(), trinity.getId())))
+                .expectNext(true)
+                .verifyComplete();
+        StepVerifier.create(onEventLoop(() -> users.removeFriend(neo.getId(), trinity.getId())))
+                .expectNext(true)
+                .verifyComplete();
+    }
+
+    private static <T> Flux<T> onEventLoop(Supplier<? extends Publisher<T>> write) {
+        return Flux.defer(write).subscribeOn(eventLoop);
+    }
+
+    private static Film film(String name) {
+        return new Film(null, name, "Description", LocalDate.of(1999, Month.AUGUST, 19), Duration.ofMinutes(90));
+    }
+
+    private static User user(String login) {
+        return new User(null, login + "@test.com", login, "John Wick", LocalDate.of(1988, Month.APRIL, 1));
+    }
+
+    /**
+     * Journal that takes a moment to make every record durable and blocks the caller meanwhile.
+     */
+    private static class BlockingJournal implements Journal {
+        @Override
+        public long appendFilm(Film film) {
+            return 0L;
+        }
+
+        @Override
+        public long appendUser(User user) {
+            return 0L;
+        }
+
+        @Override
+        public long appendLike(long filmId, long userId, boolean liked) {
+            return 0L;
+        }
+
+        @Override
+        public long appendFriend(long userId, long friendId, boolean added) {
+            return 0L;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void awaitDurable(long lsn) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
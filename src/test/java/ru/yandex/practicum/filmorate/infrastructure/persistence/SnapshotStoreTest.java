@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.infrastructure.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.PersistentLongMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotStoreTest {
+    @TempDir
+    private Path directory;
+
+    @Test
+    void loadsWhatWasWritten() throws IOException {
+        SnapshotStore store = store();
+        PersistentLongMap<Film> films = PersistentLongMap.empty();
+        for (long id = 1; id <= SnapshotStore.CHUNK_SIZE + 10; id++) {
+            films = films.put(id, film(id));
+        }
+        PersistentLongMap<User> users = PersistentLongMap.<User>empty().put(7L, user(7L));
+
+        assertTrue(store.write(new SnapshotStore.Snapshot(42L, films, users, List.of(), List.of())) > 0);
+        SnapshotStore.Snapshot loaded = store.loadLatest().orElseThrow();
+
+        assertEquals(42L, loaded.getLsn());
+        assertEquals(new ArrayList<>(films.values()), new ArrayList<>(loaded.getFilms().values()));
+        assertEquals(new ArrayList<>(users.values()), new ArrayList<>(loaded.getUsers().values()));
+    }
+
+    @Test
+    void loadsLikesAndFriendsThatWereWritten() throws IOException {
+        SnapshotStore store = store();
+        PersistentLongMap<Film> films = PersistentLongMap.<Film>empty().put(1L, film(1L)).put(2L, film(2L));
+        PersistentLongMap<User> users = PersistentLongMap.<User>empty().put(3L, user(3L)).put(5L, user(5L));
+        List<Links> likes = List.of(new Links(2L, new long[]{3L, 5L, 1L << 40}));
+        List<Links> friends = List.of(new Links(3L, new long[]{5L}));
+
+        store.write(new SnapshotStore.Snapshot(7L, films, users, likes, friends));
+        SnapshotStore.Snapshot loaded = store.loadLatest().orElseThrow();
+
+        assertEquals(1, loaded.getLikes().size());
+        assertEquals(2L, loaded.getLikes().get(0).id());
+        assertArrayEquals(likes.get(0).ids(), loaded.getLikes().get(0).ids());
+        assertEquals(1, loaded.getFriends().size());
+        assertEquals(3L, loaded.getFriends().get(0).id());
+        assertArrayEquals(new long[]{5L}, loaded.getFriends().get(0).ids());
+    }
+
+    @Test
+    void fallsBackToOlderSnapshotWhenNewestIsCorrupted() throws IOException {
+        SnapshotStore store = store();
+        store.write(snapshot(10L, "Old"));
+        store.write(snapshot(20L, "New"));
+        Path newest = snapshots().get(1);
+        try (FileChannel channel = FileChannel.open(newest, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7F}), Files.size(newest) - 1);
+        }
+
+        SnapshotStore.Snapshot loaded = store.loadLatest().orElseThrow();
+
+        assertEquals(10L, loaded.getLsn());
+        assertEquals("Old", loaded.getFilms().get(1L).getName());
+    }
+
+    @Test
+    void deleteOldKeepsRetainedSnapshots() throws IOException {
+        SnapshotStore store = store();
+        assertTrue(store.loadLatest().isEmpty());
+        for (long lsn = 1; lsn <= 4; lsn++) {
+            store.write(snapshot(lsn, "Film"));
+        }
+
+        assertEquals(3L, store.deleteOld());
+
+        assertEquals(2, snapshots().size());
+        assertEquals(4L, store.loadLatest().orElseThrow().getLsn());
+    }
+
+    private SnapshotStore store() {
+        SnapshotProperties properties = new SnapshotProperties();
+        properties.setDirectory(directory);
+        return new SnapshotStore(properties);
+    }
+
+    private List<Path> snapshots() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static SnapshotStore.Snapshot snapshot(long lsn, String filmName) {
+        Film film = film(1L).toBuilder().name(filmName).build();
+        return new SnapshotStore.Snapshot(lsn, PersistentLongMap.<Film>empty().put(1L, film), PersistentLongMap.empty(),
+                List.of(), List.of());
+    }
+
+    private static Film film(long id) {
+        return new Film(id, "Film " + id, "Description", LocalDate.of(1999, Month.AUGUST, 19), Duration.ofMinutes(90));
+    }
+
+    private static User user(long id) {
+        return new User(id, "user" + id + "@test.com", "user" + id, null, LocalDate.of(1988, Month.APRIL, 1));
+    }
+}
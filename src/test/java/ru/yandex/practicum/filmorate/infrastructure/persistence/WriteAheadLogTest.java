@@ -0,0 +1,414 @@
+package ru.yandex.practicum.filmorate.infrastructure.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import ru.yandex.practicum.filmorate.infrastructure.InMemoryFilmRepository;
+import ru.yandex.practicum.filmorate.infrastructure.InMemoryUserRepository;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.IdGenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+    @TempDir
+    private Path directory;
+
+    @Test
+    void recoveryRestoresRepositoriesAndIds() {
+        try (WriteAheadLog wal = open(Durability.SYNC)) {
+            InMemoryFilmRepository films = new InMemoryFilmRepository(new IdGenerator(), wal);
+            InMemoryUserRepository users = new InMemoryUserRepository(new IdGenerator(), wal);
+            wal.recover(0L, new Restorer(films, users));
+
+            films.create(film("First"));
+            Film second = films.create(film("Second"));
+            films.update(second.toBuilder().name("Second, updated").releaseDate(null).build());
+            users.create(user("login"));
+        }
+
+        IdGenerator idGenerator = new IdGenerator();
+        InMemoryFilmRepository films = new InMemoryFilmRepository(idGenerator, Journal.NONE);
+        InMemoryUserRepository users = new InMemoryUserRepository(idGenerator, Journal.NONE);
+        try (WriteAheadLog wal = open(Durability.SYNC)) {
+            assertEquals(4L, wal.recover(0L, new Restorer(films, users)));
+        }
+
+        assertEquals(List.of("First", "Second, updated"), films.findAll().stream().map(Film::getName).toList());
+        Film restored = films.findBy(2L).orElseThrow();
+        assertNull(restored.getReleaseDate());
+        assertEquals(Duration.ofMinutes(90), restored.getDuration());
+        assertEquals("login@test.com", users.findBy(1L).orElseThrow().getEmail());
+        assertEquals(2L, restored.getVersion());
+        assertEquals(3L, films.version());
+        assertEquals(3L, idGenerator.generateFilmId());
+        assertEquals(2L, idGenerator.generateUserId());
+    }
+
+    @Test
+    void recoveryReplaysLikes() {
+        try (WriteAheadLog wal = open(Durability.SYNC)) {
+            InMemoryFilmRepository films = new InMemoryFilmRepository(new IdGenerator(), wal);
+            wal.recover(0L, new Restorer(films, null));
+
+            Film first = films.create(film("First"));
+            Film second = films.create(film("Second"));
+            assertTrue(films.like(second.getId(), 7L));
+            assertTrue(films.like(second.getId(), 8L));
+            assertTrue(films.like(first.getId(), 7L));
+            assertTrue(films.unlike(first.getId(), 7L));
+            assertFalse(films.unlike(first.getId(), 7L));
+        }
+
+        InMemoryFilmRepository films = new InMemoryFilmRepository(new IdGenerator(), Journal.NONE);
+        try (WriteAheadLog wal = open(Durability.SYNC)) {
+            assertEquals(6L, wal.recover(0L, new Restorer(films, null)));
+        }
+
+        assertEquals(List.of("Second", "First"), films.findPopular(10).stream().map(Film::getName).toList());
+        List<Links> likes = films.likesSnapshot();
+        assertEquals(1, likes.size());
+        assertArrayEquals(new long[]{7L, 8L}, likes.get(0).ids());
+    }
+
+    @Test
+    void recoveryReplaysFriendships() {
+        try (WriteAheadLog wal = open(Durability.SYNC)) {
+            InMemoryUserRepository users = new InMemoryUserRepository(new IdGenerator(), wal);
+            wal.recover(0L, new Restorer(null, users));
+
+            User neo = users.create(user("neo"));
+            User trinity = users.create(user("trinity"));
+            User tank = users.create(user("tank"));
+            assertTrue(users.addFriend(neo.getId(), trinity.getId()));
+            assertTrue(users.addFriend(tank.getId(), neo.getId()));
+            assertTrue(users.removeFriend(trinity.getId(), neo.getId()));
+        }
+
+        InMemoryUserRepository users = new InMemoryUserRepository(new IdGenerator(), Journal.NONE);
+        try (WriteAheadLog wal = open(Durability.SYNC)) {
+            assertEquals(6L, wal.recover(0L, new Restorer(null, users)));
+        }
+
+        assertEquals(List.of(3L), users.findFriends(1L).stream().map(User::getId).toList());
+        assertEquals(List.of(1L), users.findFriends(3L).stream().map(User::getId).toList());
+        assertEquals(List.of(), users.findFriends(2L));
+    }
+
+    @Test
+    void cutsOffTornTail() throws IOException {
+        try (WriteAheadLog wal = open(Durability.SYNC)) {
+            wal.recover(0L, new Restorer(List.of()));
+            wal.awaitDurable(wal.appendFilm(film("Kept", 1L)));
+            wal.awaitDurable(wal.appendFilm(film("Torn", 2L)));
+        }
+        Path segment = segments().get(0);
+        long size = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+
+        List<Film> replayed = new ArrayList<>();
+        try (WriteAheadLog wal = open(Durability.SYNC)) {
+            assertEquals(1L, wal.recover(0L, new Restorer(replayed)));
+            wal.awaitDurable(wal.appendFilm(film("Appended", 3L)));
+        }
+        replayed.clear();
+        try (WriteAheadLog wal = open(Durability.SYNC)) {
+            assertEquals(2L, wal.recover(0L, new Restorer(replayed)));
+        }
+
+        assertEquals(List.of("Kept", "Appended"), replayed.stream().map(Film::getName).toList());
+    }
+
+    @Test
+    void continuesInNewSegmentWhenFull() throws IOException {
+        WalProperties properties = properties(Durability.SYNC);
+        properties.setSegmentSize(DataSize.ofBytes(256));
+        try (WriteAheadLog wal = new WriteAheadLog(properties)) {
+            wal.recover(0L, new Restorer(List.of()));
+            for (long id = 1; id <= 20; id++) {
+                wal.awaitDurable(wal.appendFilm(film("Film " + id, id)));
+            }
+        }
+        assertTrue(segments().size() > 1);
+
+        List<Film> replayed = new ArrayList<>();
+        try (WriteAheadLog wal = new WriteAheadLog(properties)) {
+            assertEquals(20L, wal.recover(0L, new Restorer(replayed)));
+        }
+        assertEquals(20, replayed.size());
+        for (int i = 0; i < replayed.size(); i++) {
+            assertEquals(i + 1L, replayed.get(i).getId());
+        }
+    }
+
+    @Test
+    void continuesAfterCrashRightAfterSegmentRollover() throws IOException {
+        WalProperties properties = properties(Durability.SYNC);
+        properties.setSegmentSize(DataSize.ofBytes(256));
+        try (WriteAheadLog wal = new WriteAheadLog(properties)) {
+            wal.recover(0L, new Restorer(List.of()));
+            for (long id = 1; id <= 10; id++) {
+                wal.awaitDurable(wal.appendFilm(film("Film " + id, id)));
+            }
+        }
+        int segmentCount = segments().size();
+        byte[] tornRecord = {0, 0, 0, 100, 1, 2};
+        for (byte[] leftover : List.of(new byte[0], segmentHeader(11L), concat(segmentHeader(11L), tornRecord))) {
+            Files.write(directory.resolve(String.format("wal-%020d.log", 11L)), leftover);
+
+            try (WriteAheadLog wal = new WriteAheadLog(properties)) {
+                assertEquals(10L, wal.recover(0L, new Restorer(new ArrayList<>())));
+                assertEquals(segmentCount, segments().size());
+                wal.awaitDurable(wal.appendFilm(film("Film 11", 11L)));
+            }
+            List<Film> replayed = new ArrayList<>();
+            try (WriteAheadLog wal = new WriteAheadLog(properties)) {
+                assertEquals(11L, wal.recover(0L, new Restorer(replayed)));
+            }
+            assertEquals(11, replayed.size());
+            Files.delete(segments().get(segments().size() - 1));
+        }
+    }
+
+    @Test
+    void failsOnCorruptedRecordBeforeLastSegment() throws IOException {
+        WalProperties properties = properties(Durability.SYNC);
+        properties.setSegmentSize(DataSize.ofBytes(256));
+        try (WriteAheadLog wal = new WriteAheadLog(properties)) {
+            wal.recover(0L, new Restorer(List.of()));
+            for (long id = 1; id <= 20; id++) {
+                wal.awaitDurable(wal.appendFilm(film("Film " + id, id)));
+            }
+        }
+        Path first = segments().get(0);
+        long size = Files.size(first);
+        try (FileChannel channel = FileChannel.open(first, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), size - 1);
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(properties)) {
+            IllegalStateException e = assertThrows(IllegalStateException.class,
+                    () -> wal.recover(0L, new Restorer(new ArrayList<>())));
+            assertTrue(e.getMessage().contains("corrupted"), e.getMessage());
+        }
+        assertEquals(size, Files.size(first));
+    }
+
+    @Test
+    void failsOnMissingSegment() throws IOException {
+        WalProperties properties = properties(Durability.SYNC);
+        properties.setSegmentSize(DataSize.ofBytes(256));
+        try (WriteAheadLog wal = new WriteAheadLog(properties)) {
+            wal.recover(0L, new Restorer(List.of()));
+            for (long id = 1; id <= 30; id++) {
+                wal.awaitDurable(wal.appendFilm(film("Film " + id, id)));
+            }
+        }
+        List<Path> segments = segments();
+        assertTrue(segments.size() > 2);
+        Files.delete(segments.get(1));
+
+        try (WriteAheadLog wal = new WriteAheadLog(properties)) {
+            IllegalStateException e = assertThrows(IllegalStateException.class,
+                    () -> wal.recover(0L, new Restorer(new ArrayList<>())));
+            assertTrue(e.getMessage().contains("starts at LSN"), e.getMessage());
+        }
+        assertEquals(segments.size() - 1, segments().size());
+    }
+
+    @Test
+    void syncRecordIsOnDiskOnceDurable() throws IOException {
+        try (WriteAheadLog wal = open(Durability.SYNC)) {
+            wal.recover(0L, new Restorer(List.of()));
+            wal.awaitDurable(wal.appendFilm(film("Durable", 1L)));
+
+            List<Film> replayed = new ArrayList<>();
+            try (WriteAheadLog copy = open(Durability.NONE)) {
+                copy.recover(0L, new Restorer(replayed));
+            }
+            assertEquals(List.of("Durable"), replayed.stream().map(Film::getName).toList());
+        }
+    }
+
+    @Test
+    void completesDurableFutureAfterFlush() throws Exception {
+        try (WriteAheadLog wal = open(Durability.SYNC)) {
+            wal.recover(0L, new Restorer(List.of()));
+            CompletableFuture<Void> first = wal.whenDurable(wal.appendFilm(film("First", 1L)));
+            CompletableFuture<Void> second = wal.whenDurable(wal.appendFilm(film("Second", 2L)));
+            second.get(5, TimeUnit.SECONDS);
+            assertTrue(first.isDone());
+            assertTrue(wal.whenDurable(1L).isDone());
+        }
+    }
+
+    @Test
+    void asyncRecordsAreWrittenOnClose() {
+        try (WriteAheadLog wal = open(Durability.ASYNC)) {
+            wal.recover(0L, new Restorer(List.of()));
+            for (long id = 1; id <= 100; id++) {
+                wal.awaitDurable(wal.appendFilm(film("Film " + id, id)));
+            }
+        }
+
+        try (WriteAheadLog wal = open(Durability.ASYNC)) {
+            assertEquals(100L, wal.recover(0L, new Restorer(new ArrayList<>())));
+        }
+    }
+
+    @Test
+    void replaysOnlyRecordsAfterGivenLsn() throws IOException {
+        WalProperties properties = properties(Durability.SYNC);
+        properties.setSegmentSize(DataSize.ofBytes(256));
+        try (WriteAheadLog wal = new WriteAheadLog(properties)) {
+            wal.recover(0L, new Restorer(List.of()));
+            for (long id = 1; id <= 20; id++) {
+                wal.awaitDurable(wal.appendFilm(film("Film " + id, id)));
+            }
+            wal.deleteSegmentsUpTo(15L);
+        }
+        assertTrue(segments().size() > 1);
+
+        List<Film> replayed = new ArrayList<>();
+        try (WriteAheadLog wal = new WriteAheadLog(properties)) {
+            assertEquals(20L, wal.recover(15L, new Restorer(replayed)));
+            assertEquals(21L, wal.appendFilm(film("Film 21", 21L)));
+        }
+        assertEquals(List.of(16L, 17L, 18L, 19L, 20L), replayed.stream().map(Film::getId).toList());
+    }
+
+    @Test
+    void rejectsAppendsBeforeRecovery() {
+        try (WriteAheadLog wal = open(Durability.SYNC)) {
+            assertThrows(IllegalStateException.class, () -> wal.appendFilm(film("Early", 1L)));
+        }
+    }
+
+    private WriteAheadLog open(Durability durability) {
+        return new WriteAheadLog(properties(durability));
+    }
+
+    private WalProperties properties(Durability durability) {
+        WalProperties properties = new WalProperties();
+        properties.setDirectory(directory);
+        properties.setDurability(durability);
+        properties.setFlushInterval(Duration.ofMillis(1));
+        return properties;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static byte[] segmentHeader(long firstLsn) {
+        return ByteBuffer.allocate(WriteAheadLog.SEGMENT_HEADER_SIZE)
+                .putInt(WriteAheadLog.MAGIC)
+                .putShort(WriteAheadLog.FORMAT_VERSION)
+                .putLong(firstLsn)
+                .array();
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] bytes = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, bytes, first.length, second.length);
+        return bytes;
+    }
+
+    private static Film film(String name) {
+        return film(name, null);
+    }
+
+    private static Film film(String name, Long id) {
+        return new Film(id, name, "Description", LocalDate.of(1999, Month.AUGUST, 19), Duration.ofMinutes(90));
+    }
+
+    private static User user(String login) {
+        return new User(null, login + "@test.com", login, "John Wick", LocalDate.of(1988, Month.APRIL, 1));
+    }
+
+    private static class Restorer implements WriteAheadLog.RecordHandler {
+        private final InMemoryFilmRepository films;
+        private final InMemoryUserRepository users;
+        private final List<Film> replayed;
+
+        private Restorer(InMemoryFilmRepository films, InMemoryUserRepository users) {
+            this.films = films;
+            this.users = users;
+            this.replayed = null;
+        }
+
+        private Restorer(List<Film> replayed) {
+            this.films = null;
+            this.users = null;
+            this.replayed = replayed;
+        }
+
+        @Override
+        public void onFilm(Film film) {
+            if (replayed != null) {
+                replayed.add(film);
+            } else {
+                films.restore(film);
+            }
+        }
+
+        @Override
+        public void onUser(User user) {
+            if (users != null) {
+                users.restore(user);
+            }
+        }
+
+        @Override
+        public void onLike(long filmId, long userId, boolean liked) {
+            if (films != null) {
+                films.restoreLike(filmId, userId, liked);
+            }
+        }
+
+        @Override
+        public void onFriend(long userId, long friendId, boolean added) {
+            if (users != null) {
+                users.restoreFriend(userId, friendId, added);
+            }
+        }
+    }
+
+    @Test
+    void batchAppendTakesConsecutiveLsns() {
+        try (WriteAheadLog wal = open(Durability.SYNC)) {
+            wal.recover(0L, new Restorer(List.of()));
+            long lsn = wal.appendFilms(List.of(film("First", 1L), film("Second", 2L), film("Third", 3L)));
+            wal.awaitDurable(lsn);
+            assertEquals(3L, lsn);
+            assertEquals(4L, wal.appendFilm(film("Fourth", 4L)));
+        }
+
+        List<Film> replayed = new ArrayList<>();
+        try (WriteAheadLog wal = open(Durability.SYNC)) {
+            assertEquals(4L, wal.recover(0L, new Restorer(replayed)));
+        }
+        assertEquals(List.of("First", "Second", "Third", "Fourth"), replayed.stream().map(Film::getName).toList());
+    }
+}
@@ -0,0 +1,164 @@
+package ru.yandex.practicum.filmorate.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.infrastructure.InMemoryFilmRepository;
+import ru.yandex.practicum.filmorate.infrastructure.InMemoryUserRepository;
+import ru.yandex.practicum.filmorate.infrastructure.persistence.Journal;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+import ru.yandex.practicum.filmorate.repository.UserRepository;
+import ru.yandex.practicum.filmorate.util.BackgroundThreads;
+import ru.yandex.practicum.filmorate.util.IdGenerator;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NdjsonImporterTest {
+    private static final ObjectMapper OBJECT_MAPPER = JsonMapper.builder().findAndAddModules().build();
+    private static final Validator VALIDATOR = Validation.buildDefaultValidatorFactory().getValidator();
+    private static final String FILM =
+            "{\"name\":\"Film\",\"description\":\"Description\",\"releaseDate\":\"1999-08-19\",\"duration\":90}";
+
+    private final IdGenerator idGenerator = new IdGenerator();
+    private final InMemoryFilmRepository filmRepository = new InMemoryFilmRepository(idGenerator, Journal.NONE);
+    private final InMemoryUserRepository userRepository = new InMemoryUserRepository(idGenerator, Journal.NONE);
+
+    @Test
+    void importsValidLinesAndReportsRejectedOnes() throws IOException {
+        String input = String.join("\n",
+                FILM,
+                "",
+                "{\"name\":",
+                FILM.replace("\"Film\"", "\"\""),
+                FILM.replace("\"Film\"", "\"Second\""),
+                "null");
+
+        ImportReport report = importer(filmRepository, properties(2, 2, 1)).importFilms(stream(input));
+
+        assertEquals(2L, report.getImported());
+        assertEquals(3L, report.getRejected());
+        List<ImportReport.Rejection> rejections = report.getRejections().stream()
+                .sorted(Comparator.comparingLong(ImportReport.Rejection::getLine))
+                .toList();
+        assertEquals(List.of(3L, 4L, 6L), rejections.stream().map(ImportReport.Rejection::getLine).toList());
+        assertTrue(rejections.get(0).getErrors().get(0).startsWith("invalid JSON"));
+        assertEquals(List.of("name: must not be blank"), rejections.get(1).getErrors());
+        assertEquals(List.of("must not be null"), rejections.get(2).getErrors());
+        assertEquals(List.of("Film", "Second"),
+                filmRepository.findAll().stream().map(Film::getName).sorted().toList());
+        assertEquals(Duration.ofMinutes(90), filmRepository.findBy(1L).orElseThrow().getDuration());
+    }
+
+    @Test
+    void importsLargeInputThroughSmallQueues() throws IOException {
+        int films = 20_000;
+        String input = IntStream.range(0, films).mapToObj(i -> FILM).collect(Collectors.joining("\n"));
+
+        ImportReport report = importer(filmRepository, properties(4, 100, 1)).importFilms(stream(input));
+
+        assertEquals(films, report.getImported());
+        assertEquals(0L, report.getRejected());
+        assertEquals(films, filmRepository.findAll().size());
+        assertEquals(films, filmRepository.findAll().stream().mapToLong(Film::getId).distinct().count());
+    }
+
+    @Test
+    void importsOnVirtualThreads() throws IOException {
+        int films = 20_000;
+        String input = IntStream.range(0, films).mapToObj(i -> FILM).collect(Collectors.joining("\n"));
+
+        ImportReport report = importer(filmRepository, properties(4, 100, 1), new BackgroundThreads(true))
+                .importFilms(stream(input));
+
+        assertEquals(films, report.getImported());
+        assertEquals(films, filmRepository.findAll().size());
+    }
+
+    @Test
+    void failedInsertStopsImport() {
+        FilmRepository failingRepository = mock(FilmRepository.class);
+        when(failingRepository.createAll(any())).thenThrow(new IllegalStateException("disk full"));
+        String input = IntStream.range(0, 50_000).mapToObj(i -> FILM).collect(Collectors.joining("\n"));
+        NdjsonImporter importer = importer(failingRepository, properties(2, 10, 1));
+
+        IllegalStateException e = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                () -> assertThrows(IllegalStateException.class, () -> importer.importFilms(stream(input))));
+
+        assertEquals("disk full", e.getMessage());
+    }
+
+    @Test
+    void importsUsers() throws IOException {
+        String input = "{\"email\":\"mail@mail.ru\",\"login\":\"dolore\",\"birthday\":\"1946-08-20\"}\n"
+                + "{\"email\":\"not an email\",\"login\":\"dolore\",\"birthday\":\"1946-08-20\"}\n";
+
+        ImportReport report = importer(filmRepository, properties(1, 10, 1)).importUsers(stream(input));
+
+        assertEquals(1L, report.getImported());
+        assertEquals(1L, report.getRejected());
+        assertEquals(List.of("dolore"), userRepository.findAll().stream().map(User::getName).toList());
+    }
+
+    @Test
+    void reportsUsersThatConflictWithTheirLines() throws IOException {
+        userRepository.create(new User(null, "taken@mail.ru", "taken", "Taken", LocalDate.of(1946, Month.AUGUST, 20)));
+        String input = "{\"email\":\"first@mail.ru\",\"login\":\"first\",\"birthday\":\"1946-08-20\"}\n"
+                + "{\"email\":\"second@mail.ru\",\"login\":\"taken\",\"birthday\":\"1946-08-20\"}\n"
+                + "{\"email\":\"not an email\",\"login\":\"third\",\"birthday\":\"1946-08-20\"}\n"
+                + "{\"email\":\"taken@mail.ru\",\"login\":\"fourth\",\"birthday\":\"1946-08-20\"}\n"
+                + "{\"email\":\"fifth@mail.ru\",\"login\":\"fifth\",\"birthday\":\"1946-08-20\"}\n";
+
+        ImportReport report = importer(filmRepository, properties(1, 10, 1)).importUsers(stream(input));
+
+        assertEquals(2L, report.getImported());
+        assertEquals(3L, report.getRejected());
+        List<ImportReport.Rejection> rejections = report.getRejections().stream()
+                .sorted(Comparator.comparingLong(ImportReport.Rejection::getLine))
+                .toList();
+        assertEquals(List.of(2L, 3L, 4L), rejections.stream().map(ImportReport.Rejection::getLine).toList());
+        assertEquals(List.of("login: taken is already taken"), rejections.get(0).getErrors());
+        assertEquals(List.of("email: taken@mail.ru is already taken"), rejections.get(2).getErrors());
+        assertEquals(List.of("fifth", "first", "taken"),
+                userRepository.findAll().stream().map(User::getLogin).sorted().toList());
+    }
+
+    private NdjsonImporter importer(FilmRepository films, ImportProperties properties) {
+        return importer(films, properties, new BackgroundThreads(false));
+    }
+
+    private NdjsonImporter importer(FilmRepository films, ImportProperties properties, BackgroundThreads threads) {
+        UserRepository users = userRepository;
+        return new NdjsonImporter(films, users, OBJECT_MAPPER, VALIDATOR, properties, threads);
+    }
+
+    private static ImportProperties properties(int parallelism, int batchSize, int queueCapacity) {
+        ImportProperties properties = new ImportProperties();
+        properties.setParallelism(parallelism);
+        properties.setBatchSize(batchSize);
+        properties.setQueueCapacity(queueCapacity);
+        return properties;
+    }
+
+    private static InputStream stream(String input) {
+        return new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestLoggingInterceptorTest {
+    private final Logger logger = (Logger) LoggerFactory.getLogger(RequestLoggingInterceptor.class);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private final RequestLoggingProperties properties = new RequestLoggingProperties();
+    private final RequestLoggingInterceptor interceptor = new RequestLoggingInterceptor(properties);
+
+    @BeforeEach
+    public void setup() {
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    void logsEndpointStatusAndTime() {
+        handle(request("GET", "/films/{id}", "/films/1"), 200);
+
+        assertEquals(1, appender.list.size());
+        String message = appender.list.get(0).getFormattedMessage();
+        assertTrue(message.startsWith("GET /films/{id} status=200 timeUs="), message);
+    }
+
+    @Test
+    void logsQueryAndHandlerWhenEndpointIsVerbose() {
+        properties.getEndpoints().put("GET /films", RequestLoggingProperties.Verbosity.FULL);
+        MockHttpServletRequest request = request("GET", "/films", "/films");
+        request.setQueryString("limit=10");
+
+        handle(request, 200);
+
+        String message = appender.list.get(0).getFormattedMessage();
+        assertTrue(message.contains("query=limit=10"), message);
+    }
+
+    @Test
+    void skipsEndpointWithLoggingTurnedOff() {
+        properties.getEndpoints().put("GET /films", RequestLoggingProperties.Verbosity.OFF);
+
+        handle(request("GET", "/films", "/films"), 200);
+
+        assertTrue(appender.list.isEmpty());
+    }
+
+    @Test
+    void alwaysLogsFailedRequests() {
+        properties.setSampleRate(0.0);
+        properties.getEndpoints().put("PUT /films", RequestLoggingProperties.Verbosity.OFF);
+
+        handle(request("GET", "/films", "/films"), 200);
+        handle(request("PUT", "/films", "/films"), 404);
+
+        assertEquals(1, appender.list.size());
+        assertTrue(appender.list.get(0).getFormattedMessage().startsWith("PUT /films status=404"));
+    }
+
+    private void handle(MockHttpServletRequest request, int status) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setStatus(status);
+        interceptor.preHandle(request, response, new Object());
+        interceptor.afterCompletion(request, response, new Object(), null);
+    }
+
+    private static MockHttpServletRequest request(String method, String pattern, String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+        return request;
+    }
+}
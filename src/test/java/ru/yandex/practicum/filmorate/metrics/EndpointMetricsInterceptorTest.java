@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EndpointMetricsInterceptorTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final EndpointMetricsInterceptor interceptor = new EndpointMetricsInterceptor(meterRegistry);
+
+    @Test
+    void countsRequestsAndErrorsPerControllerMethod() throws NoSuchMethodException {
+        HandlerMethod getFilm = handler("getFilm");
+        HandlerMethod getUser = handler("getUser");
+
+        complete(getFilm, 200, null);
+        complete(getFilm, 404, null);
+        complete(getFilm, 200, new IllegalStateException());
+        complete(getUser, 500, null);
+
+        assertEquals(3.0, requests("getFilm"));
+        assertEquals(1.0, errors("getFilm", "client"));
+        assertEquals(1.0, errors("getFilm", "server"));
+        assertEquals(1.0, requests("getUser"));
+        assertEquals(0.0, errors("getUser", "client"));
+        assertEquals(1.0, errors("getUser", "server"));
+    }
+
+    @Test
+    void skipsRequestsNotHandledByController() {
+        complete("static resource", 200, null);
+
+        assertTrue(meterRegistry.find("filmorate.endpoint.requests").counters().isEmpty());
+    }
+
+    private void complete(Object handler, int status, Exception ex) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setStatus(status);
+        interceptor.afterCompletion(new MockHttpServletRequest(), response, handler, ex);
+    }
+
+    private double requests(String method) {
+        return meterRegistry.get("filmorate.endpoint.requests")
+                .tag("controller", "Endpoints")
+                .tag("method", method)
+                .counter()
+                .count();
+    }
+
+    private double errors(String method, String kind) {
+        return meterRegistry.get("filmorate.endpoint.errors")
+                .tag("controller", "Endpoints")
+                .tag("method", method)
+                .tag("kind", kind)
+                .counter()
+                .count();
+    }
+
+    private static HandlerMethod handler(String method) throws NoSuchMethodException {
+        return new HandlerMethod(new Endpoints(), Endpoints.class.getDeclaredMethod(method));
+    }
+
+    private static class Endpoints {
+        void getFilm() {
+        }
+
+        void getUser() {
+        }
+    }
+}
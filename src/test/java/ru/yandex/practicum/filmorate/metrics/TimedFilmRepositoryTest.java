@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.infrastructure.InMemoryFilmRepository;
+import ru.yandex.practicum.filmorate.infrastructure.persistence.Journal;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+import ru.yandex.practicum.filmorate.util.IdGenerator;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TimedFilmRepositoryTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TimedFilmRepository films =
+            new TimedFilmRepository(new InMemoryFilmRepository(new IdGenerator(), Journal.NONE), meterRegistry);
+
+    @Test
+    void timesEveryCallOfTheMethod() {
+        Film created = films.create(film());
+        films.findBy(created.getId());
+        films.findBy(created.getId() + 1);
+
+        assertEquals(1L, timer("create").count());
+        assertEquals(2L, timer("findBy").count());
+        assertEquals(0L, timer("update").count());
+        assertTrue(timer("findBy").totalTime(TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test
+    void passesCheapCallsThroughUntimed() {
+        films.create(film());
+
+        assertEquals(1L, films.version());
+        assertEquals(1, films.findAll().size());
+
+        assertNull(meterRegistry.find("filmorate.repository.calls").tag("method", "version").timer());
+        assertNull(meterRegistry.find("filmorate.repository.calls").tag("method", "findAll").timer());
+    }
+
+    @Test
+    void timesCallsThatThrow() {
+        FilmRepository failing = mock(FilmRepository.class);
+        when(failing.update(any())).thenThrow(new IllegalStateException("Journal failed"));
+        TimedFilmRepository timed = new TimedFilmRepository(failing, meterRegistry);
+
+        assertThrows(IllegalStateException.class, () -> timed.update(film()));
+
+        assertEquals(1L, timer("update").count());
+    }
+
+    private Timer timer(String method) {
+        return meterRegistry.get("filmorate.repository.calls")
+                .tag("repository", "films")
+                .tag("method", method)
+                .timer();
+    }
+
+    private static Film film() {
+        return new Film(null, "Star Wars", "Science Fiction", LocalDate.of(1999, Month.AUGUST, 19),
+                Duration.ofMinutes(90));
+    }
+}
@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdSequenceTest {
+
+    @Test
+    void startsAtOne() {
+        IdSequence sequence = new IdSequence();
+
+        assertEquals(0L, sequence.last());
+        assertEquals(1L, sequence.next());
+        assertEquals(2L, sequence.next());
+        assertEquals(2L, sequence.last());
+    }
+
+    @Test
+    void advancePastSkipsRestoredIds() {
+        IdSequence sequence = new IdSequence();
+
+        sequence.advancePast(41L);
+
+        assertEquals(42L, sequence.next());
+    }
+
+    @Test
+    void advancePastNeverMovesBackwards() {
+        IdSequence sequence = new IdSequence();
+        sequence.advancePast(100L);
+
+        sequence.advancePast(10L);
+
+        assertEquals(101L, sequence.next());
+    }
+
+    @Test
+    void concurrentCallersGetUniqueIds() throws Exception {
+        IdSequence sequence = new IdSequence();
+        int threads = 8;
+        int idsPerThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                long[] ids = new long[idsPerThread];
+                for (int j = 0; j < idsPerThread; j++) {
+                    ids[j] = sequence.next();
+                }
+                return ids;
+            }));
+        }
+        Set<Long> ids = new HashSet<>();
+        for (Future<long[]> future : futures) {
+            for (long id : future.get(30, TimeUnit.SECONDS)) {
+                ids.add(id);
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(threads * idsPerThread, ids.size());
+        assertEquals((long) threads * idsPerThread, sequence.last());
+    }
+
+    @Test
+    void reserveHandsOutConsecutiveBlock() {
+        IdSequence sequence = new IdSequence();
+        sequence.next();
+
+        assertEquals(2L, sequence.reserve(3));
+        assertEquals(5L, sequence.next());
+    }
+}
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongHashSetTest {
+
+    @Test
+    void addsAndRemovesZeroAndExtremes() {
+        LongHashSet set = new LongHashSet();
+
+        assertTrue(set.add(0L));
+        assertTrue(set.add(Long.MIN_VALUE));
+        assertTrue(set.add(Long.MAX_VALUE));
+        assertFalse(set.add(0L));
+
+        assertEquals(3, set.size());
+        assertArrayEquals(new long[]{Long.MIN_VALUE, 0L, Long.MAX_VALUE}, set.toSortedArray());
+        assertTrue(set.remove(0L));
+        assertFalse(set.remove(0L));
+        assertFalse(set.contains(0L));
+        assertTrue(set.contains(Long.MAX_VALUE));
+    }
+
+    @Test
+    void matchesHashSetUnderRandomChanges() {
+        Random random = new Random(42);
+        Set<Long> expected = new HashSet<>();
+        LongHashSet set = new LongHashSet();
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextInt(3_000) - 100;
+            if (random.nextInt(i < 50_000 ? 3 : 2) == 0) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+        for (long value = -100; value < 2_900; value++) {
+            assertEquals(expected.contains(value), set.contains(value), "value " + value);
+        }
+        assertArrayEquals(expected.stream().mapToLong(Long::longValue).sorted().toArray(), set.toSortedArray());
+    }
+
+    @Test
+    void shrinksBackWhenEmptied() {
+        LongHashSet set = new LongHashSet();
+        for (long value = 1; value <= 10_000; value++) {
+            set.add(value * 31);
+        }
+        for (long value = 1; value <= 10_000; value++) {
+            assertTrue(set.remove(value * 31));
+        }
+
+        assertTrue(set.isEmpty());
+        assertArrayEquals(new long[0], set.toSortedArray());
+        assertTrue(set.add(62L));
+        assertTrue(set.contains(62L));
+    }
+}
@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedLongSetTest {
+
+    @Test
+    void packsValuesInOrder() {
+        long[] values = {0L, 1L, 300L, 1L << 40, Long.MAX_VALUE};
+
+        PackedLongSet set = PackedLongSet.of(values, values.length);
+
+        assertArrayEquals(values, set.toArray());
+        assertEquals(5, set.size());
+        assertTrue(set.contains(0L));
+        assertTrue(set.contains(Long.MAX_VALUE));
+        assertFalse(set.contains(299L));
+        assertArrayEquals(new long[]{1L << 40, Long.MAX_VALUE}, set.greaterThan(300L));
+    }
+
+    @Test
+    void rejectsUnorderedOrNegativeValues() {
+        assertThrows(IllegalArgumentException.class, () -> PackedLongSet.of(new long[]{2L, 1L}, 2));
+        assertThrows(IllegalArgumentException.class, () -> PackedLongSet.of(new long[]{-1L}, 1));
+        assertThrows(IllegalArgumentException.class, () -> PackedLongSet.empty().with(-1L));
+    }
+
+    @Test
+    void changesLeavePreviousSetUntouched() {
+        PackedLongSet before = PackedLongSet.empty().with(5L).with(1L);
+
+        PackedLongSet after = before.with(3L).without(5L);
+
+        assertArrayEquals(new long[]{1L, 5L}, before.toArray());
+        assertArrayEquals(new long[]{1L, 3L}, after.toArray());
+        assertSame(after, after.with(3L));
+        assertSame(after, after.without(4L));
+        assertSame(PackedLongSet.empty(), PackedLongSet.empty().with(7L).without(7L));
+    }
+
+    @Test
+    void closeValuesTakeFewBytes() {
+        PackedLongSet set = PackedLongSet.empty();
+        for (long value = 1_000_000; value < 1_300_000; value += 1_000) {
+            set = set.with(value);
+        }
+
+        assertEquals(300, set.size());
+        assertEquals(3 + 299 * 2, set.packedLength());
+    }
+
+    @Test
+    void matchesSortedSetUnderRandomChanges() {
+        Random random = new Random(42);
+        TreeSet<Long> expected = new TreeSet<>();
+        TreeSet<Long> other = new TreeSet<>();
+        PackedLongSet set = PackedLongSet.empty();
+        PackedLongSet otherSet = PackedLongSet.empty();
+        for (int i = 0; i < 20_000; i++) {
+            long value = random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(value);
+                set = set.without(value);
+            } else {
+                expected.add(value);
+                set = set.with(value);
+            }
+            long otherValue = random.nextInt(2_000);
+            other.add(otherValue);
+            otherSet = otherSet.with(otherValue);
+        }
+
+        assertArrayEquals(expected.stream().mapToLong(Long::longValue).toArray(), set.toArray());
+        assertEquals(expected.size(), set.size());
+        for (long value = 0; value < 2_000; value++) {
+            assertEquals(expected.contains(value), set.contains(value), "value " + value);
+        }
+        TreeSet<Long> common = new TreeSet<>(expected);
+        common.retainAll(other);
+        assertArrayEquals(common.stream().mapToLong(Long::longValue).toArray(), set.intersect(otherSet));
+        assertArrayEquals(new long[0], set.intersect(PackedLongSet.empty()));
+    }
+}
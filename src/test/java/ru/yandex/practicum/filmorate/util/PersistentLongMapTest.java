@@ -0,0 +1,165 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentLongMapTest {
+
+    @Test
+    void putAndGet() {
+        PersistentLongMap<String> map = PersistentLongMap.<String>empty()
+                .put(1L, "one")
+                .put(0L, "zero")
+                .put(1_000_000L, "million");
+
+        assertEquals("one", map.get(1L));
+        assertEquals("zero", map.get(0L));
+        assertEquals("million", map.get(1_000_000L));
+        assertNull(map.get(2L));
+        assertNull(map.get(-1L));
+        assertNull(map.get(Long.MAX_VALUE));
+        assertEquals(3, map.size());
+    }
+
+    @Test
+    void putReplacesExistingValue() {
+        PersistentLongMap<String> map = PersistentLongMap.<String>empty().put(1L, "one").put(1L, "uno");
+
+        assertEquals("uno", map.get(1L));
+        assertEquals(1, map.size());
+        assertEquals(2L, map.version());
+    }
+
+    @Test
+    void putLeavesPreviousSnapshotUntouched() {
+        PersistentLongMap<String> before = PersistentLongMap.<String>empty().put(1L, "one");
+
+        PersistentLongMap<String> after = before.put(1L, "uno").put(2L, "two");
+
+        assertEquals("one", before.get(1L));
+        assertNull(before.get(2L));
+        assertEquals(List.of("one"), new ArrayList<>(before.values()));
+        assertEquals(List.of("uno", "two"), new ArrayList<>(after.values()));
+    }
+
+    @Test
+    void supportsWholeNonNegativeKeyRange() {
+        PersistentLongMap<String> map = PersistentLongMap.<String>empty()
+                .put(Long.MAX_VALUE, "max")
+                .put(3L, "three");
+
+        assertEquals("max", map.get(Long.MAX_VALUE));
+        assertEquals("three", map.get(3L));
+        assertEquals(List.of("three", "max"), new ArrayList<>(map.values()));
+        assertEquals(List.of("max"), map.valuesAfter(3L, 10));
+        assertTrue(map.valuesAfter(Long.MAX_VALUE, 10).isEmpty());
+    }
+
+    @Test
+    void throwsExceptionWhenKeyIsNegative() {
+        PersistentLongMap<String> map = PersistentLongMap.empty();
+
+        assertThrows(IllegalArgumentException.class, () -> map.put(-1L, "minus one"));
+    }
+
+    @Test
+    void throwsExceptionWhenValueIsNull() {
+        PersistentLongMap<String> map = PersistentLongMap.empty();
+
+        assertThrows(NullPointerException.class, () -> map.put(1L, null));
+    }
+
+    @Test
+    void emptyMapHasNoValues() {
+        PersistentLongMap<String> map = PersistentLongMap.empty();
+
+        assertTrue(map.values().isEmpty());
+        assertFalse(map.values().iterator().hasNext());
+        assertTrue(map.valuesAfter(0L, 10).isEmpty());
+    }
+
+    @Test
+    void iteratesInKeyOrderLikeTreeMap() {
+        Random random = new Random(42);
+        TreeMap<Long, Long> expected = new TreeMap<>();
+        PersistentLongMap<Long> map = PersistentLongMap.empty();
+        for (int i = 0; i < 20_000; i++) {
+            long key = i % 2 == 0 ? random.nextInt(50_000) : random.nextLong() & Long.MAX_VALUE;
+            expected.put(key, key);
+            map = map.put(key, key);
+        }
+
+        assertEquals(expected.size(), map.size());
+        assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(map.values()));
+        for (Long key : expected.keySet()) {
+            assertEquals(key, map.get(key));
+        }
+        List<Long> keys = new ArrayList<>(expected.keySet());
+        for (int i = 0; i < 200; i++) {
+            long after = random.nextInt(60_000);
+            List<Long> page = new ArrayList<>(expected.tailMap(after, false).values()).subList(0, 25);
+            assertEquals(page, map.valuesAfter(after, 25));
+        }
+        assertEquals(keys.subList(0, 10), map.valuesAfter(-5L, 10));
+    }
+
+    @Test
+    void builderMatchesRepeatedPuts() {
+        PersistentLongMap.Builder<String> builder = PersistentLongMap.builder();
+        PersistentLongMap<String> expected = PersistentLongMap.empty();
+        for (long key : new long[]{5L, 1_000L, 0L, 40_000_000L, 5L}) {
+            builder.put(key, "v" + key);
+            expected = expected.put(key, "v" + key);
+        }
+
+        PersistentLongMap<String> built = builder.build();
+
+        assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(built.values()));
+        assertEquals(4, built.size());
+        assertEquals(5L, built.version());
+        assertEquals("v1000", built.put(7L, "seven").get(1_000L));
+        assertThrows(IllegalStateException.class, () -> builder.put(1L, "late"));
+    }
+
+    @Test
+    void lastKey() {
+        assertEquals(-1L, PersistentLongMap.empty().lastKey());
+        assertEquals(0L, PersistentLongMap.<String>empty().put(0L, "zero").lastKey());
+        assertEquals(40_000_000L, PersistentLongMap.<String>empty().put(40_000_000L, "a").put(33L, "b").lastKey());
+        assertEquals(Long.MAX_VALUE, PersistentLongMap.<String>empty().put(Long.MAX_VALUE, "max").lastKey());
+    }
+
+    @Test
+    void putAllMatchesRepeatedPutsAndLeavesSnapshotUntouched() {
+        PersistentLongMap<String> before = PersistentLongMap.<String>empty().put(1L, "one").put(70L, "seventy");
+        List<String> values = List.of("1", "2", "70", "5000", "2");
+
+        PersistentLongMap<String> after = before.putAll(values, Long::parseLong);
+
+        PersistentLongMap<String> expected = before;
+        for (String value : values) {
+            expected = expected.put(Long.parseLong(value), value);
+        }
+        assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(after.values()));
+        assertEquals(4, after.size());
+        assertEquals(7L, after.version());
+        assertEquals(List.of("one", "seventy"), new ArrayList<>(before.values()));
+        assertSame(before, before.putAll(List.of(), Long::parseLong));
+    }
+
+    @Test
+    void getAllReturnsPresentValuesInKeyOrder() {
+        PersistentLongMap<String> map = PersistentLongMap.<String>empty()
+                .put(1L, "one")
+                .put(2L, "two")
+                .put(40L, "forty")
+                .put(1_000_000L, "million");
+
+        assertEquals(List.of("one", "two", "forty", "million"), map.getAll(new long[]{1L, 2L, 3L, 40L, 1_000_000L}));
+        assertEquals(List.of("forty", "one"), map.getAll(new long[]{-1L, 40L, 1L, Long.MAX_VALUE}));
+        assertTrue(map.getAll(new long[0]).isEmpty());
+    }
+}
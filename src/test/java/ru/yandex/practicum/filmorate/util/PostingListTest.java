@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostingListTest {
+
+    @Test
+    void packsEntriesInIdOrder() {
+        long[] ids = {1L, 2L, 300L, 1L << 40};
+        byte[] weights = {1, 3, (byte) 200, 7};
+
+        PostingList list = PostingList.of(ids, weights, ids.length);
+
+        assertEquals(Map.of(1L, 1, 2L, 3, 300L, 200, 1L << 40, 7), entries(list));
+        assertEquals(200, list.weightOf(300L));
+        assertEquals(0, list.weightOf(299L));
+        assertEquals(0, list.weightOf(0L));
+        assertEquals(0, list.weightOf(Long.MAX_VALUE));
+        assertEquals(4, list.size());
+    }
+
+    @Test
+    void rejectsUnorderedIds() {
+        assertThrows(IllegalArgumentException.class,
+                () -> PostingList.of(new long[]{2L, 1L}, new byte[]{1, 1}, 2));
+    }
+
+    @Test
+    void changesLeavePreviousListUntouched() {
+        PostingList before = PostingList.empty().with(1L, 1).with(2L, 2);
+
+        PostingList after = before.with(2L, 5).without(1L).with(3L, 300);
+
+        assertEquals(Map.of(1L, 1, 2L, 2), entries(before));
+        assertEquals(Map.of(2L, 5, 3L, PostingList.MAX_WEIGHT), entries(after));
+        assertTrue(PostingList.empty().with(1L, 1).without(1L).isEmpty());
+    }
+
+    @Test
+    void matchesSortedMapUnderRandomChanges() {
+        Random random = new Random(42);
+        TreeMap<Long, Integer> expected = new TreeMap<>();
+        PostingList list = PostingList.empty();
+        for (int i = 0; i < 50_000; i++) {
+            long id = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(id);
+                list = list.without(id);
+            } else {
+                int weight = 1 + random.nextInt(10);
+                expected.put(id, weight);
+                list = list.with(id, weight);
+            }
+            if (i % 5_000 == 0) {
+                assertEquals(expected, entries(list));
+            }
+        }
+        assertEquals(expected, entries(list));
+        assertEquals(expected.size(), list.size());
+        PostingList.Cursor cursor = list.cursor();
+        for (long id = 0; id < 5_000; id++) {
+            assertEquals(expected.getOrDefault(id, 0), list.weightOf(id));
+            assertEquals(expected.getOrDefault(id, 0), cursor.weightOf(id));
+        }
+    }
+
+    @Test
+    void appendsLeaveEarlierListsUntouched() {
+        PostingList base = PostingList.empty();
+        for (long id = 1; id <= 1_000; id++) {
+            base = base.with(id * 3, 1);
+        }
+        PostingList first = base.with(5_000L, 2);
+        PostingList second = base.with(6_000L, 3).with(7_000L, 4);
+
+        assertEquals(1_000, base.size());
+        assertEquals(0, base.weightOf(5_000L));
+        assertEquals(2, first.weightOf(5_000L));
+        assertEquals(0, first.weightOf(6_000L));
+        assertEquals(Map.of(6_000L, 3, 7_000L, 4), tail(entries(second), 5_000L));
+        assertEquals(Map.of(5_000L, 2), tail(entries(first), 3_001L));
+    }
+
+    @Test
+    void cursorFindsIdsLookedUpInAnyOrder() {
+        long[] ids = new long[10_000];
+        byte[] weights = new byte[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i * 7L + 1;
+            weights[i] = (byte) (1 + i % 100);
+        }
+        PostingList list = PostingList.of(ids, weights, ids.length);
+        PostingList.Cursor cursor = list.cursor();
+
+        for (long id : new long[]{1L, 8L, 9L, 700L, 701L, 701L, 69_994L, 15L, 14L, 50_001L, 70_000L}) {
+            assertEquals(list.weightOf(id), cursor.weightOf(id), "id " + id);
+        }
+    }
+
+    @Test
+    void forEachUnlessSkippedSkipsRejectedBlocks() {
+        long[] ids = new long[1_000];
+        byte[] weights = new byte[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i + 1;
+            weights[i] = (byte) (i < 128 ? 9 : 1);
+        }
+        PostingList list = PostingList.of(ids, weights, ids.length).with(500L, 2).without(1L);
+        List<Long> visited = new ArrayList<>();
+
+        list.forEachUnlessSkipped(maxWeight -> maxWeight > 1, (id, weight) -> visited.add(id));
+
+        assertEquals(128, visited.size());
+        assertEquals(2L, visited.get(0));
+        assertEquals(500L, visited.get(visited.size() - 1));
+    }
+
+    private static Map<Long, Integer> tail(Map<Long, Integer> entries, long from) {
+        return new TreeMap<>(entries).tailMap(from);
+    }
+
+    private static Map<Long, Integer> entries(PostingList list) {
+        Map<Long, Integer> entries = new TreeMap<>();
+        long[] previous = {Long.MIN_VALUE};
+        list.forEach((id, weight) -> {
+            assertTrue(id > previous[0]);
+            previous[0] = id;
+            entries.put(id, weight);
+        });
+        return entries;
+    }
+}